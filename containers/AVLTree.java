@@ -1,5 +1,7 @@
 package containers;
 
+import java.util.function.Supplier;
+
 /**
  * AVL trees are balanced binary search trees. The balance factor at a node is the left sub-tree height
  * minus the right sub-tree height (with empty tree heights defined as -1). The balance factor at each
@@ -46,6 +48,36 @@ class AVLTree<T extends Comparable<T>> extends BinarySearchTree<T> {
     ((AVLNode)root).insert(v);
   }
 
+  /**
+   * Fetch the value in the tree equal to a given value, or add the given value if there
+   * is none, in a single descent of the tree.
+   * @param v the value searched for and inserted if absent
+   * @return the value already in the tree, or null if v was inserted
+   */
+  public T getOrInsert(T v) { return getOrInsert(v, () -> v); }
+
+  /**
+   * Fetch the value in the tree equal to a given value, or, if there is none, add the value
+   * made by a supplier, in a single descent of the tree. The supplier is called only when
+   * the search has failed and before anything is changed, so if it throws, or returns null
+   * to add nothing, the tree is left as it was.
+   * @param v the value searched for
+   * @param absent makes the value to add, which must equal v, or returns null
+   * @return the value already in the tree, or null if there was none
+   */
+  @SuppressWarnings("unchecked")
+  public T getOrInsert(T v, Supplier<? extends T> absent) {
+    if (root == null) {
+      T w = absent.get();
+      if (w != null) {
+        root = new AVLNode(w, null, null);
+        count = 1;
+      }
+      return null;
+    }
+    return ((AVLNode)root).getOrInsert(v, absent);
+  }
+
   /**
    * Remove a value from an AVL tree.
    * Deletion works as in a binary search tree, except that after deletion at the
@@ -115,6 +147,45 @@ class AVLTree<T extends Comparable<T>> extends BinarySearchTree<T> {
       rebalance();
     }
 
+    /**
+     * Find a value in the AVL tree rooted at this node, or insert the supplied value if it
+     * is absent, rebalancing on the way back up as insert() does.
+     * @param v the value searched for
+     * @param absent makes the value inserted if v is absent, or returns null
+     * @return the value already in the tree, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public T getOrInsert(T v, Supplier<? extends T> absent) {
+      int comparison = v.compareTo(value);
+      if (comparison == 0) return value;
+
+      T result;
+      if (comparison < 0) {
+        if (left == null) {
+          T w = absent.get();
+          if (w == null) return null;
+          left = new AVLNode(w, null, null);
+          count++;
+          setHeight();
+          return null;
+        }
+        result = ((AVLNode)left).getOrInsert(v, absent);
+      }
+      else {
+        if (right == null) {
+          T w = absent.get();
+          if (w == null) return null;
+          right = new AVLNode(w, null, null);
+          count++;
+          setHeight();
+          return null;
+        }
+        result = ((AVLNode)right).getOrInsert(v, absent);
+      }
+      if (result == null) rebalance();
+      return result;
+    }
+
     /**
      * Recursively remove an element from an AVL tree. Each node may have to be
      * rebalanced, and node heights adjusted, all the way on the path from the
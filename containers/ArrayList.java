@@ -3,12 +3,21 @@
  */
 package containers;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
 
 /**
  * An ArrayList is a list of objects implemented using contiguous storage. This implementation
- * expands storage as needed when the array grows.
+ * expands storage as needed when the array grows, and halves it when deletions leave it
+ * a quarter full, though never below the size it was made with (or INITIAL_SIZE).
+ * Vacated slots are cleared so that deleted items can be garbage collected. The store grows
+ * by a growth factor, DEFAULT_GROWTH unless another is given; a smaller factor wastes less
+ * space in very large lists at the cost of copying them more often.
+ *
+ * Items are shifted with System.arraycopy, and insertAll() and removeRange() insert or
+ * remove a whole batch with a single shift of the items after it.
  * 
  * @author C. Fox
  * @version 6/2016
@@ -18,17 +27,32 @@ import java.util.NoSuchElementException;
 public class ArrayList<T> implements List<T>
 {
   public static final int INITIAL_SIZE = 8;
+  public static final double DEFAULT_GROWTH = 2.0;
+  private static final int MAX_SIZE = Integer.MAX_VALUE - 8;  // the largest array most VMs allow
   
-  private T[] store;    // holds list elements
-  private int count;    // how many items in the list
+  private T[] store;          // holds list elements
+  private int count;          // how many items in the list
+  private final int minSize;  // the store never shrinks below this size
+  private final double growth;  // the store is multiplied by this when it fills
+
+  public ArrayList(int initialSize) { this(initialSize, DEFAULT_GROWTH); }
+  public ArrayList() { this(INITIAL_SIZE); }
 
+  /**
+   * Make a list whose store starts at a given size and grows by a given factor.
+   * @param initialSize the store size; INITIAL_SIZE if less than 1
+   * @param growthFactor what the store size is multiplied by when the store fills
+   * @throws IllegalArgumentException if growthFactor is not more than 1
+   */
   @SuppressWarnings("unchecked")
-  public ArrayList(int initialSize) {
+  public ArrayList(int initialSize, double growthFactor) {
+    if (!(1.0 < growthFactor)) throw new IllegalArgumentException("Bad growth factor "+growthFactor);
     if (initialSize < 1) initialSize = INITIAL_SIZE;
     count = 0;
     store = (T[]) new Object[initialSize];
+    minSize = Math.max(initialSize, INITIAL_SIZE);
+    growth = growthFactor;
   }
-  public ArrayList() { this(INITIAL_SIZE); }
 
   @Override
   public int size() { return count; }
@@ -37,7 +61,12 @@ public class ArrayList<T> implements List<T>
   public boolean isEmpty() { return count == 0; }
 
   @Override
-  public void clear() { count = 0; }
+  @SuppressWarnings("unchecked")
+  public void clear() {
+    if (minSize < store.length) store = (T[]) new Object[minSize];
+    else Arrays.fill(store, 0, count, null);
+    count = 0;
+  }
 
   @Override
   public boolean contains(T item) {
@@ -46,31 +75,94 @@ public class ArrayList<T> implements List<T>
     return false;
   }
 
+  /**
+   * Create a spliterator that splits the list into halves by index.
+   * @return a spliterator whose every split knows its size
+   */
+  @Override
+  public Spliterator<T> spliterator() { return new ArraySpliterator<>(store, 0, 0, count); }
+
   @Override
   public Iterator<T> iterator() {
     return new ArrayListIterator(store, count);
   }
 
   @Override
-  @SuppressWarnings("unchecked")
   public void insert(int i, T item) throws IndexOutOfBoundsException {
     if (i < 0 || count < i) throw new IndexOutOfBoundsException("Attempted insertion at "+i);
-    if (count == store.length) {
-      Object[] newStore = new Object[2*store.length];
-      for (int k = 0; k < count; k++) newStore[k] = store[k];
-      store = (T[]) newStore;
-    }
-    for (int k = count; i < k; k--) store[k] = store[k-1];
+    if (count == store.length) grow(count+1);
+    System.arraycopy(store, i, store, i+1, count-i);
     store[i] = item;
     count++;
   }
 
+  /**
+   * Put an item at the end of the list, which needs no shifting.
+   * @param item the item added
+   */
+  public void addLast(T item) {
+    if (count == store.length) grow(count+1);
+    store[count++] = item;
+  }
+
+  /**
+   * Insert all the items in a collection, in iteration order, starting at index i. The
+   * items after i are shifted once, however many items are inserted.
+   * @param i where the first item goes, in 0..size()
+   * @param items the items inserted; may be this list
+   * @throws IndexOutOfBoundsException if i is out of range
+   */
+  public void insertAll(int i, Collection<? extends T> items) throws IndexOutOfBoundsException {
+    if (i < 0 || count < i) throw new IndexOutOfBoundsException("Attempted insertion at "+i);
+    Object[] batch;
+    int n;
+    if (items instanceof ArrayList) {
+      ArrayList<? extends T> list = (ArrayList<? extends T>)items;
+      batch = list.store;
+      n = list.count;
+      if (list == this) batch = Arrays.copyOf(batch, n);
+    }
+    else {
+      batch = new Object[items.size()];
+      n = 0;
+      for (T item : items) {
+        if (n == batch.length) batch = Arrays.copyOf(batch, Math.max(2*n, 1));
+        batch[n++] = item;
+      }
+    }
+    if (n == 0) return;
+    if (store.length - count < n) grow(count+n);
+    System.arraycopy(store, i, store, i+n, count-i);
+    System.arraycopy(batch, 0, store, i, n);
+    count += n;
+  }
+
+  /**
+   * Remove the items at indices i..j-1, shifting the items after them once. The store
+   * shrinks as it would had the items been deleted one by one.
+   * @param i the first index removed
+   * @param j one past the last index removed
+   * @throws IndexOutOfBoundsException unless 0 <= i <= j <= size()
+   */
+  public void removeRange(int i, int j) throws IndexOutOfBoundsException {
+    if (i < 0 || j < i || count < j)
+      throw new IndexOutOfBoundsException("Attempted removal from "+i+" to "+j);
+    if (i == j) return;
+    System.arraycopy(store, j, store, i, count-j);
+    Arrays.fill(store, count-(j-i), count, null);
+    count -= j-i;
+    int size = store.length;
+    while (count <= size/4 && minSize <= size/2) size /= 2;
+    if (size < store.length) resize(size);
+  }
+
   @Override
   public T delete(int i) throws IndexOutOfBoundsException {
     if (i < 0 || count <= i) throw new IndexOutOfBoundsException("Attempted deletion at "+i);
     T result = store[i];
-    for (int k = i; k < count-1; k++) store[k] = store[k+1];
-    count--;
+    System.arraycopy(store, i+1, store, i, count-i-1);
+    store[--count] = null;
+    if (count <= store.length/4 && minSize <= store.length/2) resize(store.length/2);
     return result;
   }
 
@@ -98,8 +190,7 @@ public class ArrayList<T> implements List<T>
     if (i < 0 || count < i) throw new IndexOutOfBoundsException("Attempted slice from "+i+" to "+j);
     if (j < i || count < j) throw new IndexOutOfBoundsException("Attempted slice from "+i+" to "+j);
     ArrayList<T> result = new ArrayList<T>(j-i);
-    int m = 0;
-    for (int k = i; k < j; k++) result.store[m++] = store[k];
+    System.arraycopy(store, i, result.store, 0, j-i);
     result.count = j-i;
     return result;
   }
@@ -117,6 +208,26 @@ public class ArrayList<T> implements List<T>
    * @return store size in range 0..k
    */
   public int capacity() { return store.length; }
+
+  /**
+   * Reveal what the store size is multiplied by when the store fills.
+   * @return the growth factor, more than 1
+   */
+  public double growthFactor() { return growth; }
+
+  /**
+   * Shrink the store to just hold the items in the list.
+   */
+  public void trimToSize() { resize(Math.max(count, 1)); }
+
+  /**
+   * Expand the store if need be so that it holds a given number of items without
+   * expanding again.
+   * @param capacity how many items the store should hold
+   */
+  public void ensureCapacity(int capacity) {
+    if (store.length < capacity) resize(capacity);
+  }
   
   @Override
   public String toString() {
@@ -127,6 +238,25 @@ public class ArrayList<T> implements List<T>
     return result.toString();
   }
   
+  /**
+   * Expand the store by the growth factor, or further if need be.
+   * @param capacity how many items the store must hold
+   * @throws OutOfMemoryError if capacity is more than an array can hold
+   */
+  private void grow(int capacity) {
+    if (capacity < 0 || MAX_SIZE < capacity) throw new OutOfMemoryError("List too large");
+    long size = Math.max((long)(store.length * growth), store.length + 1L);
+    resize((int)Math.min(MAX_SIZE, Math.max(size, capacity)));
+  }
+
+  /**
+   * Move the items into a new store of a given size.
+   * @param size how many items the new store holds; at least count
+   */
+  private void resize(int size) {
+    store = Arrays.copyOf(store, size);
+  }
+
   private class ArrayListIterator implements java.util.Iterator<T> {
     private T[] store;    // the associated ArrayList store array
     private int count;    // the associated ArrayList size
@@ -3,16 +3,24 @@
  */
 package containers;
 
+import java.util.Spliterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /**
- * A contiguous implementation of queues that is never full.
+ * A contiguous implementation of queues that is never full. The store doubles when it
+ * fills and halves when departures leave it a quarter full, though never below the size
+ * it was made with (or INITIAL_SIZE). Vacated slots are cleared so that departed items
+ * can be garbage collected.
  * @author C. Fox
  */
 public class ArrayQueue<T> implements Queue<T> {
   public static final int INITIAL_SIZE = 8;
   
-  private T[] store;        // holds queue elements
-  private int frontIndex;   // store location of the front element
-  private int count;        // how many elements are in the queue
+  private T[] store;          // holds queue elements
+  private int frontIndex;     // store location of the front element
+  private int count;          // how many elements are in the queue
+  private final int minSize;  // the store never shrinks below this size
 
   @SuppressWarnings("unchecked")
   public ArrayQueue(int initialSize) {
@@ -20,6 +28,7 @@ public class ArrayQueue<T> implements Queue<T> {
     store = (T[]) new Object[initialSize];
     frontIndex = 0;
     count = 0;
+    minSize = Math.max(initialSize, INITIAL_SIZE);
   }
 
   public ArrayQueue() { this(INITIAL_SIZE); }
@@ -31,19 +40,17 @@ public class ArrayQueue<T> implements Queue<T> {
   public boolean isEmpty() { return count == 0; }
 
   @Override
-  public void clear() { count = 0; }
+  @SuppressWarnings("unchecked")
+  public void clear() {
+    if (minSize < store.length) store = (T[]) new Object[minSize];
+    else for (int i = 0; i < count; i++) store[(i+frontIndex) % store.length] = null;
+    frontIndex = 0;
+    count = 0;
+  }
 
   @Override
-  @SuppressWarnings("unchecked")
   public void enter(T item) {
-    if (count == store.length) {
-      Object[] newStore = new Object[2*store.length];
-      for (int i = 0; i < count; i++) {
-        newStore[i] = store[(i+frontIndex) % store.length];
-      }
-      store = (T[]) newStore;
-      frontIndex = 0;
-    }
+    if (count == store.length) resize(2*store.length);
     store[(frontIndex + count) % store.length] = item;
     count++;
   }
@@ -58,8 +65,10 @@ public class ArrayQueue<T> implements Queue<T> {
   public T leave() throws IllegalStateException {
     if (count == 0) throw new IllegalStateException("leave of an empty queue");
     T result = store[frontIndex];
+    store[frontIndex] = null;
     frontIndex = (frontIndex+1) % store.length;
     count--;
+    if (count <= store.length/4 && minSize <= store.length/2) resize(store.length/2);
     return result;
   }
 
@@ -68,4 +77,51 @@ public class ArrayQueue<T> implements Queue<T> {
    * @return the store size; will be &gt; 0
    */
   public int capacity() { return store.length; }
+
+  /**
+   * Shrink the store to just hold the elements in the queue.
+   */
+  public void trimToSize() { resize(Math.max(count, 1)); }
+
+  /**
+   * Expand the store if need be so that it holds a given number of elements without
+   * expanding again.
+   * @param capacity how many elements the store should hold
+   */
+  public void ensureCapacity(int capacity) {
+    if (store.length < capacity) resize(capacity);
+  }
+
+  /**
+   * Create a spliterator over the elements from front to back that splits the queue into
+   * halves by position.
+   * @return a spliterator whose every split knows its size
+   */
+  public Spliterator<T> spliterator() {
+    return new ArraySpliterator<>(store, frontIndex, 0, count);
+  }
+
+  /**
+   * @return a sequential stream of the elements from front to back
+   */
+  public Stream<T> stream() { return StreamSupport.stream(spliterator(), false); }
+
+  /**
+   * @return a parallel stream of the elements
+   */
+  public Stream<T> parallelStream() { return StreamSupport.stream(spliterator(), true); }
+
+  /**
+   * Move the elements into a new store of a given size, with the front element first.
+   * @param size how many elements the new store holds; at least count
+   */
+  @SuppressWarnings("unchecked")
+  private void resize(int size) {
+    Object[] newStore = new Object[size];
+    for (int i = 0; i < count; i++) {
+      newStore[i] = store[(i+frontIndex) % store.length];
+    }
+    store = (T[]) newStore;
+    frontIndex = 0;
+  }
 }
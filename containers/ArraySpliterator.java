@@ -0,0 +1,62 @@
+package containers;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * An ArraySpliterator traverses a range of positions in an array-based container, splitting
+ * the range in half. Positions are counted from an offset and wrap around the end of the
+ * array, so the same class serves ArrayList (offset 0) and the circular ArrayQueue (offset
+ * at the front of the queue). Every split knows exactly how many elements it covers.
+ *
+ * @author C. Fox
+ *
+ * @param <T> type of the elements
+ */
+class ArraySpliterator<T> implements Spliterator<T> {
+  private final T[] store;   // the container's array
+  private final int offset;  // the array index of position 0
+  private int index;         // the next position to visit
+  private final int fence;   // one past the last position to visit
+
+  /**
+   * Make a spliterator over positions lo..hi-1 of an array.
+   * @param store the array
+   * @param offset the array index of position 0
+   * @param lo the first position
+   * @param hi one past the last position
+   */
+  ArraySpliterator(T[] store, int offset, int lo, int hi) {
+    this.store = store;
+    this.offset = offset;
+    index = lo;
+    fence = hi;
+  }
+
+  @Override
+  public Spliterator<T> trySplit() {
+    int mid = (index + fence) >>> 1;
+    if (mid <= index) return null;
+    Spliterator<T> prefix = new ArraySpliterator<>(store, offset, index, mid);
+    index = mid;
+    return prefix;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super T> action) {
+    if (fence <= index) return false;
+    action.accept(store[(offset + index++) % store.length]);
+    return true;
+  }
+
+  @Override
+  public void forEachRemaining(Consumer<? super T> action) {
+    for (; index < fence; index++) action.accept(store[(offset + index) % store.length]);
+  }
+
+  @Override
+  public long estimateSize() { return fence - index; }
+
+  @Override
+  public int characteristics() { return ORDERED | SIZED | SUBSIZED; }
+}
@@ -4,14 +4,18 @@
 package containers;
 
 /**
- * A contiguous implementation of stacks that is never full.
+ * A contiguous implementation of stacks that is never full. The store doubles when it
+ * fills and halves when pops leave it a quarter full, though never below the size it
+ * was made with (or INITIAL_SIZE). Popped slots are cleared so that popped items can
+ * be garbage collected.
  * @author C. Fox
  */
 public class ArrayStack<T> implements Stack<T> {
   public static final int INITIAL_SIZE = 8;
 
-  private T[] store;  // contents of the stack
-  private int count;  // top is at store[count-1]
+  private T[] store;          // contents of the stack
+  private int count;          // top is at store[count-1]
+  private final int minSize;  // the store never shrinks below this size
 
   public ArrayStack() { this(INITIAL_SIZE); }
 
@@ -20,6 +24,7 @@ public class ArrayStack<T> implements Stack<T> {
     if (initialSize < 1) initialSize = INITIAL_SIZE;
     store = (T[]) new Object[initialSize];
     count = 0;
+    minSize = Math.max(initialSize, INITIAL_SIZE);
   }
 
   @Override
@@ -29,16 +34,16 @@ public class ArrayStack<T> implements Stack<T> {
   public boolean isEmpty() { return count == 0; }
 
   @Override
-  public void clear() { count = 0; }
+  @SuppressWarnings("unchecked")
+  public void clear() {
+    if (minSize < store.length) store = (T[]) new Object[minSize];
+    else for (int i = 0; i < count; i++) store[i] = null;
+    count = 0;
+  }
 
   @Override
-  @SuppressWarnings("unchecked")
   public void push(T item) {
-    if (count == store.length) {
-      Object[] newStore = new Object[2*store.length];
-      for (int i = 0; i < store.length; i++) newStore[i] = store[i];
-      store = (T[])newStore;
-    }
+    if (count == store.length) resize(2*store.length);
     store[count++] = item;
   }
 
@@ -51,7 +56,10 @@ public class ArrayStack<T> implements Stack<T> {
   @Override
   public T pop() {
     if (count == 0) throw new IllegalStateException("pop of an empty stack");
-    return store[--count];
+    T result = store[--count];
+    store[count] = null;
+    if (count <= store.length/4 && minSize <= store.length/2) resize(store.length/2);
+    return result;
   }
 
   /**
@@ -59,4 +67,29 @@ public class ArrayStack<T> implements Stack<T> {
    * @return how many items can be stored right now; always &gt; 0
    */
   public int capacity() { return store.length; }
+
+  /**
+   * Shrink the store to just hold the items on the stack.
+   */
+  public void trimToSize() { resize(Math.max(count, 1)); }
+
+  /**
+   * Expand the store if need be so that it holds a given number of items without
+   * expanding again.
+   * @param capacity how many items the store should hold
+   */
+  public void ensureCapacity(int capacity) {
+    if (store.length < capacity) resize(capacity);
+  }
+
+  /**
+   * Move the items into a new store of a given size.
+   * @param size how many items the new store holds; at least count
+   */
+  @SuppressWarnings("unchecked")
+  private void resize(int size) {
+    Object[] newStore = new Object[size];
+    for (int i = 0; i < count; i++) newStore[i] = store[i];
+    store = (T[])newStore;
+  }
 }
@@ -0,0 +1,67 @@
+package containers;
+
+import java.util.Iterator;
+
+/**
+ * A Bag (or multiset) is an unordered Collection that may hold an element more than once.
+ * It keeps a count for each distinct element; size() is the sum of the counts.
+ * @author C. Fox
+ *
+ * @param <T> the element type
+ */
+public interface Bag<T> extends Collection<T> {
+  /**
+   * Add one occurrence of an element.
+   * @param item the element added
+   */
+  void insert(T item);
+
+  /**
+   * Add several occurrences of an element.
+   * @param item the element added
+   * @param n how many times to add it
+   * @throws IllegalArgumentException if n is negative
+   */
+  void insert(T item, int n);
+
+  /**
+   * Remove one occurrence of an element, or do nothing if it is absent.
+   * @param item the element removed
+   * @return true iff an occurrence was removed
+   */
+  boolean delete(T item);
+
+  /**
+   * Remove every occurrence of an element.
+   * @param item the element removed
+   * @return how many occurrences were removed
+   */
+  int deleteAll(T item);
+
+  /**
+   * Count the occurrences of an element.
+   * @param item the element searched for
+   * @return how many times item is in the bag; 0 if it is absent
+   */
+  int count(T item);
+
+  /**
+   * Reveal how many distinct elements the bag holds.
+   * @return the number of distinct elements
+   */
+  int distinct();
+
+  /**
+   * Return an iterator over the distinct elements, each appearing once. The bag's own
+   * iterator() returns each element as many times as it occurs.
+   * @return an iterator over distinct elements
+   */
+  Iterator<T> distinctIterator();
+
+  /**
+   * Determine whether this bag holds the same elements as another, with the same counts.
+   * @param bag compared with this bag
+   * @return true iff the bags have equal counts for every element
+   */
+  boolean isEqual(Bag<T> bag);
+}
@@ -1,5 +1,7 @@
 package containers;
 
+import java.util.Spliterator;
+
 /**
  * A linked binary tree whose every node is such that all values in its left sub-tree
  * are less than the value at the node, which in turn is less than all values in its
@@ -20,6 +22,17 @@ class BinarySearchTree<T extends Comparable<T>> extends BinaryTree<T> {
    */
   public boolean contains(T value) { return get(value) != null; }
 
+  /**
+   * Create a spliterator that yields every value in the tree in order. The values are
+   * sorted by their natural order and distinct.
+   * @return Spliterator instance for traversing the tree in order, possibly in parallel
+   */
+  @Override
+  public Spliterator<T> spliterator() {
+    return spliterator(v -> v, Spliterator.ORDERED | Spliterator.SORTED |
+                               Spliterator.DISTINCT | Spliterator.NONNULL);
+  }
+
   /**
    * Add a value, preserving the tree as a binary search tree. Replace the value
    * if it is already in the tree. Note that this may not keep the tree balanced.
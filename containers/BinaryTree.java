@@ -4,8 +4,12 @@
  */
 package containers;
 
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * A linked binary tree holding values of type T with internal and external iterators.
@@ -144,6 +148,25 @@ class BinaryTree<T> {
    * @return Iterator instance that can be used to access every element in post order
    */
   public Iterator<T> postorderIterator() { return new PostorderIterator(root); }
+
+  /**
+   * Create a spliterator that yields every value in the tree in order. It splits off the
+   * left subtree of the subtree it has left to traverse, so splits of a balanced tree are
+   * about half the size of their parents.
+   * @return Spliterator instance for traversing the tree in order, possibly in parallel
+   */
+  public Spliterator<T> spliterator() { return spliterator(v -> v, Spliterator.ORDERED); }
+
+  /**
+   * Create a spliterator that yields something from every value in the tree in order.
+   * Only the spliterator over the whole tree knows its size exactly.
+   * @param extract gets the element yielded from a value
+   * @param characteristics the spliterator's characteristics other than SIZED
+   * @return Spliterator instance for traversing the tree in order, possibly in parallel
+   */
+  <E> Spliterator<E> spliterator(Function<? super T, ? extends E> extract, int characteristics) {
+    return new InorderSpliterator<E>(null, root, count, true, extract, characteristics);
+  }
   
   @Override
   public String toString() {
@@ -282,6 +305,85 @@ class BinaryTree<T> {
 
   } // InorderIterator
 
+  /*
+   * Traverse the value at one node (if any) and then a subtree in order. Splitting hands
+   * off the first node and the subtree's left subtree, keeping the subtree's root and
+   * right subtree; once traversal has started no more splits are made.
+   */
+  private class InorderSpliterator<E> implements Spliterator<E> {
+    private TreeNode first;    // the node whose value comes first, or null
+    private TreeNode subtree;  // the subtree traversed after it, or null
+    private LinkedStack<TreeNode> stack;  // the traversal under way, or null if not started
+    private long est;          // estimated number of values left
+    private boolean sized;     // whether est is exact
+    private final Function<? super T, ? extends E> extract;  // gets elements from values
+    private final int flags;   // characteristics other than SIZED
+
+    public InorderSpliterator(TreeNode first, TreeNode subtree, long est, boolean sized,
+                              Function<? super T, ? extends E> extract, int flags) {
+      this.first = first;
+      this.subtree = subtree;
+      this.est = est;
+      this.sized = sized;
+      this.extract = extract;
+      this.flags = flags;
+    }
+
+    @Override
+    public Spliterator<E> trySplit() {
+      if (stack != null || subtree == null) return null;
+      if (first == null && subtree.left == null) {
+        first = subtree;
+        subtree = subtree.right;
+        if (subtree == null) return null;
+      }
+      est >>>= 1;
+      sized = false;
+      Spliterator<E> prefix =
+          new InorderSpliterator<E>(first, subtree.left, est, false, extract, flags);
+      first = subtree;
+      subtree = subtree.right;
+      return prefix;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super E> action) {
+      TreeNode node;
+      if (first != null) {
+        node = first;
+        first = null;
+      }
+      else {
+        if (stack == null) {
+          stack = new LinkedStack<>();
+          pushLeft(subtree);
+        }
+        if (stack.isEmpty()) return false;
+        node = stack.pop();
+        pushLeft(node.right);
+      }
+      if (0 < est) est--;
+      action.accept(extract.apply(node.value));
+      return true;
+    }
+
+    @Override
+    public long estimateSize() { return est; }
+
+    @Override
+    public int characteristics() { return sized ? flags | SIZED : flags; }
+
+    @Override
+    public Comparator<? super E> getComparator() {
+      if ((flags & SORTED) == 0) throw new IllegalStateException();
+      return null;
+    }
+
+    private void pushLeft(TreeNode node) {
+      for (; node != null; node = node.left) stack.push(node);
+    }
+  } // InorderSpliterator
+
   /**
    * Keep track of data for traversing a tree in preorder using a stack. The top
    * of the stack is always the node holding the current value. When the next
@@ -0,0 +1,171 @@
+package containers;
+
+/**
+ * A BloomFilter is a compact, approximate set. It can say for sure that an element was never
+ * inserted, but only that an element might have been inserted: a lookup of an element never
+ * inserted is wrongly answered yes with a small probability, the false positive rate. That
+ * rate is chosen when the filter is made, for a given number of insertions, and the filter
+ * is sized to match; inserting more elements than planned raises the rate.
+ *
+ * The filter is an array of bits kept in longs. Each element sets k of the bits, chosen by
+ * double hashing: the element's hash code is mixed into two 32-bit hashes h1 and h2, and
+ * the bits are h1 + i*h2 (mod the number of bits) for i in 0..k-1. A lookup tests the same
+ * bits, so it costs k bit tests and no comparisons of elements. Elements cannot be deleted;
+ * see CountingBloomFilter for a filter that allows deletion.
+ *
+ * Note that the Object.hashCode() method is used to hash elements, so equal elements must
+ * have equal hash codes.
+ *
+ * @author C. Fox
+ *
+ * @param <T> type of the elements
+ */
+public class BloomFilter<T> implements Container {
+  private final long[] bits;        // the bit array, 64 bits per long
+  private final long bitCount;      // how many bits are in use
+  private final int hashCount;      // how many bits each element sets
+  private final int capacity;       // how many insertions the filter was sized for
+  private int size;                 // how many insertions have been made
+
+  /**
+   * Make a filter sized for a given number of insertions and false positive rate.
+   * @param capacity how many elements are expected to be inserted; must be positive
+   * @param falsePositiveRate the chance of a false positive when the filter holds
+   *        capacity elements; must be strictly between 0 and 1
+   * @throws IllegalArgumentException if an argument is out of range
+   */
+  public BloomFilter(int capacity, double falsePositiveRate) {
+    checkArguments(capacity, falsePositiveRate);
+    this.capacity = capacity;
+    bitCount = bitsFor(capacity, falsePositiveRate);
+    hashCount = hashesFor(bitCount, capacity);
+    bits = new long[(int)((bitCount+63) >>> 6)];
+  }
+
+  /**
+   * @return how many insertions the filter was sized for
+   */
+  public int capacity() { return capacity; }
+
+  /**
+   * @return how many bits the filter uses
+   */
+  public long bitCount() { return bitCount; }
+
+  /**
+   * @return how many bits each element sets
+   */
+  public int hashCount() { return hashCount; }
+
+  /**
+   * Say how many insertions have been made; inserting an element twice counts twice.
+   * @return the number of insertions since the filter was made or cleared
+   */
+  @Override
+  public int size() { return size; }
+
+  @Override
+  public boolean isEmpty() { return size == 0; }
+
+  @Override
+  public void clear() {
+    for (int i = 0; i < bits.length; i++) bits[i] = 0;
+    size = 0;
+  }
+
+  /**
+   * Record an element in the filter.
+   * @param element the element inserted
+   */
+  public void insert(T element) {
+    long hash = hash64(element);
+    int h1 = (int)hash;
+    int h2 = (int)(hash >>> 32);
+    for (int i = 0; i < hashCount; i++) {
+      long bit = index(h1, h2, i, bitCount);
+      bits[(int)(bit >>> 6)] |= 1L << bit;
+    }
+    size++;
+  }
+
+  /**
+   * Determine whether an element might have been inserted.
+   * @param element the element looked for
+   * @return false if element was certainly never inserted; true if it probably was
+   */
+  public boolean mightContain(T element) {
+    long hash = hash64(element);
+    int h1 = (int)hash;
+    int h2 = (int)(hash >>> 32);
+    for (int i = 0; i < hashCount; i++) {
+      long bit = index(h1, h2, i, bitCount);
+      if ((bits[(int)(bit >>> 6)] & (1L << bit)) == 0) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Estimate the false positive rate now, from the fraction of bits that are set.
+   * @return the chance that an element never inserted is reported as possibly present
+   */
+  public double expectedFalsePositiveRate() {
+    long set = 0;
+    for (long word : bits) set += Long.bitCount(word);
+    return Math.pow((double)set/bitCount, hashCount);
+  }
+
+  /************************************/
+  /*** Package methods shared with CountingBloomFilter ***/
+
+  static void checkArguments(int capacity, double falsePositiveRate) {
+    if (capacity < 1) throw new IllegalArgumentException("Bad capacity "+capacity);
+    if (!(0 < falsePositiveRate && falsePositiveRate < 1))
+      throw new IllegalArgumentException("Bad false positive rate "+falsePositiveRate);
+  }
+
+  /**
+   * Work out the best number of bits for a filter: -n ln p / (ln 2)^2.
+   * @param capacity n, the number of insertions planned
+   * @param falsePositiveRate p, the false positive rate wanted
+   * @return the number of bits, at least 64
+   */
+  static long bitsFor(int capacity, double falsePositiveRate) {
+    double bits = -capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+    return Math.max(64, (long)Math.ceil(bits));
+  }
+
+  /**
+   * Work out the best number of hashes per element: (m/n) ln 2.
+   * @param bitCount m, the number of bits
+   * @param capacity n, the number of insertions planned
+   * @return the number of hashes, at least 1
+   */
+  static int hashesFor(long bitCount, int capacity) {
+    return Math.max(1, (int)Math.round((double)bitCount/capacity * Math.log(2)));
+  }
+
+  /**
+   * Mix an element's hash code into 64 well spread bits (the MurmurHash3 finalizer).
+   * @param element the element hashed
+   * @return two 32-bit hashes in one long
+   */
+  static long hash64(Object element) {
+    long h = element.hashCode() * 0x9E3779B97F4A7C15L;
+    h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+    h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    return h ^ (h >>> 33);
+  }
+
+  /**
+   * Find the i'th position for an element by double hashing.
+   * @param h1 the element's first hash
+   * @param h2 the element's second hash
+   * @param i which position, from 0
+   * @param length how many positions there are
+   * @return a position in 0..length-1
+   */
+  static long index(int h1, int h2, int i, long length) {
+    long combined = h1 + (long)i * h2;
+    return (combined & Long.MAX_VALUE) % length;
+  }
+}
@@ -0,0 +1,132 @@
+package containers;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * CacheBenchmark replays traces of key requests against an LRUCache and a TinyLFUCache of
+ * the same capacity and reports each cache's hit rate and time per request. A request that
+ * misses inserts its key, as a cache in front of a slow store would. Three traces are made
+ * up: a skewed (Zipf) trace, the same trace broken up by scans of keys that are used only
+ * once, and a loop over a few more keys than the caches hold, which LRU handles worst of all.
+ * A trace file with one integer key per line may be replayed as well.
+ *
+ * Run it with: java containers.CacheBenchmark [capacity [traceFile]]
+ *
+ * @author C. Fox
+ */
+class CacheBenchmark {
+  private static final int REQUESTS = 1 << 20;  // requests in each made up trace
+
+  public static void main(String[] args) throws IOException {
+    int capacity = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+    System.out.printf("%-8s %-12s %8s %10s%n", "trace", "cache", "hit rate", "request");
+    Random random = new Random(42);
+    run("zipf", capacity, zipf(REQUESTS, 100*capacity, 0.9, random));
+    run("scan", capacity, scan(REQUESTS, 100*capacity, 0.9, 4*capacity, 20*capacity, random));
+    run("loop", capacity, loop(REQUESTS, capacity*3/2));
+    if (args.length > 1) run(args[1], capacity, read(args[1]));
+  }
+
+  /**
+   * Replay a trace against both caches and print the results.
+   * @param name the name of the trace
+   * @param capacity the capacity of each cache
+   * @param trace the keys requested
+   */
+  private static void run(String name, int capacity, Long[] trace) {
+    report(name, "LRU", new LRUCache<Long,Long>(capacity), trace);
+    report(name, "W-TinyLFU", new TinyLFUCache<Long,Long>(capacity), trace);
+  }
+
+  private static void report(String name, String cacheName, Map<Long,Long> cache, Long[] trace) {
+    long start = System.nanoTime();
+    double hitRate = replay(cache, trace);
+    long time = System.nanoTime() - start;
+    System.out.printf("%-8s %-12s %7.2f%% %8.1fns%n", name, cacheName, 100*hitRate,
+                      (double)time/trace.length);
+  }
+
+  /**
+   * Request every key in a trace from a cache, inserting the keys that miss.
+   * @param cache the cache tested
+   * @param trace the keys requested
+   * @return the fraction of requests that hit
+   */
+  static double replay(Map<Long,Long> cache, Long[] trace) {
+    int hits = 0;
+    for (Long key : trace) {
+      if (cache.get(key) != null) hits++;
+      else cache.insert(key, key);
+    }
+    return (double)hits/trace.length;
+  }
+
+  /**
+   * Make a trace in which key k (from 0) is requested with probability proportional to
+   * 1/(k+1)^exponent.
+   * @param length how many requests
+   * @param keys how many different keys
+   * @param exponent how skewed the requests are; 0 makes every key equally likely
+   * @param random the source of randomness
+   * @return the trace
+   */
+  static Long[] zipf(int length, int keys, double exponent, Random random) {
+    double[] cumulative = new double[keys];
+    double sum = 0;
+    for (int k = 0; k < keys; k++) cumulative[k] = sum += 1/Math.pow(k+1, exponent);
+    Long[] trace = new Long[length];
+    for (int i = 0; i < length; i++) {
+      int k = Arrays.binarySearch(cumulative, random.nextDouble()*sum);
+      trace[i] = (long)((k < 0) ? Math.min(-k-1, keys-1) : k);
+    }
+    return trace;
+  }
+
+  /**
+   * Make a Zipf trace broken up at regular intervals by scans of keys never used elsewhere.
+   * @param length how many requests
+   * @param keys how many different keys in the Zipf part
+   * @param exponent how skewed the Zipf part is
+   * @param scanLength how many keys in each scan
+   * @param interval how many requests from the start of one scan to the start of the next
+   * @param random the source of randomness
+   * @return the trace
+   */
+  static Long[] scan(int length, int keys, double exponent, int scanLength, int interval,
+                     Random random) {
+    Long[] trace = zipf(length, keys, exponent, random);
+    long next = keys;
+    for (int start = 0; start < length; start += interval)
+      for (int i = start; i < Math.min(start+scanLength, length); i++) trace[i] = next++;
+    return trace;
+  }
+
+  /**
+   * Make a trace that requests the same keys in the same order over and over.
+   * @param length how many requests
+   * @param keys how many keys in the loop
+   * @return the trace
+   */
+  static Long[] loop(int length, int keys) {
+    Long[] trace = new Long[length];
+    for (int i = 0; i < length; i++) trace[i] = (long)(i % keys);
+    return trace;
+  }
+
+  private static Long[] read(String fileName) throws IOException {
+    ArrayList<Long> keys = new ArrayList<>();
+    try (BufferedReader in = new BufferedReader(new FileReader(fileName))) {
+      for (String line = in.readLine(); line != null; line = in.readLine()) {
+        line = line.trim();
+        if (!line.isEmpty()) keys.addLast(Long.parseLong(line));
+      }
+    }
+    Long[] trace = new Long[keys.size()];
+    for (int i = 0; i < trace.length; i++) trace[i] = keys.get(i);
+    return trace;
+  }
+}
@@ -3,8 +3,14 @@
  */
 package containers;
 
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /**
- * A Collection is a Container that can be traversed.
+ * A Collection is a Container that can be traversed, one element at a time with an
+ * iterator, or in parallel with a spliterator and streams.
  * @author C. Fox
  */
 public interface Collection<T> extends Container, Iterable<T> {
@@ -14,4 +20,23 @@ public interface Collection<T> extends Container, Iterable<T> {
    * @return true iff item is in the Collection
    */
   boolean contains(T item);
+
+  /**
+   * Create a spliterator over the elements, in the same order as the iterator. This one
+   * splits by copying runs of elements from the iterator into arrays; collections that
+   * can split their storage directly override it.
+   * @return a spliterator that knows the collection's size
+   */
+  @Override
+  default Spliterator<T> spliterator() { return Spliterators.spliterator(iterator(), size(), 0); }
+
+  /**
+   * @return a sequential stream of the elements
+   */
+  default Stream<T> stream() { return StreamSupport.stream(spliterator(), false); }
+
+  /**
+   * @return a parallel stream of the elements
+   */
+  default Stream<T> parallelStream() { return StreamSupport.stream(spliterator(), true); }
 }
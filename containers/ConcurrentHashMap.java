@@ -0,0 +1,411 @@
+package containers;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A ConcurrentHashMap is a hash map that many threads can use at once without an external lock.
+ *
+ * The keys are divided among a fixed number of segments by the high bits of their hash codes,
+ * and each segment is a small chained hash table with its own lock. Writers lock only the
+ * segment they change, so writers in different segments do not wait for one another, and a
+ * segment that needs to expand does so while the other segments carry on.
+ *
+ * Readers never lock. Bucket arrays are AtomicReferenceArrays and the links and values of
+ * entries are volatile, so a reader always sees a complete chain. A segment expands by copying
+ * its entries into a new array and then publishing the array, so readers still walking the
+ * old array see a consistent (if slightly stale) table. For the same reason, iterators are
+ * weakly consistent: they never fail because of concurrent changes, and they see each key
+ * present throughout the iteration, but they may or may not see changes made after they start.
+ *
+ * @author C. Fox
+ *
+ * @param <K> type of the key
+ * @param <T> type of the value
+ */
+public class ConcurrentHashMap<K extends Comparable<K>, T> implements Map<K, T> {
+  private static final double MAX_LOAD_FACTOR = 0.75;  // if we exceed this, expand a segment
+  public static final int DEFAULT_SIZE = 16;           // for too small or unspecified table sizes
+  public static final int DEFAULT_CONCURRENCY = 16;    // default number of segments
+  private final Object[] segments;                     // each with its own lock and table
+  private final int segmentShift;                      // hash bits shifted out to pick a segment
+
+  /**
+   * Create a new map with a given total table size divided among a given number of segments.
+   * The number of segments is rounded up to a power of two; it bounds how many writers can
+   * work at once.
+   * @param size desired total table size
+   * @param concurrency how many threads are expected to write at once
+   */
+  public ConcurrentHashMap(int size, int concurrency) {
+    if (size < 5) size = DEFAULT_SIZE;
+    if (concurrency < 1) concurrency = DEFAULT_CONCURRENCY;
+    int segmentCount = 1;
+    int shift = 32;
+    while (segmentCount < concurrency) {
+      segmentCount *= 2;
+      shift--;
+    }
+    segmentShift = shift;
+    int segmentSize = 2;
+    while (segmentSize*segmentCount < size) segmentSize *= 2;
+    segments = new Object[segmentCount];
+    for (int i = 0; i < segmentCount; i++) segments[i] = new Segment(segmentSize);
+  }
+  public ConcurrentHashMap(int size) { this(size, DEFAULT_CONCURRENCY); }
+  public ConcurrentHashMap() { this(DEFAULT_SIZE, DEFAULT_CONCURRENCY); }
+
+  /**
+   * Return the total table size of all segments (for debugging).
+   * @return the current number of buckets
+   */
+  public int tableSize() {
+    int result = 0;
+    for (int i = 0; i < segments.length; i++) result += segment(i).table.length();
+    return result;
+  }
+
+  @Override
+  public boolean contains(T v) {
+    for (T value : this) if (v == value) return true;
+    return false;
+  }
+
+  @Override
+  public Iterator<T> iterator() { return new ValueIterator(); }
+
+  /**
+   * Count the pairs in the map. If other threads are changing the map, the result may be
+   * out of date by the time it is returned.
+   * @return the number of key-value pairs
+   */
+  @Override
+  public int size() {
+    int result = 0;
+    for (int i = 0; i < segments.length; i++) result += segment(i).count;
+    return result;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    for (int i = 0; i < segments.length; i++) if (segment(i).count != 0) return false;
+    return true;
+  }
+
+  @Override
+  public void clear() {
+    for (int i = 0; i < segments.length; i++) segment(i).clear();
+  }
+
+  @Override
+  public T get(K key) { return getOrDefault(key, null); }
+
+  @Override
+  public T getOrDefault(K key, T defaultValue) {
+    int hash = hash(key);
+    Entry node = segmentFor(hash).find(key, hash);
+    return node == null ? defaultValue : node.value;
+  }
+
+  @Override
+  public T insert(K key, T value) {
+    int hash = hash(key);
+    return segmentFor(hash).insert(key, hash, value, false);
+  }
+
+  /**
+   * Add a key-value pair unless the key already has a value, atomically.
+   * @param key the key searched for
+   * @param value the value associated with the key if it is absent
+   * @return the value already associated with key, or null if value was added
+   */
+  @Override
+  public T putIfAbsent(K key, T value) {
+    int hash = hash(key);
+    return segmentFor(hash).insert(key, hash, value, true);
+  }
+
+  /**
+   * Replace the value associated with a key with the result of a function, atomically.
+   * The key's segment is locked while the function runs, so the function should be quick
+   * and must not change this map.
+   * @param key the key searched for
+   * @param remapping computes the new value from the key and its current value or null
+   * @return the new value associated with key, or null if there is none
+   */
+  @Override
+  public T compute(K key, BiFunction<? super K, ? super T, ? extends T> remapping) {
+    int hash = hash(key);
+    return segmentFor(hash).compute(key, hash, remapping);
+  }
+
+  @Override
+  public T computeIfAbsent(K key, Function<? super K, ? extends T> mapping) {
+    int hash = hash(key);
+    Entry node = segmentFor(hash).find(key, hash);
+    if (node != null) return node.value;
+    return segmentFor(hash).compute(key, hash, (k, old) -> (old != null) ? old : mapping.apply(k));
+  }
+
+  @Override
+  public T computeIfPresent(K key, BiFunction<? super K, ? super T, ? extends T> remapping) {
+    int hash = hash(key);
+    return segmentFor(hash).compute(key, hash,
+                                    (k, old) -> (old == null) ? null : remapping.apply(k, old));
+  }
+
+  @Override
+  public T merge(K key, T value, BiFunction<? super T, ? super T, ? extends T> remapping) {
+    int hash = hash(key);
+    return segmentFor(hash).compute(key, hash,
+                                    (k, old) -> (old == null) ? value : remapping.apply(old, value));
+  }
+
+  @Override
+  public void delete(K key) {
+    int hash = hash(key);
+    segmentFor(hash).delete(key, hash);
+  }
+
+  @Override
+  public boolean hasKey(K key) { return get(key) != null; }
+
+  @Override
+  public Iterator<K> keyIterator() { return new KeyIterator(); }
+
+  @Override
+  public Iterator<Map.Entry<K,T>> entryIterator() { return new MapEntryIterator(); }
+
+  @Override
+  public boolean isEqual(Map<K, T> m) {
+    if (size() != m.size()) return false;
+    Iterator<Map.Entry<K,T>> iter = entryIterator();
+    while(iter.hasNext()) {
+      Map.Entry<K,T> entry = iter.next();
+      if (entry.getValue() != m.get(entry.getKey())) return false;
+    }
+    return true;
+  }
+
+  /************************************/
+  /*** Private methods and classes ***/
+
+  /**
+   * Mix the high bits of the key's hash code into the low bits.
+   * @param key the key hashed
+   * @return the spread hash code
+   */
+  private static int hash(Object key) {
+    int h = key.hashCode() * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Pick the segment for a hash code using its high bits.
+   * @param hash a spread hash code
+   * @return the segment responsible for the hash code
+   */
+  private Segment segmentFor(int hash) {
+    return segment(segmentShift == 32 ? 0 : hash >>> segmentShift);
+  }
+
+  /**
+   * Fetch a segment from the segment array.
+   * @param i index of the segment
+   * @return the segment
+   */
+  @SuppressWarnings("unchecked")
+  private Segment segment(int i) { return (Segment)segments[i]; }
+
+  /*
+   * Make a key/value pair with a link field for forming a list. The key and hash never
+   * change; the value and link are volatile so that unlocked readers see updates.
+   */
+  private class Entry implements Map.Entry<K,T> {
+    final K key;              // hashed value
+    final int hash;           // spread hash code of the key
+    volatile T value;         // goes with the key
+    volatile Entry next;      // successor entry in the linked list of colliding values
+
+    public Entry(K k, int h, T v, Entry n) {
+      key = k;
+      hash = h;
+      value = v;
+      next = n;
+    }
+
+    @Override
+    public K getKey() { return key; }
+
+    @Override
+    public T getValue() { return value; }
+  } // Entry
+
+  /*
+   * A segment is a chained hash table for part of the key space. Changes are made while
+   * holding the segment's lock; lookups are made without it.
+   */
+  private class Segment {
+    volatile AtomicReferenceArray<Entry> table; // buckets; replaced whole on expansion
+    volatile int count;                          // how many pairs in this segment
+
+    public Segment(int size) {
+      table = new AtomicReferenceArray<>(size);
+      count = 0;
+    }
+
+    public Entry find(K key, int hash) {
+      AtomicReferenceArray<Entry> buckets = table;
+      Entry node = buckets.get(hash & (buckets.length()-1));
+      while (node != null) {
+        if (node.hash == hash && key.compareTo(node.key) == 0) return node;
+        node = node.next;
+      }
+      return null;
+    }
+
+    public synchronized T insert(K key, int hash, T value, boolean onlyIfAbsent) {
+      Entry node = find(key, hash);
+      if (node != null) {
+        T result = node.value;
+        if (!onlyIfAbsent) node.value = value;
+        return result;
+      }
+      add(key, hash, value);
+      return null;
+    }
+
+    public synchronized T compute(K key, int hash,
+                                  BiFunction<? super K, ? super T, ? extends T> remapping) {
+      AtomicReferenceArray<Entry> buckets = table;
+      int index = hash & (buckets.length()-1);
+      Entry node = buckets.get(index);
+      Entry pred = null;
+      while (node != null && (node.hash != hash || key.compareTo(node.key) != 0)) {
+        pred = node;
+        node = node.next;
+      }
+      T value = remapping.apply(key, node == null ? null : node.value);
+      if (node == null) {
+        if (value != null) add(key, hash, value);
+      }
+      else if (value != null) node.value = value;
+      else {
+        if (pred == null) buckets.set(index, node.next);
+        else pred.next = node.next;
+        count--;
+      }
+      return value;
+    }
+
+    public synchronized void delete(K key, int hash) {
+      AtomicReferenceArray<Entry> buckets = table;
+      int index = hash & (buckets.length()-1);
+      Entry node = buckets.get(index);
+      Entry pred = null;
+      while (node != null && (node.hash != hash || key.compareTo(node.key) != 0)) {
+        pred = node;
+        node = node.next;
+      }
+      if (node == null) return;
+      if (pred == null) buckets.set(index, node.next);
+      else pred.next = node.next;
+      count--;
+    }
+
+    public synchronized void clear() {
+      table = new AtomicReferenceArray<>(table.length());
+      count = 0;
+    }
+
+    /**
+     * Put a pair known to be absent at the head of its chain, expanding the table first
+     * if it is full. The caller holds the segment's lock.
+     */
+    private void add(K key, int hash, T value) {
+      if (table.length()*MAX_LOAD_FACTOR <= count) expandTable();
+      AtomicReferenceArray<Entry> buckets = table;
+      int index = hash & (buckets.length()-1);
+      buckets.set(index, new Entry(key, hash, value, buckets.get(index)));
+      count++;
+    }
+
+    /**
+     * Double the segment's table. The entries are copied rather than relinked so that
+     * readers walking the old table are not sent down the wrong chain.
+     */
+    private void expandTable() {
+      AtomicReferenceArray<Entry> oldBuckets = table;
+      AtomicReferenceArray<Entry> buckets = new AtomicReferenceArray<>(2*oldBuckets.length());
+      int mask = buckets.length()-1;
+      for (int i = 0; i < oldBuckets.length(); i++) {
+        for (Entry node = oldBuckets.get(i); node != null; node = node.next) {
+          int index = node.hash & mask;
+          buckets.set(index, new Entry(node.key, node.hash, node.value, buckets.get(index)));
+        }
+      }
+      table = buckets;
+    }
+  } // Segment
+
+  /*
+   * Iterate over all the entries, segment by segment. Each segment's table is read when
+   * the iterator reaches it, so the traversal is weakly consistent.
+   */
+  private class EntryIterator {
+    private int segmentIndex;                  // segment being traversed
+    private AtomicReferenceArray<Entry> buckets; // its table when the iterator reached it
+    private int index;                         // bucket holding node
+    private Entry node;                        // next entry to return
+
+    public EntryIterator() {
+      segmentIndex = 0;
+      buckets = segment(0).table;
+      index = -1;
+      advanceBucket();
+    }
+
+    public boolean hasNext() { return node != null; }
+
+    public Entry nextEntry() {
+      if (node == null) throw new NoSuchElementException();
+      Entry result = node;
+      node = node.next;
+      if (node == null) advanceBucket();
+      return result;
+    }
+
+    private void advanceBucket() {
+      while (true) {
+        for (index++; index < buckets.length(); index++) {
+          node = buckets.get(index);
+          if (node != null) return;
+        }
+        if (segmentIndex+1 == segments.length) {
+          node = null;
+          return;
+        }
+        buckets = segment(++segmentIndex).table;
+        index = -1;
+      }
+    }
+  } // EntryIterator
+
+  private class KeyIterator extends EntryIterator implements Iterator<K> {
+    @Override
+    public K next() { return nextEntry().key; }
+  }
+
+  private class ValueIterator extends EntryIterator implements Iterator<T> {
+    @Override
+    public T next() { return nextEntry().value; }
+  }
+
+  private class MapEntryIterator extends EntryIterator implements Iterator<Map.Entry<K,T>> {
+    @Override
+    public Map.Entry<K,T> next() { return nextEntry(); }
+  }
+}
@@ -0,0 +1,406 @@
+package containers;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A CopyOnWriteHashMap is a hash map for tables that are read far more often than they are
+ * changed and are shared by many threads.
+ *
+ * The pairs are kept in an immutable open addressing table reached through a volatile
+ * reference. The table is two arrays: the keys' hash codes, and the keys and values side by
+ * side in one array, probed linearly from the hash code and never more than half full. A
+ * read takes the current table and probes it without locking, so readers never wait and
+ * never slow one another down. Only keys whose hash codes match are compared.
+ *
+ * Writers lock the map, copy the table, change the copy, and publish it by replacing the
+ * reference, so every write takes O(n) time and readers see either the whole change or
+ * none of it. To make many changes at once, pass them to update(), which copies the table
+ * once for the lot. The update operations (putIfAbsent, compute, and so on) are atomic.
+ *
+ * Iterators traverse the table that was current when they were made, so they never fail
+ * because of concurrent changes and never see a change made after they start.
+ *
+ * @author C. Fox
+ *
+ * @param <K> type of the key
+ * @param <T> type of the value
+ */
+public class CopyOnWriteHashMap<K extends Comparable<K>, T> implements Map<K, T> {
+  private static final int MIN_SIZE = 8;  // smallest table, in slots
+  private volatile Table table;           // the current version; never changed once published
+
+  /**
+   * Create a new empty map.
+   */
+  public CopyOnWriteHashMap() { table = new Table(MIN_SIZE); }
+
+  /**
+   * Create a new map holding the pairs in another map.
+   * @param m the map whose pairs are copied
+   */
+  public CopyOnWriteHashMap(Map<K,T> m) { table = tableOf(m); }
+
+  /**
+   * Return the number of slots in the current table (for debugging).
+   * @return a power of two at least twice the number of pairs
+   */
+  public int tableSize() { return table.hashes.length; }
+
+  @Override
+  public int size() { return table.size; }
+
+  @Override
+  public boolean isEmpty() { return table.size == 0; }
+
+  @Override
+  public synchronized void clear() { table = new Table(MIN_SIZE); }
+
+  @Override
+  public boolean contains(T v) {
+    for (T value : this) if (v == value) return true;
+    return false;
+  }
+
+  @Override
+  public T get(K key) { return getOrDefault(key, null); }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public T getOrDefault(K key, T defaultValue) {
+    Table t = table;
+    int slot = t.find(key, hash(key));
+    return (slot < 0) ? defaultValue : (T)t.pairs[2*slot+1];
+  }
+
+  @Override
+  public boolean hasKey(K key) {
+    Table t = table;
+    return 0 <= t.find(key, hash(key));
+  }
+
+  @Override
+  public synchronized T insert(K key, T value) {
+    int hash = hash(key);
+    Table t = table;
+    int slot = t.find(key, hash);
+    @SuppressWarnings("unchecked")
+    T result = (slot < 0) ? null : (T)t.pairs[2*slot+1];
+    if (0 <= slot && result == value) return result;
+    Table copy = t.copy((slot < 0) ? Math.max(t.hashes.length, slotsFor(t.size+1))
+                                   : t.hashes.length);
+    copy.put(key, hash, value);
+    table = copy;
+    return result;
+  }
+
+  @Override
+  public synchronized void delete(K key) {
+    int hash = hash(key);
+    Table t = table;
+    if (t.find(key, hash) < 0) return;
+    // shrink only when a quarter as full as growing would leave it, so sizes do not flap
+    int slots = slotsFor(t.size-1);
+    Table copy = t.copy((2*slots < t.hashes.length) ? slots : t.hashes.length);
+    copy.remove(copy.find(key, hash));
+    table = copy;
+  }
+
+  /**
+   * Make any number of changes to the map at once. The changes are made to a private
+   * copy of the table, which replaces the current table when they are done, so readers
+   * see all of them or none of them, and the table is copied only once. If the changes
+   * throw an exception, none of them are made. Other writers wait until they are done.
+   * @param changes makes the changes to the map it is given, which is valid only during
+   *        the call
+   */
+  public synchronized void update(Consumer<? super Map<K,T>> changes) {
+    HashMap<K,T> draft = new HashMap<>();
+    draft.ensureCapacity(table.size);
+    Table t = table;
+    for (int slot = 0; slot < t.hashes.length; slot++)
+      if (t.hashes[slot] != 0) draft.insert(t.key(slot), t.value(slot));
+    changes.accept(draft);
+    table = tableOf(draft);
+  }
+
+  /**
+   * Add a key-value pair unless the key already has a value, atomically.
+   * @param key the key searched for
+   * @param value the value associated with the key if it is absent
+   * @return the value already associated with key, or null if value was added
+   */
+  @Override
+  public T putIfAbsent(K key, T value) {
+    T current = get(key);
+    if (current != null) return current;
+    T[] old = newHolder();
+    compute(key, (k, v) -> {
+      old[0] = v;
+      return (v != null) ? v : value;
+    });
+    return old[0];
+  }
+
+  /**
+   * Replace the value associated with a key with the result of a function, atomically.
+   * The map is locked while the function runs, so the function should be quick and must
+   * not change this map.
+   * @param key the key searched for
+   * @param remapping computes the new value from the key and its current value or null
+   * @return the new value associated with key, or null if there is none
+   */
+  @Override
+  public synchronized T compute(K key, BiFunction<? super K, ? super T, ? extends T> remapping) {
+    T old = get(key);
+    T value = remapping.apply(key, old);
+    if (value == null) delete(key);
+    else if (value != old) insert(key, value);
+    return value;
+  }
+
+  @Override
+  public T computeIfAbsent(K key, Function<? super K, ? extends T> mapping) {
+    T value = get(key);
+    if (value != null) return value;
+    return compute(key, (k, old) -> (old != null) ? old : mapping.apply(k));
+  }
+
+  @Override
+  public T computeIfPresent(K key, BiFunction<? super K, ? super T, ? extends T> remapping) {
+    return compute(key, (k, old) -> (old == null) ? null : remapping.apply(k, old));
+  }
+
+  @Override
+  public T merge(K key, T value, BiFunction<? super T, ? super T, ? extends T> remapping) {
+    return compute(key, (k, old) -> (old == null) ? value : remapping.apply(old, value));
+  }
+
+  /**
+   * Return an iterator over the values in the current table.
+   * @return an iterator over values
+   */
+  @Override
+  public Iterator<T> iterator() {
+    return new SlotIterator<T>() {
+      @Override
+      public T next() { return snapshot.value(nextSlot()); }
+    };
+  }
+
+  /**
+   * Return an iterator over the keys in the current table.
+   * @return an iterator over keys
+   */
+  @Override
+  public Iterator<K> keyIterator() {
+    return new SlotIterator<K>() {
+      @Override
+      public K next() { return snapshot.key(nextSlot()); }
+    };
+  }
+
+  /**
+   * Return an iterator over the pairs in the current table.
+   * @return an iterator over entries
+   */
+  @Override
+  public Iterator<Map.Entry<K,T>> entryIterator() {
+    return new SlotIterator<Map.Entry<K,T>>() {
+      @Override
+      public Map.Entry<K,T> next() {
+        int slot = nextSlot();
+        return new ImmutableEntry<>(snapshot.key(slot), snapshot.value(slot));
+      }
+    };
+  }
+
+  @Override
+  public void forEach(BiConsumer<? super K, ? super T> action) {
+    Table t = table;
+    for (int slot = 0; slot < t.hashes.length; slot++)
+      if (t.hashes[slot] != 0) action.accept(t.key(slot), t.value(slot));
+  }
+
+  @Override
+  public boolean isEqual(Map<K, T> m) {
+    Table t = table;
+    if (t.size != m.size()) return false;
+    for (int slot = 0; slot < t.hashes.length; slot++)
+      if (t.hashes[slot] != 0 && t.value(slot) != m.get(t.key(slot))) return false;
+    return true;
+  }
+
+  /************************************/
+  /*** Private methods and classes ***/
+
+  /**
+   * Mix the high bits of the key's hash code into the low bits. Hash code 0 marks empty
+   * slots, so it is never returned.
+   * @param key the key hashed
+   * @return the spread hash code, not 0
+   */
+  private static int hash(Object key) {
+    int h = key.hashCode() * 0x9E3779B9;
+    h ^= h >>> 16;
+    return (h == 0) ? 1 : h;
+  }
+
+  /**
+   * Work out how many slots a table needs for a number of pairs.
+   * @param pairs how many pairs the table holds
+   * @return a power of two at least twice pairs, and at least MIN_SIZE
+   */
+  private static int slotsFor(int pairs) {
+    int slots = MIN_SIZE;
+    while (slots < 2*pairs) slots *= 2;
+    return slots;
+  }
+
+  /**
+   * Build a table holding the pairs in a map.
+   * @param m the map whose pairs are copied
+   * @return a new table, not yet published
+   */
+  private Table tableOf(Map<K,T> m) {
+    Table t = new Table(slotsFor(m.size()));
+    Iterator<Map.Entry<K,T>> iter = m.entryIterator();
+    while (iter.hasNext()) {
+      Map.Entry<K,T> entry = iter.next();
+      t.put(entry.getKey(), hash(entry.getKey()), entry.getValue());
+    }
+    return t;
+  }
+
+  @SuppressWarnings("unchecked")
+  private T[] newHolder() { return (T[])new Object[1]; }
+
+  /*
+   * A version of the map: hash codes in one array, and keys and values side by side in
+   * another. A table is only changed while it is being built, before it is published.
+   */
+  private class Table {
+    final int[] hashes;     // hash codes of the keys, or 0 for empty slots
+    final Object[] pairs;   // the key in slot i is pairs[2i] and its value pairs[2i+1]
+    int size;               // how many pairs
+
+    public Table(int slots) {
+      hashes = new int[slots];
+      pairs = new Object[2*slots];
+    }
+
+    /**
+     * Find the slot holding a key.
+     * @param key the key searched for
+     * @param hash hash(key)
+     * @return the key's slot, or -1 if the key is absent
+     */
+    @SuppressWarnings("unchecked")
+    public int find(K key, int hash) {
+      int mask = hashes.length-1;
+      for (int slot = hash & mask; ; slot = (slot+1) & mask) {
+        int h = hashes[slot];
+        if (h == 0) return -1;
+        if (h == hash) {
+          Object k = pairs[2*slot];
+          if (k == key || key.compareTo((K)k) == 0) return slot;
+        }
+      }
+    }
+
+    /**
+     * Add a pair, or replace the value if the key is present. The table must have room.
+     * @param key the key of the pair
+     * @param hash hash(key)
+     * @param value the value of the pair
+     */
+    public void put(K key, int hash, T value) {
+      int slot = find(key, hash);
+      if (slot < 0) {
+        int mask = hashes.length-1;
+        for (slot = hash & mask; hashes[slot] != 0; slot = (slot+1) & mask) ;
+        hashes[slot] = hash;
+        pairs[2*slot] = key;
+        size++;
+      }
+      pairs[2*slot+1] = value;
+    }
+
+    /**
+     * Empty a slot, moving later pairs in its probe run back so that none is cut off
+     * from its home slot.
+     * @param slot the slot emptied
+     */
+    public void remove(int slot) {
+      int mask = hashes.length-1;
+      int next = slot;
+      while (true) {
+        next = (next+1) & mask;
+        if (hashes[next] == 0) break;
+        int home = hashes[next] & mask;
+        // move the pair at next back unless its home lies cyclically in (slot, next]
+        if (((next - home) & mask) < ((next - slot) & mask)) continue;
+        hashes[slot] = hashes[next];
+        pairs[2*slot] = pairs[2*next];
+        pairs[2*slot+1] = pairs[2*next+1];
+        slot = next;
+      }
+      hashes[slot] = 0;
+      pairs[2*slot] = pairs[2*slot+1] = null;
+      size--;
+    }
+
+    /**
+     * Make a table with the same pairs, copying the arrays if the size is unchanged and
+     * rehashing into new ones otherwise.
+     * @param slots how many slots the copy has
+     * @return the copy
+     */
+    public Table copy(int slots) {
+      Table result = new Table(slots);
+      if (slots == hashes.length) {
+        System.arraycopy(hashes, 0, result.hashes, 0, slots);
+        System.arraycopy(pairs, 0, result.pairs, 0, pairs.length);
+        result.size = size;
+        return result;
+      }
+      for (int slot = 0; slot < hashes.length; slot++)
+        if (hashes[slot] != 0) result.put(key(slot), hashes[slot], value(slot));
+      return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    K key(int slot) { return (K)pairs[2*slot]; }
+
+    @SuppressWarnings("unchecked")
+    T value(int slot) { return (T)pairs[2*slot+1]; }
+  } // Table
+
+  /*
+   * Walk the occupied slots of the table that was current when the iterator was made.
+   */
+  private abstract class SlotIterator<E> implements Iterator<E> {
+    final Table snapshot = table;  // the table traversed
+    private int slot = -1;         // the slot to return next, or hashes.length when done
+
+    public SlotIterator() { advance(); }
+
+    @Override
+    public boolean hasNext() { return slot < snapshot.hashes.length; }
+
+    int nextSlot() {
+      if (snapshot.hashes.length <= slot) throw new NoSuchElementException();
+      int result = slot;
+      advance();
+      return result;
+    }
+
+    private void advance() {
+      for (slot++; slot < snapshot.hashes.length && snapshot.hashes[slot] == 0; slot++) ;
+    }
+  } // SlotIterator
+}
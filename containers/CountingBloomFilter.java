@@ -0,0 +1,128 @@
+package containers;
+
+/**
+ * A CountingBloomFilter is a Bloom filter that allows deletion. Each position holds a 4-bit
+ * counter rather than a bit, sixteen to a long, so the filter takes four times the space of
+ * a BloomFilter with the same false positive rate. Inserting an element adds one to each of
+ * its k counters and deleting it takes one away; a lookup says the element might be present
+ * if all of its counters are non-zero.
+ *
+ * A counter that reaches 15 sticks there, because its true count is no longer known; this
+ * keeps the filter from ever forgetting an element that is present, at the price of a few
+ * more false positives. Only elements that were inserted should be deleted: deleting one
+ * that never was may make the filter forget elements that were.
+ *
+ * Positions are chosen by double hashing, as in BloomFilter.
+ *
+ * @author C. Fox
+ *
+ * @param <T> type of the elements
+ */
+public class CountingBloomFilter<T> implements Container {
+  private static final long MAX_COUNT = 15;  // a counter's largest, sticky, value
+  private final long[] counters;    // the counters, 16 per long
+  private final long counterCount;  // how many counters are in use
+  private final int hashCount;      // how many counters each element counts in
+  private final int capacity;       // how many elements the filter was sized for
+  private int size;                 // insertions less deletions
+
+  /**
+   * Make a filter sized for a given number of elements and false positive rate.
+   * @param capacity how many elements are expected to be present at once; must be positive
+   * @param falsePositiveRate the chance of a false positive when the filter holds
+   *        capacity elements; must be strictly between 0 and 1
+   * @throws IllegalArgumentException if an argument is out of range
+   */
+  public CountingBloomFilter(int capacity, double falsePositiveRate) {
+    BloomFilter.checkArguments(capacity, falsePositiveRate);
+    this.capacity = capacity;
+    counterCount = BloomFilter.bitsFor(capacity, falsePositiveRate);
+    hashCount = BloomFilter.hashesFor(counterCount, capacity);
+    counters = new long[(int)((counterCount+15) >>> 4)];
+  }
+
+  /**
+   * @return how many elements the filter was sized for
+   */
+  public int capacity() { return capacity; }
+
+  /**
+   * @return how many counters the filter uses
+   */
+  public long counterCount() { return counterCount; }
+
+  /**
+   * @return how many counters each element counts in
+   */
+  public int hashCount() { return hashCount; }
+
+  /**
+   * Say how many elements are in the filter, counting insertions less deletions.
+   * @return the number of elements
+   */
+  @Override
+  public int size() { return size; }
+
+  @Override
+  public boolean isEmpty() { return size == 0; }
+
+  @Override
+  public void clear() {
+    for (int i = 0; i < counters.length; i++) counters[i] = 0;
+    size = 0;
+  }
+
+  /**
+   * Record an element in the filter.
+   * @param element the element inserted
+   */
+  public void insert(T element) {
+    long hash = BloomFilter.hash64(element);
+    int h1 = (int)hash;
+    int h2 = (int)(hash >>> 32);
+    for (int i = 0; i < hashCount; i++) {
+      long c = BloomFilter.index(h1, h2, i, counterCount);
+      int word = (int)(c >>> 4);
+      int shift = (int)(c & 15) << 2;
+      if (((counters[word] >>> shift) & MAX_COUNT) < MAX_COUNT) counters[word] += 1L << shift;
+    }
+    size++;
+  }
+
+  /**
+   * Remove an element that was inserted from the filter. Nothing is done if the filter
+   * says the element is certainly absent.
+   * @param element the element deleted
+   * @return true if the element's counters were decremented
+   */
+  public boolean delete(T element) {
+    if (!mightContain(element)) return false;
+    long hash = BloomFilter.hash64(element);
+    int h1 = (int)hash;
+    int h2 = (int)(hash >>> 32);
+    for (int i = 0; i < hashCount; i++) {
+      long c = BloomFilter.index(h1, h2, i, counterCount);
+      int word = (int)(c >>> 4);
+      int shift = (int)(c & 15) << 2;
+      if (((counters[word] >>> shift) & MAX_COUNT) < MAX_COUNT) counters[word] -= 1L << shift;
+    }
+    size--;
+    return true;
+  }
+
+  /**
+   * Determine whether an element might be present.
+   * @param element the element looked for
+   * @return false if element is certainly absent; true if it is probably present
+   */
+  public boolean mightContain(T element) {
+    long hash = BloomFilter.hash64(element);
+    int h1 = (int)hash;
+    int h2 = (int)(hash >>> 32);
+    for (int i = 0; i < hashCount; i++) {
+      long c = BloomFilter.index(h1, h2, i, counterCount);
+      if (((counters[(int)(c >>> 4)] >>> ((int)(c & 15) << 2)) & MAX_COUNT) == 0) return false;
+    }
+    return true;
+  }
+}
@@ -0,0 +1,660 @@
+package containers;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * A CuckooHashtable maps keys to values using bucketized cuckoo hashing. The table is an
+ * array of buckets of BUCKET_SIZE slots each, and every key may live in only two buckets
+ * chosen by two hash functions, or in a small stash of STASH_SIZE slots kept for keys that
+ * could not be placed. So a search looks at no more than 2*BUCKET_SIZE+STASH_SIZE slots
+ * however the table was filled, which bounds the worst-case lookup time.
+ *
+ * When both of a new key's buckets are full, a key is evicted from one of them and moved to
+ * its other bucket, possibly evicting another key, and so on. If this goes on for MAX_KICKS
+ * moves, the homeless key goes into the stash. If the stash is full as well, the table is
+ * rebuilt with new hash functions, and doubled if that fails REHASHES times, so the stash
+ * never holds more than STASH_SIZE keys. Insertion is therefore slower than lookup, but it
+ * is still fast on average below the load factor, which may be as high as 0.95 with
+ * four-slot buckets.
+ *
+ * Keys with the same hash code compete for the same two buckets whatever the hash functions
+ * and table size, so no rebuilding can place more than 2*BUCKET_SIZE+STASH_SIZE of them. A
+ * key whose two buckets are full of keys with its own hash code goes instead into an
+ * overflow Hashtable, whose tree bins keep such keys searchable in O(lg n) time. Lookups
+ * only search the overflow table once a key has been put there.
+ *
+ * Keys, values, and hash codes are kept in parallel arrays with the stash at the end, so
+ * no entry objects are allocated and each bucket is a run of adjacent slots.
+ *
+ * @author C. Fox
+ *
+ * @param <K> type of the key
+ * @param <T> type of the value
+ */
+class CuckooHashtable<K extends Comparable<K>,T> implements HashStore<K,T> {
+  private static final double MAX_LOAD_FACTOR = 0.9; // default fraction of slots filled before expanding
+  public static final int DEFAULT_SIZE = 32;          // for too small or unspecified table sizes
+  public static final int BUCKET_SIZE = 4;            // slots per bucket
+  public static final int STASH_SIZE = 4;             // slots for keys that could not be placed
+  private static final int MAX_KICKS = 250;            // evictions before giving up on a placement
+  private static final int REHASHES = 2;              // rebuilds at one size before doubling
+  private final double loadFactor;                    // fraction of slots filled before expanding
+  private int[] hashes;     // hash codes of the keys, so keys are never hashed twice
+  private Object[] keys;    // keys, parallel to hashes; null marks an empty slot
+  private Object[] values;  // values, parallel to hashes
+  private int mask;         // bucket count - 1, for picking buckets
+  private int stashStart;   // index of the first stash slot; the stash runs to the end
+  private int stashCount;   // how many key/value pairs in the stash
+  private int count;        // how many key/value pairs in the table
+  private int seed;         // state of the generator picking keys to evict and hash functions
+  private int hashSeed1;    // varies the first hash function
+  private int hashSeed2;    // varies the second hash function
+  private Hashtable<K,T> overflow;  // pairs whose keys share too common a hash code, or null
+  private Object homelessKey;       // the pair a failed placement could not find room for
+  private Object homelessValue;
+  private int homelessHash;
+  private HashStatistics.Counters stats;  // lookup and resize counts, or null if not kept
+
+  /**
+   * Make a hash table with a given number of slots and load factor. If the size is less
+   * than 5 the default size is used; otherwise the number of slots is rounded up so that
+   * the number of buckets is a power of two.
+   * @param size desired number of slots
+   * @param loadFactor fraction of slots filled before expanding; must be in (0,1)
+   * @throws IllegalArgumentException if loadFactor is out of range
+   */
+  public CuckooHashtable(int size, double loadFactor) {
+    if (!(0 < loadFactor && loadFactor < 1))
+      throw new IllegalArgumentException("Bad load factor "+loadFactor);
+    if (size < 5) size = DEFAULT_SIZE;
+    this.loadFactor = loadFactor;
+    int bucketCount = 2;
+    while (bucketCount*BUCKET_SIZE < size) bucketCount *= 2;
+    makeTable(bucketCount);
+    count = 0;
+    seed = 0x2545F491;
+  }
+  public CuckooHashtable(int size) { this(size, MAX_LOAD_FACTOR); }
+
+  /*
+   *  Make a hash table with the default size.
+   */
+  public CuckooHashtable() { this(DEFAULT_SIZE); }
+
+  @Override
+  public int tableSize() { return stashStart; }
+
+  @Override
+  public int size() { return count; }
+
+  @Override
+  public void clear() {
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = null;
+      values[i] = null;
+    }
+    stashCount = 0;
+    count = 0;
+    overflow = null;
+    homelessKey = null;
+    homelessValue = null;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T insert(K key, T value) {
+    int index = find(key);
+    if (0 <= index) {
+      T result = (T)values[index];
+      values[index] = value;
+      return result;
+    }
+    if (inOverflow(key)) return overflow.insert(key, value);
+    add(key, key.hashCode(), value);
+    return null;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T putIfAbsent(K key, T value) {
+    int index = find(key);
+    if (0 <= index) {
+      T result = (T)values[index];
+      if (result == null) values[index] = value;
+      return result;
+    }
+    if (inOverflow(key)) return overflow.get(key);
+    add(key, key.hashCode(), value);
+    return null;
+  }
+
+  @Override
+  public T get(K key) { return getOrDefault(key, null); }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T getOrDefault(K key, T defaultValue) {
+    if (stats != null) return countedGet(key, defaultValue);
+    int index = find(key);
+    if (0 <= index) return (T)values[index];
+    return (overflow == null) ? defaultValue : overflow.getOrDefault(key, defaultValue);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T compute(K key, BiFunction<? super K, ? super T, ? extends T> remapping) {
+    int index = find(key);
+    if (index < 0 && inOverflow(key)) {
+      T value = overflow.compute(key, remapping);
+      if (value == null) count--;
+      return value;
+    }
+    T value = remapping.apply(key, (index < 0) ? null : (T)values[index]);
+    if (0 <= index) {
+      if (value == null) deleteAt(index);
+      else values[index] = value;
+    }
+    else if (value != null) add(key, key.hashCode(), value);
+    return value;
+  }
+
+  @Override
+  public boolean delete(K key) {
+    int index = find(key);
+    if (0 <= index) deleteAt(index);
+    else if (overflow != null && overflow.delete(key)) count--;
+    else return false;
+    return true;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void visit(Visitor<T> visitor) {
+    for (int i = 0; i < keys.length; i++)
+      if (keys[i] != null) visitor.visit((T)values[i]);
+    if (overflow != null) overflow.visit(visitor);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void forEach(BiConsumer<? super K, ? super T> action) {
+    for (int i = 0; i < keys.length; i++)
+      if (keys[i] != null) action.accept((K)keys[i], (T)values[i]);
+    if (overflow != null) overflow.forEach(action);
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    Iterator<T> slots = new SlotIterator<T>(values);
+    return (overflow == null) ? slots : new Concatenation<T>(slots, overflow.iterator());
+  }
+
+  @Override
+  public Iterator<K> keyIterator() {
+    Iterator<K> slots = new SlotIterator<K>(keys);
+    return (overflow == null) ? slots : new Concatenation<K>(slots, overflow.keyIterator());
+  }
+
+  @Override
+  public Iterator<Map.Entry<K,T>> entryIterator() {
+    Iterator<Map.Entry<K,T>> slots = new SlotEntryIterator();
+    return (overflow == null) ? slots : new Concatenation<>(slots, overflow.entryIterator());
+  }
+
+  /**
+   * Make a shallow copy of this hash table. The arrays are copied directly, so
+   * the copy has the same table size and iteration order as the original.
+   * @return a new hash table with the same key/value pairs
+   */
+  @Override
+  public CuckooHashtable<K,T> copy() {
+    CuckooHashtable<K,T> result = new CuckooHashtable<>(DEFAULT_SIZE, loadFactor);
+    result.hashes = hashes.clone();
+    result.keys = keys.clone();
+    result.values = values.clone();
+    result.mask = mask;
+    result.stashStart = stashStart;
+    result.stashCount = stashCount;
+    result.count = count;
+    result.hashSeed1 = hashSeed1;
+    result.hashSeed2 = hashSeed2;
+    result.overflow = (overflow == null) ? null : overflow.copy();
+    return result;
+  }
+
+  @Override
+  public CuckooHashtable<K,T> makeEmpty(int capacity) {
+    int size = (int)Math.min(capacity/loadFactor + 1, 1 << 30);
+    return new CuckooHashtable<>(size, loadFactor);
+  }
+
+  @Override
+  public void trimToSize() {
+    int buckets = bucketsFor(count);
+    if (buckets < mask+1) resize(buckets);
+  }
+
+  @Override
+  public void ensureCapacity(int capacity) {
+    int buckets = bucketsFor(capacity);
+    if (mask+1 < buckets) resize(buckets);
+  }
+
+  /**
+   * Count the keys that are in the stash (for debugging).
+   * @return how many keys could not be placed in either of their buckets
+   */
+  public int stashSize() { return stashCount; }
+
+  /**
+   * Count the keys that are in the overflow table (for debugging).
+   * @return how many keys share a hash code with too many others to fit in the table
+   */
+  public int overflowSize() { return (overflow == null) ? 0 : overflow.size(); }
+
+  @Override
+  public void setStatisticsEnabled(boolean enabled) {
+    if (!enabled) stats = null;
+    else if (stats == null) stats = new HashStatistics.Counters();
+  }
+
+  @Override
+  public boolean isStatisticsEnabled() { return stats != null; }
+
+  /**
+   * Take a snapshot of the table's statistics. A probe is one bucket, the stash or the
+   * overflow table searched, and a resize is any rebuild, including one that only picks
+   * new hash functions.
+   * @return a snapshot of the table's statistics
+   */
+  @Override
+  public HashStatistics statistics() { return HashStatistics.ofSlots(stashStart, count, stats); }
+
+  @Override
+  public String toString() {
+    StringBuffer result = new StringBuffer("{");
+    for (int i = 0; i < keys.length; i++) {
+      if (i == stashStart) result.append("stash\n");
+      result.append(i);
+      if (keys[i] != null) result.append('[').append(keys[i]).
+                                            append(':').
+                                            append(values[i]).
+                                            append(']');
+      result.append('\n');
+    }
+    if (overflow != null) result.append("overflow ").append(overflow).append('\n');
+    result.append('}');
+    return result.toString();
+  }
+
+  /************************************/
+  /*** Private methods and classes ***/
+
+  /*
+   * Iterate over the occupied slots of one of the parallel arrays.
+   */
+  private class SlotIterator<E> implements Iterator<E> {
+    private Object[] slots;  // keys or values
+    private int index;       // next occupied slot, or keys.length when done
+
+    public SlotIterator(Object[] theSlots) {
+      slots = theSlots;
+      index = advance(0);
+    }
+
+    @Override
+    public boolean hasNext() { return index < keys.length; }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E next() {
+      if (keys.length <= index) throw new NoSuchElementException();
+      E result = (E)slots[index];
+      index = advance(index+1);
+      return result;
+    }
+
+    private int advance(int i) {
+      while (i < keys.length && keys[i] == null) i++;
+      return i;
+    }
+  } // SlotIterator
+
+  /*
+   * Iterate over the occupied slots, returning each key/value pair as a small entry.
+   */
+  private class SlotEntryIterator implements Iterator<Map.Entry<K,T>> {
+    private int index;  // next occupied slot, or keys.length when done
+
+    public SlotEntryIterator() { index = advance(0); }
+
+    @Override
+    public boolean hasNext() { return index < keys.length; }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map.Entry<K,T> next() {
+      if (keys.length <= index) throw new NoSuchElementException();
+      Map.Entry<K,T> result = new ImmutableEntry<>((K)keys[index], (T)values[index]);
+      index = advance(index+1);
+      return result;
+    }
+
+    private int advance(int i) {
+      while (i < keys.length && keys[i] == null) i++;
+      return i;
+    }
+  } // SlotEntryIterator
+
+  /*
+   * Iterate over the slots and then the overflow table.
+   */
+  private static class Concatenation<E> implements Iterator<E> {
+    private final Iterator<E> first;
+    private final Iterator<E> second;
+
+    public Concatenation(Iterator<E> first, Iterator<E> second) {
+      this.first = first;
+      this.second = second;
+    }
+
+    @Override
+    public boolean hasNext() { return first.hasNext() || second.hasNext(); }
+
+    @Override
+    public E next() { return first.hasNext() ? first.next() : second.next(); }
+  } // Concatenation
+
+  /**
+   * Allocate empty parallel arrays for a given number of buckets plus the stash.
+   * @param bucketCount how many buckets; a power of two
+   */
+  private void makeTable(int bucketCount) {
+    stashStart = bucketCount*BUCKET_SIZE;
+    hashes = new int[stashStart+STASH_SIZE];
+    keys = new Object[stashStart+STASH_SIZE];
+    values = new Object[stashStart+STASH_SIZE];
+    mask = bucketCount-1;
+    stashCount = 0;
+  }
+
+  /**
+   * Pick a key's first bucket by mixing the bits of its hash code.
+   * @param h the key's hash code
+   * @return the index of the first bucket
+   */
+  private int bucket1(int h) {
+    h = (h ^ hashSeed1) * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & mask;
+  }
+
+  /**
+   * Find a key's other bucket. The second hash function mixes the hash code differently
+   * and is xored with the bucket number, so that the other bucket of either bucket can be
+   * found from the hash code alone, and the two buckets are never the same.
+   * @param bucket one of the key's buckets
+   * @param h the key's hash code
+   * @return the index of the key's other bucket
+   */
+  private int otherBucket(int bucket, int h) {
+    h = (h ^ hashSeed2) * 0x85EBCA6B;
+    return bucket ^ (((h ^ (h >>> 13)) & mask) | 1);
+  }
+
+  /**
+   * Find the slot holding a key, looking only in its two buckets and the stash. Keys in
+   * the overflow table are not found.
+   * @param key the key searched for
+   * @return the index of the key's slot, or -1 if it is absent
+   */
+  @SuppressWarnings("unchecked")
+  private int find(K key) {
+    int h = key.hashCode();
+    int b1 = bucket1(h);
+    int slot = findIn(b1*BUCKET_SIZE, BUCKET_SIZE, key, h);
+    if (0 <= slot) return slot;
+    slot = findIn(otherBucket(b1, h)*BUCKET_SIZE, BUCKET_SIZE, key, h);
+    if (0 <= slot) return slot;
+    if (stashCount == 0) return -1;
+    return findIn(stashStart, STASH_SIZE, key, h);
+  }
+
+  /**
+   * Fetch a value as getOrDefault() does, counting the buckets, stash and overflow table
+   * searched.
+   * @param key used to find the value
+   * @param defaultValue returned if the key is absent
+   * @return the value that goes with the key, or defaultValue
+   */
+  @SuppressWarnings("unchecked")
+  private T countedGet(K key, T defaultValue) {
+    int h = key.hashCode();
+    int b1 = bucket1(h);
+    int probes = 1;
+    int slot = findIn(b1*BUCKET_SIZE, BUCKET_SIZE, key, h);
+    if (slot < 0) {
+      probes++;
+      slot = findIn(otherBucket(b1, h)*BUCKET_SIZE, BUCKET_SIZE, key, h);
+    }
+    if (slot < 0 && stashCount != 0) {
+      probes++;
+      slot = findIn(stashStart, STASH_SIZE, key, h);
+    }
+    T result = defaultValue;
+    if (0 <= slot) result = (T)values[slot];
+    else if (overflow != null) {
+      probes++;
+      result = overflow.getOrDefault(key, defaultValue);
+    }
+    stats.countGet(probes);
+    return result;
+  }
+
+  /**
+   * Determine whether a key that is not in the slots is in the overflow table.
+   * @param key the key searched for
+   * @return true iff the overflow table holds key
+   */
+  private boolean inOverflow(K key) {
+    return overflow != null && overflow.get(key) != null;
+  }
+
+  /**
+   * Find the slot holding a key in a run of slots.
+   * @param start the first slot looked at
+   * @param length how many slots are looked at
+   * @param key the key searched for
+   * @param h the key's hash code
+   * @return the index of the key's slot, or -1 if it is not in the run
+   */
+  @SuppressWarnings("unchecked")
+  private int findIn(int start, int length, K key, int h) {
+    for (int i = start; i < start+length; i++)
+      if (keys[i] != null && hashes[i] == h && key.compareTo((K)keys[i]) == 0) return i;
+    return -1;
+  }
+
+  /**
+   * Find an empty slot in a run of slots.
+   * @param start the first slot looked at
+   * @param length how many slots are looked at
+   * @return the index of an empty slot, or -1 if the run is full
+   */
+  private int emptyIn(int start, int length) {
+    for (int i = start; i < start+length; i++) if (keys[i] == null) return i;
+    return -1;
+  }
+
+  /**
+   * Add a key/value pair known to be absent, expanding the table first if adding it
+   * would overload the table.
+   * @param key the key added
+   * @param h the key's hash code
+   * @param value the value that goes with the key
+   */
+  private void add(Object key, int h, Object value) {
+    if (stashStart*loadFactor <= count+1) resize(2*(mask+1));
+    place(key, h, value);
+    count++;
+  }
+
+  /**
+   * Put a key/value pair in the table, rebuilding the table if there is no room for it.
+   * @param key the key placed
+   * @param h the key's hash code
+   * @param value the value that goes with the key
+   */
+  private void place(Object key, int h, Object value) {
+    if (!tryPlace(key, h, value)) rebuild(mask+1, homelessKey, homelessHash, homelessValue);
+  }
+
+  /**
+   * Put a key/value pair in one of its buckets, evicting other keys to their other buckets
+   * as needed. If an evicted key can't be placed after MAX_KICKS moves it goes into the
+   * stash, or into the overflow table if its buckets are full of keys with its hash code.
+   * @param key the key placed
+   * @param h the key's hash code
+   * @param value the value that goes with the key
+   * @return true, or false if the stash is full, leaving the pair with no home in the
+   *         homeless fields
+   */
+  @SuppressWarnings("unchecked")
+  private boolean tryPlace(Object key, int h, Object value) {
+    int bucket = bucket1(h);
+    int slot = emptyIn(bucket*BUCKET_SIZE, BUCKET_SIZE);
+    if (slot < 0) {
+      bucket = otherBucket(bucket, h);
+      slot = emptyIn(bucket*BUCKET_SIZE, BUCKET_SIZE);
+    }
+    for (int kicks = 0; slot < 0 && kicks < MAX_KICKS; kicks++) {
+      // swap the homeless pair with a random pair in its bucket, which then needs a home
+      int victim = bucket*BUCKET_SIZE + (random() & (BUCKET_SIZE-1));
+      Object k = keys[victim];
+      Object v = values[victim];
+      int hv = hashes[victim];
+      keys[victim] = key;
+      values[victim] = value;
+      hashes[victim] = h;
+      key = k;
+      value = v;
+      h = hv;
+      bucket = otherBucket(bucket, h);
+      slot = emptyIn(bucket*BUCKET_SIZE, BUCKET_SIZE);
+    }
+    if (slot < 0) {
+      slot = emptyIn(stashStart, STASH_SIZE);
+      if (slot < 0) {
+        if (allHash(bucket, h) && allHash(otherBucket(bucket, h), h)) {
+          if (overflow == null) overflow = new Hashtable<>();
+          overflow.insert((K)key, (T)value);
+          return true;
+        }
+        homelessKey = key;
+        homelessValue = value;
+        homelessHash = h;
+        return false;
+      }
+      stashCount++;
+    }
+    keys[slot] = key;
+    values[slot] = value;
+    hashes[slot] = h;
+    return true;
+  }
+
+  /**
+   * Decide whether every slot in a bucket holds a key with a given hash code.
+   * @param bucket the bucket checked
+   * @param h the hash code
+   * @return true iff the bucket is full of keys with hash code h
+   */
+  private boolean allHash(int bucket, int h) {
+    for (int i = bucket*BUCKET_SIZE; i < (bucket+1)*BUCKET_SIZE; i++)
+      if (keys[i] == null || hashes[i] != h) return false;
+    return true;
+  }
+
+  /**
+   * Step the xorshift generator used to pick victims and hash functions.
+   * @return the next pseudo-random number
+   */
+  private int random() {
+    seed ^= seed << 13;
+    seed ^= seed >>> 17;
+    seed ^= seed << 5;
+    return seed;
+  }
+
+  /**
+   * Empty a slot. Keys never move to fill the gap, since every key stays in one of its
+   * buckets or the stash.
+   * @param index an occupied slot
+   */
+  private void deleteAt(int index) {
+    keys[index] = null;
+    values[index] = null;
+    if (stashStart <= index) stashCount--;
+    count--;
+  }
+
+  /**
+   * Work out the number of buckets that holds a number of pairs without expanding.
+   * @param capacity how many pairs
+   * @return a power of two bucket count of at least 2
+   */
+  private int bucketsFor(int capacity) {
+    int size = (int)Math.min(capacity/loadFactor + 1, 1 << 30);
+    int bucketCount = 2;
+    while (bucketCount*BUCKET_SIZE < size) bucketCount *= 2;
+    return bucketCount;
+  }
+
+  /**
+   * Place every pair in a new table with a given number of buckets. Pairs in the
+   * stash get another chance at a bucket.
+   * @param bucketCount how many buckets; a power of two
+   */
+  private void resize(int bucketCount) { rebuild(bucketCount, null, 0, null); }
+
+  /**
+   * Place every pair, and perhaps one more, in a new table with new hash functions. If a
+   * pair cannot be placed the new table is abandoned and another is tried, with twice as
+   * many buckets after every REHASHES failures. The homeless fields are cleared once
+   * every pair is placed.
+   * @param bucketCount how many buckets; a power of two
+   * @param extraKey a key not yet in the table, or null
+   * @param extraHash the extra key's hash code
+   * @param extraValue the value that goes with the extra key
+   */
+  @SuppressWarnings("unchecked")
+  private void rebuild(int bucketCount, Object extraKey, int extraHash, Object extraValue) {
+    long start = (stats == null) ? 0 : System.nanoTime();
+    int[] oldHashes = hashes;
+    Object[] oldKeys = keys;
+    Object[] oldValues = values;
+    for (int attempt = 1; ; attempt++) {
+      makeTable(bucketCount);
+      hashSeed1 = random();
+      hashSeed2 = random();
+      boolean placed = extraKey == null || tryPlace(extraKey, extraHash, extraValue);
+      for (int i = 0; placed && i < oldKeys.length; i++)
+        if (oldKeys[i] != null) placed = tryPlace(oldKeys[i], oldHashes[i], oldValues[i]);
+      if (placed) {
+        homelessKey = null;  // don't keep the last pair a failed attempt left out alive
+        homelessValue = null;
+        if (stats != null) stats.countResize(start);
+        return;
+      }
+
+      // take out any pairs this attempt put in the overflow table
+      if (overflow != null) {
+        if (extraKey != null) overflow.delete((K)extraKey);
+        for (Object key : oldKeys) if (key != null) overflow.delete((K)key);
+      }
+      if (attempt % REHASHES == 0) bucketCount *= 2;
+    }
+  }
+}
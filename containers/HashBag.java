@@ -0,0 +1,149 @@
+package containers;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A HashBag uses a hash table to implement bags. The table maps each distinct element to
+ * its count, so adding, removing and counting occurrences each take a single lookup, and
+ * an element costs one table entry however often it occurs (small counts are Integers
+ * from the JVM's cache, so they take no space of their own).
+ * @author C. Fox
+ *
+ * @param <T> type of the elements
+ */
+public class HashBag<T extends Comparable<T>> implements Bag<T> {
+  private final Hashtable<T,Integer> table;  // each distinct element and its count
+  private int count;                         // the sum of the counts
+
+  /**
+   * Create a new HashBag with a hash table of the default size.
+   */
+  public HashBag() { table = new Hashtable<>(); }
+
+  /**
+   * Create a new HashBag with a hash table big enough for a given number of distinct elements.
+   * @param size desired hash table size
+   */
+  public HashBag(int size) { table = new Hashtable<>(size); }
+
+  @Override
+  public int size() { return count; }
+
+  @Override
+  public boolean isEmpty() { return count == 0; }
+
+  @Override
+  public void clear() {
+    table.clear();
+    count = 0;
+  }
+
+  @Override
+  public int distinct() { return table.size(); }
+
+  @Override
+  public void insert(T item) { insert(item, 1); }
+
+  /**
+   * Add several occurrences of an element.
+   * @param item the element added
+   * @param n how many times to add it
+   * @throws IllegalArgumentException if n is negative
+   * @throws ArithmeticException if the bag would hold more than Integer.MAX_VALUE elements
+   */
+  @Override
+  public void insert(T item, int n) {
+    if (n < 0) throw new IllegalArgumentException("Bad count "+n);
+    if (n == 0) return;
+    int total = Math.addExact(count, n);
+    table.compute(item, (k, old) -> (old == null) ? n : old + n);
+    count = total;
+  }
+
+  @Override
+  public boolean delete(T item) {
+    Integer old = table.get(item);
+    if (old == null) return false;
+    if (old == 1) table.delete(item);
+    else table.insert(item, old - 1);
+    count--;
+    return true;
+  }
+
+  @Override
+  public int deleteAll(T item) {
+    Integer old = table.get(item);
+    if (old == null) return 0;
+    table.delete(item);
+    count -= old;
+    return old;
+  }
+
+  @Override
+  public int count(T item) { return table.getOrDefault(item, 0); }
+
+  @Override
+  public boolean contains(T item) { return table.get(item) != null; }
+
+  /**
+   * Return an iterator that gives each element as many times as it occurs, all the
+   * occurrences of an element together.
+   * @return an iterator over the elements
+   */
+  @Override
+  public Iterator<T> iterator() {
+    return new Iterator<T>() {
+      private final Iterator<Map.Entry<T,Integer>> entries = table.entryIterator();
+      private T item;        // the element being repeated
+      private int remaining; // how many more times to return it
+
+      @Override
+      public boolean hasNext() { return 0 < remaining || entries.hasNext(); }
+
+      @Override
+      public T next() {
+        if (remaining == 0) {
+          if (!entries.hasNext()) throw new NoSuchElementException();
+          Map.Entry<T,Integer> entry = entries.next();
+          item = entry.getKey();
+          remaining = entry.getValue();
+        }
+        remaining--;
+        return item;
+      }
+    };
+  }
+
+  @Override
+  public Iterator<T> distinctIterator() { return table.keyIterator(); }
+
+  /**
+   * Apply an action to every distinct element and its count.
+   * @param action called with each element and how many times it occurs
+   */
+  public void forEach(ObjIntConsumer<? super T> action) {
+    table.forEach((item, n) -> action.accept(item, n));
+  }
+
+  @Override
+  public boolean isEqual(Bag<T> bag) {
+    if (size() != bag.size() || distinct() != bag.distinct()) return false;
+    Iterator<Map.Entry<T,Integer>> entries = table.entryIterator();
+    while (entries.hasNext()) {
+      Map.Entry<T,Integer> entry = entries.next();
+      if (bag.count(entry.getKey()) != entry.getValue()) return false;
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    StringBuffer result = new StringBuffer("{");
+    table.forEach((item, n) -> result.append(item).append(':').append(n).append(','));
+    if (1 < result.length()) result.setLength(result.length()-1);
+    result.append('}');
+    return result.toString();
+  }
+}
@@ -0,0 +1,65 @@
+package containers;
+
+import java.util.Random;
+
+/**
+ * HashBenchmark times insertion and lookup in HashMaps using different hash schemes and
+ * load factors. It is a rough guide rather than a careful measurement: each test is run a
+ * few times to let the JIT compiler warm up and only the last run is reported.
+ *
+ * Run it with: java containers.HashBenchmark [pairs]
+ *
+ * @author C. Fox
+ */
+class HashBenchmark {
+  private static final int RUNS = 5;  // repetitions of each test; only the last is reported
+
+  public static void main(String[] args) {
+    int n = (args.length > 0) ? Integer.parseInt(args[0]) : 1 << 20;
+    Integer[] present = new Integer[n];
+    Integer[] absent = new Integer[n];
+    Random random = new Random(42);
+    for (int i = 0; i < n; i++) {
+      present[i] = random.nextInt() & ~1;
+      absent[i] = random.nextInt() | 1;
+    }
+
+    System.out.printf("%-21s %6s %10s %10s %10s%n", "scheme", "load", "insert", "hit", "miss");
+    run(HashScheme.CHAINING, new double[] {0.75, 2, 5}, present, absent);
+    run(HashScheme.ROBIN_HOOD, new double[] {0.5, 0.75, 0.9}, present, absent);
+    run(HashScheme.CUCKOO, new double[] {0.5, 0.75, 0.9, 0.95}, present, absent);
+    run(HashScheme.SWISS, new double[] {0.5, 0.75, 0.875}, present, absent);
+  }
+
+  /**
+   * Time a scheme at several load factors. Each map is made big enough to hold the keys
+   * at the given load factor, so the times are for a table that is that full.
+   * @param scheme the hash scheme tested
+   * @param loadFactors the load factors tested
+   * @param present keys inserted and then looked up
+   * @param absent keys looked up but never inserted
+   */
+  private static void run(HashScheme scheme, double[] loadFactors,
+                          Integer[] present, Integer[] absent) {
+    for (double loadFactor : loadFactors) {
+      long insert = 0, hit = 0, miss = 0;
+      int found = 0;
+      for (int run = 0; run < RUNS; run++) {
+        HashMap<Integer,Integer> m = new HashMap<>((int)(present.length/loadFactor), scheme, loadFactor);
+        long start = System.nanoTime();
+        for (Integer key : present) m.insert(key, key);
+        insert = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (Integer key : present) if (m.get(key) != null) found++;
+        hit = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (Integer key : absent) if (m.get(key) != null) found++;
+        miss = System.nanoTime() - start;
+      }
+      if (found != RUNS*present.length) throw new IllegalStateException("lookups failed");
+      System.out.printf("%-21s %6.2f %8.1fns %8.1fns %8.1fns%n", scheme, loadFactor,
+                        (double)insert/present.length, (double)hit/present.length,
+                        (double)miss/present.length);
+    }
+  }
+}
@@ -1,6 +1,10 @@
 package containers;
 
 import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * A HashMap uses a hash table to implement maps.
@@ -10,7 +14,7 @@ import java.util.Iterator;
  * @param <T> type of the value
  */
 public class HashMap<K extends Comparable<K>, T> implements Map<K, T> {
-  private Hashtable<K,T> table;
+  private HashStore<K,T> table;
 
   /**
    * Create a new HashMap instance backed by a hash table.
@@ -21,11 +25,60 @@ public class HashMap<K extends Comparable<K>, T> implements Map<K, T> {
   public HashMap() { table = new Hashtable<>(); }
   public HashMap(int size) { table = new Hashtable<>(size); }
 
+  /**
+   * Create a new HashMap instance backed by a hash table using a given
+   * collision resolution scheme. With the open addressing schemes the table
+   * size is rounded up to a power of two rather than a prime.
+   * @param size desired hash table size
+   * @param scheme how the table resolves collisions
+   */
+  public HashMap(int size, HashScheme scheme) { table = scheme.makeStore(size); }
+
+  /**
+   * Create a new HashMap instance backed by a power of two sized hash table
+   * that expands when it reaches a given load factor.
+   * @param size desired hash table size
+   * @param scheme how the table resolves collisions
+   * @param loadFactor average chain length (or, for open addressing, fraction
+   *        of slots filled) that triggers expansion
+   * @throws IllegalArgumentException if the load factor is out of range for the scheme
+   */
+  public HashMap(int size, HashScheme scheme, double loadFactor) {
+    table = scheme.makeStore(size, loadFactor);
+  }
+
   /**
    * Return the hash table size (for debugging).
-   * @return the current hash table size: a prime number > 3
+   * @return the current hash table size: a prime number > 3 when chaining
    */
   public int tableSize() { return table.tableSize(); }
+
+  /**
+   * Shrink the hash table to the smallest size that holds the pairs now in it.
+   * Chained tables also shrink by themselves as pairs are deleted.
+   */
+  public void trimToSize() { table.trimToSize(); }
+
+  /**
+   * Expand the hash table if need be so that it holds a given number of pairs
+   * without expanding again.
+   * @param capacity how many pairs the table should hold
+   */
+  public void ensureCapacity(int capacity) { table.ensureCapacity(capacity); }
+
+  /**
+   * Start or stop counting lookups and resizes in the hash table. Every scheme keeps
+   * statistics, and they cost nothing while they are off.
+   * @param enabled true to keep counts, false to stop and discard them
+   */
+  public void setStatisticsEnabled(boolean enabled) { table.setStatisticsEnabled(enabled); }
+
+  /**
+   * Take a snapshot of the hash table's bucket occupancy, chain lengths, lookup probes
+   * and resizes. Open addressing schemes have no chains, so their chain lengths are empty.
+   * @return a snapshot of the table's statistics
+   */
+  public HashStatistics statistics() { return table.statistics(); }
   
   @Override
   public boolean contains(T v) {
@@ -36,6 +89,13 @@ public class HashMap<K extends Comparable<K>, T> implements Map<K, T> {
   @Override
   public Iterator<T> iterator() { return table.iterator(); }
 
+  /**
+   * Create a spliterator over the values. Chained tables split by ranges of buckets.
+   * @return a spliterator over values
+   */
+  @Override
+  public Spliterator<T> spliterator() { return table.spliterator(); }
+
   @Override
   public int size() { return table.size(); }
 
@@ -49,7 +109,7 @@ public class HashMap<K extends Comparable<K>, T> implements Map<K, T> {
   public T get(K key) { return table.get(key); }
 
   @Override
-  public void insert(K key, T value) { table.insert(key, value); }
+  public T insert(K key, T value) { return table.insert(key, value); }
 
   @Override
   public void delete(K key) { table.delete(key); }
@@ -60,13 +120,45 @@ public class HashMap<K extends Comparable<K>, T> implements Map<K, T> {
   @Override
   public Iterator<K> keyIterator() { return table.keyIterator(); }
 
+  @Override
+  public Iterator<Entry<K,T>> entryIterator() { return table.entryIterator(); }
+
+  @Override
+  public void forEach(BiConsumer<? super K, ? super T> action) { table.forEach(action); }
+
+  @Override
+  public T getOrDefault(K key, T defaultValue) { return table.getOrDefault(key, defaultValue); }
+
+  @Override
+  public T putIfAbsent(K key, T value) { return table.putIfAbsent(key, value); }
+
+  @Override
+  public T compute(K key, BiFunction<? super K, ? super T, ? extends T> remapping) {
+    return table.compute(key, remapping);
+  }
+
+  @Override
+  public T computeIfAbsent(K key, Function<? super K, ? extends T> mapping) {
+    return table.compute(key, (k, old) -> (old != null) ? old : mapping.apply(k));
+  }
+
+  @Override
+  public T computeIfPresent(K key, BiFunction<? super K, ? super T, ? extends T> remapping) {
+    return table.compute(key, (k, old) -> (old == null) ? null : remapping.apply(k, old));
+  }
+
+  @Override
+  public T merge(K key, T value, BiFunction<? super T, ? super T, ? extends T> remapping) {
+    return table.compute(key, (k, old) -> (old == null) ? value : remapping.apply(old, value));
+  }
+
   @Override
   public boolean isEqual(Map<K, T> m) {
     if (size() != m.size()) return false;
-    Iterator<K> iter = keyIterator();
+    Iterator<Entry<K,T>> iter = entryIterator();
     while(iter.hasNext()) {
-      K key = iter.next();
-      if (get(key) != m.get(key)) return false;
+      Entry<K,T> entry = iter.next();
+      if (entry.getValue() != m.get(entry.getKey())) return false;
     }
     return true;
   }
@@ -0,0 +1,283 @@
+package containers;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * A HashMultimap uses a hash table to implement multimaps. The table maps each key straight
+ * to its value when it has only one, and to a growable array of values when it has more, so
+ * a key costs one table entry and each further value costs one array slot, rather than the
+ * list object and list node per value of a HashMap whose values are LinkedLists.
+ *
+ * Adding a value, and counting and removing a key's values, take constant time. Finding
+ * or removing a particular value searches the key's values, which are compared with
+ * equals() and kept in the order they were added. Values may not be null.
+ * @author C. Fox
+ *
+ * @param <K> type of the key
+ * @param <T> type of the value
+ */
+public class HashMultimap<K extends Comparable<K>,T> implements Multimap<K,T> {
+  private static final int INITIAL_VALUES = 4;  // array size when a key gets a second value
+  private final Hashtable<K,Object> table;      // a key's value, or its Values
+  private int count;                            // how many values there are
+
+  /**
+   * Create a new HashMultimap with a hash table of the default size.
+   */
+  public HashMultimap() { table = new Hashtable<>(); }
+
+  /**
+   * Create a new HashMultimap with a hash table big enough for a given number of keys.
+   * @param size desired hash table size
+   */
+  public HashMultimap(int size) { table = new Hashtable<>(size); }
+
+  @Override
+  public int size() { return count; }
+
+  @Override
+  public boolean isEmpty() { return count == 0; }
+
+  @Override
+  public void clear() {
+    table.clear();
+    count = 0;
+  }
+
+  @Override
+  public int keyCount() { return table.size(); }
+
+  /**
+   * Associate another value with a key, after any values it already has.
+   * @param key the key the value goes with
+   * @param value the value added
+   * @throws IllegalArgumentException if value is null
+   */
+  @Override
+  public void insert(K key, T value) {
+    if (value == null) throw new IllegalArgumentException("Null value for "+key);
+    table.compute(key, (k, old) -> {
+      if (old == null) return value;
+      if (old instanceof Values) return ((Values)old).add(value);
+      return new Values(old, value);
+    });
+    count++;
+  }
+
+  @Override
+  public boolean delete(K key, T value) {
+    Object old = table.get(key);
+    if (old == null) return false;
+    if (old instanceof Values) {
+      Values values = (Values)old;
+      int i = values.indexOf(value);
+      if (i < 0) return false;
+      values.remove(i);
+      if (values.size == 1) table.insert(key, values.items[0]);
+    }
+    else if (old.equals(value)) table.delete(key);
+    else return false;
+    count--;
+    return true;
+  }
+
+  @Override
+  public int deleteAll(K key) {
+    int n = count(key);
+    if (0 < n) {
+      table.delete(key);
+      count -= n;
+    }
+    return n;
+  }
+
+  @Override
+  public int count(K key) {
+    Object old = table.get(key);
+    if (old == null) return 0;
+    return (old instanceof Values) ? ((Values)old).size : 1;
+  }
+
+  @Override
+  public boolean hasKey(K key) { return table.get(key) != null; }
+
+  @Override
+  public boolean contains(K key, T value) {
+    Object old = table.get(key);
+    if (old == null) return false;
+    return (old instanceof Values) ? 0 <= ((Values)old).indexOf(value) : old.equals(value);
+  }
+
+  /**
+   * Determine whether any key has a given value.
+   * @param item the value searched for
+   * @return true iff some key has a value equal to item
+   */
+  @Override
+  public boolean contains(T item) {
+    for (T value : this) if (value.equals(item)) return true;
+    return false;
+  }
+
+  @Override
+  public Iterator<T> get(K key) { return new ValueIterator(table.get(key)); }
+
+  /**
+   * Return an iterator over every value, a key's values together and in the order they
+   * were added.
+   * @return an iterator over values
+   */
+  @Override
+  public Iterator<T> iterator() {
+    return new PairIterator<T>() {
+      @Override
+      public T next() { return nextValue(); }
+    };
+  }
+
+  @Override
+  public Iterator<K> keyIterator() { return table.keyIterator(); }
+
+  @Override
+  public Iterator<Map.Entry<K,T>> entryIterator() {
+    return new PairIterator<Map.Entry<K,T>>() {
+      @Override
+      public Map.Entry<K,T> next() {
+        T value = nextValue();
+        return new ImmutableEntry<>(key, value);
+      }
+    };
+  }
+
+  /**
+   * Apply an action to every key-value pair without making an Entry for each.
+   * @param action called with each key and each of its values
+   */
+  @SuppressWarnings("unchecked")
+  public void forEach(BiConsumer<? super K, ? super T> action) {
+    table.forEach((key, old) -> {
+      if (old instanceof Values) {
+        Values values = (Values)old;
+        for (int i = 0; i < values.size; i++) action.accept(key, (T)values.items[i]);
+      }
+      else action.accept(key, (T)old);
+    });
+  }
+
+  @Override
+  public boolean isEqual(Multimap<K,T> m) {
+    if (size() != m.size() || keyCount() != m.keyCount()) return false;
+    Iterator<K> keys = keyIterator();
+    while (keys.hasNext()) {
+      K key = keys.next();
+      if (count(key) != m.count(key)) return false;
+      Iterator<T> mine = get(key);
+      Iterator<T> theirs = m.get(key);
+      while (mine.hasNext()) if (!mine.next().equals(theirs.next())) return false;
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    StringBuffer result = new StringBuffer("{");
+    Iterator<K> keys = keyIterator();
+    while (keys.hasNext()) {
+      K key = keys.next();
+      result.append(key).append(":[");
+      Iterator<T> values = get(key);
+      while (values.hasNext()) {
+        result.append(values.next());
+        if (values.hasNext()) result.append(',');
+      }
+      result.append("],");
+    }
+    if (1 < result.length()) result.setLength(result.length()-1);
+    result.append('}');
+    return result.toString();
+  }
+
+  /************************************/
+  /*** Private methods and classes ***/
+
+  /*
+   * The values of a key that has more than one, in an array that grows by half as much
+   * again when it fills. Unused slots are null.
+   */
+  private static final class Values {
+    Object[] items;   // the values, in order
+    int size;         // how many slots are in use
+
+    Values(Object first, Object second) {
+      items = new Object[INITIAL_VALUES];
+      items[0] = first;
+      items[1] = second;
+      size = 2;
+    }
+
+    Values add(Object value) {
+      if (size == items.length) items = Arrays.copyOf(items, size + (size >> 1));
+      items[size++] = value;
+      return this;
+    }
+
+    int indexOf(Object value) {
+      for (int i = 0; i < size; i++) if (items[i].equals(value)) return i;
+      return -1;
+    }
+
+    void remove(int i) {
+      System.arraycopy(items, i+1, items, i, size-i-1);
+      items[--size] = null;
+    }
+  } // Values
+
+  /*
+   * Walk the values of one key: a single value, a Values, or nothing at all.
+   */
+  private class ValueIterator implements Iterator<T> {
+    private final Object values;  // what the table holds for the key, or null
+    private int next;             // index of the value to return next
+
+    ValueIterator(Object values) { this.values = values; }
+
+    @Override
+    public boolean hasNext() {
+      if (values instanceof Values) return next < ((Values)values).size;
+      return values != null && next == 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+      if (!hasNext()) throw new NoSuchElementException();
+      if (values instanceof Values) return (T)((Values)values).items[next++];
+      next++;
+      return (T)values;
+    }
+  } // ValueIterator
+
+  /*
+   * Walk the table's entries, and the values of each one in turn.
+   */
+  private abstract class PairIterator<E> implements Iterator<E> {
+    private final Iterator<Map.Entry<K,Object>> entries = table.entryIterator();
+    private ValueIterator values = new ValueIterator(null);  // the current key's values
+    K key;                                                   // the current key
+
+    @Override
+    public boolean hasNext() { return values.hasNext() || entries.hasNext(); }
+
+    T nextValue() {
+      if (!values.hasNext()) {
+        Map.Entry<K,Object> entry = entries.next();
+        key = entry.getKey();
+        values = new ValueIterator(entry.getValue());
+      }
+      return values.next();
+    }
+  } // PairIterator
+}
@@ -0,0 +1,57 @@
+package containers;
+
+/**
+ * A HashScheme names the kind of hash table used behind
+ * a HashMap or HashSet.
+ * @author C. Fox
+ */
+public enum HashScheme {
+  /** Separate chaining with singly linked lists (Hashtable). */
+  CHAINING,
+
+  /** Separate chaining that spreads table expansion over later operations (Hashtable). */
+  INCREMENTAL_CHAINING,
+
+  /** Open addressing with Robin Hood linear probing (RobinHoodHashtable). */
+  ROBIN_HOOD,
+
+  /** Bucketized cuckoo hashing with a stash, for bounded lookup time (CuckooHashtable). */
+  CUCKOO,
+
+  /** Open addressing with control bytes probed a group at a time (SwissHashtable). */
+  SWISS;
+
+  /**
+   * Make an empty table that uses this scheme.
+   * @param size desired table size
+   * @return a new empty table
+   */
+  <K extends Comparable<K>,T> HashStore<K,T> makeStore(int size) {
+    switch (this) {
+      case ROBIN_HOOD:           return new RobinHoodHashtable<>(size);
+      case CUCKOO:               return new CuckooHashtable<>(size);
+      case SWISS:                return new SwissHashtable<>(size);
+      case INCREMENTAL_CHAINING: return new Hashtable<>(size, true);
+      default:                   return new Hashtable<>(size);
+    }
+  }
+
+  /**
+   * Make an empty table that uses this scheme with power of two sizes and a given load
+   * factor. For chaining schemes the load factor is the average chain length that triggers
+   * expansion; for open addressing it is the fraction of slots filled, and must be less than 1.
+   * @param size desired table size
+   * @param loadFactor when to expand the table
+   * @return a new empty table
+   * @throws IllegalArgumentException if the load factor is out of range for this scheme
+   */
+  <K extends Comparable<K>,T> HashStore<K,T> makeStore(int size, double loadFactor) {
+    switch (this) {
+      case ROBIN_HOOD:           return new RobinHoodHashtable<>(size, loadFactor);
+      case CUCKOO:               return new CuckooHashtable<>(size, loadFactor);
+      case SWISS:                return new SwissHashtable<>(size, loadFactor);
+      case INCREMENTAL_CHAINING: return new Hashtable<>(size, loadFactor, true);
+      default:                   return new Hashtable<>(size, loadFactor, false);
+    }
+  }
+}
@@ -1,16 +1,26 @@
 package containers;
 
 import java.util.Iterator;
+import java.util.Spliterator;
 
 /**
  * A HashSet uses a hash table to store set values.
  * Set elements are stored as both keys and values in this implementation.
+ *
+ * A set may be filtered: a counting Bloom filter of its elements is then consulted before
+ * the table, so that looking up or deleting an element that is absent usually takes a few
+ * bit tests instead of a table probe. The filter is kept in step with the table as elements
+ * are inserted and deleted, and is rebuilt twice as big when the set outgrows it. Sets made
+ * by set operations are not filtered.
  * @author C. Fox
  *
  * @param <T> type of values stored in the set
  */
 public class HashSet<T extends Comparable<T>> implements Set<T> {
-  private Hashtable<T,T> table;
+  private static final int MIN_FILTER_CAPACITY = 64;  // smallest filter made
+  private HashStore<T,T> table;
+  private CountingBloomFilter<T> filter;  // consulted before the table, or null if unfiltered
+  private double falsePositiveRate;       // the filter's false positive rate
 
   /*
    * Create a new hash set backed by a hash table.
@@ -21,18 +31,105 @@ public class HashSet<T extends Comparable<T>> implements Set<T> {
   public HashSet() { table = new Hashtable<>(); }
   public HashSet(int size) { table = new Hashtable<>(size); }
 
+  /**
+   * Create a new hash set backed by a hash table using a given collision
+   * resolution scheme. With the open addressing schemes the table size is
+   * rounded up to a power of two rather than a prime.
+   * @param size desired hash table size
+   * @param scheme how the table resolves collisions
+   */
+  public HashSet(int size, HashScheme scheme) { table = scheme.makeStore(size); }
+
+  /**
+   * Create a new hash set backed by a power of two sized hash table that
+   * expands when it reaches a given load factor.
+   * @param size desired hash table size
+   * @param scheme how the table resolves collisions
+   * @param loadFactor average chain length (or, for open addressing, fraction
+   *        of slots filled) that triggers expansion
+   * @throws IllegalArgumentException if the load factor is out of range for the scheme
+   */
+  public HashSet(int size, HashScheme scheme, double loadFactor) {
+    table = scheme.makeStore(size, loadFactor);
+  }
+
   /**
    * Return the current hash table size (for debugging).
-   * @return a prime number > 3
+   * @return a prime number > 3 when chaining
    */
   public int tableSize() { return table.tableSize(); }
-  
+
+  /**
+   * Shrink the hash table to the smallest size that holds the elements now in it.
+   * Chained tables also shrink by themselves as elements are deleted.
+   */
+  public void trimToSize() { table.trimToSize(); }
+
+  /**
+   * Expand the hash table if need be so that it holds a given number of elements
+   * without expanding again.
+   * @param capacity how many elements the table should hold
+   */
+  public void ensureCapacity(int capacity) { table.ensureCapacity(capacity); }
+
+  /**
+   * Start or stop counting lookups and resizes in the hash table. Every scheme keeps
+   * statistics, and they cost nothing while they are off.
+   * @param enabled true to keep counts, false to stop and discard them
+   */
+  public void setStatisticsEnabled(boolean enabled) { table.setStatisticsEnabled(enabled); }
+
+  /**
+   * Take a snapshot of the hash table's bucket occupancy, chain lengths, lookup probes
+   * and resizes. Open addressing schemes have no chains, so their chain lengths are empty.
+   * @return a snapshot of the table's statistics
+   */
+  public HashStatistics statistics() { return table.statistics(); }
+
+  /**
+   * Start or stop filtering lookups through a counting Bloom filter of the elements.
+   * @param falsePositiveRate the chance that the filter lets through a lookup of an absent
+   *        element, or 0 to stop filtering
+   * @throws IllegalArgumentException if the rate is not 0 and not strictly between 0 and 1
+   */
+  public void setFilter(double falsePositiveRate) {
+    if (falsePositiveRate == 0) {
+      filter = null;
+      return;
+    }
+    if (!(0 < falsePositiveRate && falsePositiveRate < 1))
+      throw new IllegalArgumentException("Bad false positive rate "+falsePositiveRate);
+    this.falsePositiveRate = falsePositiveRate;
+    makeFilter();
+  }
+
+  /**
+   * @return true iff lookups are filtered
+   */
+  public boolean isFiltered() { return filter != null; }
+
+  /**
+   * Determine whether a value is in the set. A filtered set answers no without probing the
+   * table when the filter rules the value out.
+   * @param v the value looked for
+   * @return true iff v is in the set
+   */
   @Override
-  public boolean contains(T v) { return table.get(v) != null; }
+  public boolean contains(T v) {
+    if (filter != null && !filter.mightContain(v)) return false;
+    return table.get(v) != null;
+  }
 
   @Override
   public Iterator<T> iterator() { return table.iterator(); }
 
+  /**
+   * Create a spliterator over the elements. Chained tables split by ranges of buckets.
+   * @return a spliterator over elements
+   */
+  @Override
+  public Spliterator<T> spliterator() { return table.keySpliterator(); }
+
   @Override
   public int size() { return table.size(); }
 
@@ -40,42 +137,136 @@ public class HashSet<T extends Comparable<T>> implements Set<T> {
   public boolean isEmpty() { return 0 == table.size(); }
 
   @Override
-  public void clear() { table.clear(); }
+  public void clear() {
+    table.clear();
+    if (filter != null) filter.clear();
+  }
 
+  /**
+   * Determine whether this set is a subset of the argument set. A larger set is never
+   * a subset, so that case is decided without looking at any elements.
+   * @param set candidate super set
+   * @return true if this is a subset of set
+   */
   @Override
   public boolean isSubset(Set<T> set) {
+    if (set.size() < size()) return false;
     for (T element : this) if (!set.contains(element)) return false;
     return true;
   }
 
   @Override
-  public void insert(T v) { table.insert(v,v); }
+  public void insert(T v) {
+    boolean added = table.insert(v,v) == null;
+    if (!added || filter == null) return;
+    if (filter.size() < filter.capacity()) filter.insert(v);
+    else makeFilter();
+  }
 
   @Override
-  public void delete(T v) { table.delete(v); }
+  public void delete(T v) {
+    if (filter == null) table.delete(v);
+    else if (filter.mightContain(v) && table.delete(v)) filter.delete(v);
+  }
 
+  /**
+   * Create a new set that is the intersection of this set and the argument set.
+   * The smaller set is traversed and the result is made big enough at the start.
+   * @param set intersected with this set
+   * @return a new set that is the intersection of this and set
+   */
   @Override
   public Set<T> intersection(Set<T> set) {
-    Set<T> result = new HashSet<>();
+    if (set.size() < size()) {
+      HashSet<T> result = makeEmpty(set.size());
+      for (T element : set) if (contains(element)) result.insert(element);
+      return result;
+    }
+    HashSet<T> result = makeEmpty(size());
     for (T element : this) if (set.contains(element)) result.insert(element);
     return result;
   }
 
+  /**
+   * Create a new set that is the union of this set and the argument set.
+   * The result is made big enough for both sets at the start.
+   * @param set united with this set
+   * @return a new set that is the union of this and set
+   */
   @Override
   public Set<T> union(Set<T> set) {
-    Set<T> result = new HashSet<>();
+    HashSet<T> result = makeEmpty(size() + set.size());
     for (T element : this) result.insert(element);
     for (T element : set) result.insert(element);
     return result;
   }
 
+  /**
+   * Create a new set that is the relative complement of this set and the argument set.
+   * If the argument is smaller, this set is copied and the argument's elements removed
+   * from the copy; otherwise this set is traversed into a result made big enough at the start.
+   * @param set whose values are removed from this set
+   * @return a new set that is this set complemented with set
+   */
   @Override
   public Set<T> complement(Set<T> set) {
-    Set<T> result = new HashSet<>();
+    if (set.size() < size()) {
+      HashSet<T> result = new HashSet<>(table.copy());
+      for (T element : set) result.delete(element);
+      return result;
+    }
+    HashSet<T> result = makeEmpty(size());
     for (T element : this) if (!set.contains(element)) result.insert(element);
     return result;
   }
 
+  /**
+   * Remove from this set every element not in the argument set. If the argument is smaller,
+   * the elements of this set that it holds are moved to a new table; otherwise the elements
+   * of this set not in the argument are deleted.
+   * @param set whose values are kept in this set
+   */
+  public void retainAll(Set<T> set) {
+    if (set.size() < size()) {
+      HashStore<T,T> kept = table.makeEmpty(set.size());
+      for (T element : set) {
+        T v = table.get(element);
+        if (v != null) kept.insert(v, v);
+      }
+      if (table.isStatisticsEnabled()) kept.setStatisticsEnabled(true);
+      table = kept;
+      if (filter != null) makeFilter();
+      return;
+    }
+    removeMatching(set, false);
+  }
+
+  /**
+   * Add every element of the argument set to this set.
+   * @param set whose values are added to this set
+   */
+  public void addAll(Set<T> set) {
+    for (T element : set) insert(element);
+  }
+
+  /**
+   * Remove every element of the argument set from this set, traversing the smaller set.
+   * @param set whose values are removed from this set
+   */
+  public void removeAll(Set<T> set) {
+    if (set.size() < size()) {
+      for (T element : set) delete(element);
+      return;
+    }
+    removeMatching(set, true);
+  }
+
+  /**
+   * Determine whether this set is the same as the argument set.
+   * Sets of different sizes are unequal without looking at any elements.
+   * @param set compared with this set
+   * @return true iff this set is identical to set
+   */
   @Override
   public boolean isEqual(Set<T> set) {
     if (size() != set.size()) return false;
@@ -95,4 +286,43 @@ public class HashSet<T extends Comparable<T>> implements Set<T> {
     result.append(']');
     return result.toString();
   }
+
+  /************************************/
+  /*** Private methods and classes ***/
+
+  /**
+   * Wrap a table in a new set.
+   * @param store the table holding the new set's elements
+   */
+  private HashSet(HashStore<T,T> store) { table = store; }
+
+  /**
+   * Build a new filter holding the elements now in the set, with room for as many again.
+   */
+  private void makeFilter() {
+    filter = new CountingBloomFilter<>(Math.max(MIN_FILTER_CAPACITY, 2*size()), falsePositiveRate);
+    for (T element : this) filter.insert(element);
+  }
+
+  /**
+   * Make an empty set using this set's hash scheme that can hold a given number of
+   * elements without expanding.
+   * @param capacity how many elements the new set should hold
+   * @return a new empty set
+   */
+  private HashSet<T> makeEmpty(int capacity) { return new HashSet<>(table.makeEmpty(capacity)); }
+
+  /**
+   * Delete the elements of this set that are (or are not) in the argument set. The doomed
+   * elements are gathered first so that the table is not changed during the traversal.
+   * @param set the set whose membership decides which elements are deleted
+   * @param inSet true to delete elements in set, false to delete elements not in set
+   */
+  @SuppressWarnings("unchecked")
+  private void removeMatching(Set<T> set, boolean inSet) {
+    Object[] doomed = new Object[size()];
+    int n = 0;
+    for (T element : this) if (set.contains(element) == inSet) doomed[n++] = element;
+    for (int i = 0; i < n; i++) delete((T)doomed[i]);
+  }
 }
@@ -0,0 +1,155 @@
+package containers;
+
+/**
+ * A HashStatistics object is a snapshot of how well a hash table is working: how its pairs
+ * are spread over its buckets, how much searching lookups have needed, and how often and
+ * for how long the table has been resized. Bucket figures are worked out when the snapshot
+ * is taken; lookup and resize figures are counted only while statistics are enabled on the
+ * table, and are 0 otherwise.
+ *
+ * In a chained table a probe is one entry examined by a lookup. Lookups in buckets that
+ * have become trees are charged the height of the tree, which bounds the entries examined.
+ * Open addressing tables have no chains, so their chain length histogram is empty and each
+ * pair counts as an occupied bucket; a probe is one slot examined (Robin Hood), one group
+ * of control bytes (Swiss), or one bucket, the stash or the overflow table (cuckoo).
+ *
+ * @author C. Fox
+ */
+public class HashStatistics {
+  private final int tableSize;       // buckets in the table (and old table, if rehashing)
+  private final int size;            // key/value pairs in the table
+  private final int occupied;        // buckets holding at least one pair
+  private final int[] chainLengths;  // chainLengths[i] is how many buckets hold i pairs
+  private final long gets;           // lookups counted
+  private final long probes;         // entries examined by those lookups
+  private final int maxProbes;       // most entries examined by one lookup
+  private final int resizes;         // times the table was expanded or shrunk
+  private final long resizeNanos;    // time spent moving entries to resized tables
+
+  HashStatistics(int tableSize, int size, int occupied, int[] chainLengths, long gets,
+                 long probes, int maxProbes, int resizes, long resizeNanos) {
+    this.tableSize = tableSize;
+    this.size = size;
+    this.occupied = occupied;
+    this.chainLengths = chainLengths;
+    this.gets = gets;
+    this.probes = probes;
+    this.maxProbes = maxProbes;
+    this.resizes = resizes;
+    this.resizeNanos = resizeNanos;
+  }
+
+  /*
+   * Make a snapshot of an open addressing table, whose chain length histogram is empty.
+   */
+  static HashStatistics ofSlots(int tableSize, int size, Counters counts) {
+    if (counts == null) return new HashStatistics(tableSize, size, size, new int[0], 0, 0, 0, 0, 0);
+    return new HashStatistics(tableSize, size, size, new int[0], counts.gets, counts.probes,
+                              counts.maxProbes, counts.resizes, counts.resizeNanos);
+  }
+
+  /**
+   * @return how many buckets the table has
+   */
+  public int tableSize() { return tableSize; }
+
+  /**
+   * @return how many key/value pairs the table holds
+   */
+  public int size() { return size; }
+
+  /**
+   * @return how many buckets hold at least one pair
+   */
+  public int occupiedBuckets() { return occupied; }
+
+  /**
+   * Find out how many buckets hold a given number of pairs.
+   * @param length a chain length
+   * @return how many buckets have exactly that many pairs
+   */
+  public int bucketsWithLength(int length) {
+    return (0 <= length && length < chainLengths.length) ? chainLengths[length] : 0;
+  }
+
+  /**
+   * @return the most pairs in any one bucket
+   */
+  public int maxChainLength() { return Math.max(chainLengths.length-1, 0); }
+
+  /**
+   * @return the average number of pairs in the buckets that are not empty
+   */
+  public double averageChainLength() { return occupied == 0 ? 0 : (double)size/occupied; }
+
+  /**
+   * @return how many lookups were counted
+   */
+  public long gets() { return gets; }
+
+  /**
+   * @return the average number of entries examined per lookup counted
+   */
+  public double averageProbes() { return gets == 0 ? 0 : (double)probes/gets; }
+
+  /**
+   * @return the most entries examined by any one lookup counted
+   */
+  public int maxProbes() { return maxProbes; }
+
+  /**
+   * @return how many times the table was expanded or shrunk
+   */
+  public int resizes() { return resizes; }
+
+  /**
+   * @return the total time spent moving entries into resized tables, in nanoseconds
+   */
+  public long resizeNanos() { return resizeNanos; }
+
+  @Override
+  public String toString() {
+    StringBuffer result = new StringBuffer();
+    result.append("table size ").append(tableSize).
+           append(", pairs ").append(size).
+           append(", occupied buckets ").append(occupied).append('\n');
+    result.append("chain lengths");
+    for (int i = 0; i < chainLengths.length; i++)
+      if (chainLengths[i] != 0) result.append(' ').append(i).append(':').append(chainLengths[i]);
+    result.append('\n');
+    result.append(String.format("gets %d, average probes %.2f, max probes %d%n",
+                                gets, averageProbes(), maxProbes));
+    result.append(String.format("resizes %d, resize time %.3fms",
+                                resizes, resizeNanos/1e6));
+    return result.toString();
+  }
+
+  /*
+   * Counts a table keeps while statistics are enabled.
+   */
+  static final class Counters {
+    long gets;          // lookups done
+    long probes;        // entries examined by lookups
+    int maxProbes;      // most entries examined by one lookup
+    int lookupProbes;   // entries examined so far by the lookup under way
+    int resizes;        // times the table was expanded or shrunk
+    long resizeNanos;   // time spent moving entries to resized tables
+
+    /*
+     * Count a lookup that examined a given number of entries.
+     */
+    void countGet(int n) {
+      gets++;
+      probes += n;
+      if (maxProbes < n) maxProbes = n;
+    }
+
+    /*
+     * Count a resize that started at a given System.nanoTime().
+     */
+    void countResize(long start) {
+      resizes++;
+      resizeNanos += System.nanoTime() - start;
+    }
+  } // Counters
+}
@@ -0,0 +1,170 @@
+package containers;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * A HashStore is the table behind a HashMap or HashSet. Each HashScheme has its own
+ * HashStore implementation, so the maps and sets can switch collision resolution
+ * strategies without changing their own code.
+ * @author C. Fox
+ *
+ * @param <K> type of the key
+ * @param <T> type of the value
+ */
+interface HashStore<K extends Comparable<K>,T> extends Iterable<T> {
+  /**
+   * Reveal the hash table size.
+   * @return the number of buckets or slots in the table
+   */
+  int tableSize();
+
+  /**
+   * Reveal how many key/value pairs are in the table.
+   * @return count of key/value pairs in range 0..
+   */
+  int size();
+
+  /**
+   * Remove all key/value pairs from the table.
+   */
+  void clear();
+
+  /**
+   * Put a new key/value pair in the table, or replace the value if the key is already present.
+   * @param key the part of the pair hashed
+   * @param value the part that goes with the key
+   * @return the value previously associated with key, or null if it was absent
+   */
+  T insert(K key, T value);
+
+  /**
+   * Put a new key/value pair in the table unless the key is present with a non-null value.
+   * @param key the part of the pair hashed
+   * @param value the part that goes with the key
+   * @return the value already associated with key, or null if value was added
+   */
+  T putIfAbsent(K key, T value);
+
+  /**
+   * Fetch the value associated with a key, or null if the key is absent.
+   * @param key used to find the value
+   * @return the value that goes with the key, or null if the key is absent
+   */
+  T get(K key);
+
+  /**
+   * Fetch the value associated with a key, or a default value if the key is absent.
+   * @param key used to find the value
+   * @param defaultValue returned if the key is absent
+   * @return the value that goes with the key, or defaultValue
+   */
+  T getOrDefault(K key, T defaultValue);
+
+  /**
+   * Find a key and replace its value (or null if it is absent) with the result of a function,
+   * all in one search. A null result removes the pair (or does not add it). The function
+   * must not change the table.
+   * @param key used to find the key/value pair
+   * @param remapping computes the new value from the key and its current value or null
+   * @return the new value associated with key, or null if there is none
+   */
+  T compute(K key, BiFunction<? super K, ? super T, ? extends T> remapping);
+
+  /**
+   * Remove a key/value pair or do nothing if the key is absent.
+   * @param key used to find the key/value pair
+   * @return true iff a pair was removed
+   */
+  boolean delete(K key);
+
+  /**
+   * Apply a visit function to every value in the table.
+   * @param visitor an object with a visit() method applied to every value
+   */
+  void visit(Visitor<T> visitor);
+
+  /**
+   * Return an iterator over the keys in the table.
+   * @return a <K> type iterator
+   */
+  Iterator<K> keyIterator();
+
+  /**
+   * Create a spliterator over the values in the table. This one splits by copying runs
+   * of values from the iterator into arrays; tables that can split their buckets
+   * directly override it.
+   * @return a spliterator that knows the table's size
+   */
+  @Override
+  default Spliterator<T> spliterator() { return Spliterators.spliterator(iterator(), size(), 0); }
+
+  /**
+   * Create a spliterator over the keys in the table.
+   * @return a spliterator that knows the table's size
+   */
+  default Spliterator<K> keySpliterator() {
+    return Spliterators.spliterator(keyIterator(), size(), Spliterator.DISTINCT | Spliterator.NONNULL);
+  }
+
+  /**
+   * Return an iterator over the key/value pairs in the table.
+   * @return an iterator over entries
+   */
+  Iterator<Map.Entry<K,T>> entryIterator();
+
+  /**
+   * Apply an action to every key/value pair in the table.
+   * @param action called with each key and its value
+   */
+  void forEach(BiConsumer<? super K, ? super T> action);
+
+  /**
+   * Make a shallow copy of this table using the same scheme. The table's arrays are copied
+   * directly, so no keys are hashed or compared.
+   * @return a new table with the same key/value pairs
+   */
+  HashStore<K,T> copy();
+
+  /**
+   * Make an empty table using the same scheme that is big enough to hold a given number
+   * of pairs without expanding.
+   * @param capacity how many pairs the new table should hold
+   * @return a new empty table
+   */
+  HashStore<K,T> makeEmpty(int capacity);
+
+  /**
+   * Shrink the table to the smallest size that holds its pairs without expanding.
+   */
+  void trimToSize();
+
+  /**
+   * Expand the table if need be so that it holds a given number of pairs without
+   * expanding again.
+   * @param capacity how many pairs the table should hold
+   */
+  void ensureCapacity(int capacity);
+
+  /**
+   * Start or stop counting lookups and resizes for statistics(). Stopping discards the
+   * counts made so far.
+   * @param enabled true to keep counts, false to stop
+   */
+  void setStatisticsEnabled(boolean enabled);
+
+  /**
+   * Reveal whether lookups and resizes are being counted.
+   * @return true iff statistics are enabled
+   */
+  boolean isStatisticsEnabled();
+
+  /**
+   * Take a snapshot of the table's statistics.
+   * @return a snapshot of the table's statistics
+   */
+  HashStatistics statistics();
+}
@@ -1,7 +1,13 @@
 package containers;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Hashtables map keys to values by hashing keys to array locations.
@@ -9,16 +15,65 @@ import java.util.NoSuchElementException;
  * Note that the Object.hashCode() method is used to hash keys. This should be overridden if
  * it is not appropriate for the key's class.
  * 
+ * By default the table size is prime, keys are placed by taking their hash codes modulo the
+ * table size, and the table grows when there are MAX_LOAD_FACTOR entries per bucket. A table
+ * made with a load factor instead uses power of two sizes: hash codes are spread by mixing
+ * their high bits into their low bits, keys are placed by masking off the low bits, and the
+ * table doubles when the number of entries per bucket reaches the load factor. This avoids
+ * division and prime searches and keeps chains short.
+ * 
+ * Each entry records its key's hash code, so expanding the table never calls hashCode()
+ * again, and searches only call compareTo() on keys whose hash codes match.
+ * 
+ * Normally the table is expanded all at once, which makes the insertion that triggers
+ * expansion as slow as rebuilding the whole table. A table made in incremental mode
+ * instead keeps the old table alongside the new one and moves a few old buckets into
+ * the new table on every insertion, deletion and lookup, so no single operation does more
+ * than a bounded amount of rehashing work. How many buckets an operation moves is worked
+ * out from the load factor when the resizing starts, so that the old table is empty before
+ * enough insertions have been made to need another expansion. While this is going on, a
+ * key is in its old bucket if that bucket has not been moved yet, and in its new bucket
+ * otherwise. Since lookups move buckets, iterators, spliterators, visit() and forEach()
+ * finish any resizing under way before they start, which costs no more than the traversal
+ * itself; fetching values while iterating over keys is then still safe.
+ * 
+ * Since keys are Comparable, a bucket whose chain grows to TREEIFY_THRESHOLD entries
+ * (because of a poor hashCode() or keys chosen to collide) is converted to an AVL tree
+ * ordered by key, so operations on it take O(lg n) rather than O(n) time. The bucket
+ * goes back to being a chain when deletions shrink it to UNTREEIFY_THRESHOLD entries.
+ * 
+ * The table also shrinks when deletions leave it a quarter as full as it would be after
+ * shrinking, so a table that has had many pairs removed does not keep its peak size. The
+ * gap between the growing and shrinking points keeps a table whose size hovers around
+ * one of them from being resized over and over. A table never shrinks below the size it
+ * was made with, and clear() puts it back to that size.
+ * 
+ * Statistics about the table can be turned on with setStatisticsEnabled() and read with
+ * statistics(). While they are off, lookups and resizes pay only for a null check.
+ * 
  * @author C. Fox
  *
  * @param <K> type of the key
  * @param <T> type of the value
  */
-class Hashtable<K extends Comparable<K>,T> implements Iterable<T> {
+class Hashtable<K extends Comparable<K>,T> implements HashStore<K,T> {
   private static int MAX_LOAD_FACTOR = 5;     // if we reach this, expand the table
   public static final int DEFAULT_SIZE = 13;  // for too small or unspecified table sizes
-  private Object[] table;                     // array of entries or null if no entry
+  private static final int REHASH_STEP = 4;   // fewest old buckets moved per operation
+  private static final int TREEIFY_THRESHOLD = 16;  // chains this long become trees
+  private static final int UNTREEIFY_THRESHOLD = 8; // trees this small become chains
+  private Object[] table;                     // array of entry chains, tree bins, or null
+  private Object[] oldTable;                  // table being emptied in incremental mode, else null
+  private int rehashIndex;                    // next old bucket to move into the table
+  private int rehashBuckets;                  // old buckets moved per operation
+  private final boolean incremental;          // whether expansion is done incrementally
+  private final boolean powerOfTwo;           // whether sizes are powers of two rather than primes
+  private final double loadFactor;            // entries per bucket that trigger expansion
+  private int threshold;                      // entry count that triggers expansion
+  private int shrinkThreshold;                // entry count below which the table shrinks
+  private int minSize;                        // the table never shrinks below this size
   private int count;                          // how many key/value pairs in the table
+  private HashStatistics.Counters stats;      // lookup and resize counts, or null if not kept
 
   /**
    * Allow clients to specify the table size when creating a hash table.
@@ -26,13 +81,49 @@ class Hashtable<K extends Comparable<K>,T> implements Iterable<T> {
    * not prime, the next largest prime is used.
    * @param size desired hash table size
    */
-  public Hashtable(int size) {
+  public Hashtable(int size) { this(size, false); }
+  
+  /**
+   * Allow clients to specify the table size and whether the table is expanded
+   * incrementally rather than all at once.
+   * @param size desired hash table size
+   * @param incremental true iff expansion should be spread over later operations
+   */
+  public Hashtable(int size, boolean incremental) {
     if (size < 5) size = DEFAULT_SIZE;
-    int tableSize = nextPrime(size);
-    table = new Object[tableSize];
+    this.incremental = incremental;
+    powerOfTwo = false;
+    loadFactor = MAX_LOAD_FACTOR;
+    minSize = nextPrime(size);
+    makeTable(minSize);
+    oldTable = null;
     count = 0;
   }
-  
+
+  /**
+   * Make a hash table whose size is a power of two and that expands when the average
+   * number of entries per bucket exceeds a given load factor.
+   * If the size is less than 5 the default size is used. If the size is
+   * not a power of two, the next largest power of two is used.
+   * @param size desired hash table size
+   * @param loadFactor average chain length that triggers expansion; must be positive
+   * @param incremental true iff expansion should be spread over later operations
+   * @throws IllegalArgumentException if loadFactor is not positive
+   */
+  public Hashtable(int size, double loadFactor, boolean incremental) {
+    if (!(0 < loadFactor)) throw new IllegalArgumentException("Bad load factor "+loadFactor);
+    if (size < 5) size = DEFAULT_SIZE;
+    this.incremental = incremental;
+    powerOfTwo = true;
+    this.loadFactor = loadFactor;
+    int tableSize = 8;
+    while (tableSize < size) tableSize *= 2;
+    minSize = tableSize;
+    makeTable(tableSize);
+    oldTable = null;
+    count = 0;
+  }
+
   /*
    *  Make a hash table with the default size.
    */
@@ -51,104 +142,218 @@ class Hashtable<K extends Comparable<K>,T> implements Iterable<T> {
   public int size() { return count; }
   
   /**
-   * Remove all values from the hash table.
+   * Remove all values from the hash table, putting it back to the size it was made with.
    */
   public void clear() {
-    for (int i = 0; i < table.length; i++) table[i] = null;
+    if (minSize < table.length) makeTable(minSize);
+    else for (int i = 0; i < table.length; i++) table[i] = null;
+    oldTable = null;
     count = 0;
   }
 
+  /**
+   * Shrink the table to the smallest size that holds its pairs without expanding.
+   */
+  public void trimToSize() {
+    int size = sizeFor(count);
+    if (size < table.length) resize(size);
+  }
+
+  /**
+   * Expand the table if need be so that it holds a given number of pairs without
+   * expanding again.
+   * @param capacity how many pairs the table should hold
+   */
+  public void ensureCapacity(int capacity) {
+    int size = sizeFor(capacity);
+    if (table.length < size) resize(size);
+  }
+
+  /**
+   * Start or stop counting lookups and resizes for statistics(). Stopping discards the
+   * counts made so far.
+   * @param enabled true to keep counts, false to stop
+   */
+  public void setStatisticsEnabled(boolean enabled) {
+    if (!enabled) stats = null;
+    else if (stats == null) stats = new HashStatistics.Counters();
+  }
+
+  /**
+   * Reveal whether lookups and resizes are being counted.
+   * @return true iff statistics are enabled
+   */
+  public boolean isStatisticsEnabled() { return stats != null; }
+
+  /**
+   * Take a snapshot of the table's statistics. The bucket figures are worked out by
+   * traversing the table, so this takes time proportional to the table size. The lookup
+   * and resize figures are those counted since statistics were enabled.
+   * @return a snapshot of the table's statistics
+   */
+  public HashStatistics statistics() {
+    int[] lengths = new int[1];
+    int buckets = table.length + ((oldTable == null) ? 0 : oldTable.length);
+    int occupied = 0;
+    for (int i = 0; i < buckets; i++) {
+      Object bucket = (i < table.length) ? table[i] : oldTable[i-table.length];
+      int length = chainLength(bucket);
+      if (lengths.length <= length) lengths = Arrays.copyOf(lengths, length+1);
+      lengths[length]++;
+      if (0 < length) occupied++;
+    }
+    if (stats == null) return new HashStatistics(buckets, count, occupied, lengths, 0, 0, 0, 0, 0);
+    return new HashStatistics(buckets, count, occupied, lengths, stats.gets, stats.probes,
+                              stats.maxProbes, stats.resizes, stats.resizeNanos);
+  }
+
+  /**
+   * Reveal whether an incremental expansion is under way.
+   * @return true iff some entries are still in the old table
+   */
+  public boolean isRehashing() { return oldTable != null; }
+
   /**
    * Put a new key/value pair in the table, or replace the value if the key is already present.
    * @param key the part of the pair hashed
    * @param value the part that goes with the key
+   * @return the value previously associated with key, or null if it was absent
    */
-  @SuppressWarnings("unchecked")
-  public void insert(K key, T value) {
-    if (MAX_LOAD_FACTOR <= count/table.length) expandTable();
-    int index = Math.abs(key.hashCode()) % table.length;
-    
-    // if the spot is empty, fill it
-    if (table[index] == null) {
-      table[index] = new Entry(key, value);
-      count++;
-      return;
-    }
-    
-    // look down the list for the key/value pair
-    Entry node = (Entry)table[index];
-    int comparison = key.compareTo(node.key);
-    while (comparison != 0 && node.next != null) {
-      node = node.next;
-      comparison = key.compareTo(node.key);
-    }
-    
-    // if key is found, replace its value; otherwise add a node to the list
-    if (comparison == 0) node.value = value;
-    else {
-      node.next = new Entry(key, value);
-      count++;
-    }
+  public T insert(K key, T value) { return putValue(key, value, false); }
 
-  }
+  /**
+   * Put a new key/value pair in the table unless the key is present with a non-null value.
+   * @param key the part of the pair hashed
+   * @param value the part that goes with the key
+   * @return the value already associated with key, or null if value was added
+   */
+  public T putIfAbsent(K key, T value) { return putValue(key, value, true); }
 
   /**
    * Fetch the value associated with a key, or null if the key is absent.
    * @param key used to find the value
    * @return the value that goes with the key, or null if the key is absent
    */
-  @SuppressWarnings("unchecked")
-  public T get(K key) {
-    int index = Math.abs(key.hashCode()) % table.length;
-    if (table[index] == null) return null;
-    
-    // look down the list for the key/value pair
-    Entry node = (Entry)table[index];
-    int comparison = key.compareTo(node.key);
-    while (comparison != 0 && node.next != null) {
-      node = node.next;
-      comparison = key.compareTo(node.key);
-    }
-    return (comparison == 0) ? node.value : null;
+  public T get(K key) { return getOrDefault(key, null); }
+
+  /**
+   * Fetch the value associated with a key, or a default value if the key is absent.
+   * @param key used to find the value
+   * @param defaultValue returned if the key is absent
+   * @return the value that goes with the key, or defaultValue
+   */
+  public T getOrDefault(K key, T defaultValue) {
+    if (oldTable != null) rehashStep();
+    if (stats != null) return countedGet(key, defaultValue);
+    int hash = hash(key);
+    Entry node = (oldTable == null) ? null : findEntry(oldTable, key, hash);
+    if (node == null) node = findEntry(table, key, hash);
+    return (node == null) ? defaultValue : node.value;
   }
 
   /**
-   * Remove a key/value pair or do nothing if the key is absent.
+   * Find a key and replace its value (or null if it is absent) with the result of a function,
+   * all in one search. A null result removes the pair (or does not add it). The function
+   * must not change the table.
    * @param key used to find the key/value pair
+   * @param remapping computes the new value from the key and its current value or null
+   * @return the new value associated with key, or null if there is none
    */
   @SuppressWarnings("unchecked")
-  public void delete(K key) {
-    int index = Math.abs(key.hashCode()) % table.length;
+  public T compute(K key, BiFunction<? super K, ? super T, ? extends T> remapping) {
+    if (threshold <= count) expandTable();
+    if (oldTable != null) rehashStep();
+    int hash = hash(key);
+    if (oldTable != null) {
+      Entry node = findEntry(oldTable, key, hash);
+      if (node != null) {
+        T value = remapping.apply(key, node.value);
+        if (value == null) {
+          deleteFrom(oldTable, key, hash);
+          shrinkIfSparse();
+        }
+        else node.value = value;
+        return value;
+      }
+    }
+    int index = indexFor(hash, table.length);
     
-    // if the spot is empty, return
-    if (table[index] == null) return;
+    // if the spot holds a tree, work on the node in the tree
+    if (table[index] instanceof Hashtable.TreeBin) {
+      AVLTree<Entry> tree = ((TreeBin)table[index]).tree;
+      Entry newEntry = new Entry(key, hash, null);
+      Entry node = tree.get(newEntry);
+      T value = remapping.apply(key, (node == null) ? null : node.value);
+      if (node != null) {
+        if (value == null) {
+          tree.delete(node);
+          count--;
+          if (tree.size() <= UNTREEIFY_THRESHOLD) table[index] = ((TreeBin)table[index]).toChain();
+          shrinkIfSparse();
+        }
+        else node.value = value;
+      }
+      else if (value != null) {
+        newEntry.value = value;
+        tree.insert(newEntry);
+        count++;
+      }
+      return value;
+    }
     
-    // look down the list for the key
+    // look down the list for the key/value pair, remembering its predecessor
     Entry node = (Entry)table[index];
     Entry pred = null;
-    int comparison = key.compareTo(node.key);
-    while (comparison != 0 && node.next != null) {
+    int length = 0;
+    while (node != null && !matches(node, key, hash)) {
       pred = node;
       node = node.next;
-      comparison = key.compareTo(node.key);
+      length++;
     }
-    if (comparison != 0) return;
+    T value = remapping.apply(key, (node == null) ? null : node.value);
     
-    // remove a node from the list
-    if (pred == null) table[index] = node.next;
-    else pred.next = node.next;
-    count--;
-  }
-  
-  @SuppressWarnings("unchecked")
-  public void visit(Visitor<T> visitor) {
-    for (int i = 0; i < table.length; i++) {
-      Entry node = (Entry)table[i];
-      while (node != null) {
-        visitor.visit(node.value);
-        node = node.next;
+    // replace or remove the node that was found, or add a node to the end of the list
+    if (node != null) {
+      if (value != null) node.value = value;
+      else {
+        if (pred == null) table[index] = node.next;
+        else pred.next = node.next;
+        count--;
+        shrinkIfSparse();
       }
     }
+    else if (value != null) {
+      Entry newEntry = new Entry(key, hash, value);
+      if (pred == null) table[index] = newEntry;
+      else pred.next = newEntry;
+      count++;
+      if (TREEIFY_THRESHOLD <= length+1) table[index] = new TreeBin((Entry)table[index]);
+    }
+    return value;
+  }
+
+  /**
+   * Remove a key/value pair or do nothing if the key is absent.
+   * @param key used to find the key/value pair
+   * @return true iff a pair was removed
+   */
+  public boolean delete(K key) {
+    if (oldTable != null) rehashStep();
+    int hash = hash(key);
+    if (!(oldTable != null && deleteFrom(oldTable, key, hash)) && !deleteFrom(table, key, hash))
+      return false;
+    shrinkIfSparse();
+    return true;
+  }
+
+  public void visit(Visitor<T> visitor) {
+    finishRehashing();
+    visit(table, visitor);
+  }
+
+  public void forEach(BiConsumer<? super K, ? super T> action) {
+    finishRehashing();
+    forEach(table, action);
   }
   
   /**
@@ -162,38 +367,73 @@ class Hashtable<K extends Comparable<K>,T> implements Iterable<T> {
    * @return a <K> type iterator
    */
   public Iterator<K> keyIterator() { return new HashtableKeyIterator(); }
+
+  /**
+   * Return an iterator over the key/value pairs in the table.
+   * @return an iterator over entries
+   */
+  public Iterator<Map.Entry<K,T>> entryIterator() { return new HashtableEntryIterator(); }
+
+  /**
+   * Return a spliterator over the values in the table that splits by ranges of buckets.
+   * @return a <T> type spliterator
+   */
+  @Override
+  public Spliterator<T> spliterator() {
+    finishRehashing();
+    return new BucketSpliterator<T>(node -> node.value, 0);
+  }
+
+  /**
+   * Return a spliterator over the keys in the table that splits by ranges of buckets.
+   * @return a <K> type spliterator
+   */
+  @Override
+  public Spliterator<K> keySpliterator() {
+    finishRehashing();
+    return new BucketSpliterator<K>(node -> node.key, Spliterator.DISTINCT | Spliterator.NONNULL);
+  }
   
   /**
-   * Make a shallow copy of this hash table.
-   * @return a new hash table guaranteed to have the same key/value pairs, but not
-   *         necessarily in the same value or key iteration order, and the keys
-   *         and values are references to the originals (NOT copies)
+   * Make a shallow copy of this hash table. The bucket arrays are copied directly (including
+   * any incremental expansion under way), so no keys are hashed or compared, and the copy has
+   * the same table size and iteration order as the original.
+   * @return a new hash table with the same key/value pairs; the keys and values are
+   *         references to the originals (NOT copies)
    */
   public Hashtable<K,T> copy() {
-    Hashtable<K,T> result = new Hashtable<>(table.length);
-    Iterator<K> iter = keyIterator();
-    while (iter.hasNext()) {
-      K key = iter.next();
-      result.insert(key, get(key));
-    }
+    Hashtable<K,T> result = powerOfTwo ? new Hashtable<K,T>(0, loadFactor, incremental)
+                                       : new Hashtable<K,T>(0, incremental);
+    result.table = copyBuckets(table);
+    result.oldTable = (oldTable == null) ? null : copyBuckets(oldTable);
+    result.rehashIndex = rehashIndex;
+    result.rehashBuckets = rehashBuckets;
+    result.threshold = threshold;
+    result.shrinkThreshold = shrinkThreshold;
+    result.minSize = minSize;
+    result.count = count;
     return result;
   }
 
+  /**
+   * Make an empty hash table in the same mode that can hold a given number of pairs
+   * without expanding.
+   * @param capacity how many pairs the new table should hold
+   * @return a new empty hash table
+   */
+  public Hashtable<K,T> makeEmpty(int capacity) {
+    int size = (int)Math.min(Math.ceil(capacity/loadFactor), Integer.MAX_VALUE);
+    return powerOfTwo ? new Hashtable<K,T>(size, loadFactor, incremental)
+                      : new Hashtable<K,T>(size, incremental);
+  }
+
   @Override
-  @SuppressWarnings("unchecked")
   public String toString() {
     StringBuffer result = new StringBuffer("{");
-    for (int i = 0; i < table.length; i++) {
-      Entry node = (Entry)table[i];
-      result.append(i);
-      while (node != null) {
-        result.append('[').append(node.key).
-                           append(':').
-                           append(node.value).
-                           append(']');
-        node = node.next;
-      }
-      result.append('\n');
+    appendBuckets(result, table);
+    if (oldTable != null) {
+      result.append("old\n");
+      appendBuckets(result, oldTable);
     }
     result.append('}');
     return result.toString();
@@ -204,112 +444,614 @@ class Hashtable<K extends Comparable<K>,T> implements Iterable<T> {
   
   /*
    * Make a key/value pair with a link field for forming a list.
+   * Entries are ordered by key so that they can also be stored in tree bins.
    */
-  private class Entry {
-    K key;      // hashed value
-    T value;    // goes with the key
-    Entry next; // successor entry in the linked list of colliding values
+  private class Entry implements Comparable<Entry>, Map.Entry<K,T> {
+    final K key;      // hashed value
+    final int hash;   // hash(key), saved so it is never recomputed
+    T value;          // goes with the key
+    Entry next;       // successor entry in the linked list of colliding values
     
-    public Entry(K k, T v) {
+    public Entry(K k, int h, T v) {
       key = k;
+      hash = h;
       value = v;
       next = null;
     }
+
+    public int compareTo(Entry other) {
+      return key.compareTo(other.key);
+    }
+
+    @Override
+    public K getKey() { return key; }
+
+    @Override
+    public T getValue() { return value; }
   } // Entry
+
+  /*
+   * Hold the entries of a bucket whose chain got too long in an AVL tree ordered by key.
+   * The next fields of entries in a tree are not used by the tree.
+   */
+  private class TreeBin {
+    AVLTree<Entry> tree;  // the bucket's entries
+
+    public TreeBin(Entry chain) {
+      tree = new AVLTree<>();
+      for (Entry node = chain; node != null; node = node.next) tree.insert(node);
+    }
+
+    /**
+     * Link the entries in the tree into a chain in key order.
+     * @return the first entry in the chain
+     */
+    public Entry toChain() {
+      Entry first = null;
+      Entry last = null;
+      Iterator<Entry> iter = tree.inorderIterator();
+      while (iter.hasNext()) {
+        Entry node = iter.next();
+        if (last == null) first = node;
+        else last.next = node;
+        last = node;
+      }
+      last.next = null;
+      return first;
+    }
+  } // TreeBin
   
   /*
-   * Iterate over all the keys in the table.
+   * Iterate over all the entries in the table, first finishing any incremental expansion
+   * under way so that lookups made while iterating cannot move entries.
    */
-  private class HashtableKeyIterator implements Iterator<K> {
-    private int index;
-    private Entry node;
+  private class EntryIterator {
+    private final Object[] buckets;  // the array being traversed
+    private int index;               // bucket holding node
+    private Entry node;              // next entry to return
 
-    @SuppressWarnings("unchecked")
-    public HashtableKeyIterator() {
-      for (index = 0; index < table.length; index++)
-        if (table[index] != null) break;
-      node = index < table.length ? (Entry)table[index] : null;
+    public EntryIterator() {
+      finishRehashing();
+      buckets = table;
+      index = -1;
+      advanceBucket();
     }
 
-    @Override
     public boolean hasNext() {
       return node != null;
     }
 
-    @Override
-    @SuppressWarnings("unchecked")
-    public K next() {
+    public Entry nextEntry() {
       if (node == null) throw new NoSuchElementException();
-      K result = node.key;
+      Entry result = node;
       if (node.next != null) node = node.next;
-      else {
-        index++;
-        while (index < table.length) {
-          if (table[index] != null) break;
-          index++;
-        }
-        node = index < table.length ? (Entry)table[index] : null;
-      }
+      else advanceBucket();
       return result;
     }
-    
-  }
+
+    /*
+     * Move node to the first entry in the next non-empty bucket, or set node to null if
+     * there are no more entries.
+     */
+    private void advanceBucket() {
+      index++;
+      while (index < buckets.length && buckets[index] == null) index++;
+      node = (index < buckets.length) ? chainOf(buckets[index]) : null;
+    }
+  } // EntryIterator
 
   /*
-   * Iterate over all the values in the table.
+   * Traverse a range of buckets, splitting it in half. Only the spliterator over the whole
+   * table knows its size exactly; splits estimate theirs as half their parent's.
    */
-  @SuppressWarnings("unchecked")
-  private class HashtableIterator implements Iterator<T> {
-    private int index;
-    private Entry node;
+  private class BucketSpliterator<E> implements Spliterator<E> {
+    private final Object[] buckets; // the table
+    private final Function<Entry,E> extract; // gets the element from an entry
+    private final int flags;       // characteristics other than SIZED
+    private int index;             // the next bucket to visit
+    private final int fence;       // one past the last bucket to visit
+    private Entry node;            // the next entry in the bucket being visited, or null
+    private long est;              // estimated number of entries left
+    private boolean sized;         // whether est is exact
 
-    public HashtableIterator() {
-      for (index = 0; index < table.length; index++)
-        if (table[index] != null) break;
-      node = index < table.length ? (Entry)table[index] : null;
+    public BucketSpliterator(Function<Entry,E> extract, int flags) {
+      this(table, extract, flags, 0, table.length, count, true);
+    }
+
+    private BucketSpliterator(Object[] buckets, Function<Entry,E> extract,
+                              int flags, int index, int fence, long est, boolean sized) {
+      this.buckets = buckets;
+      this.extract = extract;
+      this.flags = flags;
+      this.index = index;
+      this.fence = fence;
+      this.est = est;
+      this.sized = sized;
     }
 
     @Override
-    public boolean hasNext() {
-      return node != null;
+    public Spliterator<E> trySplit() {
+      int mid = (index + fence) >>> 1;
+      if (mid <= index) return null;
+      est >>>= 1;
+      sized = false;
+      Spliterator<E> prefix =
+          new BucketSpliterator<E>(buckets, extract, flags, index, mid, est, false);
+      index = mid;
+      return prefix;
     }
 
     @Override
-    public T next() {
-      if (node == null) throw new NoSuchElementException();
-      T result = node.value;
-      if (node.next != null) node = node.next;
-      else {
-        index++;
-        while (index < table.length) {
-          if (table[index] != null) break;
-          index++;
+    public boolean tryAdvance(Consumer<? super E> action) {
+      while (node == null) {
+        if (fence <= index) return false;
+        node = chainOf(buckets[index++]);
+      }
+      Entry result = node;
+      node = node.next;
+      if (0 < est) est--;
+      action.accept(extract.apply(result));
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super E> action) {
+      for (; node != null; node = node.next) action.accept(extract.apply(node));
+      for (; index < fence; index++)
+        for (Entry n = chainOf(buckets[index]); n != null; n = n.next)
+          action.accept(extract.apply(n));
+      est = 0;
+    }
+
+    @Override
+    public long estimateSize() { return est; }
+
+    @Override
+    public int characteristics() { return sized ? flags | SIZED : flags; }
+  } // BucketSpliterator
+
+  /*
+   * Iterate over all the keys in the table.
+   */
+  private class HashtableKeyIterator extends EntryIterator implements Iterator<K> {
+    @Override
+    public K next() { return nextEntry().key; }
+  }
+
+  /*
+   * Iterate over all the values in the table.
+   */
+  private class HashtableIterator extends EntryIterator implements Iterator<T> {
+    @Override
+    public T next() { return nextEntry().value; }
+  }
+
+  /*
+   * Iterate over all the key/value pairs in the table.
+   */
+  private class HashtableEntryIterator extends EntryIterator implements Iterator<Map.Entry<K,T>> {
+    @Override
+    public Map.Entry<K,T> next() { return nextEntry(); }
+  }
+
+  /**
+   * Allocate an empty bucket array and work out when it will need to be expanded or shrunk.
+   * A table shrinks when it is a quarter as full as it would be after shrinking.
+   * @param tableSize how many buckets
+   */
+  private void makeTable(int tableSize) {
+    table = new Object[tableSize];
+    threshold = (int)Math.min(tableSize*loadFactor, Integer.MAX_VALUE);
+    if (tableSize <= minSize) shrinkThreshold = 0;
+    else shrinkThreshold = powerOfTwo ? threshold/8 : threshold/(4*MAX_LOAD_FACTOR);
+  }
+
+  /**
+   * Work out the table size that holds a number of pairs without expanding, rounded
+   * the same way as sizes given to the constructors.
+   * @param capacity how many pairs
+   * @return a prime or power of two table size
+   */
+  private int sizeFor(int capacity) {
+    int size = (int)Math.min(Math.ceil(capacity/loadFactor), Integer.MAX_VALUE);
+    if (size < 5) size = DEFAULT_SIZE;
+    if (!powerOfTwo) return nextPrime(size);
+    int tableSize = 8;
+    while (tableSize < size) tableSize *= 2;
+    return tableSize;
+  }
+
+  /**
+   * Make the table bigger when the load factor is reached. Prime sized tables grow by a
+   * factor of MAX_LOAD_FACTOR and power of two sized tables double.
+   */
+  private void expandTable() {
+    resize(powerOfTwo ? 2*table.length : nextPrime(table.length*MAX_LOAD_FACTOR));
+  }
+
+  /**
+   * Make the table smaller if deletions have left it too empty, undoing one expansion
+   * but never going below the size the table was made with.
+   */
+  private void shrinkIfSparse() {
+    if (shrinkThreshold <= count) return;
+    int newSize = powerOfTwo ? table.length/2 : nextPrime(table.length/MAX_LOAD_FACTOR);
+    resize(Math.max(newSize, minSize));
+  }
+
+  /**
+   * Move every entry into a table of a new size. In incremental mode the old table is
+   * kept and emptied a few buckets at a time by rehashStep(), moving enough buckets each
+   * time that it is empty before threshold is reached; a resizing still under way when
+   * the next one is needed is finished first.
+   * @param newSize how many buckets the table should have
+   */
+  private void resize(int newSize) {
+    long start = (stats == null) ? 0 : System.nanoTime();
+    if (incremental) {
+      finishRehashing();
+      oldTable = table;
+      makeTable(newSize);
+      rehashIndex = 0;
+      int insertions = Math.max(threshold - count, 1);
+      rehashBuckets = Math.max(oldTable.length/insertions + 1, REHASH_STEP);
+    }
+    else {
+      Object[] oldTable = table;
+      makeTable(newSize);
+      for (int i = 0; i < oldTable.length; i++) {
+        Entry node = chainOf(oldTable[i]);
+        while (node != null) {
+          Entry next = node.next;
+          relink(node);
+          node = next;
         }
-        node = index < table.length ? (Entry)table[index] : null;
       }
-      return result;
+    }
+    if (stats != null) stats.countResize(start);
+  }
+
+  /**
+   * Move up to rehashBuckets buckets from the old table into the table. The entries are
+   * relinked rather than copied. When the last bucket is moved the old table is dropped.
+   */
+  private void rehashStep() {
+    long start = (stats == null) ? 0 : System.nanoTime();
+    int limit = (int)Math.min((long)rehashIndex+rehashBuckets, oldTable.length);
+    for ( ; rehashIndex < limit; rehashIndex++) {
+      Entry node = chainOf(oldTable[rehashIndex]);
+      oldTable[rehashIndex] = null;
+      while (node != null) {
+        Entry next = node.next;
+        relink(node);
+        node = next;
+      }
+    }
+    if (rehashIndex == oldTable.length) oldTable = null;
+    if (stats != null) stats.resizeNanos += System.nanoTime() - start;
+  }
+
+  /**
+   * Move whatever is left of the old table into the table.
+   */
+  private void finishRehashing() {
+    while (oldTable != null) rehashStep();
+  }
+
+  /**
+   * Put an entry whose key is not in the table at the front of its bucket, using its
+   * saved hash code to find the bucket. A chain that reaches TREEIFY_THRESHOLD entries
+   * becomes a tree bin again, so colliding keys stay in a tree across resizes.
+   * @param node the entry moved into the table
+   */
+  @SuppressWarnings("unchecked")
+  private void relink(Entry node) {
+    int index = indexFor(node.hash, table.length);
+    if (table[index] instanceof Hashtable.TreeBin) ((TreeBin)table[index]).tree.insert(node);
+    else {
+      node.next = (Entry)table[index];
+      table[index] = node;
+      int length = 0;
+      for (Entry n = node; n != null && length < TREEIFY_THRESHOLD; n = n.next) length++;
+      if (TREEIFY_THRESHOLD <= length) table[index] = new TreeBin(node);
+    }
+  }
+
+  /**
+   * Put a key/value pair in the table, searching for the key only once.
+   * @param key the part of the pair hashed
+   * @param value the part that goes with the key
+   * @param onlyIfAbsent true to leave a non-null value that is already there alone
+   * @return the value previously associated with key, or null if it was absent
+   */
+  @SuppressWarnings("unchecked")
+  private T putValue(K key, T value, boolean onlyIfAbsent) {
+    if (threshold <= count) expandTable();
+    if (oldTable != null) rehashStep();
+    int hash = hash(key);
+    if (oldTable != null) {
+      Entry node = findEntry(oldTable, key, hash);
+      if (node != null) return replaceValue(node, value, onlyIfAbsent);
+    }
+    int index = indexFor(hash, table.length);
+    
+    // if the spot is empty, fill it
+    if (table[index] == null) {
+      table[index] = new Entry(key, hash, value);
+      count++;
+      return null;
+    }
+    
+    // if the spot holds a tree, replace the value or add a node to the tree
+    if (table[index] instanceof Hashtable.TreeBin) {
+      AVLTree<Entry> tree = ((TreeBin)table[index]).tree;
+      Entry newEntry = new Entry(key, hash, value);
+      Entry node = tree.get(newEntry);
+      if (node != null) return replaceValue(node, value, onlyIfAbsent);
+      tree.insert(newEntry);
+      count++;
+      return null;
+    }
+    
+    // look down the list for the key/value pair
+    Entry node = (Entry)table[index];
+    int length = 1;
+    boolean found = matches(node, key, hash);
+    while (!found && node.next != null) {
+      node = node.next;
+      length++;
+      found = matches(node, key, hash);
     }
     
+    // if key is found, replace its value; otherwise add a node to the list
+    if (found) return replaceValue(node, value, onlyIfAbsent);
+    node.next = new Entry(key, hash, value);
+    count++;
+    if (TREEIFY_THRESHOLD <= length+1) table[index] = new TreeBin((Entry)table[index]);
+    return null;
   }
 
   /**
-   * Make the table bigger if the load factor reaches MAX_LOAD_FACTOR.
+   * Replace the value in an entry, unless told to leave a non-null value alone.
+   * @param node the entry whose key was found
+   * @param value the new value
+   * @param onlyIfAbsent true to leave a non-null value alone
+   * @return the entry's previous value
+   */
+  private T replaceValue(Entry node, T value, boolean onlyIfAbsent) {
+    T result = node.value;
+    if (!onlyIfAbsent || result == null) node.value = value;
+    return result;
+  }
+
+  /**
+   * Look for a key in one of the bucket arrays.
+   * @param buckets the table or old table
+   * @param key the key searched for
+   * @param hash hash(key)
+   * @return the entry holding key, or null if it is not in buckets
    */
   @SuppressWarnings("unchecked")
-  private void expandTable() {
-    int newSize = nextPrime(table.length*MAX_LOAD_FACTOR);
-    Object[] oldTable = table;
-    table = new Object[newSize];
-    count = 0;
-    for (int i = 0; i < oldTable.length; i++) {
-      Entry node = (Entry)oldTable[i];
+  private Entry findEntry(Object[] buckets, K key, int hash) {
+    Object bucket = buckets[indexFor(hash, buckets.length)];
+    if (bucket instanceof Hashtable.TreeBin) return ((TreeBin)bucket).tree.get(new Entry(key, hash, null));
+    
+    // look down the list for the key/value pair
+    Entry node = (Entry)bucket;
+    while (node != null && !matches(node, key, hash)) node = node.next;
+    return node;
+  }
+
+  /**
+   * Fetch a value as getOrDefault() does, counting the entries examined.
+   * @param key used to find the value
+   * @param defaultValue returned if the key is absent
+   * @return the value that goes with the key, or defaultValue
+   */
+  private T countedGet(K key, T defaultValue) {
+    int hash = hash(key);
+    stats.lookupProbes = 0;
+    Entry node = (oldTable == null) ? null : countedFind(oldTable, key, hash);
+    if (node == null) node = countedFind(table, key, hash);
+    stats.countGet(stats.lookupProbes);
+    return (node == null) ? defaultValue : node.value;
+  }
+
+  /**
+   * Search one of the bucket arrays as findEntry() does, adding the entries examined to
+   * the probe count of the lookup under way. A tree bin is charged its height.
+   * @param buckets the table or old table
+   * @param key the key searched for
+   * @param hash hash(key)
+   * @return the entry holding key, or null if there is none
+   */
+  @SuppressWarnings("unchecked")
+  private Entry countedFind(Object[] buckets, K key, int hash) {
+    Object bucket = buckets[indexFor(hash, buckets.length)];
+    if (bucket instanceof Hashtable.TreeBin) {
+      AVLTree<Entry> tree = ((TreeBin)bucket).tree;
+      stats.lookupProbes += tree.height();
+      return tree.get(new Entry(key, hash, null));
+    }
+    for (Entry node = (Entry)bucket; node != null; node = node.next) {
+      stats.lookupProbes++;
+      if (matches(node, key, hash)) return node;
+    }
+    return null;
+  }
+
+  /**
+   * Count the entries in a bucket.
+   * @param bucket an entry chain, tree bin, or null
+   * @return how many entries the bucket holds
+   */
+  @SuppressWarnings("unchecked")
+  private int chainLength(Object bucket) {
+    if (bucket instanceof Hashtable.TreeBin) return ((TreeBin)bucket).tree.size();
+    int length = 0;
+    for (Entry node = (Entry)bucket; node != null; node = node.next) length++;
+    return length;
+  }
+
+  /**
+   * Decide whether an entry holds a key, comparing the cheap hash codes first.
+   * @param node the entry checked
+   * @param key the key searched for
+   * @param hash hash(key)
+   * @return true iff node holds key
+   */
+  private boolean matches(Entry node, K key, int hash) {
+    return node.hash == hash && key.compareTo(node.key) == 0;
+  }
+
+  /**
+   * Get the entries in a bucket as a linked list, converting a tree bin if necessary.
+   * @param bucket an entry chain, tree bin, or null
+   * @return the first entry in the bucket's chain, or null if it is empty
+   */
+  @SuppressWarnings("unchecked")
+  private Entry chainOf(Object bucket) {
+    if (bucket instanceof Hashtable.TreeBin) return ((TreeBin)bucket).toChain();
+    return (Entry)bucket;
+  }
+
+  /**
+   * Remove the entry with a key from one of the bucket arrays.
+   * @param buckets the table or old table
+   * @param key used to find the key/value pair
+   * @param hash hash(key)
+   * @return true iff an entry was removed
+   */
+  @SuppressWarnings("unchecked")
+  private boolean deleteFrom(Object[] buckets, K key, int hash) {
+    int index = indexFor(hash, buckets.length);
+    
+    // if the spot is empty, return
+    if (buckets[index] == null) return false;
+    
+    // if the spot holds a tree, remove the node from the tree
+    if (buckets[index] instanceof Hashtable.TreeBin) {
+      AVLTree<Entry> tree = ((TreeBin)buckets[index]).tree;
+      int size = tree.size();
+      tree.delete(new Entry(key, hash, null));
+      if (tree.size() == size) return false;
+      count--;
+      if (tree.size() <= UNTREEIFY_THRESHOLD) buckets[index] = ((TreeBin)buckets[index]).toChain();
+      return true;
+    }
+    
+    // look down the list for the key
+    Entry node = (Entry)buckets[index];
+    Entry pred = null;
+    boolean found = matches(node, key, hash);
+    while (!found && node.next != null) {
+      pred = node;
+      node = node.next;
+      found = matches(node, key, hash);
+    }
+    if (!found) return false;
+    
+    // remove a node from the list
+    if (pred == null) buckets[index] = node.next;
+    else pred.next = node.next;
+    count--;
+    return true;
+  }
+
+  /**
+   * Apply a visit function to every value in a bucket array.
+   * @param buckets the table
+   * @param visitor an object with a visit() method applied to every value
+   */
+  private void visit(Object[] buckets, Visitor<T> visitor) {
+    for (int i = 0; i < buckets.length; i++) {
+      Entry node = chainOf(buckets[i]);
+      while (node != null) {
+        visitor.visit(node.value);
+        node = node.next;
+      }
+    }
+  }
+
+  /**
+   * Apply an action to every key/value pair in a bucket array.
+   * @param buckets the table
+   * @param action called with each key and its value
+   */
+  private void forEach(Object[] buckets, BiConsumer<? super K, ? super T> action) {
+    for (int i = 0; i < buckets.length; i++) {
+      for (Entry node = chainOf(buckets[i]); node != null; node = node.next)
+        action.accept(node.key, node.value);
+    }
+  }
+
+  /**
+   * Copy one of the bucket arrays, entry by entry, keeping the order of each chain.
+   * @param buckets the table or old table
+   * @return a new bucket array with new entries holding the same keys and values
+   */
+  @SuppressWarnings("unchecked")
+  private Object[] copyBuckets(Object[] buckets) {
+    Object[] result = new Object[buckets.length];
+    for (int i = 0; i < buckets.length; i++) {
+      if (buckets[i] == null) continue;
+      Entry first = null;
+      Entry last = null;
+      for (Entry node = chainOf(buckets[i]); node != null; node = node.next) {
+        Entry copy = new Entry(node.key, node.hash, node.value);
+        if (last == null) first = copy;
+        else last.next = copy;
+        last = copy;
+      }
+      result[i] = (buckets[i] instanceof Hashtable.TreeBin) ? new TreeBin(first) : first;
+    }
+    return result;
+  }
+
+  /**
+   * Append the contents of one of the bucket arrays to a string representation.
+   * @param result where the string is being built
+   * @param buckets the table or old table
+   */
+  private void appendBuckets(StringBuffer result, Object[] buckets) {
+    for (int i = 0; i < buckets.length; i++) {
+      Entry node = chainOf(buckets[i]);
+      result.append(i);
       while (node != null) {
-        insert(node.key, node.value);
+        result.append('[').append(node.key).
+                           append(':').
+                           append(node.value).
+                           append(']');
         node = node.next;
       }
+      result.append('\n');
     }
   }
 
+  /**
+   * Compute the hash code saved with a key. Power of two sized tables only use the low
+   * bits of the hash code, so the high bits are mixed into them.
+   * @param key the key hashed
+   * @return the key's hash code, spread if the table size is a power of two
+   */
+  private int hash(K key) {
+    int h = key.hashCode();
+    if (!powerOfTwo) return h;
+    h *= 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Figure out which bucket a hash code belongs in. Taking the remainder before the
+   * absolute value keeps Integer.MIN_VALUE hash codes in range.
+   * @param hash a hash code from hash()
+   * @param length how many buckets there are
+   * @return a bucket index in 0..length-1
+   */
+  private int indexFor(int hash, int length) {
+    return powerOfTwo ? hash & (length-1) : Math.abs(hash % length);
+  }
+
   /**
    * Determine whether a value is prime.
    * @param n value test for primality
@@ -0,0 +1,35 @@
+package containers;
+
+/**
+ * An ImmutableEntry is a key/value pair that holds its own copy of the key and value. Maps
+ * that keep their pairs in arrays, pages or files rather than in entry objects hand these
+ * out from their entry iterators, so an entry stays the same whatever later happens to
+ * the map it came from.
+ * @author C. Fox
+ *
+ * @param <K> type of the key
+ * @param <T> type of the value
+ */
+class ImmutableEntry<K,T> implements Map.Entry<K,T> {
+  private final K key;    // the key in the pair
+  private final T value;  // the value in the pair
+
+  /**
+   * Make a pair.
+   * @param key the key
+   * @param value the value that goes with the key
+   */
+  ImmutableEntry(K key, T value) {
+    this.key = key;
+    this.value = value;
+  }
+
+  @Override
+  public K getKey() { return key; }
+
+  @Override
+  public T getValue() { return value; }
+
+  @Override
+  public String toString() { return key+"="+value; }
+}
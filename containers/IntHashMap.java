@@ -0,0 +1,285 @@
+package containers;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * An IntHashMap is a map whose keys are int values. Keys are stored unboxed in an int array
+ * parallel to an array of values, and collisions are resolved by linear probing, so no
+ * objects are allocated by get, insert, or delete.
+ *
+ * A slot whose key is 0 is empty, so the key 0 itself is kept in a separate field.
+ * Deletion moves later keys in the cluster back into the freed slot so that searches
+ * can always stop at the first empty slot.
+ *
+ * @author C. Fox
+ *
+ * @param <T> type of the value
+ */
+public class IntHashMap<T> implements Collection<T> {
+  private static final double MAX_LOAD_FACTOR = 0.75; // if we exceed this, expand the table
+  public static final int DEFAULT_SIZE = 16;          // for too small or unspecified table sizes
+  private int[] keys;         // non-zero keys; 0 marks an empty slot
+  private Object[] values;    // values, parallel to keys
+  private int mask;           // table size - 1, for finding home slots
+  private boolean hasZeroKey; // whether the key 0 is in the map
+  private T zeroValue;        // the value that goes with the key 0
+  private int count;          // how many key/value pairs in the map
+
+  /**
+   * Create a new IntHashMap instance. If the size is less than 5 the default size
+   * is used. If the size is not a power of two, the next largest power of two is used.
+   * @param size desired hash table size
+   */
+  public IntHashMap(int size) {
+    if (size < 5) size = DEFAULT_SIZE;
+    int tableSize = 8;
+    while (tableSize < size) tableSize *= 2;
+    keys = new int[tableSize];
+    values = new Object[tableSize];
+    mask = tableSize-1;
+    count = 0;
+  }
+  public IntHashMap() { this(DEFAULT_SIZE); }
+
+  /**
+   * Return the hash table size (for debugging).
+   * @return the current hash table size: a power of two
+   */
+  public int tableSize() { return keys.length; }
+
+  @Override
+  public boolean contains(T v) {
+    if (hasZeroKey && zeroValue == v) return true;
+    for (int i = 0; i < keys.length; i++)
+      if (keys[i] != 0 && values[i] == v) return true;
+    return false;
+  }
+
+  /**
+   * Return an iterator over the values in the map.
+   * @return a <T> type iterator
+   */
+  @Override
+  public Iterator<T> iterator() { return new ValueIterator(); }
+
+  @Override
+  public int size() { return count; }
+
+  @Override
+  public boolean isEmpty() { return count == 0; }
+
+  @Override
+  public void clear() {
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = 0;
+      values[i] = null;
+    }
+    hasZeroKey = false;
+    zeroValue = null;
+    count = 0;
+  }
+
+  /**
+   * Fetch the value associated with the key, or null if there is none.
+   * @param key used for searching
+   * @return the value associated with key, or null
+   */
+  @SuppressWarnings("unchecked")
+  public T get(int key) {
+    if (key == 0) return zeroValue;
+    int index = find(key);
+    return index < 0 ? null : (T)values[index];
+  }
+
+  /**
+   * Add (or replace) a key-value pair in the map.
+   * @param key the key searched for
+   * @param value the value associated with the key
+   */
+  public void insert(int key, T value) {
+    if (key == 0) {
+      if (!hasZeroKey) count++;
+      hasZeroKey = true;
+      zeroValue = value;
+      return;
+    }
+    int index = hash(key) & mask;
+    while (keys[index] != 0) {
+      if (keys[index] == key) {
+        values[index] = value;
+        return;
+      }
+      index = (index+1) & mask;
+    }
+    keys[index] = key;
+    values[index] = value;
+    count++;
+    if (keys.length*MAX_LOAD_FACTOR < count) expandTable();
+  }
+
+  /**
+   * Remove the key-value pair with the given key, or do nothing if the key is absent.
+   * @param key the key searched for
+   */
+  public void delete(int key) {
+    if (key == 0) {
+      if (hasZeroKey) count--;
+      hasZeroKey = false;
+      zeroValue = null;
+      return;
+    }
+    int index = find(key);
+    if (index < 0) return;
+
+    // move later keys in the cluster into the gap unless they would end up before home
+    int gap = index;
+    int next = (gap+1) & mask;
+    while (keys[next] != 0) {
+      int home = hash(keys[next]) & mask;
+      if (((next - home) & mask) >= ((next - gap) & mask)) {
+        keys[gap] = keys[next];
+        values[gap] = values[next];
+        gap = next;
+      }
+      next = (next+1) & mask;
+    }
+    keys[gap] = 0;
+    values[gap] = null;
+    count--;
+  }
+
+  /**
+   * Determine whether a key-value pair with the give key is in this map.
+   * @param key the key searched for
+   * @return true iff a pair with key is in the map
+   */
+  public boolean hasKey(int key) {
+    if (key == 0) return hasZeroKey;
+    return 0 <= find(key);
+  }
+
+  /**
+   * Return an iterator over the keys in the map. Keys are returned unboxed by nextInt().
+   * @return an iterator over keys (not values)
+   */
+  public PrimitiveIterator.OfInt keyIterator() { return new KeyIterator(); }
+
+  /**
+   * Determine whether this map and a given map have exactly the same key-value pairs.
+   * @param m the map compared
+   * @return true iff this map has exactly the same keys and values as m
+   */
+  public boolean isEqual(IntHashMap<T> m) {
+    if (size() != m.size()) return false;
+    if (hasZeroKey && (!m.hasKey(0) || zeroValue != m.get(0))) return false;
+    for (int i = 0; i < keys.length; i++)
+      if (keys[i] != 0 && (!m.hasKey(keys[i]) || values[i] != m.get(keys[i]))) return false;
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    StringBuffer result = new StringBuffer("{");
+    if (hasZeroKey) result.append(0).append(':').append(zeroValue).append(',');
+    for (int i = 0; i < keys.length; i++)
+      if (keys[i] != 0) result.append(keys[i]).append(':').append(values[i]).append(',');
+    if (1 < result.length()) result.setLength(result.length()-1);
+    result.append('}');
+    return result.toString();
+  }
+
+  /************************************/
+  /*** Private methods and classes ***/
+
+  /**
+   * Scramble the bits of a key so that keys in runs spread over the table.
+   * @param key the key hashed
+   * @return the mixed hash code
+   */
+  private static int hash(int key) {
+    int h = key * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Find the slot holding a non-zero key.
+   * @param key the key searched for
+   * @return the index of the key's slot, or -1 if it is absent
+   */
+  private int find(int key) {
+    int index = hash(key) & mask;
+    while (keys[index] != 0) {
+      if (keys[index] == key) return index;
+      index = (index+1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Double the table size and put every pair into the new table.
+   */
+  private void expandTable() {
+    int[] oldKeys = keys;
+    Object[] oldValues = values;
+    keys = new int[2*oldKeys.length];
+    values = new Object[keys.length];
+    mask = keys.length-1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] == 0) continue;
+      int index = hash(oldKeys[i]) & mask;
+      while (keys[index] != 0) index = (index+1) & mask;
+      keys[index] = oldKeys[i];
+      values[index] = oldValues[i];
+    }
+  }
+
+  /*
+   * Keep track of the next occupied slot, treating the zero key as slot -1.
+   */
+  private class SlotCursor {
+    protected int index;  // next slot to return, or keys.length when done
+
+    public SlotCursor() {
+      index = hasZeroKey ? -1 : advance(0);
+    }
+
+    public boolean hasNext() { return index < keys.length; }
+
+    protected int nextSlot() {
+      if (keys.length <= index) throw new NoSuchElementException();
+      int result = index;
+      index = advance(index+1);
+      return result;
+    }
+
+    private int advance(int i) {
+      while (i < keys.length && keys[i] == 0) i++;
+      return i;
+    }
+  } // SlotCursor
+
+  /*
+   * Iterate over the keys in the map without boxing them.
+   */
+  private class KeyIterator extends SlotCursor implements PrimitiveIterator.OfInt {
+    @Override
+    public int nextInt() {
+      int slot = nextSlot();
+      return slot < 0 ? 0 : keys[slot];
+    }
+  } // KeyIterator
+
+  /*
+   * Iterate over the values in the map.
+   */
+  private class ValueIterator extends SlotCursor implements Iterator<T> {
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+      int slot = nextSlot();
+      return slot < 0 ? zeroValue : (T)values[slot];
+    }
+  } // ValueIterator
+}
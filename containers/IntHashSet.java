@@ -0,0 +1,273 @@
+package containers;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * An IntHashSet is a set of int values. Elements are stored unboxed in an int array and
+ * collisions are resolved by linear probing, so no objects are allocated by contains,
+ * insert, or delete.
+ *
+ * A slot holding 0 is empty, so whether 0 itself is in the set is kept in a separate field.
+ * Deletion moves later elements in the cluster back into the freed slot so that searches
+ * can always stop at the first empty slot.
+ *
+ * @author C. Fox
+ */
+public class IntHashSet implements Container, Iterable<Integer> {
+  private static final double MAX_LOAD_FACTOR = 0.75; // if we exceed this, expand the table
+  public static final int DEFAULT_SIZE = 16;          // for too small or unspecified table sizes
+  private int[] elements;     // non-zero elements; 0 marks an empty slot
+  private int mask;           // table size - 1, for finding home slots
+  private boolean hasZero;    // whether 0 is in the set
+  private int count;          // how many elements in the set
+
+  /**
+   * Create a new IntHashSet instance. If the size is less than 5 the default size
+   * is used. If the size is not a power of two, the next largest power of two is used.
+   * @param size desired hash table size
+   */
+  public IntHashSet(int size) {
+    if (size < 5) size = DEFAULT_SIZE;
+    int tableSize = 8;
+    while (tableSize < size) tableSize *= 2;
+    elements = new int[tableSize];
+    mask = tableSize-1;
+    count = 0;
+  }
+  public IntHashSet() { this(DEFAULT_SIZE); }
+
+  /**
+   * Return the hash table size (for debugging).
+   * @return the current hash table size: a power of two
+   */
+  public int tableSize() { return elements.length; }
+
+  @Override
+  public int size() { return count; }
+
+  @Override
+  public boolean isEmpty() { return count == 0; }
+
+  @Override
+  public void clear() {
+    for (int i = 0; i < elements.length; i++) elements[i] = 0;
+    hasZero = false;
+    count = 0;
+  }
+
+  /**
+   * Say whether a value is in the set.
+   * @param v the value searched for
+   * @return true iff v is in the set
+   */
+  public boolean contains(int v) {
+    if (v == 0) return hasZero;
+    return 0 <= find(v);
+  }
+
+  /**
+   * Return an iterator over the elements in the set. Elements are returned unboxed by nextInt().
+   * @return an int iterator
+   */
+  @Override
+  public PrimitiveIterator.OfInt iterator() { return new ElementIterator(); }
+
+  /**
+   * Put a new element into the set, or do nothing if it is already present.
+   * @param v value added
+   */
+  public void insert(int v) {
+    if (v == 0) {
+      if (!hasZero) count++;
+      hasZero = true;
+      return;
+    }
+    int index = hash(v) & mask;
+    while (elements[index] != 0) {
+      if (elements[index] == v) return;
+      index = (index+1) & mask;
+    }
+    elements[index] = v;
+    count++;
+    if (elements.length*MAX_LOAD_FACTOR < count) expandTable();
+  }
+
+  /**
+   * Remove an element from the set or do nothing if it is not present.
+   * @param v value removed
+   */
+  public void delete(int v) {
+    if (v == 0) {
+      if (hasZero) count--;
+      hasZero = false;
+      return;
+    }
+    int index = find(v);
+    if (index < 0) return;
+
+    // move later elements in the cluster into the gap unless they would end up before home
+    int gap = index;
+    int next = (gap+1) & mask;
+    while (elements[next] != 0) {
+      int home = hash(elements[next]) & mask;
+      if (((next - home) & mask) >= ((next - gap) & mask)) {
+        elements[gap] = elements[next];
+        gap = next;
+      }
+      next = (next+1) & mask;
+    }
+    elements[gap] = 0;
+    count--;
+  }
+
+  /**
+   * Determine whether this set is a subset of the argument set.
+   * @param set candidate super set
+   * @return true if this is a subset of set
+   */
+  public boolean isSubset(IntHashSet set) {
+    if (set.size() < size()) return false;
+    if (hasZero && !set.contains(0)) return false;
+    for (int i = 0; i < elements.length; i++)
+      if (elements[i] != 0 && !set.contains(elements[i])) return false;
+    return true;
+  }
+
+  /**
+   * Create a new set that is the intersection of this set and the argument set.
+   * @param set intersected with this set
+   * @return a new set that is the intersection of this and set
+   */
+  public IntHashSet intersection(IntHashSet set) {
+    IntHashSet smaller = (size() <= set.size()) ? this : set;
+    IntHashSet larger = (smaller == this) ? set : this;
+    IntHashSet result = new IntHashSet();
+    PrimitiveIterator.OfInt iter = smaller.iterator();
+    while (iter.hasNext()) {
+      int v = iter.nextInt();
+      if (larger.contains(v)) result.insert(v);
+    }
+    return result;
+  }
+
+  /**
+   * Create a new set that is the union of this set and the argument set.
+   * @param set united with this set
+   * @return a new set that is the union of this and set
+   */
+  public IntHashSet union(IntHashSet set) {
+    IntHashSet result = new IntHashSet();
+    PrimitiveIterator.OfInt iter = iterator();
+    while (iter.hasNext()) result.insert(iter.nextInt());
+    iter = set.iterator();
+    while (iter.hasNext()) result.insert(iter.nextInt());
+    return result;
+  }
+
+  /**
+   * Create a new set that is the relative complement of this set and the argument set.
+   * @param set whose values are removed from this set
+   * @return a new set that is this set complemented with set
+   */
+  public IntHashSet complement(IntHashSet set) {
+    IntHashSet result = new IntHashSet();
+    PrimitiveIterator.OfInt iter = iterator();
+    while (iter.hasNext()) {
+      int v = iter.nextInt();
+      if (!set.contains(v)) result.insert(v);
+    }
+    return result;
+  }
+
+  /**
+   * Determine whether this set is the same as the argument set.
+   * @param set compared with this set
+   * @return true iff this set is identical to set
+   */
+  public boolean isEqual(IntHashSet set) {
+    return size() == set.size() && isSubset(set);
+  }
+
+  @Override
+  public String toString() {
+    StringBuffer result = new StringBuffer("[");
+    PrimitiveIterator.OfInt iter = iterator();
+    while (iter.hasNext()) {
+      result.append(iter.nextInt());
+      if (!iter.hasNext()) break;
+      result.append(',');
+    }
+    result.append(']');
+    return result.toString();
+  }
+
+  /************************************/
+  /*** Private methods and classes ***/
+
+  /**
+   * Scramble the bits of a value so that runs of values spread over the table.
+   * @param v the value hashed
+   * @return the mixed hash code
+   */
+  private static int hash(int v) {
+    int h = v * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Find the slot holding a non-zero value.
+   * @param v the value searched for
+   * @return the index of the value's slot, or -1 if it is absent
+   */
+  private int find(int v) {
+    int index = hash(v) & mask;
+    while (elements[index] != 0) {
+      if (elements[index] == v) return index;
+      index = (index+1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Double the table size and put every element into the new table.
+   */
+  private void expandTable() {
+    int[] oldElements = elements;
+    elements = new int[2*oldElements.length];
+    mask = elements.length-1;
+    for (int i = 0; i < oldElements.length; i++) {
+      if (oldElements[i] == 0) continue;
+      int index = hash(oldElements[i]) & mask;
+      while (elements[index] != 0) index = (index+1) & mask;
+      elements[index] = oldElements[i];
+    }
+  }
+
+  /*
+   * Iterate over the elements without boxing them, treating 0 as slot -1.
+   */
+  private class ElementIterator implements PrimitiveIterator.OfInt {
+    private int index;  // next slot to return, or elements.length when done
+
+    public ElementIterator() {
+      index = hasZero ? -1 : advance(0);
+    }
+
+    @Override
+    public boolean hasNext() { return index < elements.length; }
+
+    @Override
+    public int nextInt() {
+      if (elements.length <= index) throw new NoSuchElementException();
+      int result = index < 0 ? 0 : elements[index];
+      index = advance(index+1);
+      return result;
+    }
+
+    private int advance(int i) {
+      while (i < elements.length && elements[i] == 0) i++;
+      return i;
+    }
+  } // ElementIterator
+}
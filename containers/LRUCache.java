@@ -0,0 +1,318 @@
+package containers;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * An LRUCache is a map with a bounded capacity that evicts its least recently used pairs
+ * to stay within it. The pairs are kept in a doubly-linked circular list with a dummy node,
+ * most recently used first, and a HashMap from keys to list nodes finds a pair's node
+ * directly, so fetching, adding and evicting pairs all take O(1) time.
+ *
+ * The capacity is either a number of pairs or, given a weigher, a total weight. Each pair
+ * is weighed when it is inserted. When an insertion takes the cache over capacity, pairs
+ * are evicted from the least recently used end until it is back within capacity; a pair
+ * heavier than the whole capacity is evicted straight away. An eviction listener, if any,
+ * is called with each evicted pair; pairs removed by delete() or clear() are not evicted.
+ *
+ * Using a pair means fetching it with get() or storing it with insert(). Other lookups
+ * such as hasKey() and iteration do not change the order. The cache counts hits and
+ * misses by get() and evictions.
+ *
+ * @author C. Fox
+ *
+ * @param <K> type of the key
+ * @param <T> type of the value
+ */
+public class LRUCache<K extends Comparable<K>,T> implements Map<K,T> {
+  private final HashMap<K,Node> index;  // finds each key's list node
+  private final Node head;              // dummy node; head.succ is the most recently used
+  private final long capacity;          // most total weight allowed
+  private final ToIntBiFunction<? super K, ? super T> weigher; // weighs pairs, or null to count them
+  private final BiConsumer<? super K, ? super T> listener;    // told about evictions, or null
+  private long weight;                  // total weight of the pairs
+  private long hits;                    // get() calls that found their key
+  private long misses;                  // get() calls that did not
+  private long evictions;               // pairs evicted
+
+  /**
+   * Make a cache that holds at most a given number of pairs.
+   * @param capacity how many pairs the cache may hold; must be positive
+   * @throws IllegalArgumentException if capacity is not positive
+   */
+  public LRUCache(int capacity) { this(capacity, null, null); }
+
+  /**
+   * Make a cache whose pairs weigh at most a given total, telling a listener about evictions.
+   * @param capacity the most total weight the cache may hold; must be positive
+   * @param weigher works out the weight of a pair, which must not be negative;
+   *        if null, every pair weighs 1
+   * @param listener called with each pair evicted; may be null
+   * @throws IllegalArgumentException if capacity is not positive
+   */
+  public LRUCache(long capacity, ToIntBiFunction<? super K, ? super T> weigher,
+                  BiConsumer<? super K, ? super T> listener) {
+    if (capacity < 1) throw new IllegalArgumentException("Bad capacity "+capacity);
+    this.capacity = capacity;
+    this.weigher = weigher;
+    this.listener = listener;
+    index = new HashMap<>();
+    head = new Node(null, null, 0);
+    head.succ = head.pred = head;
+    weight = 0;
+  }
+
+  /**
+   * Reveal the capacity of the cache.
+   * @return the most pairs, or total weight, the cache may hold
+   */
+  public long capacity() { return capacity; }
+
+  /**
+   * Reveal the total weight of the pairs in the cache.
+   * @return the total weight; the number of pairs if there is no weigher
+   */
+  public long weight() { return weight; }
+
+  /**
+   * @return how many get() calls found their key
+   */
+  public long hits() { return hits; }
+
+  /**
+   * @return how many get() calls did not find their key
+   */
+  public long misses() { return misses; }
+
+  /**
+   * @return how many pairs have been evicted to stay within capacity
+   */
+  public long evictions() { return evictions; }
+
+  @Override
+  public int size() { return index.size(); }
+
+  @Override
+  public boolean isEmpty() { return index.isEmpty(); }
+
+  @Override
+  public void clear() {
+    index.clear();
+    head.succ = head.pred = head;
+    weight = 0;
+  }
+
+  /**
+   * Fetch the value associated with a key and make it the most recently used pair.
+   * @param key used to find the value
+   * @return the value that goes with the key, or null if the key is absent
+   */
+  @Override
+  public T get(K key) {
+    Node node = index.get(key);
+    if (node == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    moveToFront(node);
+    return node.value;
+  }
+
+  /**
+   * Put a pair in the cache, or replace the value if the key is present, making it the
+   * most recently used pair. Less recently used pairs are then evicted if need be.
+   * @param key the part of the pair hashed
+   * @param value the part that goes with the key
+   * @return the value previously associated with key, or null if it was absent
+   * @throws IllegalArgumentException if the weigher gives a negative weight
+   */
+  @Override
+  public T insert(K key, T value) {
+    int w = weigh(key, value);
+    Node node = index.get(key);
+    T result = null;
+    if (node == null) {
+      node = new Node(key, value, w);
+      index.insert(key, node);
+      link(node, head);
+    }
+    else {
+      result = node.value;
+      weight -= node.weight;
+      node.value = value;
+      node.weight = w;
+      moveToFront(node);
+    }
+    weight += w;
+    if (capacity < w) evict(node);
+    while (capacity < weight) evict(head.pred);
+    return result;
+  }
+
+  @Override
+  public void delete(K key) {
+    Node node = index.get(key);
+    if (node == null) return;
+    index.delete(key);
+    unlink(node);
+    weight -= node.weight;
+  }
+
+  @Override
+  public boolean hasKey(K key) { return index.get(key) != null; }
+
+  @Override
+  public boolean contains(T item) {
+    for (Node node = head.succ; node != head; node = node.succ)
+      if (node.value == item) return true;
+    return false;
+  }
+
+  /**
+   * Return an iterator over the values, from most to least recently used.
+   * @return an iterator over values
+   */
+  @Override
+  public Iterator<T> iterator() {
+    return new NodeIterator<T>() {
+      @Override
+      public T next() { return nextNode().value; }
+    };
+  }
+
+  /**
+   * Return an iterator over the keys, from most to least recently used.
+   * @return an iterator over keys
+   */
+  @Override
+  public Iterator<K> keyIterator() {
+    return new NodeIterator<K>() {
+      @Override
+      public K next() { return nextNode().key; }
+    };
+  }
+
+  /**
+   * Return an iterator over the pairs, from most to least recently used.
+   * @return an iterator over entries
+   */
+  @Override
+  public Iterator<Entry<K,T>> entryIterator() {
+    return new NodeIterator<Entry<K,T>>() {
+      @Override
+      public Entry<K,T> next() { return nextNode(); }
+    };
+  }
+
+  @Override
+  public void forEach(BiConsumer<? super K, ? super T> action) {
+    for (Node node = head.succ; node != head; node = node.succ)
+      action.accept(node.key, node.value);
+  }
+
+  @Override
+  public boolean isEqual(Map<K,T> m) {
+    if (size() != m.size()) return false;
+    for (Node node = head.succ; node != head; node = node.succ)
+      if (node.value != m.get(node.key)) return false;
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    if (head.succ == head) return "{}";
+    StringBuffer result = new StringBuffer("{");
+    for (Node node = head.succ; node != head; node = node.succ)
+      result.append(node.key).append(':').append(node.value).append(',');
+    result.setCharAt(result.length()-1, '}');
+    return result.toString();
+  }
+
+  /************************************/
+  /*** Private methods and classes ***/
+
+  private int weigh(K key, T value) {
+    if (weigher == null) return 1;
+    int w = weigher.applyAsInt(key, value);
+    if (w < 0) throw new IllegalArgumentException("Negative weight "+w+" for "+key);
+    return w;
+  }
+
+  /**
+   * Put a node in the list just after another.
+   * @param node the node added to the list
+   * @param pred the node it follows
+   */
+  private void link(Node node, Node pred) {
+    node.pred = pred;
+    node.succ = pred.succ;
+    pred.succ.pred = node;
+    pred.succ = node;
+  }
+
+  private void unlink(Node node) {
+    node.pred.succ = node.succ;
+    node.succ.pred = node.pred;
+  }
+
+  private void moveToFront(Node node) {
+    if (head.succ == node) return;
+    unlink(node);
+    link(node, head);
+  }
+
+  /**
+   * Remove the least recently used pair and tell the listener.
+   * @param node the last node in the list
+   */
+  private void evict(Node node) {
+    index.delete(node.key);
+    unlink(node);
+    weight -= node.weight;
+    evictions++;
+    if (listener != null) listener.accept(node.key, node.value);
+  }
+
+  /*
+   * A list node holds a key/value pair and its weight.
+   */
+  private class Node implements Entry<K,T> {
+    K key;        // the key
+    T value;      // the value that goes with it
+    int weight;   // how much the pair counts against the capacity
+    Node succ;    // the next less recently used node
+    Node pred;    // the next more recently used node
+
+    public Node(K key, T value, int weight) {
+      this.key = key;
+      this.value = value;
+      this.weight = weight;
+    }
+
+    @Override
+    public K getKey() { return key; }
+
+    @Override
+    public T getValue() { return value; }
+  } // Node
+
+  /*
+   * Walk the list from the most recently used node.
+   */
+  private abstract class NodeIterator<E> implements Iterator<E> {
+    private Node next = head.succ;  // the node to return next
+
+    @Override
+    public boolean hasNext() { return next != head; }
+
+    Node nextNode() {
+      if (next == head) throw new NoSuchElementException();
+      Node result = next;
+      next = next.succ;
+      return result;
+    }
+  } // NodeIterator
+}
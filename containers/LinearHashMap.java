@@ -0,0 +1,719 @@
+package containers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import containers.MappedHashIndex.Codec;
+
+/**
+ * A LinearHashMap is a map kept in a file of fixed-size pages, for maps too big to hold in
+ * memory. It uses linear hashing: rather than doubling its table when it gets too full, as
+ * Hashtable does, it splits one bucket at a time, in order, so growing the map never costs
+ * more than rewriting a single bucket.
+ *
+ * There are INITIAL_BUCKETS << level buckets at the start of each round of splitting, and
+ * the buckets before the split pointer have already been split in this round. A key's hash
+ * is taken modulo the bucket count at the start of the round; if that picks a bucket that
+ * has been split, it is taken modulo twice that count instead. Splitting the bucket at the
+ * split pointer moves about half its pairs to a new bucket at the end of the table and
+ * advances the pointer; when every bucket has been split the level goes up and the pointer
+ * goes back to 0. A split happens whenever the pairs fill more than MAX_LOAD of the space
+ * in the buckets' primary pages.
+ *
+ * Each bucket is a primary page with a chain of overflow pages for pairs that do not fit.
+ * A page starts with the number of the next page in its chain (0 at the end) and how many
+ * bytes of records it holds; a record is the key's hash, the key's length, the value's
+ * length and then the key's and the value's bytes, as in MappedHashIndex, whose Codecs turn
+ * keys and values into bytes. A pair must fit in a single page. Overflow pages emptied by
+ * deletions or splits are kept on a free list for reuse; the map never shrinks.
+ *
+ * Pages are read through a small LRUCache. Changed pages are written back when they are
+ * evicted, and all of them, with the header in page 0 and the bucket directory, when the
+ * map is flushed or closed. A map that is not closed may lose recent changes. Map methods
+ * report I/O errors as UncheckedIOException. A LinearHashMap is not thread-safe.
+ *
+ * @author C. Fox
+ *
+ * @param <K> type of the key
+ * @param <T> type of the value
+ */
+public class LinearHashMap<K extends Comparable<K>,T> implements Map<K,T>, Closeable {
+  public static final int MAGIC = 0x4C484D50;  // "LHMP"
+  public static final int VERSION = 1;
+  public static final int DEFAULT_PAGE_SIZE = 4096;
+  public static final int DEFAULT_CACHE_PAGES = 64;
+  public static final int INITIAL_BUCKETS = 4;
+  public static final double MAX_LOAD = 0.75;  // fraction of primary page space in use
+  private static final int PAGE_BYTES = 8;     // next page, bytes of records
+  private static final int RECORD_BYTES = 12;  // hash, key length, value length
+  private FileChannel channel;         // the page file; null once closed
+  private final int pageSize;          // bytes in a page
+  private final LRUCache<Integer,Page> cache;  // recently used pages
+  private final Codec<K> keyCodec;     // turns keys into bytes and back
+  private final Codec<T> valueCodec;   // turns values into bytes and back
+  private int level;                   // INITIAL_BUCKETS << level buckets start this round
+  private int split;                   // the next bucket to split
+  private long count;                  // how many pairs
+  private long bytes;                  // how many bytes of records
+  private int pageCount;               // pages in the file, counting the header
+  private int freeList;                // first free overflow page, or 0
+  private int directoryPage;           // first page of the saved directory, or 0
+  private int[] directory;             // the primary page of each bucket
+
+  /**
+   * Open a map file with the default page size and cache, making it if it does not exist.
+   * @param file the page file
+   * @param keyCodec turns keys into bytes and back
+   * @param valueCodec turns values into bytes and back
+   * @throws IOException if the file cannot be opened or is not a map file
+   */
+  public LinearHashMap(Path file, Codec<K> keyCodec, Codec<T> valueCodec) throws IOException {
+    this(file, keyCodec, valueCodec, DEFAULT_PAGE_SIZE, DEFAULT_CACHE_PAGES);
+  }
+
+  /**
+   * Open a map file, making it if it does not exist or is empty.
+   * @param file the page file
+   * @param keyCodec turns keys into bytes and back
+   * @param valueCodec turns values into bytes and back
+   * @param pageSize bytes in a page of a new file; an existing file keeps its own page size
+   * @param cachePages how many pages to keep in memory
+   * @throws IOException if the file cannot be opened or is not a map file
+   * @throws IllegalArgumentException if pageSize is under 64 or cachePages under 2
+   */
+  public LinearHashMap(Path file, Codec<K> keyCodec, Codec<T> valueCodec, int pageSize,
+                       int cachePages) throws IOException {
+    if (pageSize < 64) throw new IllegalArgumentException("Bad page size "+pageSize);
+    if (cachePages < 2) throw new IllegalArgumentException("Bad cache size "+cachePages);
+    this.keyCodec = keyCodec;
+    this.valueCodec = valueCodec;
+    channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                               StandardOpenOption.WRITE);
+    try {
+      if (channel.size() == 0) {
+        this.pageSize = pageSize;
+        cache = makeCache(cachePages);
+        makeEmpty();
+      }
+      else {
+        ByteBuffer header = ByteBuffer.allocate(48);
+        readFully(header, 0);
+        if (header.getInt(0) != MAGIC) throw new IOException(file+" is not a linear hash map");
+        if (header.getInt(4) != VERSION)
+          throw new IOException(file+" has unknown map version "+header.getInt(4));
+        this.pageSize = header.getInt(8);
+        level = header.getInt(12);
+        split = header.getInt(16);
+        count = header.getLong(20);
+        bytes = header.getLong(28);
+        pageCount = header.getInt(36);
+        freeList = header.getInt(40);
+        if (this.pageSize < 64 || level < 0 || split < 0 || (INITIAL_BUCKETS << level) <= split ||
+            count < 0 || channel.size() != (long)pageCount * this.pageSize)
+          throw new IOException(file+" is a damaged linear hash map");
+        cache = makeCache(cachePages);
+        directoryPage = header.getInt(44);
+        readDirectory(file);
+      }
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * @return how many buckets the map has
+   */
+  public int buckets() { return (INITIAL_BUCKETS << level) + split; }
+
+  /**
+   * @return how many pages the file has, counting the header and free pages
+   */
+  public int pages() { return pageCount; }
+
+  /**
+   * @return bytes in a page
+   */
+  public int pageSize() { return pageSize; }
+
+  /**
+   * @return how many pairs the map holds, which may be more than size() can report
+   */
+  public long longSize() { return count; }
+
+  /**
+   * Say whether the map has been closed.
+   * @return true iff close() has been called
+   */
+  public boolean isClosed() { return channel == null; }
+
+  @Override
+  public int size() { return (int)Math.min(count, Integer.MAX_VALUE); }
+
+  @Override
+  public boolean isEmpty() { return count == 0; }
+
+  /**
+   * Remove every pair, cutting the file back to its first few pages.
+   */
+  @Override
+  public void clear() {
+    checkOpen();
+    cache.clear();
+    try {
+      channel.truncate(0);
+      makeEmpty();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public T get(K key) { return getOrDefault(key, null); }
+
+  @Override
+  public T getOrDefault(K key, T defaultValue) {
+    checkOpen();
+    byte[] k = keyCodec.encode(key);
+    long at = find(k, MappedHashIndex.hash(k));
+    return at < 0 ? defaultValue : value(page((int)(at >>> 32)).data, (int)at);
+  }
+
+  /**
+   * Put a pair in the map, or replace the value if the key is present. The bucket at the
+   * split pointer is split afterwards if the map has become too full.
+   * @param key the part of the pair hashed
+   * @param value the part that goes with the key
+   * @return the value previously associated with key, or null if it was absent
+   * @throws IllegalArgumentException if the pair does not fit in a page
+   */
+  @Override
+  public T insert(K key, T value) {
+    checkOpen();
+    byte[] k = keyCodec.encode(key);
+    byte[] v = valueCodec.encode(value);
+    int length = RECORD_BYTES + k.length + v.length;
+    if (pageSize - PAGE_BYTES < length)
+      throw new IllegalArgumentException("Pair of "+length+" bytes does not fit in a page");
+    int hash = MappedHashIndex.hash(k);
+    T result = null;
+    long at = find(k, hash);
+    if (0 <= at) {
+      result = value(page((int)(at >>> 32)).data, (int)at);
+      remove(hash, (int)(at >>> 32), (int)at);
+    }
+    ByteBuffer record = ByteBuffer.allocate(length);
+    record.putInt(hash).putInt(k.length).putInt(v.length).put(k).put(v);
+    append(bucketOf(hash), record.array());
+    count++;
+    bytes += length;
+    if (MAX_LOAD * buckets() * (pageSize - PAGE_BYTES) < bytes) splitBucket();
+    return result;
+  }
+
+  @Override
+  public void delete(K key) {
+    checkOpen();
+    byte[] k = keyCodec.encode(key);
+    int hash = MappedHashIndex.hash(k);
+    long at = find(k, hash);
+    if (at < 0) return;
+    remove(hash, (int)(at >>> 32), (int)at);
+  }
+
+  @Override
+  public boolean hasKey(K key) {
+    checkOpen();
+    byte[] k = keyCodec.encode(key);
+    return 0 <= find(k, MappedHashIndex.hash(k));
+  }
+
+  /**
+   * Determine whether a value is in the map. Every page is read through the cache, which
+   * may write back and evict the pages the map was using, and values are matched with
+   * equals().
+   * @param item the value searched for
+   * @return true iff some key has a value equal to item
+   */
+  @Override
+  public boolean contains(T item) {
+    for (T value : this) if (value == null ? item == null : value.equals(item)) return true;
+    return false;
+  }
+
+  /**
+   * Return an iterator over the values, bucket by bucket. The map must not be changed
+   * while the iterator is in use.
+   * @return an iterator over values
+   */
+  @Override
+  public Iterator<T> iterator() {
+    return new RecordIterator<T>() {
+      @Override
+      public T next() {
+        ByteBuffer data = nextRecord();
+        return value(data, record);
+      }
+    };
+  }
+
+  @Override
+  public Iterator<K> keyIterator() {
+    return new RecordIterator<K>() {
+      @Override
+      public K next() {
+        ByteBuffer data = nextRecord();
+        return key(data, record);
+      }
+    };
+  }
+
+  @Override
+  public Iterator<Entry<K,T>> entryIterator() {
+    return new RecordIterator<Entry<K,T>>() {
+      @Override
+      public Entry<K,T> next() {
+        ByteBuffer data = nextRecord();
+        return new ImmutableEntry<>(key(data, record), value(data, record));
+      }
+    };
+  }
+
+  /**
+   * Determine whether this map holds the same pairs as another map. Values are compared
+   * with equals(), since the map decodes new objects for every lookup.
+   * @param m the map compared with this one
+   * @return true iff m has the same keys with equal values
+   */
+  @Override
+  public boolean isEqual(Map<K,T> m) {
+    if (count != m.size()) return false;
+    Iterator<Entry<K,T>> iter = entryIterator();
+    while (iter.hasNext()) {
+      Entry<K,T> entry = iter.next();
+      T other = m.get(entry.getKey());
+      if (other == null || !other.equals(entry.getValue())) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Write every changed page, the bucket directory and the header to the file, and force
+   * them to the disk.
+   * @throws IOException if the file cannot be written
+   */
+  public void flush() throws IOException {
+    checkOpen();
+    try {
+      saveDirectory();
+      for (Page page : cache) if (page.dirty) write(page);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    ByteBuffer header = ByteBuffer.allocate(48);
+    header.putInt(MAGIC).putInt(VERSION).putInt(pageSize).putInt(level).putInt(split);
+    header.putLong(count).putLong(bytes).putInt(pageCount).putInt(freeList).putInt(directoryPage);
+    header.flip();
+    writeFully(header, 0);
+    channel.force(false);
+  }
+
+  /**
+   * Flush the map and close its file. Closing a closed map does nothing.
+   * @throws IOException if the file cannot be written
+   */
+  @Override
+  public void close() throws IOException {
+    if (channel == null) return;
+    try {
+      flush();
+    } finally {
+      channel.close();
+      channel = null;
+      cache.clear();
+    }
+  }
+
+  @Override
+  public String toString() {
+    if (channel == null) return "{closed}";
+    StringBuffer result = new StringBuffer("{");
+    Iterator<Entry<K,T>> iter = entryIterator();
+    while (iter.hasNext()) {
+      Entry<K,T> entry = iter.next();
+      result.append(entry.getKey()).append(':').append(entry.getValue()).append(',');
+    }
+    if (1 < result.length()) result.setLength(result.length()-1);
+    result.append('}');
+    return result.toString();
+  }
+
+  /************************************/
+  /*** Private methods and classes ***/
+
+  /*
+   * Pages are always fetched through page(), and a page is changed straight after it is
+   * fetched, before any other page is fetched. The page being changed is then the most
+   * recently used one, so it cannot be evicted, and written back, half changed.
+   */
+
+  private LRUCache<Integer,Page> makeCache(int cachePages) {
+    return new LRUCache<>(cachePages, null, (number, page) -> {
+      if (page.dirty) write(page);
+    });
+  }
+
+  /**
+   * Set up an empty map in an empty file: the header page and a primary page per bucket.
+   */
+  private void makeEmpty() throws IOException {
+    level = 0;
+    split = 0;
+    count = 0;
+    bytes = 0;
+    pageCount = 1;
+    freeList = 0;
+    directoryPage = 0;
+    directory = new int[2*INITIAL_BUCKETS];
+    for (int b = 0; b < INITIAL_BUCKETS; b++) directory[b] = allocate();
+    flush();
+  }
+
+  /**
+   * Make sure the map has not been closed.
+   * @throws IllegalStateException if it has
+   */
+  private void checkOpen() {
+    if (channel == null) throw new IllegalStateException("Map is closed");
+  }
+
+  /**
+   * Work out which bucket a hash belongs in.
+   * @param hash the hash of an encoded key
+   * @return its bucket
+   */
+  private int bucketOf(int hash) {
+    int bucket = hash & ((INITIAL_BUCKETS << level) - 1);
+    if (bucket < split) bucket = hash & ((INITIAL_BUCKETS << (level+1)) - 1);
+    return bucket;
+  }
+
+  /**
+   * Find the record for a key.
+   * @param k the encoded key
+   * @param hash its hash
+   * @return the key's page number in the high 32 bits and the record's offset in the page
+   *         in the low 32 bits, or -1 if the key is absent
+   */
+  private long find(byte[] k, int hash) {
+    for (int number = directory[bucketOf(hash)]; number != 0; ) {
+      ByteBuffer data = page(number).data;
+      int end = PAGE_BYTES + data.getInt(4);
+      for (int offset = PAGE_BYTES; offset < end; offset += recordLength(data, offset)) {
+        if (data.getInt(offset) == hash && data.getInt(offset+4) == k.length &&
+            sameBytes(data, offset + RECORD_BYTES, k))
+          return (long)number << 32 | offset;
+      }
+      number = data.getInt(0);
+    }
+    return -1;
+  }
+
+  /**
+   * Add a record to the first page in a bucket's chain with room for it, adding an
+   * overflow page to the end of the chain if none has room.
+   * @param bucket the bucket the record belongs in
+   * @param record the record's bytes
+   */
+  private void append(int bucket, byte[] record) {
+    int number = directory[bucket];
+    while (true) {
+      Page page = page(number);
+      int used = page.data.getInt(4);
+      if (PAGE_BYTES + used + record.length <= pageSize) {
+        for (int i = 0; i < record.length; i++) page.data.put(PAGE_BYTES + used + i, record[i]);
+        page.data.putInt(4, used + record.length);
+        page.dirty = true;
+        return;
+      }
+      int next = page.data.getInt(0);
+      if (next == 0) {
+        next = allocate();
+        page = page(number);
+        page.data.putInt(0, next);
+        page.dirty = true;
+      }
+      number = next;
+    }
+  }
+
+  /**
+   * Take a record out of its page, closing up the gap. An overflow page left empty is
+   * taken out of its chain and freed.
+   * @param hash the hash of the record's key
+   * @param number the record's page
+   * @param offset the record's offset in the page
+   */
+  private void remove(int hash, int number, int offset) {
+    Page page = page(number);
+    int length = recordLength(page.data, offset);
+    int used = page.data.getInt(4);
+    int end = PAGE_BYTES + used;
+    for (int i = offset + length; i < end; i++) page.data.put(i - length, page.data.get(i));
+    for (int i = end - length; i < end; i++) page.data.put(i, (byte)0);
+    page.data.putInt(4, used - length);
+    page.dirty = true;
+    count--;
+    bytes -= length;
+
+    int primary = directory[bucketOf(hash)];
+    if (used == length && number != primary) {
+      int next = page.data.getInt(0);
+      int before = primary;
+      while (page(before).data.getInt(0) != number) before = page(before).data.getInt(0);
+      page = page(before);
+      page.data.putInt(0, next);
+      page.dirty = true;
+      free(number);
+    }
+  }
+
+  /**
+   * Split the bucket at the split pointer: read all its records, empty it, add the new
+   * bucket, advance the split pointer, and put each record back in whichever of the two
+   * buckets it now belongs in.
+   */
+  private void splitBucket() {
+    int old = split;
+    int added = split + (INITIAL_BUCKETS << level);
+    ArrayList<byte[]> records = new ArrayList<>();
+    int primary = directory[old];
+    int number = primary;
+    while (number != 0) {
+      ByteBuffer data = page(number).data;
+      int end = PAGE_BYTES + data.getInt(4);
+      for (int offset = PAGE_BYTES; offset < end; ) {
+        byte[] record = new byte[recordLength(data, offset)];
+        for (int i = 0; i < record.length; i++) record[i] = data.get(offset++);
+        records.addLast(record);
+      }
+      int next = data.getInt(0);
+      if (number != primary) free(number);
+      number = next;
+    }
+    Page page = page(primary);
+    for (int i = 0; i < pageSize; i++) page.data.put(i, (byte)0);
+    page.dirty = true;
+
+    if (directory.length <= added) {
+      int[] larger = new int[2*directory.length];
+      System.arraycopy(directory, 0, larger, 0, directory.length);
+      directory = larger;
+    }
+    directory[added] = allocate();
+    if (++split == INITIAL_BUCKETS << level) {
+      level++;
+      split = 0;
+    }
+    for (byte[] record : records)
+      append(bucketOf(ByteBuffer.wrap(record).getInt(0)), record);
+  }
+
+  /**
+   * Fetch a page, from the cache if it is there and from the file if not.
+   * @param number the page number
+   * @return the page, now the most recently used
+   */
+  private Page page(int number) {
+    Page page = cache.get(number);
+    if (page == null) {
+      page = new Page(number, ByteBuffer.allocate(pageSize));
+      try {
+        readFully(page.data, (long)number * pageSize);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      cache.insert(number, page);
+    }
+    return page;
+  }
+
+  /**
+   * Make an empty page, reusing a free page if there is one and adding one to the end of
+   * the file if not.
+   * @return the new page's number
+   */
+  private int allocate() {
+    int number;
+    if (freeList != 0) {
+      number = freeList;
+      freeList = page(number).data.getInt(0);
+    }
+    else number = pageCount++;
+    Page page = new Page(number, ByteBuffer.allocate(pageSize));
+    page.dirty = true;
+    cache.insert(number, page);
+    return number;
+  }
+
+  /**
+   * Put a page on the free list.
+   * @param number the page freed
+   */
+  private void free(int number) {
+    Page page = page(number);
+    for (int i = 0; i < pageSize; i++) page.data.put(i, (byte)0);
+    page.data.putInt(0, freeList);
+    page.dirty = true;
+    freeList = number;
+  }
+
+  /*
+   * The directory is saved in a chain of pages, each holding the next page's number, how
+   * many entries it holds, and then the entries. The chain only grows.
+   */
+
+  private void saveDirectory() {
+    int perPage = (pageSize - PAGE_BYTES) / 4;
+    int buckets = buckets();
+    if (directoryPage == 0) directoryPage = allocate();
+    int number = directoryPage;
+    for (int b = 0; ; b += perPage) {
+      Page page = page(number);
+      int n = Math.min(perPage, buckets - b);
+      page.data.putInt(4, n);
+      for (int i = 0; i < n; i++) page.data.putInt(PAGE_BYTES + 4*i, directory[b+i]);
+      page.dirty = true;
+      if (buckets <= b + perPage) return;
+      int next = page.data.getInt(0);
+      if (next == 0) {
+        next = allocate();
+        page = page(number);
+        page.data.putInt(0, next);
+      }
+      number = next;
+    }
+  }
+
+  private void readDirectory(Path file) throws IOException {
+    int buckets = buckets();
+    int length = 2*INITIAL_BUCKETS;
+    while (length <= buckets) length *= 2;
+    directory = new int[length];
+    int b = 0;
+    for (int number = directoryPage; b < buckets; ) {
+      if (number <= 0 || pageCount <= number)
+        throw new IOException(file+" is a damaged linear hash map");
+      ByteBuffer data = page(number).data;
+      int n = data.getInt(4);
+      if (n < 0 || buckets - b < n) throw new IOException(file+" is a damaged linear hash map");
+      for (int i = 0; i < n; i++) directory[b++] = data.getInt(PAGE_BYTES + 4*i);
+      number = data.getInt(0);
+    }
+  }
+
+  private void readFully(ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      int n = channel.read(buffer, position + buffer.position());
+      if (n < 0) break;  // past the end of the file, the page is zeros
+    }
+    buffer.clear();
+  }
+
+  private void writeFully(ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) channel.write(buffer, position + buffer.position());
+  }
+
+  private void write(Page page) {
+    try {
+      writeFully(page.data.duplicate(), (long)page.number * pageSize);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    page.dirty = false;
+  }
+
+  private static int recordLength(ByteBuffer data, int offset) {
+    return RECORD_BYTES + data.getInt(offset+4) + data.getInt(offset+8);
+  }
+
+  private static boolean sameBytes(ByteBuffer data, int offset, byte[] bytes) {
+    for (int i = 0; i < bytes.length; i++) if (data.get(offset+i) != bytes[i]) return false;
+    return true;
+  }
+
+  private K key(ByteBuffer data, int offset) {
+    return keyCodec.decode(data, offset + RECORD_BYTES, data.getInt(offset+4));
+  }
+
+  private T value(ByteBuffer data, int offset) {
+    int keyLength = data.getInt(offset+4);
+    return valueCodec.decode(data, offset + RECORD_BYTES + keyLength, data.getInt(offset+8));
+  }
+
+  /*
+   * A page of the file held in memory.
+   */
+  private static class Page {
+    final int number;        // where the page is in the file
+    final ByteBuffer data;   // the page's bytes
+    boolean dirty;           // true iff data has changed since it was read or written
+
+    Page(int number, ByteBuffer data) {
+      this.number = number;
+      this.data = data;
+    }
+  } // Page
+
+  /*
+   * Walk the records bucket by bucket, and along each bucket's chain of pages.
+   */
+  private abstract class RecordIterator<E> implements Iterator<E> {
+    private int bucket = -1;   // the bucket being walked
+    private int number = 0;    // the page being walked, or 0 to move to the next bucket
+    private int offset;        // where the next record starts in its page
+    int record;                // where the record just returned starts in its page
+
+    RecordIterator() {
+      checkOpen();
+      advance();
+    }
+
+    @Override
+    public boolean hasNext() { return number != 0; }
+
+    /**
+     * Move to the next record, setting record to where it starts.
+     * @return the data of the page holding it
+     */
+    ByteBuffer nextRecord() {
+      if (number == 0) throw new NoSuchElementException();
+      ByteBuffer data = page(number).data;
+      record = offset;
+      offset += recordLength(data, offset);
+      advance();
+      return data;
+    }
+
+    private void advance() {
+      while (true) {
+        if (number == 0) {
+          if (buckets() <= ++bucket) return;
+          number = directory[bucket];
+          offset = PAGE_BYTES;
+        }
+        ByteBuffer data = page(number).data;
+        if (offset < PAGE_BYTES + data.getInt(4)) return;
+        number = data.getInt(0);
+        offset = PAGE_BYTES;
+      }
+    }
+  } // RecordIterator
+}
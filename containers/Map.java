@@ -1,15 +1,41 @@
 package containers;
 
 import java.util.Iterator;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * A Map holds key-value pairs. Maps are also called tables, dictionaries, or associative arrays.
+ * 
+ * The update operations (putIfAbsent, compute, and so on) have default implementations made
+ * from get(), insert(), and delete(), which search for the key more than once. Implementations
+ * that can do these operations in a single search override them.
  * @author C. Fox
  *
  * @param <K> the key type
  * @param <T> the value type
  */
 public interface Map<K,T> extends Collection<T> {
+  /**
+   * An Entry is a key-value pair in a map, as returned by entryIterator().
+   * @param <K> the key type
+   * @param <T> the value type
+   */
+  interface Entry<K,T> {
+    /**
+     * Reveal the key of this pair.
+     * @return the key
+     */
+    K getKey();
+
+    /**
+     * Reveal the value of this pair.
+     * @return the value associated with the key
+     */
+    T getValue();
+  }
+
   /**
    * Fetch the value associated with the key, or null if there is none.
    * @param key used for searching
@@ -21,8 +47,9 @@ public interface Map<K,T> extends Collection<T> {
    * Add (or replace) a key-value pair in the map.
    * @param key the key searched for
    * @param value the value associated with the key
+   * @return the value previously associated with key, or null if there was none
    */
-  void insert(K key, T value);
+  T insert(K key, T value);
   
   /**
    * Remove the key-value pair with the given key, or do nothing if the key is absent.
@@ -42,6 +69,25 @@ public interface Map<K,T> extends Collection<T> {
    * @return an iterator over keys (not values)
    */
   Iterator<K> keyIterator();
+
+  /**
+   * Return an iterator over the key-value pairs in the map. This is the way to go through
+   * keys and values together without looking each key up again.
+   * @return an iterator over entries
+   */
+  Iterator<Entry<K,T>> entryIterator();
+
+  /**
+   * Apply an action to every key-value pair in the map.
+   * @param action called with each key and its value
+   */
+  default void forEach(BiConsumer<? super K, ? super T> action) {
+    Iterator<Entry<K,T>> iter = entryIterator();
+    while (iter.hasNext()) {
+      Entry<K,T> entry = iter.next();
+      action.accept(entry.getKey(), entry.getValue());
+    }
+  }
   
   /**
    * Determine whether this map and a given map have exactly the same key-value pairs.
@@ -49,4 +95,88 @@ public interface Map<K,T> extends Collection<T> {
    * @return true iff this map has exactly the same keys and values as m
    */
   boolean isEqual(Map<K,T> m);
+
+  /**
+   * Fetch the value associated with the key, or a default value if the key is absent.
+   * @param key used for searching
+   * @param defaultValue returned if key is not in the map
+   * @return the value associated with key, or defaultValue
+   */
+  default T getOrDefault(K key, T defaultValue) {
+    T value = get(key);
+    return (value == null) ? defaultValue : value;
+  }
+
+  /**
+   * Add a key-value pair unless the key already has a (non-null) value.
+   * @param key the key searched for
+   * @param value the value associated with the key if it is absent
+   * @return the value already associated with key, or null if value was added
+   */
+  default T putIfAbsent(K key, T value) {
+    T current = get(key);
+    if (current == null) insert(key, value);
+    return current;
+  }
+
+  /**
+   * Replace the value associated with a key (or null if there is none) with the result of a
+   * function. If the result is null the pair is removed (or not added).
+   * @param key the key searched for
+   * @param remapping computes the new value from the key and its current value or null
+   * @return the new value associated with key, or null if there is none
+   */
+  default T compute(K key, BiFunction<? super K, ? super T, ? extends T> remapping) {
+    T value = remapping.apply(key, get(key));
+    if (value == null) delete(key);
+    else insert(key, value);
+    return value;
+  }
+
+  /**
+   * If the key has no (non-null) value, compute one and add it unless it is null.
+   * @param key the key searched for
+   * @param mapping computes a value from the key
+   * @return the current (existing or computed) value associated with key, or null
+   */
+  default T computeIfAbsent(K key, Function<? super K, ? extends T> mapping) {
+    T value = get(key);
+    if (value != null) return value;
+    value = mapping.apply(key);
+    if (value != null) insert(key, value);
+    return value;
+  }
+
+  /**
+   * If the key has a (non-null) value, replace it with the result of a function, removing
+   * the pair if the result is null.
+   * @param key the key searched for
+   * @param remapping computes the new value from the key and its current value
+   * @return the new value associated with key, or null if there is none
+   */
+  default T computeIfPresent(K key, BiFunction<? super K, ? super T, ? extends T> remapping) {
+    T value = get(key);
+    if (value == null) return null;
+    value = remapping.apply(key, value);
+    if (value == null) delete(key);
+    else insert(key, value);
+    return value;
+  }
+
+  /**
+   * Add a key-value pair if the key has no (non-null) value; otherwise replace the value with
+   * the result of combining it with the given value, removing the pair if the result is null.
+   * This is handy for counting and accumulating, e.g. m.merge(word, 1, Integer::sum).
+   * @param key the key searched for
+   * @param value added if key is absent, or combined with the current value
+   * @param remapping combines the current value and value
+   * @return the new value associated with key, or null if there is none
+   */
+  default T merge(K key, T value, BiFunction<? super T, ? super T, ? extends T> remapping) {
+    T current = get(key);
+    T result = (current == null) ? value : remapping.apply(current, value);
+    if (result == null) delete(key);
+    else insert(key, result);
+    return result;
+  }
 }
@@ -0,0 +1,414 @@
+package containers;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A MappedHashIndex is a read-only map whose pairs live in a file that is memory mapped
+ * rather than read in. Lookups work directly on the mapped pages, so opening an index
+ * takes about as long as mapping the file, however many pairs it holds, and the operating
+ * system pages in only the parts of the file that lookups touch.
+ *
+ * An index file is written from any map by write(). The file holds, in big-endian order:
+ * <ul>
+ * <li>a 16-byte header: the magic number MAGIC, the format VERSION, the number of buckets
+ *     (a power of two), and the number of pairs;</li>
+ * <li>a bucket directory of buckets+1 ints, where entry i is the file offset of the first
+ *     record in bucket i and the last entry is the length of the file;</li>
+ * <li>the records, grouped by bucket. Each is the key's hash, the key's length, the value's
+ *     length, and then the key's and the value's bytes.</li>
+ * </ul>
+ * There are about as many buckets as pairs, so a lookup reads two directory entries and
+ * scans a record or two, comparing the bytes of keys only when their hashes match.
+ *
+ * Keys and values are turned into bytes and back by Codecs; codecs for strings, integers
+ * and longs are provided. A key codec must turn equal keys into equal bytes, because keys
+ * are compared byte by byte, and the hash is computed from those bytes so that an index
+ * does not depend on the hashCode() of the JVM that wrote it. A single mapping can be at
+ * most 2 GB, so index files are limited to that size.
+ *
+ * An open index never changes, so the Map methods that would change it throw
+ * UnsupportedOperationException. It may be shared by any number of threads.
+ *
+ * @author C. Fox
+ *
+ * @param <K> type of the key
+ * @param <T> type of the value
+ */
+public class MappedHashIndex<K extends Comparable<K>,T> implements Map<K,T> {
+  public static final int MAGIC = 0x4D484958;  // "MHIX"
+  public static final int VERSION = 1;
+  private static final int HEADER_BYTES = 16;  // magic, version, buckets, pairs
+  private static final int RECORD_BYTES = 12;  // hash, key length, value length
+  private final ByteBuffer buffer;     // the mapped file
+  private final int buckets;           // how many buckets; a power of two
+  private final int count;             // how many pairs
+  private final Codec<K> keyCodec;     // turns keys into bytes and back
+  private final Codec<T> valueCodec;   // turns values into bytes and back
+
+  /**
+   * A Codec turns objects into bytes for an index file and back again.
+   * @param <E> the type of the objects
+   */
+  public interface Codec<E> {
+    /**
+     * Turn an object into bytes.
+     * @param e the object encoded
+     * @return its bytes
+     */
+    byte[] encode(E e);
+
+    /**
+     * Make an object from bytes in a buffer, using absolute gets so that the buffer's
+     * position is not used.
+     * @param buffer the buffer holding the bytes
+     * @param offset where the bytes start
+     * @param length how many bytes there are
+     * @return the object encoded by the bytes
+     */
+    E decode(ByteBuffer buffer, int offset, int length);
+  }
+
+  /** Encodes strings as UTF-8. */
+  public static final Codec<String> STRINGS = new Codec<String>() {
+    @Override
+    public byte[] encode(String s) { return s.getBytes(StandardCharsets.UTF_8); }
+
+    @Override
+    public String decode(ByteBuffer buffer, int offset, int length) {
+      byte[] bytes = new byte[length];
+      for (int i = 0; i < length; i++) bytes[i] = buffer.get(offset+i);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+  };
+
+  /** Encodes integers as four big-endian bytes. */
+  public static final Codec<Integer> INTEGERS = new Codec<Integer>() {
+    @Override
+    public byte[] encode(Integer n) { return ByteBuffer.allocate(4).putInt(n).array(); }
+
+    @Override
+    public Integer decode(ByteBuffer buffer, int offset, int length) { return buffer.getInt(offset); }
+  };
+
+  /** Encodes longs as eight big-endian bytes. */
+  public static final Codec<Long> LONGS = new Codec<Long>() {
+    @Override
+    public byte[] encode(Long n) { return ByteBuffer.allocate(8).putLong(n).array(); }
+
+    @Override
+    public Long decode(ByteBuffer buffer, int offset, int length) { return buffer.getLong(offset); }
+  };
+
+  /**
+   * Write the pairs in a map to an index file, replacing the file if it exists.
+   * @param map the pairs written
+   * @param file where the index is written
+   * @param keyCodec turns keys into bytes
+   * @param valueCodec turns values into bytes
+   * @throws IOException if the file cannot be written, or would be over 2 GB
+   */
+  public static <K extends Comparable<K>,T> void write(Map<K,T> map, Path file,
+                                                      Codec<? super K> keyCodec,
+                                                      Codec<? super T> valueCodec)
+      throws IOException {
+    int n = map.size();
+    int buckets = 1;
+    while (buckets < n) buckets *= 2;
+    byte[][] keys = new byte[n][];
+    byte[][] values = new byte[n][];
+    int[] hashes = new int[n];
+    int[] bucketStarts = new int[buckets+1];   // first record of each bucket, in records
+    int i = 0;
+    Iterator<Entry<K,T>> iter = map.entryIterator();
+    while (iter.hasNext() && i < n) {
+      Entry<K,T> entry = iter.next();
+      keys[i] = keyCodec.encode(entry.getKey());
+      values[i] = valueCodec.encode(entry.getValue());
+      hashes[i] = hash(keys[i]);
+      bucketStarts[(hashes[i] & (buckets-1)) + 1]++;
+      i++;
+    }
+    if (i != n) throw new IllegalStateException("Map changed while being written");
+
+    // sort the records into buckets, and work out where each bucket starts in the file
+    for (int b = 0; b < buckets; b++) bucketStarts[b+1] += bucketStarts[b];
+    int[] order = new int[n];
+    int[] next = bucketStarts.clone();
+    for (i = 0; i < n; i++) order[next[hashes[i] & (buckets-1)]++] = i;
+    long offset = HEADER_BYTES + 4L*(buckets+1);
+    int[] directory = new int[buckets+1];
+    int record = 0;
+    for (int b = 0; b < buckets; b++) {
+      directory[b] = (int)offset;
+      for (; record < bucketStarts[b+1]; record++)
+        offset += RECORD_BYTES + keys[order[record]].length + values[order[record]].length;
+      if (Integer.MAX_VALUE < offset) throw new IOException("Index would be over 2 GB");
+    }
+    directory[buckets] = (int)offset;
+
+    try (DataOutputStream out =
+             new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(buckets);
+      out.writeInt(n);
+      for (int entry : directory) out.writeInt(entry);
+      for (record = 0; record < n; record++) {
+        int r = order[record];
+        out.writeInt(hashes[r]);
+        out.writeInt(keys[r].length);
+        out.writeInt(values[r].length);
+        out.write(keys[r]);
+        out.write(values[r]);
+      }
+    }
+  }
+
+  /**
+   * Open an index file by mapping it into memory. The file is closed once it is mapped;
+   * the mapping lasts until the index is garbage collected.
+   * @param file an index file made by write()
+   * @param keyCodec turns bytes into keys; must match the codec the file was written with
+   * @param valueCodec turns bytes into values; must match the codec the file was written with
+   * @return the index
+   * @throws IOException if the file cannot be read or is not an index file
+   */
+  public static <K extends Comparable<K>,T> MappedHashIndex<K,T> open(Path file, Codec<K> keyCodec,
+                                                                     Codec<T> valueCodec)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long length = channel.size();
+      if (Integer.MAX_VALUE < length) throw new IOException(file+" is over 2 GB");
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+      return new MappedHashIndex<>(file, buffer, keyCodec, valueCodec);
+    }
+  }
+
+  /**
+   * Check an index file's header and wrap its mapping.
+   * @throws IOException if the header does not describe the file
+   */
+  private MappedHashIndex(Path file, ByteBuffer buffer, Codec<K> keyCodec, Codec<T> valueCodec)
+      throws IOException {
+    int length = buffer.capacity();
+    if (length < HEADER_BYTES || buffer.getInt(0) != MAGIC)
+      throw new IOException(file+" is not a hash index");
+    if (buffer.getInt(4) != VERSION)
+      throw new IOException(file+" has unknown index version "+buffer.getInt(4));
+    buckets = buffer.getInt(8);
+    count = buffer.getInt(12);
+    if (buckets < 1 || Integer.bitCount(buckets) != 1 || count < 0 ||
+        length < HEADER_BYTES + 4L*(buckets+1) || buffer.getInt(HEADER_BYTES + 4*buckets) != length)
+      throw new IOException(file+" is a damaged hash index");
+    this.buffer = buffer;
+    this.keyCodec = keyCodec;
+    this.valueCodec = valueCodec;
+  }
+
+  /**
+   * @return how many buckets the index has
+   */
+  public int buckets() { return buckets; }
+
+  @Override
+  public int size() { return count; }
+
+  @Override
+  public boolean isEmpty() { return count == 0; }
+
+  @Override
+  public T get(K key) { return getOrDefault(key, null); }
+
+  @Override
+  public T getOrDefault(K key, T defaultValue) {
+    byte[] bytes = keyCodec.encode(key);
+    int record = find(bytes);
+    if (record < 0) return defaultValue;
+    int keyLength = buffer.getInt(record+4);
+    return valueCodec.decode(buffer, record + RECORD_BYTES + keyLength, buffer.getInt(record+8));
+  }
+
+  @Override
+  public boolean hasKey(K key) { return 0 <= find(keyCodec.encode(key)); }
+
+  /**
+   * Determine whether a value is in the index by reading every record in the file. Each
+   * value read back is a new object, so a match is found with equals().
+   * @param item the value searched for
+   * @return true iff some key has a value equal to item
+   */
+  @Override
+  public boolean contains(T item) {
+    for (T value : this) if (value == null ? item == null : value.equals(item)) return true;
+    return false;
+  }
+
+  /**
+   * Return an iterator over the values, in file order.
+   * @return an iterator over values
+   */
+  @Override
+  public Iterator<T> iterator() {
+    return new RecordIterator<T>() {
+      @Override
+      public T next() { return value(nextRecord()); }
+    };
+  }
+
+  @Override
+  public Iterator<K> keyIterator() {
+    return new RecordIterator<K>() {
+      @Override
+      public K next() { return key(nextRecord()); }
+    };
+  }
+
+  @Override
+  public Iterator<Entry<K,T>> entryIterator() {
+    return new RecordIterator<Entry<K,T>>() {
+      @Override
+      public Entry<K,T> next() {
+        int record = nextRecord();
+        return new ImmutableEntry<>(key(record), value(record));
+      }
+    };
+  }
+
+  /**
+   * Determine whether this index holds the same pairs as another map. Values are compared
+   * with equals(), since the index decodes new objects for every lookup.
+   * @param m the map compared with this one
+   * @return true iff m has the same keys with equal values
+   */
+  @Override
+  public boolean isEqual(Map<K,T> m) {
+    if (size() != m.size()) return false;
+    Iterator<Entry<K,T>> iter = entryIterator();
+    while (iter.hasNext()) {
+      Entry<K,T> entry = iter.next();
+      T other = m.get(entry.getKey());
+      if (other == null || !other.equals(entry.getValue())) return false;
+    }
+    return true;
+  }
+
+  /*
+   * An index never changes, so all the Map methods that would change it fail.
+   */
+
+  @Override
+  public void clear() { throw readOnly(); }
+
+  @Override
+  public T insert(K key, T value) { throw readOnly(); }
+
+  @Override
+  public void delete(K key) { throw readOnly(); }
+
+  @Override
+  public T putIfAbsent(K key, T value) { throw readOnly(); }
+
+  @Override
+  public T compute(K key, BiFunction<? super K, ? super T, ? extends T> remapping) {
+    throw readOnly();
+  }
+
+  @Override
+  public T computeIfAbsent(K key, Function<? super K, ? extends T> mapping) {
+    throw readOnly();
+  }
+
+  @Override
+  public T computeIfPresent(K key, BiFunction<? super K, ? super T, ? extends T> remapping) {
+    throw readOnly();
+  }
+
+  @Override
+  public T merge(K key, T value, BiFunction<? super T, ? super T, ? extends T> remapping) {
+    throw readOnly();
+  }
+
+  /************************************/
+  /*** Private methods and classes ***/
+
+  /**
+   * Hash the bytes of a key: FNV-1a, with its bits then mixed by the MurmurHash3 finalizer.
+   * @param bytes the encoded key
+   * @return the key's hash
+   */
+  static int hash(byte[] bytes) {
+    int h = 0x811C9DC5;
+    for (byte b : bytes) h = (h ^ (b & 0xFF)) * 0x01000193;
+    h ^= h >>> 16;
+    h *= 0x85EBCA6B;
+    h ^= h >>> 13;
+    h *= 0xC2B2AE35;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Find the record for a key.
+   * @param bytes the encoded key
+   * @return the file offset of the key's record, or -1 if the key is absent
+   */
+  private int find(byte[] bytes) {
+    int hash = hash(bytes);
+    int bucket = hash & (buckets-1);
+    int record = buffer.getInt(HEADER_BYTES + 4*bucket);
+    int end = buffer.getInt(HEADER_BYTES + 4*(bucket+1));
+    while (record < end) {
+      int keyLength = buffer.getInt(record+4);
+      if (buffer.getInt(record) == hash && keyLength == bytes.length &&
+          sameBytes(record + RECORD_BYTES, bytes)) return record;
+      record += RECORD_BYTES + keyLength + buffer.getInt(record+8);
+    }
+    return -1;
+  }
+
+  private boolean sameBytes(int offset, byte[] bytes) {
+    for (int i = 0; i < bytes.length; i++) if (buffer.get(offset+i) != bytes[i]) return false;
+    return true;
+  }
+
+  private K key(int record) {
+    return keyCodec.decode(buffer, record + RECORD_BYTES, buffer.getInt(record+4));
+  }
+
+  private T value(int record) {
+    int keyLength = buffer.getInt(record+4);
+    return valueCodec.decode(buffer, record + RECORD_BYTES + keyLength, buffer.getInt(record+8));
+  }
+
+  private static UnsupportedOperationException readOnly() {
+    return new UnsupportedOperationException("MappedHashIndex is read-only; use write() to make a new one");
+  }
+
+  /*
+   * Walk the records from the end of the directory to the end of the file.
+   */
+  private abstract class RecordIterator<E> implements Iterator<E> {
+    private int record = HEADER_BYTES + 4*(buckets+1);  // the record to return next
+
+    @Override
+    public boolean hasNext() { return record < buffer.capacity(); }
+
+    int nextRecord() {
+      if (buffer.capacity() <= record) throw new NoSuchElementException();
+      int result = record;
+      record += RECORD_BYTES + buffer.getInt(record+4) + buffer.getInt(record+8);
+      return result;
+    }
+  } // RecordIterator
+}
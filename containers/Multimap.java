@@ -0,0 +1,91 @@
+package containers;
+
+import java.util.Iterator;
+
+/**
+ * A Multimap associates each key with one or more values. A key is present as long as it
+ * has at least one value; the same value may be associated with a key more than once.
+ * As a Collection, a multimap holds its values, so size() counts values, not keys.
+ * @author C. Fox
+ *
+ * @param <K> the key type
+ * @param <T> the value type
+ */
+public interface Multimap<K,T> extends Collection<T> {
+  /**
+   * Associate another value with a key, after any values it already has.
+   * @param key the key the value goes with
+   * @param value the value added
+   */
+  void insert(K key, T value);
+
+  /**
+   * Remove one occurrence of a value from a key's values, or do nothing if it is not there.
+   * @param key the key the value goes with
+   * @param value the value removed
+   * @return true iff the value was found and removed
+   */
+  boolean delete(K key, T value);
+
+  /**
+   * Remove a key and all its values, or do nothing if the key is absent.
+   * @param key the key removed
+   * @return how many values were removed
+   */
+  int deleteAll(K key);
+
+  /**
+   * Count the values associated with a key.
+   * @param key the key searched for
+   * @return how many values go with key; 0 if it is absent
+   */
+  int count(K key);
+
+  /**
+   * Determine whether a key has any values.
+   * @param key the key searched for
+   * @return true iff key has at least one value
+   */
+  boolean hasKey(K key);
+
+  /**
+   * Determine whether a value is associated with a key.
+   * @param key the key searched for
+   * @param value the value searched for
+   * @return true iff value is one of the values that go with key
+   */
+  boolean contains(K key, T value);
+
+  /**
+   * Return an iterator over the values associated with a key, in the order they were added.
+   * @param key the key searched for
+   * @return an iterator over key's values; empty if the key is absent
+   */
+  Iterator<T> get(K key);
+
+  /**
+   * Reveal how many distinct keys have values.
+   * @return the number of keys
+   */
+  int keyCount();
+
+  /**
+   * Return an iterator over the keys, each appearing once.
+   * @return an iterator over keys
+   */
+  Iterator<K> keyIterator();
+
+  /**
+   * Return an iterator over every key-value pair, so a key appears once for each of its values.
+   * @return an iterator over entries
+   */
+  Iterator<Map.Entry<K,T>> entryIterator();
+
+  /**
+   * Determine whether this multimap has the same keys as another, each with the same
+   * values in the same order.
+   * @param m compared with this multimap
+   * @return true iff the multimaps hold the same associations
+   */
+  boolean isEqual(Multimap<K,T> m);
+}
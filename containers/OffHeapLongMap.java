@@ -0,0 +1,347 @@
+package containers;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * An OffHeapLongMap is a map from long keys to long values whose table lives outside the
+ * Java heap, in direct byte buffers. Each slot is a key followed by its value, and
+ * collisions are resolved by linear probing, so the heap holds only a small array of
+ * buffers however many pairs are in the map, and the garbage collector never has to
+ * look at the pairs. This suits very large maps of small fixed-width keys and values.
+ *
+ * A single buffer can hold at most 2 GB, so the table is split into pages of PAGE_SLOTS
+ * slots each, and the table size may run to billions of slots.
+ *
+ * A slot whose key is 0 is empty, so the key 0 itself is kept in a separate field.
+ * Deletion moves later keys in the cluster back into the freed slot so that searches
+ * can always stop at the first empty slot.
+ *
+ * A map should be closed when it is no longer needed. Closing drops the buffers so their
+ * memory is given back when the collector next reclaims them, rather than when the map
+ * itself becomes garbage, and any later use of the map throws IllegalStateException.
+ *
+ * @author C. Fox
+ */
+public class OffHeapLongMap implements Container, AutoCloseable {
+  private static final double MAX_LOAD_FACTOR = 0.75; // if we exceed this, expand the table
+  public static final int DEFAULT_SIZE = 16;          // for too small or unspecified table sizes
+  public static final int PAGE_SLOTS = 1 << 20;       // slots per buffer in large tables
+  private static final int SLOT_BYTES = 16;           // a long key and a long value
+  private ByteBuffer[] pages;  // the table, PAGE_SLOTS slots per page; null once closed
+  private long mask;           // table size - 1, for finding home slots
+  private boolean hasZeroKey;  // whether the key 0 is in the map
+  private long zeroValue;      // the value that goes with the key 0
+  private long count;          // how many key/value pairs in the map
+
+  /**
+   * Create a new OffHeapLongMap instance. If the size is less than 5 the default size
+   * is used. If the size is not a power of two, the next largest power of two is used.
+   * @param size desired hash table size
+   */
+  public OffHeapLongMap(long size) {
+    if (size < 5) size = DEFAULT_SIZE;
+    long tableSize = 8;
+    while (tableSize < size) tableSize *= 2;
+    makeTable(tableSize);
+    count = 0;
+  }
+  public OffHeapLongMap() { this(DEFAULT_SIZE); }
+
+  /**
+   * Return the hash table size (for debugging).
+   * @return the current hash table size: a power of two
+   */
+  public long tableSize() { return mask+1; }
+
+  /**
+   * Say how many pairs are in the map. Use longSize() for maps with more than
+   * Integer.MAX_VALUE pairs.
+   * @return the number of pairs, or Integer.MAX_VALUE if there are more
+   */
+  @Override
+  public int size() { return (int)Math.min(count, Integer.MAX_VALUE); }
+
+  /**
+   * Say how many pairs are in the map.
+   * @return the number of pairs
+   */
+  public long longSize() { return count; }
+
+  @Override
+  public boolean isEmpty() { return count == 0; }
+
+  @Override
+  public void clear() {
+    checkOpen();
+    for (long i = 0; i <= mask; i++) setKey(i, 0);
+    hasZeroKey = false;
+    zeroValue = 0;
+    count = 0;
+  }
+
+  /**
+   * Fetch the value associated with the key, or null if there is none.
+   * @param key used for searching
+   * @return the value associated with key, or null
+   */
+  public Long get(long key) {
+    checkOpen();
+    if (key == 0) return hasZeroKey ? zeroValue : null;
+    long index = find(key);
+    return index < 0 ? null : value(index);
+  }
+
+  /**
+   * Fetch the value associated with the key, or a default value if there is none.
+   * Unlike get(), this never allocates.
+   * @param key used for searching
+   * @param defaultValue returned if key is not in the map
+   * @return the value associated with key, or defaultValue
+   */
+  public long getOrDefault(long key, long defaultValue) {
+    checkOpen();
+    if (key == 0) return hasZeroKey ? zeroValue : defaultValue;
+    long index = find(key);
+    return index < 0 ? defaultValue : value(index);
+  }
+
+  /**
+   * Add (or replace) a key-value pair in the map.
+   * @param key the key searched for
+   * @param value the value associated with the key
+   */
+  public void insert(long key, long value) {
+    checkOpen();
+    if (key == 0) {
+      if (!hasZeroKey) count++;
+      hasZeroKey = true;
+      zeroValue = value;
+      return;
+    }
+    long index = hash(key) & mask;
+    for (long k = key(index); k != 0; k = key(index)) {
+      if (k == key) {
+        setValue(index, value);
+        return;
+      }
+      index = (index+1) & mask;
+    }
+    setKey(index, key);
+    setValue(index, value);
+    count++;
+    if ((mask+1)*MAX_LOAD_FACTOR < count) expandTable();
+  }
+
+  /**
+   * Remove the key-value pair with the given key, or do nothing if the key is absent.
+   * @param key the key searched for
+   */
+  public void delete(long key) {
+    checkOpen();
+    if (key == 0) {
+      if (hasZeroKey) count--;
+      hasZeroKey = false;
+      zeroValue = 0;
+      return;
+    }
+    long index = find(key);
+    if (index < 0) return;
+
+    // move later keys in the cluster into the gap unless they would end up before home
+    long gap = index;
+    long next = (gap+1) & mask;
+    for (long k = key(next); k != 0; k = key(next)) {
+      long home = hash(k) & mask;
+      if (((next - home) & mask) >= ((next - gap) & mask)) {
+        setKey(gap, k);
+        setValue(gap, value(next));
+        gap = next;
+      }
+      next = (next+1) & mask;
+    }
+    setKey(gap, 0);
+    count--;
+  }
+
+  /**
+   * Determine whether a key-value pair with the give key is in this map.
+   * @param key the key searched for
+   * @return true iff a pair with key is in the map
+   */
+  public boolean hasKey(long key) {
+    checkOpen();
+    if (key == 0) return hasZeroKey;
+    return 0 <= find(key);
+  }
+
+  /**
+   * Return an iterator over the keys in the map. Keys are returned unboxed by nextLong().
+   * @return an iterator over keys (not values)
+   */
+  public PrimitiveIterator.OfLong keyIterator() {
+    checkOpen();
+    return new KeyIterator();
+  }
+
+  /**
+   * Determine whether this map and a given map have exactly the same key-value pairs.
+   * @param m the map compared
+   * @return true iff this map has exactly the same keys and values as m
+   */
+  public boolean isEqual(OffHeapLongMap m) {
+    checkOpen();
+    if (longSize() != m.longSize()) return false;
+    if (hasZeroKey && (!m.hasKey(0) || zeroValue != m.getOrDefault(0, 0))) return false;
+    for (long i = 0; i <= mask; i++) {
+      long k = key(i);
+      if (k != 0 && (!m.hasKey(k) || value(i) != m.getOrDefault(k, 0))) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Say whether the map has been closed.
+   * @return true iff close() has been called
+   */
+  public boolean isClosed() { return pages == null; }
+
+  /**
+   * Release the table. The map is empty afterwards and may not be used again.
+   * Closing a closed map does nothing.
+   */
+  @Override
+  public void close() {
+    pages = null;
+    hasZeroKey = false;
+    count = 0;
+  }
+
+  @Override
+  public String toString() {
+    if (pages == null) return "{closed}";
+    StringBuffer result = new StringBuffer("{");
+    if (hasZeroKey) result.append(0).append(':').append(zeroValue).append(',');
+    for (long i = 0; i <= mask; i++)
+      if (key(i) != 0) result.append(key(i)).append(':').append(value(i)).append(',');
+    if (1 < result.length()) result.setLength(result.length()-1);
+    result.append('}');
+    return result.toString();
+  }
+
+  /************************************/
+  /*** Private methods and classes ***/
+
+  /**
+   * Scramble the bits of a key so that keys in runs spread over the table.
+   * @param key the key hashed
+   * @return the mixed hash code
+   */
+  private static long hash(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return h ^ (h >>> 32);
+  }
+
+  /**
+   * Make sure the map has not been closed.
+   * @throws IllegalStateException if it has
+   */
+  private void checkOpen() {
+    if (pages == null) throw new IllegalStateException("Map is closed");
+  }
+
+  /**
+   * Allocate zeroed pages for a table of a given size.
+   * @param tableSize how many slots; a power of two
+   */
+  private void makeTable(long tableSize) {
+    int pageSlots = (int)Math.min(tableSize, PAGE_SLOTS);
+    pages = new ByteBuffer[(int)(tableSize/pageSlots)];
+    for (int i = 0; i < pages.length; i++)
+      pages[i] = ByteBuffer.allocateDirect(pageSlots*SLOT_BYTES).order(ByteOrder.nativeOrder());
+    mask = tableSize-1;
+  }
+
+  private long key(long slot) {
+    return pages[(int)(slot/PAGE_SLOTS)].getLong((int)(slot % PAGE_SLOTS) * SLOT_BYTES);
+  }
+
+  private long value(long slot) {
+    return pages[(int)(slot/PAGE_SLOTS)].getLong((int)(slot % PAGE_SLOTS) * SLOT_BYTES + 8);
+  }
+
+  private void setKey(long slot, long key) {
+    pages[(int)(slot/PAGE_SLOTS)].putLong((int)(slot % PAGE_SLOTS) * SLOT_BYTES, key);
+  }
+
+  private void setValue(long slot, long value) {
+    pages[(int)(slot/PAGE_SLOTS)].putLong((int)(slot % PAGE_SLOTS) * SLOT_BYTES + 8, value);
+  }
+
+  /**
+   * Find the slot holding a non-zero key.
+   * @param key the key searched for
+   * @return the index of the key's slot, or -1 if it is absent
+   */
+  private long find(long key) {
+    long index = hash(key) & mask;
+    for (long k = key(index); k != 0; k = key(index)) {
+      if (k == key) return index;
+      index = (index+1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Double the table size and put every pair into the new table. The old pages are
+   * dropped as soon as their pairs have been moved.
+   */
+  private void expandTable() {
+    ByteBuffer[] oldPages = pages;
+    long oldSize = mask+1;
+    makeTable(2*oldSize);
+    int pageSlots = (int)Math.min(oldSize, PAGE_SLOTS);
+    for (int p = 0; p < oldPages.length; p++) {
+      ByteBuffer page = oldPages[p];
+      for (int i = 0; i < pageSlots; i++) {
+        long k = page.getLong(i*SLOT_BYTES);
+        if (k == 0) continue;
+        long index = hash(k) & mask;
+        while (key(index) != 0) index = (index+1) & mask;
+        setKey(index, k);
+        setValue(index, page.getLong(i*SLOT_BYTES + 8));
+      }
+      oldPages[p] = null;
+    }
+  }
+
+  /*
+   * Iterate over the keys in the map without boxing them, treating the zero key as slot -1.
+   */
+  private class KeyIterator implements PrimitiveIterator.OfLong {
+    private long index;  // next slot to return, or the table size when done
+
+    public KeyIterator() {
+      index = hasZeroKey ? -1 : advance(0);
+    }
+
+    @Override
+    public boolean hasNext() { return index <= mask; }
+
+    @Override
+    public long nextLong() {
+      checkOpen();
+      if (mask < index) throw new NoSuchElementException();
+      long result = index < 0 ? 0 : key(index);
+      index = advance(index+1);
+      return result;
+    }
+
+    private long advance(long i) {
+      while (i <= mask && key(i) == 0) i++;
+      return i;
+    }
+  } // KeyIterator
+}
@@ -0,0 +1,590 @@
+package containers;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A PersistentHashMap is an immutable map implemented as a hash array mapped trie. Each
+ * level of the trie uses five more bits of a key's hash code to pick one of 32 branches,
+ * and a node stores only the branches in use, found with a bitmap and a population count.
+ * Keys whose hash codes are identical end up together in a collision node.
+ *
+ * A map never changes once made. Instead, with() and without() return a new version that
+ * differs from this one along the path to the changed key and shares every other node,
+ * so each takes O(log32 n) time and memory, and old versions stay valid. The mutating Map
+ * methods throw UnsupportedOperationException. Since the root is in a final field and no
+ * node reachable from a map is ever changed, a map can be handed to other threads and read
+ * by any number of them at once without locking.
+ *
+ * Building a big map one with() at a time copies a path per pair. A Builder instead changes
+ * the nodes it made itself in place, copying only nodes it shares with a map, and then
+ * build() hands over the result as a new map in constant time.
+ *
+ * @author C. Fox
+ *
+ * @param <K> type of the key
+ * @param <T> type of the value
+ */
+public class PersistentHashMap<K extends Comparable<K>,T> implements Map<K,T> {
+  private static final int BITS = 5;               // hash bits used per trie level
+  private static final int MASK = (1 << BITS) - 1; // picks out one level's bits
+  private static final int MAX_DEPTH = 8;          // trie levels, including a collision node
+  private static final BitmapNode EMPTY = new BitmapNode(null, 0, new Object[0]);
+  private final Node root;   // the top of the trie; never changed
+  private final int count;   // how many key/value pairs in the map
+
+  /**
+   * Make an empty map.
+   */
+  public PersistentHashMap() { this(EMPTY, 0); }
+
+  private PersistentHashMap(Node root, int count) {
+    this.root = root;
+    this.count = count;
+  }
+
+  /**
+   * Make a new map with a key/value pair added, or with the key's value replaced.
+   * @param key the part of the pair hashed
+   * @param value the part that goes with the key
+   * @return a map like this one but with key mapped to value; this map if it already is
+   */
+  public PersistentHashMap<K,T> with(K key, T value) {
+    Change change = new Change();
+    Node newRoot = root.put(null, 0, hash(key), key, value, change);
+    if (newRoot == root) return this;
+    return new PersistentHashMap<>(newRoot, change.added ? count+1 : count);
+  }
+
+  /**
+   * Make a new map without a key.
+   * @param key the key removed
+   * @return a map like this one but without key; this map if key is absent
+   */
+  public PersistentHashMap<K,T> without(K key) {
+    Change change = new Change();
+    Node newRoot = root.remove(null, 0, hash(key), key, change);
+    if (newRoot == root) return this;
+    return new PersistentHashMap<>(newRoot == null ? EMPTY : newRoot, count-1);
+  }
+
+  /**
+   * Make a builder that starts out with the pairs in this map.
+   * @return a builder sharing this map's nodes
+   */
+  public Builder<K,T> toBuilder() { return new Builder<>(root, count); }
+
+  @Override
+  public int size() { return count; }
+
+  @Override
+  public boolean isEmpty() { return count == 0; }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T get(K key) { return (T)root.find(0, hash(key), key); }
+
+  @Override
+  public T getOrDefault(K key, T defaultValue) {
+    T value = get(key);
+    return (value == null) ? defaultValue : value;
+  }
+
+  @Override
+  public boolean hasKey(K key) { return get(key) != null; }
+
+  @Override
+  public boolean contains(T v) {
+    for (T value : this) if (v == value) return true;
+    return false;
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    return new TrieIterator<T>(root) {
+      @Override
+      @SuppressWarnings("unchecked")
+      public T next() { return (T)nextPair()[1]; }
+    };
+  }
+
+  @Override
+  public Iterator<K> keyIterator() {
+    return new TrieIterator<K>(root) {
+      @Override
+      @SuppressWarnings("unchecked")
+      public K next() { return (K)nextPair()[0]; }
+    };
+  }
+
+  @Override
+  public Iterator<Entry<K,T>> entryIterator() {
+    return new TrieIterator<Entry<K,T>>(root) {
+      @Override
+      @SuppressWarnings("unchecked")
+      public Entry<K,T> next() {
+        Object[] pair = nextPair();
+        return new ImmutableEntry<>((K)pair[0], (T)pair[1]);
+      }
+    };
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void forEach(BiConsumer<? super K, ? super T> action) {
+    root.forEach((BiConsumer<Object,Object>)action);
+  }
+
+  @Override
+  public boolean isEqual(Map<K,T> m) {
+    if (size() != m.size()) return false;
+    Iterator<Entry<K,T>> iter = entryIterator();
+    while (iter.hasNext()) {
+      Entry<K,T> entry = iter.next();
+      if (entry.getValue() != m.get(entry.getKey())) return false;
+    }
+    return true;
+  }
+
+  /*
+   * A PersistentHashMap never changes, so all the Map methods that would change it fail.
+   */
+
+  @Override
+  public void clear() { throw immutable(); }
+
+  @Override
+  public T insert(K key, T value) { throw immutable(); }
+
+  @Override
+  public void delete(K key) { throw immutable(); }
+
+  @Override
+  public T putIfAbsent(K key, T value) { throw immutable(); }
+
+  @Override
+  public T compute(K key, BiFunction<? super K, ? super T, ? extends T> remapping) {
+    throw immutable();
+  }
+
+  @Override
+  public T computeIfAbsent(K key, Function<? super K, ? extends T> mapping) {
+    throw immutable();
+  }
+
+  @Override
+  public T computeIfPresent(K key, BiFunction<? super K, ? super T, ? extends T> remapping) {
+    throw immutable();
+  }
+
+  @Override
+  public T merge(K key, T value, BiFunction<? super T, ? super T, ? extends T> remapping) {
+    throw immutable();
+  }
+
+  /**
+   * A Builder is a mutable map for loading many pairs at once, which build() turns into
+   * a PersistentHashMap. It changes the nodes it made in place rather than copying them,
+   * but never changes a node it shares with a map; once build() has been called, every
+   * node it made so far belongs to that map and is copied before being changed. A Builder
+   * must not be used by more than one thread at once.
+   *
+   * @param <K> type of the key
+   * @param <T> type of the value
+   */
+  public static class Builder<K extends Comparable<K>,T> {
+    private Object edit;  // marks the nodes this builder may change in place
+    private Node root;    // the top of the trie being built
+    private int count;    // how many key/value pairs in the trie
+
+    public Builder() { this(EMPTY, 0); }
+
+    private Builder(Node root, int count) {
+      edit = new Object();
+      this.root = root;
+      this.count = count;
+    }
+
+    /**
+     * Reveal how many key/value pairs have been put in the builder.
+     * @return count of key/value pairs
+     */
+    public int size() { return count; }
+
+    /**
+     * Fetch the value associated with a key, or null if the key is absent.
+     * @param key used to find the value
+     * @return the value that goes with the key, or null if the key is absent
+     */
+    @SuppressWarnings("unchecked")
+    public T get(K key) { return (T)root.find(0, hash(key), key); }
+
+    /**
+     * Put a new key/value pair in the builder, or replace the value if the key is present.
+     * @param key the part of the pair hashed
+     * @param value the part that goes with the key
+     * @return the value previously associated with key, or null if it was absent
+     */
+    @SuppressWarnings("unchecked")
+    public T insert(K key, T value) {
+      Change change = new Change();
+      root = root.put(edit, 0, hash(key), key, value, change);
+      if (change.added) count++;
+      return (T)change.oldValue;
+    }
+
+    /**
+     * Remove a key/value pair or do nothing if the key is absent.
+     * @param key used to find the key/value pair
+     */
+    public void delete(K key) {
+      Change change = new Change();
+      Node newRoot = root.remove(edit, 0, hash(key), key, change);
+      root = (newRoot == null) ? EMPTY : newRoot;
+      if (change.removed) count--;
+    }
+
+    /**
+     * Make a map holding the pairs put in the builder so far. The builder can go on being
+     * used; later changes do not affect the map.
+     * @return a new map sharing the builder's nodes
+     */
+    public PersistentHashMap<K,T> build() {
+      edit = new Object();
+      return new PersistentHashMap<>(root, count);
+    }
+  } // Builder
+
+  /************************************/
+  /*** Private methods and classes ***/
+
+  /**
+   * Spread the bits of a key's hash code, since every level of the trie uses different
+   * ones. This is one-to-one, so only keys with equal hash codes collide.
+   * @param key the key hashed
+   * @return the spread hash code
+   */
+  private static int hash(Object key) {
+    int h = key.hashCode() * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static boolean equal(Object key, Object other) {
+    return ((Comparable<Object>)key).compareTo(other) == 0;
+  }
+
+  private static UnsupportedOperationException immutable() {
+    return new UnsupportedOperationException("PersistentHashMap is immutable; use with() or without()");
+  }
+
+  /*
+   * What a put() or remove() did, filled in on the way down the trie.
+   */
+  private static class Change {
+    boolean added;      // whether a new pair was put in
+    boolean removed;    // whether a pair was taken out
+    Object oldValue;    // the value replaced or removed, if any
+  } // Change
+
+  /*
+   * A trie node holds key/value pairs in an array of alternating keys and values. Nodes
+   * made by a builder record its edit marker so that it can change them in place.
+   */
+  private static abstract class Node {
+    final Object edit;  // the builder that may change this node, or null
+    Object[] array;     // keys and values (or children) in alternate places
+
+    Node(Object edit, Object[] array) {
+      this.edit = edit;
+      this.array = array;
+    }
+
+    boolean isEditable(Object edit) { return edit != null && this.edit == edit; }
+
+    /**
+     * Say whether this node holds just one pair, in array[0] and array[1].
+     */
+    abstract boolean isSinglePair();
+
+    abstract Object find(int shift, int hash, Object key);
+
+    /**
+     * Put a pair in the subtrie rooted here.
+     * @return the new subtrie root; this node if nothing changed or it was changed in place
+     */
+    abstract Node put(Object edit, int shift, int hash, Object key, Object value, Change change);
+
+    /**
+     * Remove a pair from the subtrie rooted here.
+     * @return the new subtrie root; this node if nothing changed or it was changed in place;
+     *         null if the subtrie is now empty
+     */
+    abstract Node remove(Object edit, int shift, int hash, Object key, Change change);
+
+    abstract void forEach(BiConsumer<Object,Object> action);
+  } // Node
+
+  /*
+   * A node with a branch for each bit set in its bitmap. Branch b is at position
+   * 2*bitCount(bitmap & (b-1)) in the array: either a key and its value, or null and a
+   * child node.
+   */
+  private static class BitmapNode extends Node {
+    int bitmap;  // which of the 32 branches are in use
+
+    BitmapNode(Object edit, int bitmap, Object[] array) {
+      super(edit, array);
+      this.bitmap = bitmap;
+    }
+
+    @Override
+    boolean isSinglePair() { return array.length == 2 && array[0] != null; }
+
+    @Override
+    Object find(int shift, int hash, Object key) {
+      int bit = 1 << ((hash >>> shift) & MASK);
+      if ((bitmap & bit) == 0) return null;
+      int i = 2*Integer.bitCount(bitmap & (bit-1));
+      if (array[i] == null) return ((Node)array[i+1]).find(shift+BITS, hash, key);
+      return equal(key, array[i]) ? array[i+1] : null;
+    }
+
+    @Override
+    Node put(Object edit, int shift, int hash, Object key, Object value, Change change) {
+      int bit = 1 << ((hash >>> shift) & MASK);
+      int i = 2*Integer.bitCount(bitmap & (bit-1));
+      if ((bitmap & bit) == 0) {
+        change.added = true;
+        Object[] newArray = new Object[array.length+2];
+        System.arraycopy(array, 0, newArray, 0, i);
+        newArray[i] = key;
+        newArray[i+1] = value;
+        System.arraycopy(array, i, newArray, i+2, array.length-i);
+        if (!isEditable(edit)) return new BitmapNode(edit, bitmap | bit, newArray);
+        bitmap |= bit;
+        array = newArray;
+        return this;
+      }
+      Object k = array[i];
+      Object v = array[i+1];
+      if (k == null) {
+        Node child = ((Node)v).put(edit, shift+BITS, hash, key, value, change);
+        return (child == v) ? this : set(edit, i, null, child);
+      }
+      if (equal(key, k)) {
+        change.oldValue = v;
+        return (v == value) ? this : set(edit, i, k, value);
+      }
+      change.added = true;
+      return set(edit, i, null, pair(edit, shift+BITS, hash(k), k, v, hash, key, value));
+    }
+
+    @Override
+    Node remove(Object edit, int shift, int hash, Object key, Change change) {
+      int bit = 1 << ((hash >>> shift) & MASK);
+      if ((bitmap & bit) == 0) return this;
+      int i = 2*Integer.bitCount(bitmap & (bit-1));
+      Object k = array[i];
+      Object v = array[i+1];
+      if (k == null) {
+        Node child = ((Node)v).remove(edit, shift+BITS, hash, key, change);
+        if (child == v) return this;
+        if (child == null) return without(edit, bit, i);
+        // a child left with one pair is pulled up into this node
+        if (child.isSinglePair()) return set(edit, i, child.array[0], child.array[1]);
+        return set(edit, i, null, child);
+      }
+      if (!equal(key, k)) return this;
+      change.removed = true;
+      change.oldValue = v;
+      return without(edit, bit, i);
+    }
+
+    @Override
+    void forEach(BiConsumer<Object,Object> action) {
+      for (int i = 0; i < array.length; i += 2) {
+        if (array[i] == null) ((Node)array[i+1]).forEach(action);
+        else action.accept(array[i], array[i+1]);
+      }
+    }
+
+    /**
+     * Put a key (or null) and a value (or child) at a position, in place if possible.
+     */
+    private Node set(Object edit, int i, Object key, Object value) {
+      if (isEditable(edit)) {
+        array[i] = key;
+        array[i+1] = value;
+        return this;
+      }
+      Object[] newArray = array.clone();
+      newArray[i] = key;
+      newArray[i+1] = value;
+      return new BitmapNode(edit, bitmap, newArray);
+    }
+
+    /**
+     * Drop the branch at a position, in place if possible.
+     * @return the node without the branch, or null if it had no other branches
+     */
+    private Node without(Object edit, int bit, int i) {
+      if (bitmap == bit) return null;
+      Object[] newArray = new Object[array.length-2];
+      System.arraycopy(array, 0, newArray, 0, i);
+      System.arraycopy(array, i+2, newArray, i, newArray.length-i);
+      if (!isEditable(edit)) return new BitmapNode(edit, bitmap ^ bit, newArray);
+      bitmap ^= bit;
+      array = newArray;
+      return this;
+    }
+  } // BitmapNode
+
+  /*
+   * A node holding pairs whose keys all have the same hash code.
+   */
+  private static class CollisionNode extends Node {
+    final int hash;  // the hash code shared by the keys
+
+    CollisionNode(Object edit, int hash, Object[] array) {
+      super(edit, array);
+      this.hash = hash;
+    }
+
+    @Override
+    boolean isSinglePair() { return array.length == 2; }
+
+    @Override
+    Object find(int shift, int hash, Object key) {
+      int i = indexOf(key);
+      return (i < 0) ? null : array[i+1];
+    }
+
+    @Override
+    Node put(Object edit, int shift, int hash, Object key, Object value, Change change) {
+      if (hash != this.hash) {
+        // put this node below a bitmap node and let that node place the new pair
+        int bit = 1 << ((this.hash >>> shift) & MASK);
+        BitmapNode node = new BitmapNode(edit, bit, new Object[] {null, this});
+        return node.put(edit, shift, hash, key, value, change);
+      }
+      int i = indexOf(key);
+      if (0 <= i) {
+        change.oldValue = array[i+1];
+        if (array[i+1] == value) return this;
+        Object[] newArray = isEditable(edit) ? array : array.clone();
+        newArray[i+1] = value;
+        return (newArray == array) ? this : new CollisionNode(edit, hash, newArray);
+      }
+      change.added = true;
+      Object[] newArray = new Object[array.length+2];
+      System.arraycopy(array, 0, newArray, 0, array.length);
+      newArray[array.length] = key;
+      newArray[array.length+1] = value;
+      if (!isEditable(edit)) return new CollisionNode(edit, hash, newArray);
+      array = newArray;
+      return this;
+    }
+
+    @Override
+    Node remove(Object edit, int shift, int hash, Object key, Change change) {
+      int i = indexOf(key);
+      if (i < 0) return this;
+      change.removed = true;
+      change.oldValue = array[i+1];
+      if (array.length == 2) return null;
+      Object[] newArray = new Object[array.length-2];
+      System.arraycopy(array, 0, newArray, 0, i);
+      System.arraycopy(array, i+2, newArray, i, newArray.length-i);
+      if (!isEditable(edit)) return new CollisionNode(edit, hash, newArray);
+      array = newArray;
+      return this;
+    }
+
+    @Override
+    void forEach(BiConsumer<Object,Object> action) {
+      for (int i = 0; i < array.length; i += 2) action.accept(array[i], array[i+1]);
+    }
+
+    private int indexOf(Object key) {
+      for (int i = 0; i < array.length; i += 2)
+        if (equal(key, array[i])) return i;
+      return -1;
+    }
+  } // CollisionNode
+
+  /**
+   * Make a subtrie holding two pairs whose keys differ.
+   * @param shift where the subtrie's hash bits start
+   * @return a bitmap node or, if the hash codes are equal, a collision node
+   */
+  private static Node pair(Object edit, int shift, int hash1, Object key1, Object value1,
+                           int hash2, Object key2, Object value2) {
+    if (hash1 == hash2)
+      return new CollisionNode(edit, hash1, new Object[] {key1, value1, key2, value2});
+    int bit1 = 1 << ((hash1 >>> shift) & MASK);
+    int bit2 = 1 << ((hash2 >>> shift) & MASK);
+    if (bit1 == bit2) {
+      Node child = pair(edit, shift+BITS, hash1, key1, value1, hash2, key2, value2);
+      return new BitmapNode(edit, bit1, new Object[] {null, child});
+    }
+    // bit 31 is the sign bit, so the bits are compared as unsigned values
+    Object[] array = (Integer.compareUnsigned(bit1, bit2) < 0)
+                     ? new Object[] {key1, value1, key2, value2}
+                     : new Object[] {key2, value2, key1, value1};
+    return new BitmapNode(edit, bit1 | bit2, array);
+  }
+
+  /*
+   * Walk the trie depth first, keeping the nodes on the path and the next position in
+   * each, so each step takes constant time on average.
+   */
+  private static abstract class TrieIterator<E> implements Iterator<E> {
+    private final Node[] nodes = new Node[MAX_DEPTH];  // the path from the root
+    private final int[] positions = new int[MAX_DEPTH]; // next array index at each level
+    private int depth;                                  // index of the deepest node
+    private Object[] next;                              // the pair to return next, or null
+
+    TrieIterator(Node root) {
+      nodes[0] = root;
+      depth = 0;
+      advance();
+    }
+
+    @Override
+    public boolean hasNext() { return next != null; }
+
+    /**
+     * Return the next pair as a two element array and move on.
+     */
+    Object[] nextPair() {
+      if (next == null) throw new NoSuchElementException();
+      Object[] result = next;
+      advance();
+      return result;
+    }
+
+    private void advance() {
+      while (0 <= depth) {
+        Node node = nodes[depth];
+        int i = positions[depth];
+        if (node.array.length <= i) {
+          depth--;
+          continue;
+        }
+        positions[depth] = i+2;
+        if (node.array[i] != null) {
+          next = new Object[] {node.array[i], node.array[i+1]};
+          return;
+        }
+        depth++;
+        nodes[depth] = (Node)node.array[i+1];
+        positions[depth] = 0;
+      }
+      next = null;
+    }
+  } // TrieIterator
+}
@@ -0,0 +1,467 @@
+package containers;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * A RobinHoodHashtable maps keys to values using open addressing with linear probing.
+ * Keys, values, and hash codes are kept in three parallel arrays, so no entry objects
+ * are allocated and probe sequences run through adjacent array slots.
+ *
+ * Robin Hood insertion keeps probe lengths short: when a key being inserted has
+ * travelled further from its home slot than the key occupying a slot, the two swap
+ * places and insertion continues with the displaced key. A consequence is that a search
+ * can stop as soon as it reaches a key closer to home than the search key would be.
+ * Deletion shifts the following keys in the cluster back one slot rather than leaving
+ * a tombstone, so the table never fills up with deleted markers.
+ *
+ * The table size is always a power of two so that slots can be found by masking.
+ *
+ * @author C. Fox
+ *
+ * @param <K> type of the key
+ * @param <T> type of the value
+ */
+class RobinHoodHashtable<K extends Comparable<K>,T> implements HashStore<K,T> {
+  private static final double MAX_LOAD_FACTOR = 0.875; // default fraction of slots filled before expanding
+  public static final int DEFAULT_SIZE = 16;           // for too small or unspecified table sizes
+  private final double loadFactor;                     // fraction of slots filled before expanding
+  private int[] hashes;     // spread hash codes of the keys; 0 marks an empty slot
+  private Object[] keys;    // keys, parallel to hashes
+  private Object[] values;  // values, parallel to hashes
+  private int mask;         // table size - 1, for finding home slots
+  private int count;        // how many key/value pairs in the table
+  private HashStatistics.Counters stats;  // lookup and resize counts, or null if not kept
+
+  /**
+   * Allow clients to specify the table size when creating a hash table.
+   * If the size is less than 5 the default size is used. If the size is
+   * not a power of two, the next largest power of two is used.
+   * @param size desired hash table size
+   */
+  public RobinHoodHashtable(int size) { this(size, MAX_LOAD_FACTOR); }
+
+  /**
+   * Make a hash table that expands when a given fraction of its slots are full.
+   * @param size desired hash table size
+   * @param loadFactor fraction of slots filled before expanding; between 0 and 1
+   * @throws IllegalArgumentException if loadFactor is not between 0 and 1
+   */
+  public RobinHoodHashtable(int size, double loadFactor) {
+    if (!(0 < loadFactor && loadFactor < 1)) throw new IllegalArgumentException("Bad load factor "+loadFactor);
+    this.loadFactor = loadFactor;
+    if (size < 5) size = DEFAULT_SIZE;
+    int tableSize = 8;
+    while (tableSize < size) tableSize *= 2;
+    makeTable(tableSize);
+    count = 0;
+  }
+
+  /*
+   *  Make a hash table with the default size.
+   */
+  public RobinHoodHashtable() { this(DEFAULT_SIZE); }
+
+  @Override
+  public int tableSize() { return hashes.length; }
+
+  @Override
+  public int size() { return count; }
+
+  @Override
+  public void clear() {
+    for (int i = 0; i < hashes.length; i++) {
+      hashes[i] = 0;
+      keys[i] = null;
+      values[i] = null;
+    }
+    count = 0;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T insert(K key, T value) {
+    int index = probe(key);
+    if (0 <= index) {
+      T result = (T)values[index];
+      values[index] = value;
+      return result;
+    }
+    add(-index-1, hash(key), key, value);
+    return null;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T putIfAbsent(K key, T value) {
+    int index = probe(key);
+    if (0 <= index) {
+      T result = (T)values[index];
+      if (result == null) values[index] = value;
+      return result;
+    }
+    add(-index-1, hash(key), key, value);
+    return null;
+  }
+
+  @Override
+  public T get(K key) { return getOrDefault(key, null); }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T getOrDefault(K key, T defaultValue) {
+    if (stats != null) return countedGet(key, defaultValue);
+    int index = find(key);
+    return index < 0 ? defaultValue : (T)values[index];
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T compute(K key, BiFunction<? super K, ? super T, ? extends T> remapping) {
+    int index = probe(key);
+    T value = remapping.apply(key, (index < 0) ? null : (T)values[index]);
+    if (0 <= index) {
+      if (value == null) deleteAt(index);
+      else values[index] = value;
+    }
+    else if (value != null) add(-index-1, hash(key), key, value);
+    return value;
+  }
+
+  @Override
+  public boolean delete(K key) {
+    int index = find(key);
+    if (index < 0) return false;
+    deleteAt(index);
+    return true;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void visit(Visitor<T> visitor) {
+    for (int i = 0; i < hashes.length; i++)
+      if (hashes[i] != 0) visitor.visit((T)values[i]);
+  }
+
+  @Override
+  public Iterator<T> iterator() { return new SlotIterator<T>(values); }
+
+  @Override
+  public Iterator<K> keyIterator() { return new SlotIterator<K>(keys); }
+
+  @Override
+  public Iterator<Map.Entry<K,T>> entryIterator() { return new SlotEntryIterator(); }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void forEach(BiConsumer<? super K, ? super T> action) {
+    for (int i = 0; i < hashes.length; i++)
+      if (hashes[i] != 0) action.accept((K)keys[i], (T)values[i]);
+  }
+
+  /**
+   * Make a shallow copy of this hash table. The arrays are copied directly, so
+   * the copy has the same table size and iteration order as the original.
+   * @return a new hash table with the same key/value pairs
+   */
+  @Override
+  public RobinHoodHashtable<K,T> copy() {
+    RobinHoodHashtable<K,T> result = new RobinHoodHashtable<>(DEFAULT_SIZE, loadFactor);
+    result.hashes = hashes.clone();
+    result.keys = keys.clone();
+    result.values = values.clone();
+    result.mask = mask;
+    result.count = count;
+    return result;
+  }
+
+  @Override
+  public RobinHoodHashtable<K,T> makeEmpty(int capacity) {
+    int size = (int)Math.min(capacity/loadFactor + 1, 1 << 30);
+    return new RobinHoodHashtable<>(size, loadFactor);
+  }
+
+  @Override
+  public void trimToSize() {
+    int size = sizeFor(count);
+    if (size < hashes.length) resize(size);
+  }
+
+  @Override
+  public void ensureCapacity(int capacity) {
+    int size = sizeFor(capacity);
+    if (hashes.length < size) resize(size);
+  }
+
+  @Override
+  public void setStatisticsEnabled(boolean enabled) {
+    if (!enabled) stats = null;
+    else if (stats == null) stats = new HashStatistics.Counters();
+  }
+
+  @Override
+  public boolean isStatisticsEnabled() { return stats != null; }
+
+  /**
+   * Take a snapshot of the table's statistics. A probe is one slot examined.
+   * @return a snapshot of the table's statistics
+   */
+  @Override
+  public HashStatistics statistics() { return HashStatistics.ofSlots(hashes.length, count, stats); }
+
+  @Override
+  public String toString() {
+    StringBuffer result = new StringBuffer("{");
+    for (int i = 0; i < hashes.length; i++) {
+      result.append(i);
+      if (hashes[i] != 0) result.append('[').append(keys[i]).
+                                             append(':').
+                                             append(values[i]).
+                                             append(']');
+      result.append('\n');
+    }
+    result.append('}');
+    return result.toString();
+  }
+
+  /************************************/
+  /*** Private methods and classes ***/
+
+  /*
+   * Iterate over the occupied slots of one of the parallel arrays.
+   */
+  private class SlotIterator<E> implements Iterator<E> {
+    private Object[] slots;  // keys or values
+    private int index;       // next occupied slot, or hashes.length when done
+
+    public SlotIterator(Object[] theSlots) {
+      slots = theSlots;
+      index = advance(0);
+    }
+
+    @Override
+    public boolean hasNext() { return index < hashes.length; }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E next() {
+      if (hashes.length <= index) throw new NoSuchElementException();
+      E result = (E)slots[index];
+      index = advance(index+1);
+      return result;
+    }
+
+    private int advance(int i) {
+      while (i < hashes.length && hashes[i] == 0) i++;
+      return i;
+    }
+  } // SlotIterator
+
+  /*
+   * Iterate over the occupied slots, returning each key/value pair as a small entry.
+   */
+  private class SlotEntryIterator implements Iterator<Map.Entry<K,T>> {
+    private int index;  // next occupied slot, or hashes.length when done
+
+    public SlotEntryIterator() { index = advance(0); }
+
+    @Override
+    public boolean hasNext() { return index < hashes.length; }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map.Entry<K,T> next() {
+      if (hashes.length <= index) throw new NoSuchElementException();
+      Map.Entry<K,T> result = new ImmutableEntry<>((K)keys[index], (T)values[index]);
+      index = advance(index+1);
+      return result;
+    }
+
+    private int advance(int i) {
+      while (i < hashes.length && hashes[i] == 0) i++;
+      return i;
+    }
+  } // SlotEntryIterator
+
+  /**
+   * Allocate empty parallel arrays of a given power of two size.
+   * @param tableSize how many slots
+   */
+  private void makeTable(int tableSize) {
+    hashes = new int[tableSize];
+    keys = new Object[tableSize];
+    values = new Object[tableSize];
+    mask = tableSize-1;
+  }
+
+  /**
+   * Mix the high bits of the key's hash code into the low bits used for masking
+   * and set the sign bit so that no stored hash is 0.
+   * @param key the key hashed
+   * @return a non-zero hash code
+   */
+  private int hash(K key) {
+    int h = key.hashCode();
+    return (h ^ (h >>> 16)) | 0x80000000;
+  }
+
+  /**
+   * Compute how far the key in a slot is from its home slot.
+   * @param index an occupied slot
+   * @return how many slots past home the key is stored
+   */
+  private int probeDistance(int index) {
+    return (index - (hashes[index] & mask)) & mask;
+  }
+
+  /**
+   * Find the slot holding a key. The search stops at an empty slot or a key that is
+   * closer to its home slot than the search key would be at that point.
+   * @param key the key searched for
+   * @return the index of the key's slot, or -1 if it is absent
+   */
+  @SuppressWarnings("unchecked")
+  private int find(K key) {
+    int hash = hash(key);
+    int index = hash & mask;
+    for (int distance = 0; hashes[index] != 0; distance++) {
+      if (hashes[index] == hash && key.compareTo((K)keys[index]) == 0) return index;
+      if (probeDistance(index) < distance) return -1;
+      index = (index+1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Fetch a value as getOrDefault() does, counting the slots examined.
+   * @param key used to find the value
+   * @param defaultValue returned if the key is absent
+   * @return the value that goes with the key, or defaultValue
+   */
+  @SuppressWarnings("unchecked")
+  private T countedGet(K key, T defaultValue) {
+    int hash = hash(key);
+    int index = hash & mask;
+    int probes = 1;
+    for (int distance = 0; hashes[index] != 0; distance++, probes++) {
+      if (hashes[index] == hash && key.compareTo((K)keys[index]) == 0) {
+        stats.countGet(probes);
+        return (T)values[index];
+      }
+      if (probeDistance(index) < distance) break;
+      index = (index+1) & mask;
+    }
+    stats.countGet(probes);
+    return defaultValue;
+  }
+
+  /**
+   * Search for a key before changing the table, finding where it belongs if it is absent.
+   * @param key the key searched for
+   * @return the index of the key's slot if it is present; otherwise -(i+1), where i is
+   *         the slot at which the key belongs
+   */
+  @SuppressWarnings("unchecked")
+  private int probe(K key) {
+    int hash = hash(key);
+    int index = hash & mask;
+    for (int distance = 0; hashes[index] != 0; distance++) {
+      if (hashes[index] == hash && key.compareTo((K)keys[index]) == 0) return index;
+      if (probeDistance(index) < distance) break;
+      index = (index+1) & mask;
+    }
+    return -index-1;
+  }
+
+  /**
+   * Add a key/value pair known to be absent, first expanding the table if the pair would
+   * overload it. Only adding a pair can expand the table, so replacing a value never does.
+   * @param index the slot at which probe() found the key belongs
+   * @param hash the spread hash of the key
+   * @param key the key added
+   * @param value the value that goes with the key
+   */
+  private void add(int index, int hash, Object key, Object value) {
+    if (hashes.length*loadFactor <= count+1) {
+      resize(2*hashes.length);
+      index = hash & mask;  // the slot found has moved; place() works forward from home
+    }
+    count++;
+    place(index, hash, key, value);
+  }
+
+  /**
+   * Remove the pair in a slot, shifting the rest of its cluster back toward home.
+   * @param index an occupied slot
+   */
+  private void deleteAt(int index) {
+    int next = (index+1) & mask;
+    while (hashes[next] != 0 && 0 < probeDistance(next)) {
+      hashes[index] = hashes[next];
+      keys[index] = keys[next];
+      values[index] = values[next];
+      index = next;
+      next = (next+1) & mask;
+    }
+    hashes[index] = 0;
+    keys[index] = null;
+    values[index] = null;
+    count--;
+  }
+
+  /**
+   * Put a key/value pair known to be absent at a slot, displacing the occupant
+   * (if any) and carrying it along the cluster according to the Robin Hood rule.
+   * @param index where to start placing the pair
+   * @param hash the spread hash of the key
+   * @param key the key placed
+   * @param value the value that goes with the key
+   */
+  private void place(int index, int hash, Object key, Object value) {
+    int distance = (index - (hash & mask)) & mask;
+    while (hashes[index] != 0) {
+      int occupantDistance = probeDistance(index);
+      if (occupantDistance < distance) {
+        int h = hashes[index]; hashes[index] = hash; hash = h;
+        Object k = keys[index]; keys[index] = key; key = k;
+        Object v = values[index]; values[index] = value; value = v;
+        distance = occupantDistance;
+      }
+      index = (index+1) & mask;
+      distance++;
+    }
+    hashes[index] = hash;
+    keys[index] = key;
+    values[index] = value;
+  }
+
+  /**
+   * Work out the power of two table size that holds a number of pairs without expanding.
+   * @param capacity how many pairs
+   * @return a table size of at least 8
+   */
+  private int sizeFor(int capacity) {
+    int size = (int)Math.min(capacity/loadFactor + 1, 1 << 30);
+    int tableSize = 8;
+    while (tableSize < size) tableSize *= 2;
+    return tableSize;
+  }
+
+  /**
+   * Put every pair into a new table of a given size.
+   * Stored hashes are reused, so no key hash codes are recomputed.
+   * @param tableSize how many slots; a power of two bigger than the count
+   */
+  private void resize(int tableSize) {
+    long start = (stats == null) ? 0 : System.nanoTime();
+    int[] oldHashes = hashes;
+    Object[] oldKeys = keys;
+    Object[] oldValues = values;
+    makeTable(tableSize);
+    for (int i = 0; i < oldHashes.length; i++)
+      if (oldHashes[i] != 0) place(oldHashes[i] & mask, oldHashes[i], oldKeys[i], oldValues[i]);
+    if (stats != null) stats.countResize(start);
+  }
+}
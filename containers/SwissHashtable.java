@@ -0,0 +1,548 @@
+package containers;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * A SwissHashtable maps keys to values using open addressing in the style of the Abseil
+ * SwissTable. Alongside the key, value, and hash code arrays is an array of control bytes,
+ * one per slot: a control byte is EMPTY, DELETED, or, for a full slot, the low seven bits
+ * of the key's hash code. The high bits of the hash code pick a group of GROUP_SIZE slots
+ * to start from, and groups are probed in a triangular sequence.
+ *
+ * The control bytes of a group are packed into a single long, so a whole group is checked
+ * at once with a few arithmetic operations on the long (SIMD within a register): one test
+ * finds every slot whose control byte matches the seven hash bits being searched for, and
+ * another finds any empty slot. Keys are compared only in matching slots, which a key that
+ * is absent matches only once in 128 slots on average, and a search stops at the first group
+ * with an empty slot. A probe usually touches a single long of control bytes and the one
+ * slot holding the key.
+ *
+ * A deleted slot becomes EMPTY if its group already has an empty slot (so no search can
+ * have passed through the group); otherwise it becomes DELETED so that searches carry on
+ * past it. DELETED slots are reused by insertions and cleared out when the table is rebuilt.
+ *
+ * @author C. Fox
+ *
+ * @param <K> type of the key
+ * @param <T> type of the value
+ */
+class SwissHashtable<K extends Comparable<K>,T> implements HashStore<K,T> {
+  private static final double MAX_LOAD_FACTOR = 0.875; // default fraction of slots used before growing
+  public static final int DEFAULT_SIZE = 16;            // for too small or unspecified table sizes
+  public static final int GROUP_SIZE = 8;               // slots whose control bytes share a long
+  private static final int EMPTY = 0x80;                // control byte of a never used slot
+  private static final int DELETED = 0xFE;              // control byte of a slot whose key was deleted
+  private static final long LSB = 0x0101010101010101L;  // low bit of each control byte
+  private static final long MSB = 0x8080808080808080L;  // high bit of each control byte
+  private final double loadFactor;                      // fraction of slots used before growing
+  private long[] control;   // control bytes, GROUP_SIZE per long, low byte first
+  private int[] hashes;     // spread hash codes of the keys in full slots
+  private Object[] keys;    // keys, parallel to hashes
+  private Object[] values;  // values, parallel to hashes
+  private int mask;         // group count - 1, for picking groups
+  private int threshold;    // number of full or deleted slots that triggers a rebuild
+  private int deleted;      // how many slots are DELETED
+  private int count;        // how many key/value pairs in the table
+  private HashStatistics.Counters stats;  // lookup and resize counts, or null if not kept
+
+  /**
+   * Make a hash table with a given number of slots and load factor. If the size is less
+   * than 5 the default size is used; otherwise the size is rounded up to a power of two
+   * that is at least GROUP_SIZE.
+   * @param size desired number of slots
+   * @param loadFactor fraction of slots used before growing; must be in (0,1)
+   * @throws IllegalArgumentException if loadFactor is out of range
+   */
+  public SwissHashtable(int size, double loadFactor) {
+    if (!(0 < loadFactor && loadFactor < 1))
+      throw new IllegalArgumentException("Bad load factor "+loadFactor);
+    if (size < 5) size = DEFAULT_SIZE;
+    this.loadFactor = loadFactor;
+    int tableSize = GROUP_SIZE;
+    while (tableSize < size) tableSize *= 2;
+    makeTable(tableSize);
+    count = 0;
+  }
+  public SwissHashtable(int size) { this(size, MAX_LOAD_FACTOR); }
+
+  /*
+   *  Make a hash table with the default size.
+   */
+  public SwissHashtable() { this(DEFAULT_SIZE); }
+
+  @Override
+  public int tableSize() { return keys.length; }
+
+  @Override
+  public int size() { return count; }
+
+  @Override
+  public void clear() {
+    for (int i = 0; i < control.length; i++) control[i] = LSB * EMPTY;
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = null;
+      values[i] = null;
+    }
+    deleted = 0;
+    count = 0;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T insert(K key, T value) {
+    int hash = hash(key);
+    int slot = probe(key, hash);
+    if (0 <= slot) {
+      T result = (T)values[slot];
+      values[slot] = value;
+      return result;
+    }
+    fill(-slot-1, hash, key, value);
+    return null;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T putIfAbsent(K key, T value) {
+    int hash = hash(key);
+    int slot = probe(key, hash);
+    if (0 <= slot) {
+      T result = (T)values[slot];
+      if (result == null) values[slot] = value;
+      return result;
+    }
+    fill(-slot-1, hash, key, value);
+    return null;
+  }
+
+  @Override
+  public T get(K key) { return getOrDefault(key, null); }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T getOrDefault(K key, T defaultValue) {
+    if (stats != null) return countedGet(key, defaultValue);
+    int slot = find(key, hash(key));
+    return slot < 0 ? defaultValue : (T)values[slot];
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T compute(K key, BiFunction<? super K, ? super T, ? extends T> remapping) {
+    int hash = hash(key);
+    int slot = probe(key, hash);
+    T value = remapping.apply(key, (slot < 0) ? null : (T)values[slot]);
+    if (0 <= slot) {
+      if (value == null) deleteAt(slot);
+      else values[slot] = value;
+    }
+    else if (value != null) fill(-slot-1, hash, key, value);
+    return value;
+  }
+
+  @Override
+  public boolean delete(K key) {
+    int slot = find(key, hash(key));
+    if (slot < 0) return false;
+    deleteAt(slot);
+    return true;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void visit(Visitor<T> visitor) {
+    for (int i = 0; i < keys.length; i++)
+      if (isFull(i)) visitor.visit((T)values[i]);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void forEach(BiConsumer<? super K, ? super T> action) {
+    for (int i = 0; i < keys.length; i++)
+      if (isFull(i)) action.accept((K)keys[i], (T)values[i]);
+  }
+
+  @Override
+  public Iterator<T> iterator() { return new SlotIterator<T>(values); }
+
+  @Override
+  public Iterator<K> keyIterator() { return new SlotIterator<K>(keys); }
+
+  @Override
+  public Iterator<Map.Entry<K,T>> entryIterator() { return new SlotEntryIterator(); }
+
+  /**
+   * Make a shallow copy of this hash table. The arrays are copied directly, so
+   * the copy has the same table size and iteration order as the original.
+   * @return a new hash table with the same key/value pairs
+   */
+  @Override
+  public SwissHashtable<K,T> copy() {
+    SwissHashtable<K,T> result = new SwissHashtable<>(DEFAULT_SIZE, loadFactor);
+    result.control = control.clone();
+    result.hashes = hashes.clone();
+    result.keys = keys.clone();
+    result.values = values.clone();
+    result.mask = mask;
+    result.threshold = threshold;
+    result.deleted = deleted;
+    result.count = count;
+    return result;
+  }
+
+  @Override
+  public SwissHashtable<K,T> makeEmpty(int capacity) {
+    int size = (int)Math.min(capacity/loadFactor + 1, 1 << 30);
+    return new SwissHashtable<>(size, loadFactor);
+  }
+
+  @Override
+  public void trimToSize() {
+    int size = sizeFor(count);
+    if (size < keys.length) rebuild(size);
+  }
+
+  @Override
+  public void ensureCapacity(int capacity) {
+    int size = sizeFor(capacity);
+    if (keys.length < size) rebuild(size);
+  }
+
+  @Override
+  public void setStatisticsEnabled(boolean enabled) {
+    if (!enabled) stats = null;
+    else if (stats == null) stats = new HashStatistics.Counters();
+  }
+
+  @Override
+  public boolean isStatisticsEnabled() { return stats != null; }
+
+  /**
+   * Take a snapshot of the table's statistics. A probe is one group of control bytes
+   * examined, and a resize is any rebuild, including one that only clears out DELETED slots.
+   * @return a snapshot of the table's statistics
+   */
+  @Override
+  public HashStatistics statistics() { return HashStatistics.ofSlots(keys.length, count, stats); }
+
+  @Override
+  public String toString() {
+    StringBuffer result = new StringBuffer("{");
+    for (int i = 0; i < keys.length; i++) {
+      result.append(i);
+      if (isFull(i)) result.append('[').append(keys[i]).
+                                   append(':').
+                                   append(values[i]).
+                                   append(']');
+      else if (controlByte(i) == DELETED) result.append("[deleted]");
+      result.append('\n');
+    }
+    result.append('}');
+    return result.toString();
+  }
+
+  /************************************/
+  /*** Private methods and classes ***/
+
+  /*
+   * Iterate over the full slots of one of the parallel arrays.
+   */
+  private class SlotIterator<E> implements Iterator<E> {
+    private Object[] slots;  // keys or values
+    private int index;       // next full slot, or keys.length when done
+
+    public SlotIterator(Object[] theSlots) {
+      slots = theSlots;
+      index = advance(0);
+    }
+
+    @Override
+    public boolean hasNext() { return index < keys.length; }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E next() {
+      if (keys.length <= index) throw new NoSuchElementException();
+      E result = (E)slots[index];
+      index = advance(index+1);
+      return result;
+    }
+  } // SlotIterator
+
+  /*
+   * Iterate over the full slots, returning each key/value pair as a small entry.
+   */
+  private class SlotEntryIterator implements Iterator<Map.Entry<K,T>> {
+    private int index;  // next full slot, or keys.length when done
+
+    public SlotEntryIterator() { index = advance(0); }
+
+    @Override
+    public boolean hasNext() { return index < keys.length; }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map.Entry<K,T> next() {
+      if (keys.length <= index) throw new NoSuchElementException();
+      Map.Entry<K,T> result = new ImmutableEntry<>((K)keys[index], (T)values[index]);
+      index = advance(index+1);
+      return result;
+    }
+  } // SlotEntryIterator
+
+  /**
+   * Allocate empty arrays for a given number of slots.
+   * @param tableSize how many slots; a power of two that is at least GROUP_SIZE
+   */
+  private void makeTable(int tableSize) {
+    control = new long[tableSize/GROUP_SIZE];
+    for (int i = 0; i < control.length; i++) control[i] = LSB * EMPTY;
+    hashes = new int[tableSize];
+    keys = new Object[tableSize];
+    values = new Object[tableSize];
+    mask = control.length-1;
+    threshold = (int)Math.min(tableSize*loadFactor, tableSize-1);
+    deleted = 0;
+  }
+
+  /**
+   * Mix the bits of the key's hash code so that both the low seven bits kept in the
+   * control bytes and the high bits used to pick groups depend on all of them.
+   * @param key the key hashed
+   * @return the spread hash code
+   */
+  private static int hash(Object key) {
+    int h = key.hashCode() * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Find the bytes of a group's control word that are equal to a given byte.
+   * @param word the control bytes of a group
+   * @param b the byte searched for
+   * @return a word with the high bit set in exactly the matching bytes
+   */
+  private static long matchByte(long word, int b) {
+    long x = word ^ (LSB * b);
+    return ~(((x & ~MSB) + ~MSB) | x | ~MSB);
+  }
+
+  /**
+   * Find the EMPTY bytes of a group's control word. EMPTY is the only control byte with
+   * the high bit set and the next bit clear.
+   * @param word the control bytes of a group
+   * @return a word with the high bit set in exactly the EMPTY bytes
+   */
+  private static long matchEmpty(long word) {
+    return word & ~(word << 1) & MSB;
+  }
+
+  /**
+   * Find the slot within its group of the first byte picked out by a match.
+   * @param match a word with the high bit set in some bytes
+   * @return the index in the group of the lowest such byte
+   */
+  private static int firstByte(long match) {
+    return Long.numberOfTrailingZeros(match) >>> 3;
+  }
+
+  /**
+   * Read the control byte of a slot.
+   * @param slot index of the slot
+   * @return its control byte, in range 0..255
+   */
+  private int controlByte(int slot) {
+    return (int)(control[slot/GROUP_SIZE] >>> ((slot % GROUP_SIZE) * 8)) & 0xFF;
+  }
+
+  /**
+   * Change the control byte of a slot.
+   * @param slot index of the slot
+   * @param b the new control byte
+   */
+  private void setControlByte(int slot, int b) {
+    int shift = (slot % GROUP_SIZE) * 8;
+    int group = slot/GROUP_SIZE;
+    control[group] = (control[group] & ~(0xFFL << shift)) | ((long)b << shift);
+  }
+
+  /**
+   * Say whether a slot holds a key/value pair.
+   * @param slot index of the slot
+   * @return true iff the slot's control byte has its high bit clear
+   */
+  private boolean isFull(int slot) { return controlByte(slot) < 0x80; }
+
+  /**
+   * Find the next full slot.
+   * @param i where to start looking
+   * @return the index of the first full slot at or after i, or keys.length if there is none
+   */
+  private int advance(int i) {
+    while (i < keys.length && !isFull(i)) i++;
+    return i;
+  }
+
+  /**
+   * Find the slot holding a key by probing groups until the key or an empty slot is found.
+   * @param key the key searched for
+   * @param hash hash(key)
+   * @return the index of the key's slot, or -1 if it is absent
+   */
+  @SuppressWarnings("unchecked")
+  private int find(K key, int hash) {
+    int h2 = hash & 0x7F;
+    int group = (hash >>> 7) & mask;
+    for (int step = 1; ; step++) {
+      long word = control[group];
+      for (long match = matchByte(word, h2); match != 0; match &= match-1) {
+        int slot = group*GROUP_SIZE + firstByte(match);
+        if (hashes[slot] == hash && key.compareTo((K)keys[slot]) == 0) return slot;
+      }
+      if (matchEmpty(word) != 0) return -1;
+      group = (group+step) & mask;
+    }
+  }
+
+  /**
+   * Fetch a value as getOrDefault() does, counting the groups examined.
+   * @param key used to find the value
+   * @param defaultValue returned if the key is absent
+   * @return the value that goes with the key, or defaultValue
+   */
+  @SuppressWarnings("unchecked")
+  private T countedGet(K key, T defaultValue) {
+    int hash = hash(key);
+    int h2 = hash & 0x7F;
+    int group = (hash >>> 7) & mask;
+    for (int step = 1; ; step++) {
+      long word = control[group];
+      for (long match = matchByte(word, h2); match != 0; match &= match-1) {
+        int slot = group*GROUP_SIZE + firstByte(match);
+        if (hashes[slot] == hash && key.compareTo((K)keys[slot]) == 0) {
+          stats.countGet(step);
+          return (T)values[slot];
+        }
+      }
+      if (matchEmpty(word) != 0) {
+        stats.countGet(step);
+        return defaultValue;
+      }
+      group = (group+step) & mask;
+    }
+  }
+
+  /**
+   * Search for a key before changing the table, finding a free slot for it if it is absent.
+   * @param key the key searched for
+   * @param hash hash(key)
+   * @return the index of the key's slot if it is present; otherwise -(i+1), where i is
+   *         the first EMPTY or DELETED slot along the key's probe sequence
+   */
+  @SuppressWarnings("unchecked")
+  private int probe(K key, int hash) {
+    int h2 = hash & 0x7F;
+    int group = (hash >>> 7) & mask;
+    int free = -1;
+    for (int step = 1; ; step++) {
+      long word = control[group];
+      for (long match = matchByte(word, h2); match != 0; match &= match-1) {
+        int slot = group*GROUP_SIZE + firstByte(match);
+        if (hashes[slot] == hash && key.compareTo((K)keys[slot]) == 0) return slot;
+      }
+      if (free < 0 && (word & MSB) != 0) free = group*GROUP_SIZE + firstByte(word & MSB);
+      if (matchEmpty(word) != 0) return -free-1;
+      group = (group+step) & mask;
+    }
+  }
+
+  /**
+   * Put a key/value pair known to be absent in a free slot found by probe(). Using an EMPTY
+   * slot when the table is full rebuilds it first, so only adding a key ever rebuilds the
+   * table; the pair then goes in the first empty slot along its probe sequence.
+   * @param slot an EMPTY or DELETED slot
+   * @param hash hash(key)
+   * @param key the key added
+   * @param value the value that goes with the key
+   */
+  private void fill(int slot, int hash, Object key, Object value) {
+    if (controlByte(slot) == DELETED) deleted--;
+    else if (threshold <= count+deleted) {
+      rebuild(count < threshold/2 ? keys.length : 2*keys.length);
+      slot = emptySlot(hash);
+    }
+    setControlByte(slot, hash & 0x7F);
+    hashes[slot] = hash;
+    keys[slot] = key;
+    values[slot] = value;
+    count++;
+  }
+
+  /**
+   * Find the first EMPTY slot along a hash's probe sequence.
+   * @param hash the spread hash of a key
+   * @return an EMPTY slot
+   */
+  private int emptySlot(int hash) {
+    int group = (hash >>> 7) & mask;
+    for (int step = 1; matchEmpty(control[group]) == 0; step++) group = (group+step) & mask;
+    return group*GROUP_SIZE + firstByte(matchEmpty(control[group]));
+  }
+
+  /**
+   * Remove the pair in a slot. The slot is marked EMPTY if its group has an empty slot
+   * already, since then no search can have gone on past the group; otherwise it is
+   * marked DELETED.
+   * @param slot a full slot
+   */
+  private void deleteAt(int slot) {
+    if (matchEmpty(control[slot/GROUP_SIZE]) != 0) setControlByte(slot, EMPTY);
+    else {
+      setControlByte(slot, DELETED);
+      deleted++;
+    }
+    keys[slot] = null;
+    values[slot] = null;
+    count--;
+  }
+
+  /**
+   * Work out the power of two table size that holds a number of pairs without rebuilding.
+   * @param capacity how many pairs
+   * @return a table size of at least GROUP_SIZE
+   */
+  private int sizeFor(int capacity) {
+    int size = (int)Math.min(capacity/loadFactor + 1, 1 << 30);
+    int tableSize = GROUP_SIZE;
+    while (tableSize < size) tableSize *= 2;
+    return tableSize;
+  }
+
+  /**
+   * Put every pair into new arrays of a given size, clearing out the DELETED slots. When
+   * the table is full it doubles unless deletions have left it less than half full, in
+   * which case it keeps its size.
+   * @param tableSize how many slots; a power of two that is at least GROUP_SIZE
+   */
+  private void rebuild(int tableSize) {
+    long start = (stats == null) ? 0 : System.nanoTime();
+    long[] oldControl = control;
+    int[] oldHashes = hashes;
+    Object[] oldKeys = keys;
+    Object[] oldValues = values;
+    makeTable(tableSize);
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (((oldControl[i/GROUP_SIZE] >>> ((i % GROUP_SIZE) * 8)) & 0x80) != 0) continue;
+      int hash = oldHashes[i];
+      int slot = emptySlot(hash);
+      setControlByte(slot, hash & 0x7F);
+      hashes[slot] = hash;
+      keys[slot] = oldKeys[i];
+      values[slot] = oldValues[i];
+    }
+    if (stats != null) stats.countResize(start);
+  }
+}
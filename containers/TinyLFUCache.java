@@ -0,0 +1,531 @@
+package containers;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.LongSupplier;
+
+/**
+ * A TinyLFUCache is a map with a bounded number of pairs that decides what to keep using
+ * both how recently and how often keys have been used (the W-TinyLFU policy). It resists
+ * scans: a burst of keys that are used once cannot flush out keys that are used often.
+ *
+ * New pairs go into a small window LRU list holding about 1% of the capacity. A pair pushed
+ * out of the window is a candidate for the main space, a segmented LRU whose probation list
+ * holds pairs used once there and whose protected list (80% of the main space) holds pairs
+ * used again. When the main space is full the candidate only gets in if its key has been used
+ * more often than the key of the pair that would be evicted to make room. How often keys
+ * have been used is estimated by a count-min sketch of small counters, which are all halved
+ * every so often so that old popularity fades. Every operation takes O(1) time.
+ *
+ * A cache can also be made to expire pairs a fixed time after they were written, or after
+ * they were last used. Pairs waiting to expire are kept in a timer wheel, a ring of lists
+ * each holding the pairs that expire during one tick, so that expired pairs are removed in
+ * O(1) time each as the wheel turns. A fetch never returns an expired pair, and expired
+ * pairs are removed within a tick of expiring.
+ *
+ * Using a pair means fetching it with get() or storing it with insert(); both count towards
+ * the key's frequency. The cache counts hits, misses and evictions.
+ *
+ * @author C. Fox
+ *
+ * @param <K> type of the key
+ * @param <T> type of the value
+ */
+public class TinyLFUCache<K extends Comparable<K>,T> implements Map<K,T> {
+  private static final int WINDOW = 0;       // the queue of a node in the window list
+  private static final int PROBATION = 1;    // the queue of a node in the probation list
+  private static final int PROTECTED = 2;    // the queue of a node in the protected list
+  private static final int WHEEL_SIZE = 64;  // lists in the timer wheel; a power of two
+  private final HashMap<K,Node> index;       // finds each key's node
+  private final Node[] heads;                // dummy nodes of the window, probation and protected lists
+  private final int[] sizes;                 // how many nodes in each list
+  private final int capacity;                // most pairs allowed
+  private final int windowMax;               // most pairs in the window
+  private final int protectedMax;            // most pairs in the protected list
+  private final FrequencySketch sketch;      // estimates how often keys are used
+  private final long expireNanos;            // how long pairs live, or 0 if they never expire
+  private final boolean afterAccess;         // whether a use restarts a pair's lifetime
+  private final LongSupplier ticker;         // the time in nanoseconds
+  private final Node[] wheel;                // dummy nodes of the timer wheel lists
+  private final int tickShift;               // a tick is 2^tickShift nanoseconds
+  private long sweptTick;                    // the last tick whose wheel list has been swept
+  private long hits;                         // get() calls that found their key
+  private long misses;                       // get() calls that did not
+  private long evictions;                    // pairs evicted to stay within capacity
+
+  /**
+   * Make a cache that holds at most a given number of pairs, which never expire.
+   * @param capacity how many pairs the cache may hold; must be positive
+   * @throws IllegalArgumentException if capacity is not positive
+   */
+  public TinyLFUCache(int capacity) { this(capacity, 0, false, System::nanoTime); }
+
+  /**
+   * Make a cache that holds at most a given number of pairs, which expire after a while.
+   * @param capacity how many pairs the cache may hold; must be positive
+   * @param expireNanos how long a pair lives, in nanoseconds; 0 if pairs never expire
+   * @param afterAccess true if the time runs from the last use of a pair, false if it
+   *        runs from when the pair was written
+   * @param ticker gives the current time in nanoseconds, such as System::nanoTime
+   * @throws IllegalArgumentException if capacity is not positive or expireNanos is negative
+   */
+  public TinyLFUCache(int capacity, long expireNanos, boolean afterAccess, LongSupplier ticker) {
+    if (capacity < 1) throw new IllegalArgumentException("Bad capacity "+capacity);
+    if (expireNanos < 0) throw new IllegalArgumentException("Bad expiry time "+expireNanos);
+    this.capacity = capacity;
+    windowMax = Math.max(1, capacity/100);
+    protectedMax = (int)((capacity-windowMax)*0.8);
+    index = new HashMap<>();
+    heads = makeHeads(3);
+    sizes = new int[3];
+    sketch = new FrequencySketch(capacity);
+    this.expireNanos = expireNanos;
+    this.afterAccess = afterAccess;
+    this.ticker = ticker;
+    if (expireNanos == 0) {
+      wheel = null;
+      tickShift = 0;
+      return;
+    }
+    wheel = makeHeads(WHEEL_SIZE);
+    int shift = 0;
+    while (shift < 56 && (WHEEL_SIZE << shift) < expireNanos) shift++;
+    tickShift = shift;
+    sweptTick = (ticker.getAsLong() >> tickShift) - 1;
+  }
+
+  /**
+   * Reveal the capacity of the cache.
+   * @return the most pairs the cache may hold
+   */
+  public int capacity() { return capacity; }
+
+  /**
+   * @return how many get() calls found their key
+   */
+  public long hits() { return hits; }
+
+  /**
+   * @return how many get() calls did not find their key
+   */
+  public long misses() { return misses; }
+
+  /**
+   * @return how many pairs have been evicted to stay within capacity
+   */
+  public long evictions() { return evictions; }
+
+  /**
+   * @return the fraction of get() calls that found their key, or 0 if there have been none
+   */
+  public double hitRate() { return (hits+misses == 0) ? 0 : (double)hits/(hits+misses); }
+
+  @Override
+  public int size() {
+    expire(now());
+    return index.size();
+  }
+
+  @Override
+  public boolean isEmpty() { return size() == 0; }
+
+  @Override
+  public void clear() {
+    index.clear();
+    for (int q = 0; q < heads.length; q++) {
+      heads[q].succ = heads[q].pred = heads[q];
+      sizes[q] = 0;
+    }
+    if (wheel != null)
+      for (Node head : wheel) head.wheelSucc = head.wheelPred = head;
+  }
+
+  /**
+   * Fetch the value associated with a key, counting a use of the key.
+   * @param key used to find the value
+   * @return the value that goes with the key, or null if the key is absent or expired
+   */
+  @Override
+  public T get(K key) {
+    long now = now();
+    expire(now);
+    sketch.increment(key.hashCode());
+    Node node = index.get(key);
+    if (node != null && wheel != null && node.expireAt - now <= 0) {
+      remove(node);
+      node = null;
+    }
+    if (node == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    onAccess(node);
+    if (afterAccess) schedule(node, now);
+    return node.value;
+  }
+
+  /**
+   * Put a pair in the cache, or replace the value if the key is present, counting a use of
+   * the key. A new pair goes into the window, and may push another pair out of the cache.
+   * @param key the part of the pair hashed
+   * @param value the part that goes with the key
+   * @return the value previously associated with key, or null if it was absent
+   */
+  @Override
+  public T insert(K key, T value) {
+    long now = now();
+    expire(now);
+    sketch.increment(key.hashCode());
+    Node node = index.get(key);
+    if (node != null && wheel != null && node.expireAt - now <= 0) {
+      remove(node);
+      node = null;
+    }
+    if (node != null) {
+      T result = node.value;
+      node.value = value;
+      onAccess(node);
+      if (wheel != null) schedule(node, now);
+      return result;
+    }
+    node = new Node(key, value);
+    index.insert(key, node);
+    link(node, WINDOW);
+    if (wheel != null) schedule(node, now);
+    if (windowMax < sizes[WINDOW]) admit(heads[WINDOW].pred);
+    return null;
+  }
+
+  @Override
+  public void delete(K key) {
+    Node node = index.get(key);
+    if (node != null) remove(node);
+  }
+
+  /**
+   * Determine whether a key is in the cache without counting a use of it.
+   * @param key the key searched for
+   * @return true iff key is present and not expired
+   */
+  @Override
+  public boolean hasKey(K key) {
+    long now = now();
+    expire(now);
+    Node node = index.get(key);
+    return node != null && (wheel == null || 0 < node.expireAt - now);
+  }
+
+  @Override
+  public boolean contains(T item) {
+    Iterator<T> iter = iterator();
+    while (iter.hasNext()) if (iter.next() == item) return true;
+    return false;
+  }
+
+  /**
+   * Return an iterator over the values: the window, then probation, then protected pairs.
+   * @return an iterator over values
+   */
+  @Override
+  public Iterator<T> iterator() {
+    return new NodeIterator<T>() {
+      @Override
+      public T next() { return nextNode().value; }
+    };
+  }
+
+  @Override
+  public Iterator<K> keyIterator() {
+    return new NodeIterator<K>() {
+      @Override
+      public K next() { return nextNode().key; }
+    };
+  }
+
+  @Override
+  public Iterator<Entry<K,T>> entryIterator() {
+    return new NodeIterator<Entry<K,T>>() {
+      @Override
+      public Entry<K,T> next() { return nextNode(); }
+    };
+  }
+
+  @Override
+  public boolean isEqual(Map<K,T> m) {
+    if (size() != m.size()) return false;
+    Iterator<Entry<K,T>> iter = entryIterator();
+    while (iter.hasNext()) {
+      Entry<K,T> entry = iter.next();
+      if (entry.getValue() != m.get(entry.getKey())) return false;
+    }
+    return true;
+  }
+
+  /************************************/
+  /*** Private methods and classes ***/
+
+  private long now() { return (wheel == null) ? 0 : ticker.getAsLong(); }
+
+  private Node makeHead() {
+    Node head = new Node(null, null);
+    head.succ = head.pred = head;
+    head.wheelSucc = head.wheelPred = head;
+    return head;
+  }
+
+  /**
+   * Make an array of empty lists.
+   * @param n how many lists
+   * @return an array of n dummy head nodes
+   */
+  @SuppressWarnings("unchecked")
+  private Node[] makeHeads(int n) {
+    Node[] result = (Node[])new TinyLFUCache<?,?>.Node[n];
+    for (int i = 0; i < n; i++) result[i] = makeHead();
+    return result;
+  }
+
+  /**
+   * Put a node at the front (most recently used end) of one of the lists.
+   * @param node the node added
+   * @param queue WINDOW, PROBATION or PROTECTED
+   */
+  private void link(Node node, int queue) {
+    Node head = heads[queue];
+    node.queue = queue;
+    node.pred = head;
+    node.succ = head.succ;
+    head.succ.pred = node;
+    head.succ = node;
+    sizes[queue]++;
+  }
+
+  private void unlink(Node node) {
+    node.pred.succ = node.succ;
+    node.succ.pred = node.pred;
+    sizes[node.queue]--;
+  }
+
+  /**
+   * Move a used node forward: within the window or protected list to the front, and from
+   * probation into the protected list, demoting the least recently used protected node to
+   * probation if the protected list is then too long.
+   * @param node the node used
+   */
+  private void onAccess(Node node) {
+    unlink(node);
+    if (node.queue == WINDOW) {
+      link(node, WINDOW);
+      return;
+    }
+    link(node, PROTECTED);
+    if (protectedMax < sizes[PROTECTED]) {
+      Node demoted = heads[PROTECTED].pred;
+      unlink(demoted);
+      link(demoted, PROBATION);
+    }
+  }
+
+  /**
+   * Move the least recently used window node into the main space, if there is room, or if
+   * its key is used more often than that of the node the main space would evict; otherwise
+   * evict it.
+   * @param candidate the last node in the window list
+   */
+  private void admit(Node candidate) {
+    if (sizes[PROBATION] + sizes[PROTECTED] < capacity - windowMax) {
+      unlink(candidate);
+      link(candidate, PROBATION);
+      return;
+    }
+    Node victim = heads[PROBATION].pred;
+    if (victim == heads[PROBATION]) victim = heads[PROTECTED].pred;
+    if (victim == heads[PROTECTED] ||
+        sketch.frequency(candidate.key.hashCode()) <= sketch.frequency(victim.key.hashCode()))
+      victim = candidate;
+    else {
+      unlink(candidate);
+      link(candidate, PROBATION);
+    }
+    remove(victim);
+    evictions++;
+  }
+
+  /**
+   * Take a node out of the cache altogether.
+   * @param node the node removed
+   */
+  private void remove(Node node) {
+    index.delete(node.key);
+    unlink(node);
+    if (wheel != null) unschedule(node);
+  }
+
+  /**
+   * Give a node a new expiry time and put it in the wheel list for that time.
+   * @param node the node whose lifetime starts now
+   * @param now the current time
+   */
+  private void schedule(Node node, long now) {
+    unschedule(node);
+    node.expireAt = now + expireNanos;
+    Node head = wheel[(int)(node.expireAt >> tickShift) & (WHEEL_SIZE-1)];
+    node.wheelPred = head;
+    node.wheelSucc = head.wheelSucc;
+    head.wheelSucc.wheelPred = node;
+    head.wheelSucc = node;
+  }
+
+  private void unschedule(Node node) {
+    if (node.wheelSucc == null) return;
+    node.wheelPred.wheelSucc = node.wheelSucc;
+    node.wheelSucc.wheelPred = node.wheelPred;
+    node.wheelSucc = node.wheelPred = null;
+  }
+
+  /**
+   * Turn the timer wheel up to the current tick, removing the expired nodes in the lists
+   * for the ticks that have gone by. Every node in a list expires during that list's tick
+   * or a whole turn of the wheel later, so each node looked at is either removed or left
+   * for a later turn.
+   * @param now the current time
+   */
+  private void expire(long now) {
+    if (wheel == null) return;
+    long tick = now >> tickShift;
+    long last = Math.min(tick-1, sweptTick+WHEEL_SIZE);
+    for (long t = sweptTick+1; t <= last; t++) {
+      Node head = wheel[(int)t & (WHEEL_SIZE-1)];
+      Node node = head.wheelSucc;
+      while (node != head) {
+        Node next = node.wheelSucc;
+        if (node.expireAt - now <= 0) remove(node);
+        node = next;
+      }
+    }
+    if (sweptTick < tick-1) sweptTick = tick-1;
+  }
+
+  /*
+   * A node holds a key/value pair and is linked into one of the three lists and, if pairs
+   * expire, into one of the timer wheel lists.
+   */
+  private class Node implements Entry<K,T> {
+    K key;           // the key
+    T value;         // the value that goes with it
+    int queue;       // WINDOW, PROBATION or PROTECTED
+    Node succ;       // the next less recently used node in the queue
+    Node pred;       // the next more recently used node in the queue
+    long expireAt;   // when the pair expires, if pairs expire
+    Node wheelSucc;  // the next node in the timer wheel list, or null if not in one
+    Node wheelPred;  // the previous node in the timer wheel list
+
+    public Node(K key, T value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    @Override
+    public K getKey() { return key; }
+
+    @Override
+    public T getValue() { return value; }
+  } // Node
+
+  /*
+   * Walk the window, probation and protected lists in turn. Expired pairs are removed first.
+   */
+  private abstract class NodeIterator<E> implements Iterator<E> {
+    private int queue;  // the list being walked
+    private Node next;  // the node to return next, or a list head when done
+
+    public NodeIterator() {
+      expire(now());
+      queue = 0;
+      next = heads[0].succ;
+      skipHeads();
+    }
+
+    @Override
+    public boolean hasNext() { return next != heads[queue]; }
+
+    Node nextNode() {
+      if (next == heads[queue]) throw new NoSuchElementException();
+      Node result = next;
+      next = next.succ;
+      skipHeads();
+      return result;
+    }
+
+    private void skipHeads() {
+      while (next == heads[queue] && queue < heads.length-1) {
+        queue++;
+        next = heads[queue].succ;
+      }
+    }
+  } // NodeIterator
+
+  /*
+   * A count-min sketch estimating how often keys have been used, with four 4-bit counters
+   * per key spread over an array of longs. A key's estimate is the smallest of its counters,
+   * which is never less than the true count (up to the counters' limit of 15). After ten
+   * increments per slot of capacity every counter is halved, so old popularity fades.
+   */
+  private static class FrequencySketch {
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+                                         0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long HALF_MASK = 0x7777777777777777L;  // clears each counter's top bit
+    private final long[] table;  // sixteen 4-bit counters per long
+    private final int sampleSize;  // increments between halvings
+    private int additions;         // increments since the last halving
+
+    public FrequencySketch(int capacity) {
+      int size = 8;
+      while (size < capacity && size < (1 << 30)) size *= 2;
+      table = new long[size];
+      sampleSize = (int)Math.min(10L*capacity, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Estimate how often a key has been used.
+     * @param hash the key's hash code
+     * @return an estimate in 0..15
+     */
+    public int frequency(int hash) {
+      int result = 15;
+      for (int i = 0; i < 4; i++) {
+        long h = spread(hash, i);
+        int shift = counterShift(h);
+        result = Math.min(result, (int)(table[slot(h)] >>> shift) & 15);
+      }
+      return result;
+    }
+
+    /**
+     * Count a use of a key, halving every counter if it is time to.
+     * @param hash the key's hash code
+     */
+    public void increment(int hash) {
+      for (int i = 0; i < 4; i++) {
+        long h = spread(hash, i);
+        int slot = slot(h);
+        int shift = counterShift(h);
+        if (((table[slot] >>> shift) & 15) < 15) table[slot] += 1L << shift;
+      }
+      if (sampleSize <= ++additions) {
+        for (int i = 0; i < table.length; i++) table[i] = (table[i] >>> 1) & HALF_MASK;
+        additions /= 2;
+      }
+    }
+
+    private long spread(int hash, int i) {
+      long h = (hash + SEEDS[i]) * SEEDS[i];
+      return h ^ (h >>> 32);
+    }
+
+    private int slot(long h) { return (int)h & (table.length-1); }
+
+    private int counterShift(long h) { return ((int)(h >>> 40) & 15) << 2; }
+  } // FrequencySketch
+}
@@ -1,6 +1,10 @@
 package containers;
 
 import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * A TreeMap uses a search tree to implement maps.
@@ -27,6 +31,15 @@ public class TreeMap<K extends Comparable<K>, T> implements Map<K, T> {
   @Override
   public Iterator<T> iterator() { return new ValueIterator(tree); }
 
+  /**
+   * Create a spliterator over the values in key order that splits by subtree.
+   * @return a spliterator over values
+   */
+  @Override
+  public Spliterator<T> spliterator() {
+    return tree.spliterator(pair -> pair.value, Spliterator.ORDERED);
+  }
+
   @Override
   public int size() { return tree.size(); }
 
@@ -44,7 +57,13 @@ public class TreeMap<K extends Comparable<K>, T> implements Map<K, T> {
   }
 
   @Override
-  public void insert(K key, T value) { tree.insert(new Pair(key,value)); }
+  public T insert(K key, T value) {
+    Pair pair = tree.getOrInsert(new Pair(key,value));
+    if (pair == null) return null;
+    T result = pair.value;
+    pair.value = value;
+    return result;
+  }
 
   @Override
   public void delete(K key) {
@@ -63,21 +82,119 @@ public class TreeMap<K extends Comparable<K>, T> implements Map<K, T> {
     return new KeyIterator(tree);
   }
 
+  @Override
+  public Iterator<Entry<K,T>> entryIterator() {
+    return new EntryIterator(tree);
+  }
+
+  @Override
+  public void forEach(BiConsumer<? super K, ? super T> action) {
+    Iterator<Pair> iter = tree.inorderIterator();
+    while (iter.hasNext()) {
+      Pair pair = iter.next();
+      action.accept(pair.key, pair.value);
+    }
+  }
+
+  @Override
+  public T getOrDefault(K key, T defaultValue) {
+    Pair result = tree.get(new Pair(key,null));
+    return (result == null || result.value == null) ? defaultValue : result.value;
+  }
+
+  @Override
+  public T putIfAbsent(K key, T value) {
+    Pair pair = tree.getOrInsert(new Pair(key,value));
+    if (pair == null) return null;
+    T current = pair.value;
+    if (current == null) pair.value = value;
+    return current;
+  }
+
+  @Override
+  public T compute(K key, BiFunction<? super K, ? super T, ? extends T> remapping) {
+    Pair probe = new Pair(key,null);
+    Pair pair = tree.getOrInsert(probe, () -> addedPair(probe, remapping.apply(key, null)));
+    if (pair == null) return probe.value;
+    T value = remapping.apply(key, pair.value);
+    if (value == null) tree.delete(pair);
+    else pair.value = value;
+    return value;
+  }
+
+  @Override
+  public T computeIfAbsent(K key, Function<? super K, ? extends T> mapping) {
+    Pair probe = new Pair(key,null);
+    Pair pair = tree.getOrInsert(probe, () -> addedPair(probe, mapping.apply(key)));
+    if (pair == null) return probe.value;
+    if (pair.value != null) return pair.value;
+    T value = mapping.apply(key);
+    if (value == null) tree.delete(pair);
+    else pair.value = value;
+    return value;
+  }
+
+  @Override
+  public T computeIfPresent(K key, BiFunction<? super K, ? super T, ? extends T> remapping) {
+    Pair pair = tree.get(new Pair(key,null));
+    if (pair == null || pair.value == null) return null;
+    T value = remapping.apply(key, pair.value);
+    if (value == null) tree.delete(pair);
+    else pair.value = value;
+    return value;
+  }
+
+  @Override
+  public T merge(K key, T value, BiFunction<? super T, ? super T, ? extends T> remapping) {
+    Pair probe = new Pair(key,value);
+    Pair pair = tree.getOrInsert(probe, () -> (value == null) ? null : probe);
+    if (pair == null) return value;
+    T result = (pair.value == null) ? value : remapping.apply(pair.value, value);
+    if (result == null) tree.delete(pair);
+    else pair.value = result;
+    return result;
+  }
+
   @Override
   public boolean isEqual(Map<K, T> m) {
     if (size() != m.size()) return false;
-    Iterator<K> iter = keyIterator();
+
+    // another tree map has its pairs in the same order, so walk both together
+    if (m instanceof TreeMap) {
+      Iterator<Entry<K,T>> mine = entryIterator();
+      Iterator<Entry<K,T>> theirs = m.entryIterator();
+      while (mine.hasNext()) {
+        Entry<K,T> a = mine.next();
+        Entry<K,T> b = theirs.next();
+        if (a.getKey().compareTo(b.getKey()) != 0 || a.getValue() != b.getValue()) return false;
+      }
+      return true;
+    }
+
+    Iterator<Pair> iter = tree.inorderIterator();
     while(iter.hasNext()) {
-      K key = iter.next();
-      if (get(key) != m.get(key)) return false;
+      Pair pair = iter.next();
+      if (pair.value != m.get(pair.key)) return false;
     }
     return true;
   }
 
+  /**
+   * Give a pair the value computed for its absent key, so that it can be added to the tree
+   * only once the value is known, and only if it is not null.
+   * @param pair the pair searched for
+   * @param value the value computed for the pair's key
+   * @return the pair to add, or null to add nothing
+   */
+  private Pair addedPair(Pair pair, T value) {
+    pair.value = value;
+    return (value == null) ? null : pair;
+  }
+
   /**
    * Associate a key with a value.
    */
-  private class Pair implements Comparable<Pair> {
+  private class Pair implements Comparable<Pair>, Entry<K,T> {
     K key;    // the key in the pair
     T value;  // the value in the pair
     
@@ -86,6 +203,12 @@ public class TreeMap<K extends Comparable<K>, T> implements Map<K, T> {
     public int compareTo(Pair other) {
       return key.compareTo(other.key);
     }
+
+    @Override
+    public K getKey() { return key; }
+
+    @Override
+    public T getValue() { return value; }
   }
   
   /**
@@ -131,4 +254,23 @@ public class TreeMap<K extends Comparable<K>, T> implements Map<K, T> {
     public K next() { return pairIterator.next().key; }
 
   } // KeyIterator
+
+  /**
+   * An EntryIterator goes through all the key-value pairs in a map in key order. The
+   * pairs stored in the tree are returned as they are.
+   */
+  private class EntryIterator implements Iterator<Entry<K,T>> {
+    private Iterator<Pair> pairIterator;
+
+    public EntryIterator(AVLTree<Pair> tree) {
+      pairIterator = tree.inorderIterator();
+    }
+
+    @Override
+    public boolean hasNext() { return pairIterator.hasNext(); }
+
+    @Override
+    public Entry<K,T> next() { return pairIterator.next(); }
+
+  } // EntryIterator
 }
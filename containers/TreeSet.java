@@ -1,6 +1,7 @@
 package containers;
 
 import java.util.Iterator;
+import java.util.Spliterator;
 
 /**
  * A TreeSet uses a search tree to store set values.
@@ -22,6 +23,13 @@ public class TreeSet<T extends Comparable<T>> implements Set<T> {
   @Override
   public Iterator<T> iterator() { return tree.inorderIterator(); }
 
+  /**
+   * Create a spliterator over the elements in order that splits by subtree.
+   * @return a sorted spliterator over elements
+   */
+  @Override
+  public Spliterator<T> spliterator() { return tree.spliterator(); }
+
   @Override
   public int size() { return tree.size(); }
 
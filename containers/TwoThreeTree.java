@@ -1,7 +1,10 @@
 package containers;
 
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 
 /**
  * A linked tree whose every node contains either one value and two children (a 2-node) or
@@ -127,6 +130,14 @@ class TwoThreeTree<T extends Comparable<T>> {
    * @return the new iterator
    */
   public Iterator<T> iterator() { return new InorderIterator(root); }
+
+  /**
+   * Create a spliterator over this tree in order that splits by subtree. The values are
+   * sorted by their natural order and distinct; only the spliterator over the whole tree
+   * knows its size exactly.
+   * @return the new spliterator
+   */
+  public Spliterator<T> spliterator() { return new InorderSpliterator(null, root, count, true); }
   
   @Override
   public String toString() {
@@ -677,4 +688,79 @@ class TwoThreeTree<T extends Comparable<T>> {
     }
 
   } // InorderIterator
+
+  /*
+   * Traverse a value (if any) and then a subtree in order. A 3-node is treated like a
+   * 2-node whose right subtree is a 2-node holding its second value, as in the iterator.
+   * Splitting hands off the first value and the subtree's left subtree.
+   */
+  class InorderSpliterator implements Spliterator<T> {
+    private T first;                      // the value that comes first, or null
+    private TreeNode subtree;             // the subtree traversed after it, or null
+    private LinkedStack<TreeNode> stack;  // the traversal under way, or null if not started
+    private long est;                     // estimated number of values left
+    private boolean sized;                // whether est is exact
+
+    public InorderSpliterator(T first, TreeNode subtree, long est, boolean sized) {
+      this.first = first;
+      this.subtree = subtree;
+      this.est = est;
+      this.sized = sized;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+      if (stack != null || subtree == null) return null;
+      if (first == null && subtree.left == null) {
+        first = subtree.value1;
+        subtree = rightOf(subtree);
+        if (subtree == null) return null;
+      }
+      est >>>= 1;
+      sized = false;
+      Spliterator<T> prefix = new InorderSpliterator(first, subtree.left, est, false);
+      first = subtree.value1;
+      subtree = rightOf(subtree);
+      return prefix;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+      T result = first;
+      if (result != null) first = null;
+      else {
+        if (stack == null) {
+          stack = new LinkedStack<>();
+          pushLeft(subtree);
+        }
+        if (stack.isEmpty()) return false;
+        TreeNode node = stack.pop();
+        result = node.value1;
+        if (node.type == 3) stack.push(new TreeNode(node.value2, node.mid, node.right));
+        pushLeft(node.mid);
+      }
+      if (0 < est) est--;
+      action.accept(result);
+      return true;
+    }
+
+    @Override
+    public long estimateSize() { return est; }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | SORTED | DISTINCT | NONNULL | (sized ? SIZED : 0);
+    }
+
+    @Override
+    public Comparator<? super T> getComparator() { return null; }
+
+    private TreeNode rightOf(TreeNode node) {
+      return (node.type == 3) ? new TreeNode(node.value2, node.mid, node.right) : node.mid;
+    }
+
+    private void pushLeft(TreeNode node) {
+      for (; node != null; node = node.left) stack.push(node);
+    }
+  } // InorderSpliterator
 }
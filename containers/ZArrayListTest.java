@@ -2,6 +2,9 @@ package containers;
 
 import static org.junit.Assert.*;
 
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
 import org.junit.Test;
 
 public class ZArrayListTest
@@ -133,4 +136,129 @@ public class ZArrayListTest
       assertEquals(v, s.get(i++));
     }
   }
+
+  @Test public void testShrinkAndTrim() {
+    ArrayList<Integer> s = new ArrayList<Integer>(3);
+    for (int i = 0; i < 100; i++) s.insert(i, i);
+    assertEquals(192, s.capacity());
+    while (48 < s.size()) s.delete(s.size()-1);
+    assertEquals(96, s.capacity());
+    while (2 < s.size()) s.delete(0);
+    assertEquals(12, s.capacity());
+    assertEquals("[46,47]", s.toString());
+    s.trimToSize();
+    assertEquals(2, s.capacity());
+    s.ensureCapacity(50);
+    assertEquals(50, s.capacity());
+    assertEquals("[46,47]", s.toString());
+    s.clear();
+    assertEquals(ArrayList.INITIAL_SIZE, s.capacity());
+    assertTrue(s.isEmpty());
+  }
+
+  @Test
+  public void testGrowthFactor() {
+    ArrayList<Integer> s = new ArrayList<Integer>(10, 1.5);
+    assertEquals(1.5, s.growthFactor(), 0.0);
+    for (int i = 0; i < 11; i++) s.addLast(i);
+    assertEquals(15, s.capacity());
+    for (int i = 0; i < 5; i++) s.addLast(i);
+    assertEquals(22, s.capacity());
+    assertEquals(ArrayList.DEFAULT_GROWTH, new ArrayList<Integer>().growthFactor(), 0.0);
+    s = new ArrayList<Integer>(1, 1.01);
+    s.addLast(1);
+    s.addLast(2);
+    assertEquals(2, s.capacity());
+    try {
+      new ArrayList<Integer>(10, 1.0);
+      fail("growth factor of 1 accepted");
+    } catch (IllegalArgumentException e) { }
+  }
+
+  @Test
+  public void testInsertAll() {
+    ArrayList<Integer> s = new ArrayList<Integer>(3);
+    for (int i = 0; i < 4; i++) s.addLast(i);
+    ArrayList<Integer> batch = new ArrayList<Integer>();
+    for (int i = 10; i < 30; i++) batch.addLast(i);
+    s.insertAll(2, batch);
+    assertEquals(24, s.size());
+    assertEquals(24, s.capacity());
+    assertEquals(1, s.get(1).intValue());
+    assertEquals(10, s.get(2).intValue());
+    assertEquals(29, s.get(21).intValue());
+    assertEquals(2, s.get(22).intValue());
+    s.insertAll(24, new ArrayList<Integer>());
+    assertEquals(24, s.size());
+
+    LinkedList<Integer> linked = new LinkedList<Integer>();
+    linked.insert(0, -2);
+    linked.insert(0, -1);
+    s.insertAll(0, linked);
+    assertEquals("[-1,-2,0,1]", s.slice(0, 4).toString());
+    s.insertAll(s.size(), s);
+    assertEquals(52, s.size());
+    for (int i = 0; i < 26; i++) assertEquals(s.get(i), s.get(i+26));
+    try {
+      s.insertAll(53, batch);
+      fail("inserted past the end");
+    } catch (IndexOutOfBoundsException e) { }
+  }
+
+  @Test
+  public void testRemoveRange() {
+    ArrayList<Integer> s = new ArrayList<Integer>(3);
+    for (int i = 0; i < 100; i++) s.addLast(i);
+    assertEquals(192, s.capacity());
+    s.removeRange(10, 60);
+    assertEquals(50, s.size());
+    assertEquals(9, s.get(9).intValue());
+    assertEquals(60, s.get(10).intValue());
+    assertEquals(99, s.get(49).intValue());
+    assertEquals(192, s.capacity());
+    s.removeRange(0, 40);
+    assertEquals("[90,91,92,93,94,95,96,97,98,99]", s.toString());
+    assertEquals(24, s.capacity());
+    s.removeRange(5, 5);
+    assertEquals(10, s.size());
+    s.removeRange(0, 10);
+    assertTrue(s.isEmpty());
+    assertEquals(12, s.capacity());
+    try {
+      s.removeRange(0, 1);
+      fail("removed past the end");
+    } catch (IndexOutOfBoundsException e) { }
+  }
+
+  @Test
+  public void testSpliterator() {
+    ArrayList<Integer> list = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) list.insert(i, i);
+    Spliterator<Integer> s = list.spliterator();
+    assertTrue(s.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED));
+    assertEquals(1000, s.estimateSize());
+    Spliterator<Integer> prefix = s.trySplit();
+    assertEquals(500, prefix.estimateSize());
+    assertEquals(500, s.estimateSize());
+    assertTrue(s.tryAdvance(x -> assertEquals(500, x.intValue())));
+    assertEquals(499, s.estimateSize());
+    assertEquals(1000, countBySplitting(list.spliterator()));
+
+    assertEquals(499500, list.stream().mapToLong(Integer::longValue).sum());
+    assertEquals(499500, list.parallelStream().mapToLong(Integer::longValue).sum());
+    java.util.List<Integer> collected = list.parallelStream().collect(Collectors.toList());
+    for (int i = 0; i < 1000; i++) assertEquals(i, collected.get(i).intValue());
+    assertEquals(0, new ArrayList<Integer>().parallelStream().count());
+  }
+
+  /**
+   * Split a spliterator as far as it goes and count the elements in all the pieces.
+   */
+  private static long countBySplitting(Spliterator<?> spliterator) {
+    Spliterator<?> prefix = spliterator.trySplit();
+    long n = (prefix == null) ? 0 : countBySplitting(prefix);
+    long[] rest = {0};
+    spliterator.forEachRemaining(x -> rest[0]++);
+    return n + rest[0];
+  }
 }
@@ -2,6 +2,8 @@ package containers;
 
 import static org.junit.Assert.*;
 
+import java.util.stream.Collectors;
+
 import org.junit.Test;
 
 public class ZArrayQueueTest {
@@ -86,4 +88,41 @@ public class ZArrayQueueTest {
     Queue<Integer> q = new ArrayQueue<Integer>();
     q.front();
   }
+
+  @Test
+  public void testShrinkAndTrim() {
+    ArrayQueue<Integer> q = new ArrayQueue<Integer>(3);
+    for (int i = 0; i < 10; i++) q.enter(i);
+    for (int i = 0; i < 5; i++) q.leave();
+    for (int i = 10; i < 100; i++) q.enter(i);
+    assertEquals(96, q.capacity());
+    while (24 < q.size()) q.leave();
+    assertEquals(48, q.capacity());
+    while (2 < q.size()) q.leave();
+    assertEquals(12, q.capacity());
+    q.trimToSize();
+    assertEquals(2, q.capacity());
+    q.ensureCapacity(50);
+    assertEquals(50, q.capacity());
+    assertEquals(98, q.leave().intValue());
+    assertEquals(99, q.front().intValue());
+    for (int i = 0; i < 100; i++) q.enter(i);
+    q.clear();
+    assertEquals(ArrayQueue.INITIAL_SIZE, q.capacity());
+    assertTrue(q.isEmpty());
+  }
+
+  @Test
+  public void testStream() {
+    ArrayQueue<Integer> q = new ArrayQueue<>(100);
+    for (int i = 0; i < 100; i++) q.enter(i);
+    for (int i = 0; i < 60; i++) q.leave();
+    for (int i = 100; i < 150; i++) q.enter(i);   // wraps around the end of the store
+    assertEquals(90, q.spliterator().estimateSize());
+    java.util.List<Integer> collected = q.parallelStream().collect(Collectors.toList());
+    assertEquals(90, collected.size());
+    for (int i = 0; i < 90; i++) assertEquals(60+i, collected.get(i).intValue());
+    assertEquals(149, q.stream().mapToInt(Integer::intValue).max().getAsInt());
+    assertEquals(60, q.front().intValue());
+  }
 }
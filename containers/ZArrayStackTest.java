@@ -86,4 +86,25 @@ public class ZArrayStackTest {
     Stack<Integer> s = new ArrayStack<Integer>();
     s.top();
   }
+
+  @Test
+  public void testShrinkAndTrim() {
+    ArrayStack<Integer> s = new ArrayStack<Integer>(3);
+    for (int i = 0; i < 100; i++) s.push(i);
+    assertEquals(192, s.capacity());
+    while (48 < s.size()) s.pop();
+    assertEquals(96, s.capacity());
+    while (2 < s.size()) s.pop();
+    assertEquals(12, s.capacity());
+    s.trimToSize();
+    assertEquals(2, s.capacity());
+    s.ensureCapacity(50);
+    assertEquals(50, s.capacity());
+    assertEquals(1, s.pop().intValue());
+    assertEquals(0, s.top().intValue());
+    for (int i = 0; i < 100; i++) s.push(i);
+    s.clear();
+    assertEquals(ArrayStack.INITIAL_SIZE, s.capacity());
+    assertTrue(s.isEmpty());
+  }
 }
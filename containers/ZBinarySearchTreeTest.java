@@ -2,6 +2,8 @@ package containers;
 
 import static org.junit.Assert.*;
 
+import java.util.Spliterator;
+
 import org.junit.Test;
 
 public class ZBinarySearchTreeTest {
@@ -110,4 +112,34 @@ public class ZBinarySearchTreeTest {
     public ToStringer() { toStringerResult = ""; }
     public void visit(Integer value) { toStringerResult += value; }
   }
+
+  @Test
+  public void testSpliterator() {
+    BinarySearchTree<Integer> t = new BinarySearchTree<>();
+    for (int i = 0; i < 1000; i++) t.insert((i * 617) % 1000);
+    assertEquals(1000, countBySplitting(t.spliterator()));
+    int[] last = {-1};
+    Spliterator<Integer> s = t.spliterator();
+    Spliterator<Integer> prefix = s.trySplit();
+    prefix.forEachRemaining(x -> assertEquals(++last[0], x.intValue()));
+    s.forEachRemaining(x -> assertEquals(++last[0], x.intValue()));
+    assertEquals(999, last[0]);
+
+    // a tree with only right children can still be split
+    BinarySearchTree<Integer> chain = new BinarySearchTree<>();
+    for (int i = 0; i < 10; i++) chain.insert(i);
+    assertNotNull(chain.spliterator().trySplit());
+    assertEquals(10, countBySplitting(chain.spliterator()));
+  }
+
+  /**
+   * Split a spliterator as far as it goes and count the elements in all the pieces.
+   */
+  private static long countBySplitting(Spliterator<?> spliterator) {
+    Spliterator<?> prefix = spliterator.trySplit();
+    long n = (prefix == null) ? 0 : countBySplitting(prefix);
+    long[] rest = {0};
+    spliterator.forEachRemaining(x -> rest[0]++);
+    return n + rest[0];
+  }
 }
@@ -0,0 +1,56 @@
+package containers;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ZBloomFilterTest {
+  private BloomFilter<Integer> filter;
+
+  @Before
+  public void setUp() throws Exception {
+    filter = new BloomFilter<>(10000, 0.01);
+  }
+
+  @Test
+  public void testConstructors() {
+    assertEquals(10000, filter.capacity());
+    assertEquals(95851, filter.bitCount());
+    assertEquals(7, filter.hashCount());
+    assertTrue(filter.isEmpty());
+    try {
+      new BloomFilter<Integer>(0, 0.01);
+      fail("capacity of 0 accepted");
+    } catch (IllegalArgumentException e) { }
+    try {
+      new BloomFilter<Integer>(10, 1);
+      fail("false positive rate of 1 accepted");
+    } catch (IllegalArgumentException e) { }
+  }
+
+  @Test
+  public void testNoFalseNegatives() {
+    for (int i = 0; i < 10000; i++) filter.insert(i*7);
+    assertEquals(10000, filter.size());
+    for (int i = 0; i < 10000; i++) assertTrue(filter.mightContain(i*7));
+    filter.clear();
+    assertTrue(filter.isEmpty());
+    assertFalse(filter.mightContain(0));
+    assertEquals(0, filter.expectedFalsePositiveRate(), 0);
+  }
+
+  @Test
+  public void testFalsePositiveRate() {
+    for (int i = 0; i < 10000; i++) filter.insert(i);
+    int falsePositives = 0;
+    for (int i = 10000; i < 110000; i++) if (filter.mightContain(i)) falsePositives++;
+    assertTrue("false positives "+falsePositives, falsePositives < 1500);
+    assertEquals(0.01, filter.expectedFalsePositiveRate(), 0.005);
+
+    // strings hash differently from integers but must behave the same
+    BloomFilter<String> words = new BloomFilter<>(100, 0.001);
+    for (int i = 0; i < 100; i++) words.insert("w"+i);
+    for (int i = 0; i < 100; i++) assertTrue(words.mightContain("w"+i));
+  }
+}
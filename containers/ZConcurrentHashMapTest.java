@@ -0,0 +1,169 @@
+package containers;
+
+import static org.junit.Assert.*;
+
+import java.util.Iterator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ZConcurrentHashMapTest {
+  private ConcurrentHashMap<String,Integer> emptyMap;
+  private ConcurrentHashMap<String,Integer> m1;
+
+  @Before
+  public void setUp() throws Exception {
+    emptyMap = new ConcurrentHashMap<>();
+    m1 = new ConcurrentHashMap<>(0, 4);
+    m1.insert("two",  2);
+    m1.insert("three",3);
+    m1.insert("four", 4);
+    m1.insert("five", 5);
+    m1.insert("six",  6);
+  }
+
+  @Test
+  public void testConstructors() {
+    assertTrue(emptyMap.isEmpty());
+    assertEquals(0, emptyMap.size());
+    assertEquals(ConcurrentHashMap.DEFAULT_CONCURRENCY*2, emptyMap.tableSize());
+    assertEquals(1024, new ConcurrentHashMap<String,Integer>(1000, 16).tableSize());
+    assertEquals(8, new ConcurrentHashMap<String,Integer>(8, 1).tableSize());
+  }
+
+  @Test
+  public void testMapOperations() {
+    assertEquals(5, m1.size());
+    assertEquals(2, m1.get("two").intValue());
+    assertEquals(6, m1.get("six").intValue());
+    assertEquals(null, m1.get("seven"));
+    assertTrue(m1.hasKey("five"));
+    assertFalse(m1.hasKey("one"));
+    assertTrue(m1.contains(4));
+    m1.insert("two", 22);
+    assertEquals(22, m1.get("two").intValue());
+    assertEquals(5, m1.size());
+    m1.delete("four");
+    m1.delete("four");
+    assertFalse(m1.hasKey("four"));
+    assertEquals(4, m1.size());
+    m1.clear();
+    assertTrue(m1.isEmpty());
+    assertEquals(null, m1.get("two"));
+  }
+
+  @Test
+  public void testIteratorsAndIsEqual() {
+    boolean[] seen = new boolean[5];
+    for (Integer v : m1) seen[v-2] = true;
+    for (boolean b : seen) assertTrue(b);
+    HashMap<String,Integer> m = new HashMap<>();
+    Iterator<String> iter = m1.keyIterator();
+    while (iter.hasNext()) {
+      String key = iter.next();
+      m.insert(key, m1.get(key));
+    }
+    assertTrue(m1.isEqual(m));
+    assertTrue(m.isEqual(m1));
+    assertFalse(m1.isEqual(emptyMap));
+  }
+
+  @Test
+  public void testEntryIteratorAndForEach() {
+    boolean[] seen = new boolean[5];
+    Iterator<Map.Entry<String,Integer>> iter = m1.entryIterator();
+    while (iter.hasNext()) {
+      Map.Entry<String,Integer> entry = iter.next();
+      assertEquals(m1.get(entry.getKey()), entry.getValue());
+      seen[entry.getValue()-2] = true;
+    }
+    for (boolean b : seen) assertTrue(b);
+
+    final boolean[] pairs = new boolean[5];
+    m1.forEach((k, v) -> { if (m1.get(k) == v) pairs[v-2] = true; });
+    for (boolean b : pairs) assertTrue(b);
+  }
+
+  @Test
+  public void testConcurrentWriters() throws InterruptedException {
+    final ConcurrentHashMap<Integer,Integer> m = new ConcurrentHashMap<>();
+    Thread[] writers = new Thread[4];
+    for (int t = 0; t < writers.length; t++) {
+      final int base = t*10000;
+      writers[t] = new Thread(new Runnable() {
+        public void run() {
+          for (int i = base; i < base+10000; i++) m.insert(i, i);
+          for (int i = base; i < base+10000; i += 2) m.delete(i);
+        }
+      });
+    }
+    for (Thread writer : writers) writer.start();
+    int reads = 0;
+    while (reads < 100000) if (m.get(reads++ % 40000) == null) continue;
+    for (Thread writer : writers) writer.join();
+    assertEquals(20000, m.size());
+    for (int i = 0; i < 40000; i++)
+      assertEquals(i % 2 == 0 ? null : Integer.valueOf(i), m.get(i));
+    int n = 0;
+    Iterator<Integer> iter = m.keyIterator();
+    while (iter.hasNext()) if (iter.next() % 2 == 1) n++;
+    assertEquals(20000, n);
+  }
+
+  @Test
+  public void testUpdateOperations() {
+    assertEquals(Integer.valueOf(2), m1.insert("two", 22));
+    assertEquals(null, m1.insert("seven", 7));
+    assertEquals(Integer.valueOf(22), m1.putIfAbsent("two", 2));
+    assertEquals(null, m1.putIfAbsent("eight", 8));
+    assertEquals(7, m1.size());
+    assertEquals(22, m1.getOrDefault("two", 0).intValue());
+    assertEquals(0, m1.getOrDefault("nine", 0).intValue());
+
+    assertEquals(23, m1.compute("two", (k, v) -> v+1).intValue());
+    assertEquals(null, m1.compute("seven", (k, v) -> null));
+    assertFalse(m1.hasKey("seven"));
+    assertEquals(4, m1.compute("four", (k, v) -> v == null ? 0 : v).intValue());
+    assertEquals(9, m1.compute("nine", (k, v) -> v == null ? 9 : v).intValue());
+    assertEquals(null, m1.compute("ten", (k, v) -> null));
+    assertFalse(m1.hasKey("ten"));
+
+    assertEquals(9, m1.computeIfAbsent("nine", k -> 99).intValue());
+    assertEquals(4, m1.computeIfAbsent("zero", k -> k.length()).intValue());
+    assertEquals(null, m1.computeIfAbsent("ten", k -> null));
+    assertFalse(m1.hasKey("ten"));
+    assertEquals(null, m1.computeIfPresent("ten", (k, v) -> 10));
+    assertFalse(m1.hasKey("ten"));
+    assertEquals(90, m1.computeIfPresent("nine", (k, v) -> v*10).intValue());
+    assertEquals(null, m1.computeIfPresent("nine", (k, v) -> null));
+    assertFalse(m1.hasKey("nine"));
+    assertEquals(7, m1.size());
+
+    String[] words = { "a", "b", "a", "c", "b", "a" };
+    for (String w : words) emptyMap.merge(w, 1, Integer::sum);
+    assertEquals(3, emptyMap.size());
+    assertEquals(3, emptyMap.get("a").intValue());
+    assertEquals(2, emptyMap.get("b").intValue());
+    assertEquals(1, emptyMap.get("c").intValue());
+    assertEquals(null, emptyMap.merge("c", 1, (a, b) -> null));
+    assertFalse(emptyMap.hasKey("c"));
+    assertEquals(2, emptyMap.size());
+  }
+
+  @Test
+  public void testConcurrentMerge() throws InterruptedException {
+    final ConcurrentHashMap<Integer,Integer> m = new ConcurrentHashMap<>();
+    Thread[] writers = new Thread[4];
+    for (int t = 0; t < writers.length; t++) {
+      writers[t] = new Thread(new Runnable() {
+        public void run() {
+          for (int i = 0; i < 10000; i++) m.merge(i % 100, 1, Integer::sum);
+        }
+      });
+    }
+    for (Thread writer : writers) writer.start();
+    for (Thread writer : writers) writer.join();
+    assertEquals(100, m.size());
+    for (int i = 0; i < 100; i++) assertEquals(400, m.get(i).intValue());
+  }
+}
@@ -0,0 +1,171 @@
+package containers;
+
+import static org.junit.Assert.*;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ZCopyOnWriteHashMapTest {
+  private CopyOnWriteHashMap<String,Integer> emptyMap;
+  private CopyOnWriteHashMap<String,Integer> m1;
+
+  @Before
+  public void setUp() throws Exception {
+    emptyMap = new CopyOnWriteHashMap<>();
+    m1 = new CopyOnWriteHashMap<>();
+    m1.insert("two",  2);
+    m1.insert("three",3);
+    m1.insert("four", 4);
+    m1.insert("five", 5);
+    m1.insert("six",  6);
+  }
+
+  @Test
+  public void testConstructors() {
+    assertTrue(emptyMap.isEmpty());
+    assertEquals(8, emptyMap.tableSize());
+    assertEquals(16, m1.tableSize());
+    CopyOnWriteHashMap<String,Integer> copy = new CopyOnWriteHashMap<>(m1);
+    assertTrue(copy.isEqual(m1));
+    assertTrue(m1.isEqual(copy));
+  }
+
+  @Test
+  public void testMapOperations() {
+    assertEquals(5, m1.size());
+    assertEquals(2, m1.get("two").intValue());
+    assertEquals(null, m1.get("seven"));
+    assertEquals(7, m1.getOrDefault("seven", 7).intValue());
+    assertTrue(m1.hasKey("five"));
+    assertFalse(m1.hasKey("one"));
+    assertTrue(m1.contains(4));
+    assertEquals(Integer.valueOf(2), m1.insert("two", 22));
+    assertEquals(22, m1.get("two").intValue());
+    assertEquals(5, m1.size());
+    m1.delete("four");
+    m1.delete("four");
+    assertFalse(m1.hasKey("four"));
+    assertEquals(4, m1.size());
+    m1.clear();
+    assertTrue(m1.isEmpty());
+    assertEquals(null, m1.get("two"));
+  }
+
+  @Test
+  public void testUpdateOperations() {
+    assertEquals(2, m1.putIfAbsent("two", 22).intValue());
+    assertNull(m1.putIfAbsent("one", 1));
+    assertEquals(1, m1.get("one").intValue());
+    assertEquals(12, m1.compute("two", (k, v) -> v + 10).intValue());
+    assertNull(m1.compute("two", (k, v) -> null));
+    assertFalse(m1.hasKey("two"));
+    assertEquals(7, m1.computeIfAbsent("seven", k -> 7).intValue());
+    assertEquals(7, m1.computeIfAbsent("seven", k -> 77).intValue());
+    assertNull(m1.computeIfPresent("eight", (k, v) -> 8));
+    assertEquals(70, m1.computeIfPresent("seven", (k, v) -> v * 10).intValue());
+    assertEquals(1, m1.merge("nine", 1, Integer::sum).intValue());
+    assertEquals(2, m1.merge("nine", 1, Integer::sum).intValue());
+  }
+
+  @Test
+  public void testBatchUpdate() {
+    m1.update(m -> {
+      m.delete("two");
+      m.insert("seven", 7);
+      m.insert("three", 33);
+    });
+    assertFalse(m1.hasKey("two"));
+    assertEquals(7, m1.get("seven").intValue());
+    assertEquals(33, m1.get("three").intValue());
+    assertEquals(5, m1.size());
+
+    // a batch that fails changes nothing
+    try {
+      m1.update(m -> {
+        m.clear();
+        throw new IllegalStateException("abandoned");
+      });
+      fail("exception swallowed");
+    } catch (IllegalStateException e) { }
+    assertEquals(5, m1.size());
+  }
+
+  @Test
+  public void testIteratorsSeeSnapshot() {
+    Iterator<String> keys = m1.keyIterator();
+    Iterator<Map.Entry<String,Integer>> entries = m1.entryIterator();
+    m1.clear();
+    int n = 0;
+    while (keys.hasNext()) {
+      keys.next();
+      n++;
+    }
+    assertEquals(5, n);
+    boolean[] seen = new boolean[5];
+    while (entries.hasNext()) seen[entries.next().getValue()-2] = true;
+    for (boolean b : seen) assertTrue(b);
+    assertFalse(m1.iterator().hasNext());
+  }
+
+  @Test
+  public void testAgainstHashMap() {
+    Random random = new Random(3);
+    CopyOnWriteHashMap<Integer,Integer> m = new CopyOnWriteHashMap<>();
+    HashMap<Integer,Integer> reference = new HashMap<>();
+    for (int i = 0; i < 20000; i++) {
+      Integer key = random.nextInt(500);
+      if (random.nextInt(3) == 0) {
+        m.delete(key);
+        reference.delete(key);
+      }
+      else {
+        Integer value = i;
+        m.insert(key, value);
+        reference.insert(key, value);
+      }
+    }
+    assertEquals(reference.size(), m.size());
+    for (int key = 0; key < 500; key++) assertEquals(reference.get(key), m.get(key));
+    assertTrue(m.isEqual(reference));
+    for (int key = 0; key < 500; key++) m.delete(key);
+    assertTrue(m.isEmpty());
+    assertTrue(m.tableSize() <= 16);  // shrunk from 1024 slots as pairs were deleted
+  }
+
+  @Test
+  public void testReadersSeeWholeBatches() throws InterruptedException {
+    CopyOnWriteHashMap<String,Integer> m = new CopyOnWriteHashMap<>();
+    m.update(draft -> {
+      draft.insert("a", 0);
+      draft.insert("b", 0);
+    });
+    AtomicBoolean torn = new AtomicBoolean();
+    AtomicBoolean done = new AtomicBoolean();
+    Thread[] readers = new Thread[4];
+    for (int r = 0; r < readers.length; r++) {
+      readers[r] = new Thread(() -> {
+        while (!done.get()) {
+          int a = m.get("a");
+          int b = m.get("b");
+          if (b < a) torn.set(true);  // b is written with a; a later read of b is never older
+        }
+      });
+      readers[r].start();
+    }
+    for (int i = 1; i <= 2000; i++) {
+      int version = i;
+      m.update(draft -> {
+        draft.insert("a", version);
+        draft.insert("b", version);
+      });
+    }
+    done.set(true);
+    for (Thread reader : readers) reader.join();
+    assertFalse(torn.get());
+    assertEquals(2000, m.get("a").intValue());
+  }
+}
@@ -0,0 +1,60 @@
+package containers;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ZCountingBloomFilterTest {
+  private CountingBloomFilter<Integer> filter;
+
+  @Before
+  public void setUp() throws Exception {
+    filter = new CountingBloomFilter<>(1000, 0.01);
+  }
+
+  @Test
+  public void testConstructors() {
+    assertEquals(1000, filter.capacity());
+    assertEquals(9586, filter.counterCount());
+    assertEquals(7, filter.hashCount());
+    try {
+      new CountingBloomFilter<Integer>(10, 0);
+      fail("false positive rate of 0 accepted");
+    } catch (IllegalArgumentException e) { }
+  }
+
+  @Test
+  public void testInsertAndDelete() {
+    for (int i = 0; i < 1000; i++) filter.insert(i);
+    assertEquals(1000, filter.size());
+    for (int i = 0; i < 1000; i += 2) assertTrue(filter.delete(i));
+    assertEquals(500, filter.size());
+    for (int i = 1; i < 1000; i += 2) assertTrue(filter.mightContain(i));
+    int falsePositives = 0;
+    for (int i = 0; i < 1000; i += 2) if (filter.mightContain(i)) falsePositives++;
+    assertTrue("false positives "+falsePositives, falsePositives < 20);
+    for (int i = 1; i < 1000; i += 2) filter.delete(i);
+    assertTrue(filter.isEmpty());
+    for (int i = 0; i < 1000; i++) assertFalse(filter.mightContain(i));
+    assertFalse(filter.delete(5));
+  }
+
+  @Test
+  public void testSaturatedCounters() {
+    // an element inserted 20 times saturates its counters, which then never go down
+    for (int i = 0; i < 20; i++) filter.insert(42);
+    for (int i = 0; i < 20; i++) filter.delete(42);
+    assertTrue(filter.mightContain(42));
+    filter.clear();
+    assertFalse(filter.mightContain(42));
+
+    // duplicates below saturation are counted
+    filter.insert(7);
+    filter.insert(7);
+    filter.delete(7);
+    assertTrue(filter.mightContain(7));
+    filter.delete(7);
+    assertFalse(filter.mightContain(7));
+  }
+}
@@ -0,0 +1,210 @@
+package containers;
+
+import static org.junit.Assert.*;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ZCuckooHashtableTest
+{
+  private CuckooHashtable<String,Integer> t;
+
+  @Before
+  public void setUp() throws Exception {
+    t = new CuckooHashtable<>(5);
+    t.insert("one", 1);
+    t.insert("two", 2);
+    t.insert("three", 3);
+    t.insert("four", 4);
+    t.insert("five", 5);
+    t.insert("six", 666);
+    t.insert("seven", 7);
+    t.insert("eight", 8);
+    t.insert("nine", 9);
+    t.insert("ten", 10);
+    t.insert("six", 6);
+    t.insert("eleven", 11);
+    t.insert("twelve", 12);
+    t.insert("thirteen", 13);
+    t.insert("fourteen", 14);
+    t.insert("fifteen", 15);
+  }
+
+  @Test
+  public void testConstructors() {
+    CuckooHashtable<String,Integer> c = new CuckooHashtable<>();
+    assertEquals(CuckooHashtable.DEFAULT_SIZE, c.tableSize());
+    c = new CuckooHashtable<>(0);
+    assertEquals(CuckooHashtable.DEFAULT_SIZE, c.tableSize());
+    c = new CuckooHashtable<>(100);
+    assertEquals(128, c.tableSize());
+    assertEquals(0, c.size());
+    try {
+      new CuckooHashtable<String,Integer>(100, 1.0);
+      fail("load factor of 1 accepted");
+    } catch (IllegalArgumentException e) { }
+  }
+
+  @Test
+  public void testInsertAndGetAndClear() {
+    assertEquals(15, t.size());
+    assertEquals(1, t.get("one").intValue());
+    assertEquals(6, t.get("six").intValue());
+    assertEquals(15, t.get("fifteen").intValue());
+    assertEquals(4, t.get("four").intValue());
+    assertEquals(11, t.get("eleven").intValue());
+    assertEquals(null, t.get("red"));
+    assertTrue(15 < t.tableSize());
+
+    t.clear();
+    assertEquals(0,  t.size());
+    assertEquals(0,  t.stashSize());
+    assertEquals(null, t.get("one"));
+    assertEquals(null, t.get("six"));
+    assertEquals(null, t.get("fifteen"));
+  }
+
+  @Test
+  public void testDelete() {
+    assertTrue(t.delete("six"));
+    assertEquals(null, t.get("six"));
+    assertEquals(14, t.size());
+    assertFalse(t.delete("six"));
+    assertEquals(14, t.size());
+    t.delete("fifteen");
+    t.delete("five");
+    t.delete("one");
+    t.delete("two");
+    t.delete("three");
+    t.delete("four");
+    t.delete("seven");
+    assertEquals(7, t.size());
+    assertEquals(null, t.get("five"));
+    assertEquals(8, t.get("eight").intValue());
+    assertEquals(9, t.get("nine").intValue());
+    assertEquals(10, t.get("ten").intValue());
+    assertEquals(11, t.get("eleven").intValue());
+    assertEquals(12, t.get("twelve").intValue());
+    assertEquals(13, t.get("thirteen").intValue());
+    assertEquals(14, t.get("fourteen").intValue());
+  }
+
+  @Test
+  public void testHighLoad() {
+    // fill to just under a 0.95 load factor without expanding
+    CuckooHashtable<Integer,Integer> c = new CuckooHashtable<>(4096, 0.95);
+    int n = (int)(4096*0.95) - 1;
+    for (int i = 0; i < n; i++) c.insert(i*7919, i);
+    assertEquals(4096, c.tableSize());
+    assertEquals(n, c.size());
+    assertTrue(c.stashSize() <= CuckooHashtable.STASH_SIZE);
+    for (int i = 0; i < n; i++) assertEquals(i, c.get(i*7919).intValue());
+    for (int i = 0; i < n; i += 2) c.delete(i*7919);
+    for (int i = 0; i < n; i++)
+      assertEquals(i % 2 == 0 ? null : Integer.valueOf(i), c.get(i*7919));
+    c.insert(-1, -1);
+    assertEquals(4096, c.tableSize());
+  }
+
+  /*
+   * Keys that all have the same hash code.
+   */
+  private static class CollidingKey implements Comparable<CollidingKey> {
+    private int id;
+    public CollidingKey(int i) { id = i; }
+    @Override
+    public int hashCode() { return 42; }
+    @Override
+    public int compareTo(CollidingKey other) { return Integer.compare(id, other.id); }
+  }
+
+  @Test
+  public void testCollidingKeys() {
+    // identical hash codes share two buckets and the stash, so the rest must overflow
+    CuckooHashtable<CollidingKey,Integer> c = new CuckooHashtable<>();
+    for (int i = 0; i < 100; i++) c.insert(new CollidingKey(i), i);
+    assertEquals(100, c.size());
+    assertEquals(CuckooHashtable.STASH_SIZE, c.stashSize());
+    assertEquals(100 - 2*CuckooHashtable.BUCKET_SIZE - CuckooHashtable.STASH_SIZE, c.overflowSize());
+    assertTrue(c.tableSize() < 1000);
+    assertEquals(Integer.valueOf(99), c.insert(new CollidingKey(99), 990));
+    assertEquals(990, c.compute(new CollidingKey(99), (k, v) -> v).intValue());
+    assertEquals(100, c.size());
+    int n = 0;
+    for (Iterator<CollidingKey> iter = c.keyIterator(); iter.hasNext(); iter.next()) n++;
+    assertEquals(100, n);
+    for (int i = 0; i < 100; i += 2) c.delete(new CollidingKey(i));
+    assertEquals(50, c.size());
+    for (int i = 0; i < 99; i++)
+      assertEquals(i % 2 == 0 ? null : Integer.valueOf(i), c.get(new CollidingKey(i)));
+    assertEquals(50, c.copy().size());
+  }
+
+  @Test
+  public void testStashStaysSmall() {
+    // at a 0.95 load factor failed placements rebuild the table rather than grow the stash
+    CuckooHashtable<Integer,Integer> c = new CuckooHashtable<>(16, 0.95);
+    Random random = new Random(11);
+    int[] keys = new int[200000];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = random.nextInt();
+      c.insert(keys[i], i);
+      assertTrue(c.stashSize() <= CuckooHashtable.STASH_SIZE);
+    }
+    assertEquals(0, c.overflowSize());
+    for (int i = 0; i < keys.length; i++) assertTrue(c.get(keys[i]) != null);
+  }
+
+  @Test
+  public void testIteratorsAndVisit() {
+    boolean[] seen = new boolean[15];
+    for (Integer v : t) seen[v-1] = true;
+    for (boolean b : seen) assertTrue(b);
+
+    seen = new boolean[15];
+    Iterator<String> iter = t.keyIterator();
+    while (iter.hasNext()) seen[t.get(iter.next())-1] = true;
+    for (boolean b : seen) assertTrue(b);
+
+    seen = new boolean[15];
+    Iterator<Map.Entry<String,Integer>> entries = t.entryIterator();
+    while (entries.hasNext()) {
+      Map.Entry<String,Integer> entry = entries.next();
+      assertEquals(t.get(entry.getKey()), entry.getValue());
+      seen[entry.getValue()-1] = true;
+    }
+    for (boolean b : seen) assertTrue(b);
+
+    final boolean[] visited = new boolean[15];
+    t.visit(new Visitor<Integer>() {
+      public void visit(Integer v) { visited[v-1] = true; }
+    });
+    for (boolean b : visited) assertTrue(b);
+  }
+
+  @Test
+  public void testUpdateOperations() {
+    assertEquals(Integer.valueOf(1), t.insert("one", 11));
+    assertEquals(Integer.valueOf(11), t.putIfAbsent("one", 1));
+    assertEquals(null, t.putIfAbsent("sixteen", 16));
+    assertEquals(-1, t.getOrDefault("zero", -1).intValue());
+    assertEquals(12, t.compute("one", (k, v) -> v+1).intValue());
+    assertEquals(null, t.compute("two", (k, v) -> null));
+    assertEquals(0, t.compute("zero", (k, v) -> 0).intValue());
+    assertEquals(16, t.size());
+  }
+
+  @Test
+  public void testCopy() {
+    CuckooHashtable<String,Integer> c = t.copy();
+    assertEquals(t.tableSize(), c.tableSize());
+    assertEquals(t.size(), c.size());
+    c.delete("one");
+    assertEquals(1, t.get("one").intValue());
+    assertEquals(null, c.get("one"));
+    assertEquals(14, c.size());
+  }
+}
@@ -0,0 +1,112 @@
+package containers;
+
+import static org.junit.Assert.*;
+
+import java.util.Iterator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ZHashBagTest {
+  private HashBag<String> emptyBag;
+  private HashBag<String> b1;
+
+  @Before
+  public void setUp() throws Exception {
+    emptyBag = new HashBag<>();
+    b1 = new HashBag<>();
+    b1.insert("a");
+    b1.insert("b");
+    b1.insert("b");
+    b1.insert("c", 3);
+  }
+
+  @Test
+  public void testCounts() {
+    assertTrue(emptyBag.isEmpty());
+    assertEquals(0, emptyBag.count("a"));
+    assertEquals(6, b1.size());
+    assertEquals(3, b1.distinct());
+    assertEquals(1, b1.count("a"));
+    assertEquals(2, b1.count("b"));
+    assertEquals(3, b1.count("c"));
+    assertEquals(0, b1.count("d"));
+    assertTrue(b1.contains("c"));
+    assertFalse(b1.contains("d"));
+    b1.insert("d", 0);
+    assertFalse(b1.contains("d"));
+    b1.clear();
+    assertTrue(b1.isEmpty());
+    assertEquals(0, b1.distinct());
+  }
+
+  @Test
+  public void testDelete() {
+    assertTrue(b1.delete("b"));
+    assertEquals(1, b1.count("b"));
+    assertTrue(b1.delete("b"));
+    assertFalse(b1.contains("b"));
+    assertFalse(b1.delete("b"));
+    assertEquals(4, b1.size());
+    assertEquals(3, b1.deleteAll("c"));
+    assertEquals(0, b1.deleteAll("c"));
+    assertEquals(1, b1.size());
+    assertEquals(1, b1.distinct());
+  }
+
+  @Test
+  public void testIterators() {
+    int n = 0;
+    int cs = 0;
+    for (String s : b1) {
+      n++;
+      if (s.equals("c")) cs++;
+    }
+    assertEquals(6, n);
+    assertEquals(3, cs);
+    n = 0;
+    Iterator<String> iter = b1.distinctIterator();
+    while (iter.hasNext()) {
+      iter.next();
+      n++;
+    }
+    assertEquals(3, n);
+    int[] total = new int[1];
+    b1.forEach((s, count) -> total[0] += count);
+    assertEquals(6, total[0]);
+    assertEquals(3, b1.stream().filter("c"::equals).count());
+    assertFalse(emptyBag.iterator().hasNext());
+  }
+
+  @Test
+  public void testIsEqual() {
+    HashBag<String> b2 = new HashBag<>();
+    b2.insert("c", 2);
+    b2.insert("b", 2);
+    b2.insert("a");
+    assertFalse(b1.isEqual(b2));
+    b2.insert("c");
+    assertTrue(b1.isEqual(b2));
+    assertTrue(b2.isEqual(b1));
+    assertTrue(emptyBag.isEqual(new HashBag<>()));
+  }
+
+  @Test
+  public void testLargeCounts() {
+    for (int i = 0; i < 1000; i++) emptyBag.insert("x");
+    assertEquals(1000, emptyBag.count("x"));
+    for (int i = 0; i < 999; i++) assertTrue(emptyBag.delete("x"));
+    assertEquals(1, emptyBag.count("x"));
+    assertEquals(1, emptyBag.size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeCount() {
+    b1.insert("a", -1);
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void testOverflow() {
+    b1.insert("a", Integer.MAX_VALUE);
+  }
+}
@@ -3,6 +3,7 @@ package containers;
 import static org.junit.Assert.*;
 
 import java.util.Iterator;
+import java.util.Spliterator;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -12,12 +13,18 @@ public class ZHashMapTest {
     private HashMap<String,Integer>singletonMap;
     private HashMap<String,Integer>m1;
 
+  /**
+   * Make the maps tested; subclasses override this to run these tests on other schemes.
+   * @return a new empty map
+   */
+  protected HashMap<String,Integer> makeMap() { return new HashMap<>(); }
+
   @Before
   public void setUp() throws Exception {
-    emptyMap = new HashMap<>();
-    singletonMap = new HashMap<>();
+    emptyMap = makeMap();
+    singletonMap = makeMap();
     singletonMap.insert("one", 1);
-    m1 = new HashMap<>();
+    m1 = makeMap();
     m1.insert("two",  2);
     m1.insert("three",3);
     m1.insert("four", 4);
@@ -34,6 +41,34 @@ public class ZHashMapTest {
     assertEquals(Hashtable.DEFAULT_SIZE, m.tableSize());
     m = new HashMap<>(300);
     assertEquals(307, m.tableSize());
+    m = new HashMap<>(300, HashScheme.ROBIN_HOOD);
+    assertEquals(512, m.tableSize());
+    m = new HashMap<>(300, HashScheme.CHAINING, 0.75);
+    assertEquals(512, m.tableSize());
+    m = new HashMap<>(300, HashScheme.ROBIN_HOOD, 0.5);
+    assertEquals(512, m.tableSize());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadLoadFactor() {
+    new HashMap<String,Integer>(300, HashScheme.ROBIN_HOOD, 1.5);
+  }
+
+  @Test
+  public void testRobinHoodScheme() {
+    HashMap<String,Integer> m = new HashMap<>(0, HashScheme.ROBIN_HOOD);
+    m.insert("two",  2);
+    m.insert("three",3);
+    m.insert("four", 4);
+    m.insert("five", 5);
+    m.insert("six",  6);
+    assertEquals(5, m.size());
+    assertTrue(m.isEqual(m1));
+    assertTrue(m1.isEqual(m));
+    m.delete("four");
+    assertFalse(m.hasKey("four"));
+    assertEquals(5, m.get("five").intValue());
+    assertEquals(4, m.size());
   }
 
   @Test
@@ -158,4 +193,151 @@ public class ZHashMapTest {
     assertTrue(emptyMap.isEqual(emptyMap));
   }
 
+  @Test
+  public void testUpdateOperations() {
+    for (HashScheme scheme : HashScheme.values()) {
+      m1 = new HashMap<>(5, scheme);
+      for (String k : new String[] {"two","three","four","five","six"}) m1.insert(k, k.length());
+      m1.insert("two", 2);
+      emptyMap = new HashMap<>(5, scheme);
+      checkUpdateOperations();
+    }
+  }
+
+  @Test
+  public void testTrimAndEnsureCapacity() {
+    for (HashScheme scheme : HashScheme.values()) {
+      HashMap<Integer,Integer> m = new HashMap<>(5, scheme);
+      for (int i = 0; i < 1000; i++) m.insert(i, i);
+      for (int i = 10; i < 1000; i++) m.delete(i);
+      m.trimToSize();
+      assertTrue(m.tableSize() < 100);
+      for (int i = 0; i < 1000; i++) assertEquals(i < 10 ? Integer.valueOf(i) : null, m.get(i));
+      m.ensureCapacity(5000);
+      int size = m.tableSize();
+      for (int i = 10; i < 5000; i++) m.insert(i, i);
+      assertEquals(size, m.tableSize());
+      for (int i = 0; i < 5000; i++) assertEquals(i, m.get(i).intValue());
+    }
+  }
+
+  @Test
+  public void testStatistics() {
+    HashMap<String,Integer> m = new HashMap<>(5, HashScheme.INCREMENTAL_CHAINING);
+    m.setStatisticsEnabled(true);
+    for (int i = 0; i < 100; i++) m.insert("k"+i, i);
+    for (int i = 0; i < 100; i++) m.get("k"+i);
+    HashStatistics stats = m.statistics();
+    assertEquals(100, stats.size());
+    assertEquals(100, stats.gets());
+    assertTrue(0 < stats.resizes());
+
+    // open addressing schemes count probes and resizes but have no chains
+    for (HashScheme scheme : new HashScheme[] {HashScheme.ROBIN_HOOD, HashScheme.SWISS,
+                                               HashScheme.CUCKOO}) {
+      m = new HashMap<>(5, scheme);
+      m.setStatisticsEnabled(true);
+      for (int i = 0; i < 100; i++) m.insert("k"+i, i);
+      for (int i = 0; i < 100; i++) m.get("k"+i);
+      assertNull(m.get("absent"));
+      stats = m.statistics();
+      assertEquals(100, stats.size());
+      assertEquals(100, stats.occupiedBuckets());
+      assertEquals(0, stats.maxChainLength());
+      assertEquals(0, stats.bucketsWithLength(1));
+      assertEquals(101, stats.gets());
+      assertTrue(1 <= stats.averageProbes() && 1 <= stats.maxProbes());
+      assertTrue(0 < stats.resizes());
+      m.setStatisticsEnabled(false);
+      assertEquals(0, m.statistics().gets());
+    }
+  }
+
+  private void checkUpdateOperations() {
+    assertEquals(Integer.valueOf(2), m1.insert("two", 22));
+    assertEquals(null, m1.insert("seven", 7));
+    assertEquals(Integer.valueOf(22), m1.putIfAbsent("two", 2));
+    assertEquals(null, m1.putIfAbsent("eight", 8));
+    assertEquals(7, m1.size());
+    assertEquals(22, m1.getOrDefault("two", 0).intValue());
+    assertEquals(0, m1.getOrDefault("nine", 0).intValue());
+
+    assertEquals(23, m1.compute("two", (k, v) -> v+1).intValue());
+    assertEquals(null, m1.compute("seven", (k, v) -> null));
+    assertFalse(m1.hasKey("seven"));
+    assertEquals(4, m1.compute("four", (k, v) -> v == null ? 0 : v).intValue());
+    assertEquals(9, m1.compute("nine", (k, v) -> v == null ? 9 : v).intValue());
+    assertEquals(null, m1.compute("ten", (k, v) -> null));
+    assertFalse(m1.hasKey("ten"));
+
+    assertEquals(9, m1.computeIfAbsent("nine", k -> 99).intValue());
+    assertEquals(4, m1.computeIfAbsent("zero", k -> k.length()).intValue());
+    assertEquals(null, m1.computeIfAbsent("ten", k -> null));
+    assertFalse(m1.hasKey("ten"));
+    assertEquals(null, m1.computeIfPresent("ten", (k, v) -> 10));
+    assertFalse(m1.hasKey("ten"));
+    assertEquals(90, m1.computeIfPresent("nine", (k, v) -> v*10).intValue());
+    assertEquals(null, m1.computeIfPresent("nine", (k, v) -> null));
+    assertFalse(m1.hasKey("nine"));
+    assertEquals(7, m1.size());
+
+    String[] words = { "a", "b", "a", "c", "b", "a" };
+    for (String w : words) emptyMap.merge(w, 1, Integer::sum);
+    assertEquals(3, emptyMap.size());
+    assertEquals(3, emptyMap.get("a").intValue());
+    assertEquals(2, emptyMap.get("b").intValue());
+    assertEquals(1, emptyMap.get("c").intValue());
+    assertEquals(null, emptyMap.merge("c", 1, (a, b) -> null));
+    assertFalse(emptyMap.hasKey("c"));
+    assertEquals(2, emptyMap.size());
+  }
+
+  @Test
+  public void testEntryIteratorAndForEach() {
+    Iterator<Map.Entry<String,Integer>> iter = emptyMap.entryIterator();
+    assertFalse(iter.hasNext());
+
+    FillArray filler = new FillArray();
+    iter = m1.entryIterator();
+    while (iter.hasNext()) {
+      Map.Entry<String,Integer> entry = iter.next();
+      assertEquals(m1.get(entry.getKey()), entry.getValue());
+      filler.mark(entry.getValue()-2);
+    }
+    assertTrue(filler.isFilled());
+
+    final FillArray pairs = new FillArray();
+    m1.forEach((k, v) -> { if (m1.get(k) == v) pairs.mark(v-2); });
+    assertTrue(pairs.isFilled());
+  }
+
+  @Test
+  public void testSpliterator() {
+    for (HashScheme scheme : HashScheme.values()) {
+      HashMap<Integer,Integer> m = new HashMap<>(0, scheme);
+      long sum = 0;
+      for (int i = 0; i < 20000; i++) {
+        m.insert(i, i);
+        sum += i;
+      }
+      Spliterator<Integer> s = m.spliterator();
+      assertTrue(s.hasCharacteristics(Spliterator.SIZED));
+      assertEquals(20000, s.estimateSize());
+      assertEquals(20000, countBySplitting(m.spliterator()));
+      assertEquals(sum, m.stream().mapToLong(Integer::longValue).sum());
+      assertEquals(sum, m.parallelStream().mapToLong(Integer::longValue).sum());
+      assertEquals(20000, m.parallelStream().distinct().count());
+    }
+  }
+
+  /**
+   * Split a spliterator as far as it goes and count the elements in all the pieces.
+   */
+  private static long countBySplitting(Spliterator<?> spliterator) {
+    Spliterator<?> prefix = spliterator.trySplit();
+    long n = (prefix == null) ? 0 : countBySplitting(prefix);
+    long[] rest = {0};
+    spliterator.forEachRemaining(x -> rest[0]++);
+    return n + rest[0];
+  }
 }
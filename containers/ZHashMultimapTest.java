@@ -0,0 +1,163 @@
+package containers;
+
+import static org.junit.Assert.*;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ZHashMultimapTest {
+  private HashMultimap<String,Integer> emptyMap;
+  private HashMultimap<String,Integer> m1;
+
+  @Before
+  public void setUp() throws Exception {
+    emptyMap = new HashMultimap<>();
+    m1 = new HashMultimap<>();
+    m1.insert("one", 1);
+    m1.insert("two", 2);
+    m1.insert("two", 22);
+    m1.insert("three", 3);
+    m1.insert("three", 33);
+    m1.insert("three", 333);
+  }
+
+  @Test
+  public void testSizes() {
+    assertTrue(emptyMap.isEmpty());
+    assertEquals(0, emptyMap.keyCount());
+    assertEquals(6, m1.size());
+    assertEquals(3, m1.keyCount());
+    assertEquals(1, m1.count("one"));
+    assertEquals(3, m1.count("three"));
+    assertEquals(0, m1.count("four"));
+    m1.clear();
+    assertTrue(m1.isEmpty());
+    assertEquals(0, m1.keyCount());
+  }
+
+  @Test
+  public void testValuesKeepOrder() {
+    for (int i = 0; i < 100; i++) m1.insert("many", i);
+    assertEquals(100, m1.count("many"));
+    Iterator<Integer> values = m1.get("many");
+    for (int i = 0; i < 100; i++) assertEquals(i, values.next().intValue());
+    assertFalse(values.hasNext());
+    values = m1.get("three");
+    assertEquals(3, values.next().intValue());
+    assertEquals(33, values.next().intValue());
+    assertEquals(333, values.next().intValue());
+    assertFalse(values.hasNext());
+    assertFalse(m1.get("none").hasNext());
+    values = m1.get("one");
+    assertEquals(1, values.next().intValue());
+    assertFalse(values.hasNext());
+  }
+
+  @Test
+  public void testDelete() {
+    assertTrue(m1.contains("three", 33));
+    assertTrue(m1.delete("three", 33));
+    assertFalse(m1.contains("three", 33));
+    assertFalse(m1.delete("three", 33));
+    assertEquals(2, m1.count("three"));
+    assertTrue(m1.delete("three", 3));
+    assertEquals(333, m1.get("three").next().intValue());
+    assertTrue(m1.delete("three", 333));
+    assertFalse(m1.hasKey("three"));
+    assertFalse(m1.delete("one", 2));
+    assertTrue(m1.delete("one", 1));
+    assertFalse(m1.hasKey("one"));
+    assertEquals(2, m1.size());
+    assertEquals(2, m1.deleteAll("two"));
+    assertEquals(0, m1.deleteAll("two"));
+    assertTrue(m1.isEmpty());
+  }
+
+  @Test
+  public void testDuplicateValues() {
+    m1.insert("one", 1);
+    assertEquals(2, m1.count("one"));
+    assertTrue(m1.delete("one", 1));
+    assertTrue(m1.contains("one", 1));
+    assertEquals(6, m1.size());
+  }
+
+  @Test
+  public void testIterators() {
+    assertTrue(m1.contains(22));
+    assertFalse(m1.contains(4));
+    int sum = 0;
+    for (int value : m1) sum += value;
+    assertEquals(394, sum);
+    int pairs = 0;
+    Iterator<Map.Entry<String,Integer>> entries = m1.entryIterator();
+    while (entries.hasNext()) {
+      Map.Entry<String,Integer> entry = entries.next();
+      assertTrue(m1.contains(entry.getKey(), entry.getValue()));
+      pairs++;
+    }
+    assertEquals(6, pairs);
+    int[] total = new int[1];
+    m1.forEach((k, v) -> total[0] += v);
+    assertEquals(394, total[0]);
+    assertEquals(394, m1.stream().mapToInt(Integer::intValue).sum());
+    assertFalse(emptyMap.iterator().hasNext());
+  }
+
+  @Test
+  public void testIsEqual() {
+    HashMultimap<String,Integer> m2 = new HashMultimap<>();
+    m2.insert("three", 3);
+    m2.insert("two", 2);
+    m2.insert("three", 33);
+    m2.insert("one", 1);
+    m2.insert("two", 22);
+    assertFalse(m1.isEqual(m2));
+    m2.insert("three", 333);
+    assertTrue(m1.isEqual(m2));
+    assertTrue(m2.isEqual(m1));
+    m2.delete("two", 2);
+    m2.insert("two", 2);
+    assertFalse(m1.isEqual(m2));
+    assertTrue(emptyMap.isEqual(new HashMultimap<>()));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullValue() {
+    m1.insert("one", null);
+  }
+
+  @Test
+  public void testAgainstCounts() {
+    Random random = new Random(5);
+    HashMultimap<Integer,Integer> m = new HashMultimap<>();
+    int[][] counts = new int[50][10];
+    int size = 0;
+    for (int i = 0; i < 20000; i++) {
+      int key = random.nextInt(50);
+      int value = random.nextInt(10);
+      if (random.nextInt(3) == 0) {
+        assertEquals(0 < counts[key][value], m.delete(key, value));
+        if (0 < counts[key][value]) {
+          counts[key][value]--;
+          size--;
+        }
+      }
+      else {
+        m.insert(key, value);
+        counts[key][value]++;
+        size++;
+      }
+    }
+    assertEquals(size, m.size());
+    for (int key = 0; key < 50; key++) {
+      int n = 0;
+      for (int value = 0; value < 10; value++) n += counts[key][value];
+      assertEquals(n, m.count(key));
+      assertEquals(0 < n, m.hasKey(key));
+    }
+  }
+}
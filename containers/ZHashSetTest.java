@@ -2,6 +2,8 @@ package containers;
 
 import static org.junit.Assert.*;
 
+import java.util.Spliterator;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -52,6 +54,21 @@ public class ZHashSetTest {
     assertEquals(Hashtable.DEFAULT_SIZE, s.tableSize());
     s = new HashSet<>(120);
     assertEquals(127, s.tableSize());
+    s = new HashSet<>(120, HashScheme.ROBIN_HOOD);
+    assertEquals(128, s.tableSize());
+  }
+
+  @Test
+  public void testRobinHoodScheme() {
+    HashSet<Integer> s = new HashSet<>(0, HashScheme.ROBIN_HOOD);
+    for (int i = 1; i <= 12; i++) s.insert(i);
+    assertEquals(12, s.size());
+    assertTrue(s.isEqual(s1));
+    assertTrue(s2.isSubset(s));
+    s.delete(7);
+    assertFalse(s.contains(7));
+    assertTrue(s.contains(8));
+    assertEquals(11, s.size());
   }
 
   @Test
@@ -171,4 +188,111 @@ public class ZHashSetTest {
     assertEquals("[1,3,5,7,9,11]", s1.complement(s3).toString());
     assertEquals("[3,5,7,11]", s2.complement(s3).toString());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testInPlaceOperations() {
+    s1.retainAll(s2);
+    assertEquals("[2,3,5,7,11]", s1.toString());
+    s1.retainAll(s3);
+    assertEquals("[2]", s1.toString());
+    s1.addAll(s3);
+    assertEquals("[2,4,6,8,10,12]", s1.toString());
+    s1.addAll(emptySet);
+    assertEquals(6, s1.size());
+    s1.removeAll(singletonSet);
+    assertEquals(6, s1.size());
+    s1.removeAll(s2);
+    assertEquals("[4,6,8,10,12]", s1.toString());
+    s3.removeAll(s1);
+    assertEquals("[2]", s3.toString());
+    s3.retainAll(emptySet);
+    assertTrue(s3.isEmpty());
+  }
+
+  @Test
+  public void testLargeSetAlgebra() {
+    for (HashScheme scheme : HashScheme.values()) {
+      HashSet<Integer> big = new HashSet<>(0, scheme);
+      HashSet<Integer> evens = new HashSet<>(0, scheme);
+      for (int i = 0; i < 10000; i++) {
+        big.insert(i);
+        if (i % 2 == 0) evens.insert(i);
+      }
+      Set<Integer> both = big.intersection(evens);
+      assertEquals(5000, both.size());
+      assertTrue(both.isEqual(evens));
+      assertTrue(evens.isSubset(big));
+      assertFalse(big.isSubset(evens));
+      Set<Integer> odds = big.complement(evens);
+      assertEquals(5000, odds.size());
+      assertFalse(odds.contains(0));
+      assertTrue(odds.contains(9999));
+      assertEquals(10000, odds.union(evens).size());
+      assertTrue(evens.complement(big).isEmpty());
+
+      // results are presized for both operands rather than grown from the default size
+      if (scheme == HashScheme.CHAINING)
+        assertEquals(3001, ((HashSet<Integer>)big.union(evens)).tableSize());
+
+      big.retainAll(evens);
+      assertTrue(big.isEqual(evens));
+      big.removeAll(evens);
+      assertTrue(big.isEmpty());
+    }
+  }
+
+  @Test
+  public void testFilteredSet() {
+    for (HashScheme scheme : HashScheme.values()) {
+      HashSet<Integer> set = new HashSet<>(0, scheme);
+      for (int i = 0; i < 100; i++) set.insert(i);
+      assertFalse(set.isFiltered());
+      set.setFilter(0.01);
+      assertTrue(set.isFiltered());
+      for (int i = 0; i < 100; i++) assertTrue(set.contains(i));
+      assertFalse(set.contains(-1));
+
+      // the filter grows with the set and follows insertions and deletions
+      for (int i = 100; i < 5000; i++) set.insert(i);
+      for (int i = 0; i < 5000; i += 2) set.delete(i);
+      set.delete(-1);
+      set.insert(1);
+      assertEquals(2500, set.size());
+      for (int i = 0; i < 5000; i++) assertEquals(i % 2 == 1, set.contains(i));
+      for (int i = 0; i < 5000; i += 2) set.insert(i);
+      for (int i = 0; i < 5000; i++) assertTrue(set.contains(i));
+
+      HashSet<Integer> evens = new HashSet<>();
+      for (int i = 0; i < 100; i += 2) evens.insert(i);
+      set.retainAll(evens);
+      assertTrue(set.isEqual(evens));
+      assertTrue(set.contains(98));
+      assertFalse(set.contains(99));
+      set.clear();
+      assertFalse(set.contains(0));
+      set.insert(0);
+      assertTrue(set.contains(0));
+      set.setFilter(0);
+      assertFalse(set.isFiltered());
+      assertTrue(set.contains(0));
+    }
+    try {
+      new HashSet<Integer>().setFilter(1.5);
+      fail("false positive rate of 1.5 accepted");
+    } catch (IllegalArgumentException e) { }
+  }
+
+  @Test
+  public void testStream() {
+    for (HashScheme scheme : HashScheme.values()) {
+      HashSet<Integer> set = new HashSet<>(0, scheme);
+      for (int i = 0; i < 10000; i++) set.insert(i);
+      Spliterator<Integer> s = set.spliterator();
+      assertTrue(s.hasCharacteristics(Spliterator.SIZED | Spliterator.DISTINCT));
+      assertEquals(10000, s.estimateSize());
+      assertEquals(5000, set.parallelStream().filter(x -> x % 2 == 0).count());
+      assertEquals(49995000L, set.parallelStream().mapToLong(Integer::longValue).sum());
+    }
+    assertEquals(0, emptySet.stream().count());
+  }
+}
@@ -77,10 +77,10 @@ public class ZHashtableTest
     t.insert("fourteen", 14);
     t.insert("fifteen", 15);
     
-    t.delete("six");
+    assertTrue(t.delete("six"));
     assertEquals(null, t.get("six"));
     assertEquals(14, t.size());
-    t.delete("six");
+    assertFalse(t.delete("six"));
     assertEquals(null, t.get("six"));
     assertEquals(14, t.size());
     t.delete("fifteen");
@@ -249,4 +249,351 @@ public class ZHashtableTest
     assertEquals(20, t.get("twenty").intValue());
     assertEquals(26, t.get("twenty-six").intValue());
   }
+
+  @Test
+  public void testIncrementalExpansion() {
+    Hashtable<Integer,Integer> t = new Hashtable<>(5, true);
+    boolean sawRehashing = false;
+    for (int i = 0; i < 1000; i++) {
+      t.insert(i, i);
+      if (t.isRehashing()) {
+        sawRehashing = true;
+        for (int k = 0; k <= i; k++) assertEquals(k, t.get(k).intValue());
+        FillCount counter = new FillCount(i+1);
+        t.visit(counter);
+        assertTrue(counter.isFilled());
+        counter = new FillCount(i+1);
+        Iterator<Integer> iter = t.keyIterator();
+        while (iter.hasNext()) counter.visit(t.get(iter.next()));
+        assertTrue(counter.isFilled());
+      }
+    }
+    assertTrue(sawRehashing);
+    assertEquals(1000, t.size());
+    for (int i = 0; i < 1000; i += 2) t.delete(i);
+    assertEquals(500, t.size());
+    for (int i = 0; i < 1000; i++)
+      assertEquals(i % 2 == 0 ? null : Integer.valueOf(i), t.get(i));
+
+    Hashtable<Integer,Integer> c = t.copy();
+    assertEquals(500, c.size());
+    t.clear();
+    assertFalse(t.isRehashing());
+    assertEquals(null, t.get(1));
+  }
+
+  @Test
+  public void testIncrementalExpansionKeepsUp() {
+    // with a small load factor the table grows after few insertions, so each has to move
+    // many buckets for the old table to be empty by then
+    Hashtable<Integer,Integer> t = new Hashtable<>(1024, 0.1, true);
+    int resizes = 0;
+    for (int i = 0; i < 20000; i++) {
+      boolean wasRehashing = t.isRehashing();
+      int size = t.tableSize();
+      t.insert(i, i);
+      if (t.tableSize() != size) {
+        assertFalse(wasRehashing);
+        resizes++;
+      }
+    }
+    assertTrue(4 <= resizes);
+    for (int i = 0; i < 20000; i++) assertEquals(i, t.get(i).intValue());
+
+    // lookups move buckets too, so a map that is only read finishes rehashing
+    while (!t.isRehashing()) t.insert(t.size(), 0);
+    int lookups = 0;
+    while (t.isRehashing()) {
+      t.get(lookups++);
+      assertTrue(lookups < t.tableSize());
+    }
+    assertEquals(0, t.get(0).intValue());
+  }
+
+  private class FillCount implements Visitor<Integer> {
+    private boolean[] numbers;
+    public FillCount(int n) { numbers = new boolean[n]; }
+
+    @Override
+    public void visit(Integer value) {
+      assertFalse(numbers[value.intValue()]);
+      numbers[value.intValue()] = true;
+    }
+
+    public boolean isFilled() {
+      for (int i = 0; i < numbers.length; i++) if (!numbers[i]) { return false; }
+      return true;
+    }
+  }
+
+  /*
+   * Keys that all hash to the same bucket.
+   */
+  private static class CollidingKey implements Comparable<CollidingKey> {
+    private int id;
+    public CollidingKey(int i) { id = i; }
+    @Override
+    public int hashCode() { return 42; }
+    @Override
+    public int compareTo(CollidingKey other) { return Integer.compare(id, other.id); }
+  }
+
+  @Test
+  public void testTreeBins() {
+    for (boolean incremental : new boolean[] {false, true}) {
+      Hashtable<CollidingKey,Integer> t = new Hashtable<>(5, incremental);
+      for (int i = 0; i < 200; i++) t.insert(new CollidingKey(i), i);
+      t.insert(new CollidingKey(7), 700);
+      assertEquals(200, t.size());
+      assertEquals(700, t.get(new CollidingKey(7)).intValue());
+      for (int i = 8; i < 200; i++) assertEquals(i, t.get(new CollidingKey(i)).intValue());
+      assertEquals(null, t.get(new CollidingKey(200)));
+
+      FillCount counter = new FillCount(200);
+      Iterator<CollidingKey> iter = t.keyIterator();
+      while (iter.hasNext()) counter.visit(iter.next().id);
+      assertTrue(counter.isFilled());
+
+      // shrink the bucket back to a chain and keep going
+      for (int i = 0; i < 195; i++) t.delete(new CollidingKey(i));
+      t.delete(new CollidingKey(0));
+      assertEquals(5, t.size());
+      for (int i = 195; i < 200; i++) assertEquals(i, t.get(new CollidingKey(i)).intValue());
+      t.insert(new CollidingKey(0), 0);
+      assertEquals(6, t.size());
+      assertEquals(0, t.get(new CollidingKey(0)).intValue());
+      assertEquals(6, t.copy().size());
+    }
+  }
+
+  @Test
+  public void testTreeBinsSurviveResizing() {
+    for (boolean incremental : new boolean[] {false, true}) {
+      Hashtable<CollidingKey,Integer> t = new Hashtable<>(5, incremental);
+      t.setStatisticsEnabled(true);
+      for (int i = 0; i < 24; i++) t.insert(new CollidingKey(i), i);
+      t.ensureCapacity(1000);
+      while (t.isRehashing()) t.delete(new CollidingKey(-1));
+      for (int i = 0; i < 24; i++) assertEquals(i, t.get(new CollidingKey(i)).intValue());
+      HashStatistics stats = t.statistics();
+      assertEquals(1, stats.resizes());
+      assertTrue(stats.maxProbes() <= 7);  // a tree's height, not a 24 entry chain
+    }
+  }
+
+  @Test
+  public void testPowerOfTwoSizing() {
+    Hashtable<Integer,Integer> t = new Hashtable<>(100, 0.75, false);
+    assertEquals(128, t.tableSize());
+    t = new Hashtable<>(0, 0.75, false);
+    assertEquals(16, t.tableSize());
+    for (int i = 0; i < 12; i++) t.insert(i, i);
+    assertEquals(16, t.tableSize());
+    t.insert(12, 12);
+    assertEquals(32, t.tableSize());
+    for (int i = 13; i < 1000; i++) t.insert(i*64, i);
+    assertEquals(2048, t.tableSize());
+    for (int i = 0; i < 13; i++) assertEquals(i, t.get(i).intValue());
+    for (int i = 13; i < 1000; i++) assertEquals(i, t.get(i*64).intValue());
+    t.delete(64*500);
+    assertEquals(null, t.get(64*500));
+    assertEquals(999, t.size());
+    Hashtable<Integer,Integer> c = t.copy();
+    assertEquals(t.tableSize(), c.tableSize());
+    assertEquals(501, c.get(64*501).intValue());
+  }
+
+  @Test
+  public void testMinValueHashCode() {
+    Hashtable<Integer,Integer> t = new Hashtable<>();
+    t.insert(Integer.MIN_VALUE, 1);
+    assertEquals(1, t.get(Integer.MIN_VALUE).intValue());
+    t = new Hashtable<>(0, 2.0, true);
+    t.insert(Integer.MIN_VALUE, 2);
+    assertEquals(2, t.get(Integer.MIN_VALUE).intValue());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadLoadFactor() {
+    new Hashtable<String,Integer>(10, 0.0, false);
+  }
+
+  /*
+   * Keys that count calls to hashCode() and compareTo().
+   */
+  private static class CountingKey implements Comparable<CountingKey> {
+    static int hashCalls = 0;
+    static int compareCalls = 0;
+    private int id;
+    public CountingKey(int i) { id = i; }
+    @Override
+    public int hashCode() { hashCalls++; return id; }
+    @Override
+    public int compareTo(CountingKey other) { compareCalls++; return Integer.compare(id, other.id); }
+  }
+
+  @Test
+  public void testSavedHashCodes() {
+    Hashtable<CountingKey,Integer> t = new Hashtable<>(5);
+    CountingKey.hashCalls = 0;
+    for (int i = 0; i < 1000; i++) t.insert(new CountingKey(i), i);
+    assertTrue(29 < t.tableSize());
+    assertEquals(1000, CountingKey.hashCalls);
+
+    // keys 0..999 have distinct hash codes, so only the matching key is compared
+    CountingKey.compareCalls = 0;
+    for (int i = 0; i < 1000; i++) assertEquals(i, t.get(new CountingKey(i)).intValue());
+    assertEquals(1000, CountingKey.compareCalls);
+  }
+
+  @Test
+  public void testUpdateOperations() {
+    for (boolean incremental : new boolean[] {false, true}) {
+      Hashtable<CollidingKey,Integer> t = new Hashtable<>(5, incremental);
+      for (int i = 0; i < 100; i++) assertEquals(null, t.insert(new CollidingKey(i), i));
+      assertEquals(Integer.valueOf(7), t.insert(new CollidingKey(7), 700));
+      assertEquals(Integer.valueOf(700), t.putIfAbsent(new CollidingKey(7), 7));
+      assertEquals(null, t.putIfAbsent(new CollidingKey(100), 100));
+      assertEquals(-1, t.getOrDefault(new CollidingKey(101), -1).intValue());
+      assertEquals(100, t.getOrDefault(new CollidingKey(100), -1).intValue());
+
+      // compute in a tree bin: replace, remove, add, and leave absent
+      for (int i = 0; i < 101; i++) t.compute(new CollidingKey(i), (k, v) -> v+1);
+      assertEquals(101, t.get(new CollidingKey(100)).intValue());
+      for (int i = 0; i < 101; i += 2) assertEquals(null, t.compute(new CollidingKey(i), (k, v) -> null));
+      assertEquals(50, t.size());
+      assertEquals(5, t.compute(new CollidingKey(200), (k, v) -> v == null ? 5 : v).intValue());
+      assertEquals(null, t.compute(new CollidingKey(201), (k, v) -> null));
+      assertEquals(51, t.size());
+
+      // compute in chains, during incremental expansion
+      Hashtable<Integer,Integer> u = new Hashtable<>(5, incremental);
+      for (int i = 0; i < 500; i++) u.compute(i % 50, (k, v) -> v == null ? 1 : v+1);
+      assertEquals(50, u.size());
+      for (int i = 0; i < 50; i++) assertEquals(10, u.get(i).intValue());
+      for (int i = 0; i < 50; i += 5) u.compute(i, (k, v) -> null);
+      assertEquals(40, u.size());
+      assertEquals(null, u.get(5));
+    }
+  }
+
+  @Test
+  public void testEntriesAndDirectCopy() {
+    for (boolean incremental : new boolean[] {false, true}) {
+      Hashtable<CountingKey,Integer> t = new Hashtable<>(5, incremental);
+      for (int i = 0; i < 100; i++) t.insert(new CountingKey(i % 3 == 0 ? i : 1000+i), i);
+
+      // entries, forEach, and copy never hash or compare keys
+      CountingKey.hashCalls = 0;
+      CountingKey.compareCalls = 0;
+      FillCount counter = new FillCount(100);
+      Iterator<Map.Entry<CountingKey,Integer>> iter = t.entryIterator();
+      while (iter.hasNext()) counter.visit(iter.next().getValue());
+      assertTrue(counter.isFilled());
+      final FillCount pairs = new FillCount(100);
+      t.forEach((k, v) -> { if (k.id == (v % 3 == 0 ? v : 1000+v)) pairs.visit(v); });
+      assertTrue(pairs.isFilled());
+      Hashtable<CountingKey,Integer> c = t.copy();
+      assertEquals(0, CountingKey.hashCalls);
+      assertEquals(0, CountingKey.compareCalls);
+
+      assertEquals(t.tableSize(), c.tableSize());
+      assertEquals(t.isRehashing(), c.isRehashing());
+      assertEquals(t.toString(), c.toString());
+      c.insert(new CountingKey(0), -1);
+      c.delete(new CountingKey(3));
+      assertEquals(0, t.get(new CountingKey(0)).intValue());
+      assertEquals(3, t.get(new CountingKey(3)).intValue());
+      assertEquals(99, c.size());
+    }
+
+    // copy a table with tree bins, then change the copy
+    Hashtable<CollidingKey,Integer> t = new Hashtable<>(5);
+    for (int i = 0; i < 100; i++) t.insert(new CollidingKey(i), i);
+    Hashtable<CollidingKey,Integer> c = t.copy();
+    for (int i = 0; i < 95; i++) c.delete(new CollidingKey(i));
+    assertEquals(5, c.size());
+    assertEquals(100, t.size());
+    for (int i = 0; i < 100; i++) assertEquals(i, t.get(new CollidingKey(i)).intValue());
+    for (int i = 95; i < 100; i++) assertEquals(i, c.get(new CollidingKey(i)).intValue());
+  }
+
+  @Test
+  public void testShrinkAndTrim() {
+    for (boolean incremental : new boolean[] {false, true}) {
+      // power of two tables halve when a quarter as full as they would be after halving
+      Hashtable<Integer,Integer> t = new Hashtable<>(0, 0.75, incremental);
+      for (int i = 0; i < 1000; i++) t.insert(i, i);
+      assertEquals(2048, t.tableSize());
+      for (int i = 10; i < 1000; i++) t.delete(i);
+      assertEquals(64, t.tableSize());
+      for (int i = 0; i < 1000; i++) assertEquals(i < 10 ? Integer.valueOf(i) : null, t.get(i));
+      t.trimToSize();
+      assertEquals(16, t.tableSize());
+      t.ensureCapacity(1000);
+      assertEquals(2048, t.tableSize());
+      for (int i = 10; i < 1000; i++) t.insert(i, i);
+      assertEquals(2048, t.tableSize());
+      for (int i = 0; i < 1000; i++) assertEquals(i, t.get(i).intValue());
+      t.clear();
+      assertEquals(16, t.tableSize());
+      assertEquals(null, t.get(0));
+
+      // prime tables never shrink below the size they were made with
+      t = new Hashtable<>(Hashtable.DEFAULT_SIZE, incremental);
+      for (int i = 0; i < 1000; i++) t.insert(i, i);
+      assertTrue(Hashtable.DEFAULT_SIZE < t.tableSize());
+      for (int i = 0; i < 1000; i++) t.compute(i, (k, v) -> k < 10 ? v : null);
+      assertEquals(Hashtable.DEFAULT_SIZE, t.tableSize());
+      assertEquals(10, t.size());
+      for (int i = 0; i < 10; i++) assertEquals(i, t.get(i).intValue());
+    }
+  }
+
+  @Test
+  public void testStatistics() {
+    Hashtable<Integer,Integer> t = new Hashtable<>(16, 1.0, false);
+    for (int i = 0; i < 16; i++) t.insert(i, i);
+    assertFalse(t.isStatisticsEnabled());
+    HashStatistics stats = t.statistics();
+    assertEquals(16, stats.tableSize());
+    assertEquals(16, stats.size());
+    int buckets = 0, pairs = 0;
+    for (int i = 0; i <= stats.maxChainLength(); i++) {
+      buckets += stats.bucketsWithLength(i);
+      pairs += i*stats.bucketsWithLength(i);
+    }
+    assertEquals(16, buckets);
+    assertEquals(16, pairs);
+    assertEquals(16 - stats.bucketsWithLength(0), stats.occupiedBuckets());
+    assertEquals(0, stats.gets());
+
+    // lookups and resizes are counted only while statistics are enabled
+    t.setStatisticsEnabled(true);
+    for (int i = 0; i < 10; i++) assertEquals(i, t.get(i).intValue());
+    assertEquals(null, t.get(-1));
+    t.insert(16, 16);
+    stats = t.statistics();
+    assertEquals(11, stats.gets());
+    assertTrue(10.0/11 <= stats.averageProbes());
+    assertTrue(1 <= stats.maxProbes() && stats.maxProbes() <= 16);
+    assertEquals(1, stats.resizes());
+    assertEquals(32, stats.tableSize());
+    t.setStatisticsEnabled(false);
+    t.get(0);
+    assertEquals(0, t.statistics().gets());
+    assertEquals(0, t.statistics().resizes());
+
+    // colliding keys share one bucket, which becomes a tree
+    Hashtable<CollidingKey,Integer> c = new Hashtable<>(5);
+    c.setStatisticsEnabled(true);
+    for (int i = 0; i < 100; i++) c.insert(new CollidingKey(i), i);
+    for (int i = 0; i < 100; i++) c.get(new CollidingKey(i));
+    stats = c.statistics();
+    assertEquals(1, stats.occupiedBuckets());
+    assertEquals(100, stats.maxChainLength());
+    assertEquals(100.0, stats.averageChainLength(), 0.0);
+    assertTrue(stats.maxProbes() < 10);
+    assertTrue(stats.toString().contains("chain lengths 0:"+(stats.tableSize()-1)+" 100:1"));
+  }
 }
@@ -0,0 +1,103 @@
+package containers;
+
+import static org.junit.Assert.*;
+
+import java.util.PrimitiveIterator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ZIntHashMapTest {
+  private IntHashMap<String> emptyMap;
+  private IntHashMap<String> m1;
+
+  @Before
+  public void setUp() throws Exception {
+    emptyMap = new IntHashMap<>();
+    m1 = new IntHashMap<>();
+    m1.insert(0, "zero");
+    m1.insert(2, "two");
+    m1.insert(3, "three");
+    m1.insert(-4, "minus four");
+    m1.insert(5, "five");
+  }
+
+  @Test
+  public void testConstructors() {
+    assertEquals(IntHashMap.DEFAULT_SIZE, emptyMap.tableSize());
+    assertEquals(IntHashMap.DEFAULT_SIZE, new IntHashMap<String>(0).tableSize());
+    assertEquals(512, new IntHashMap<String>(300).tableSize());
+    assertTrue(emptyMap.isEmpty());
+  }
+
+  @Test
+  public void testInsertAndGet() {
+    assertEquals(5, m1.size());
+    assertEquals("zero", m1.get(0));
+    assertEquals("two", m1.get(2));
+    assertEquals("minus four", m1.get(-4));
+    assertEquals(null, m1.get(7));
+    assertEquals(null, emptyMap.get(0));
+    m1.insert(2, "deux");
+    assertEquals("deux", m1.get(2));
+    assertEquals(5, m1.size());
+    assertTrue(m1.hasKey(0));
+    assertFalse(m1.hasKey(1));
+    assertFalse(emptyMap.hasKey(0));
+  }
+
+  @Test
+  public void testDeleteAndClear() {
+    m1.delete(0);
+    assertFalse(m1.hasKey(0));
+    assertEquals(4, m1.size());
+    m1.delete(0);
+    assertEquals(4, m1.size());
+    m1.delete(3);
+    assertEquals(null, m1.get(3));
+    assertEquals("five", m1.get(5));
+    assertEquals(3, m1.size());
+    m1.clear();
+    assertTrue(m1.isEmpty());
+    assertEquals(null, m1.get(2));
+  }
+
+  @Test
+  public void testGrowthAndCollisions() {
+    IntHashMap<Integer> m = new IntHashMap<>();
+    for (int i = 0; i < 10000; i++) m.insert(i*1024, i);
+    assertEquals(10000, m.size());
+    for (int i = 0; i < 10000; i += 3) m.delete(i*1024);
+    for (int i = 0; i < 10000; i++) {
+      if (i % 3 == 0) assertFalse(m.hasKey(i*1024));
+      else            assertEquals(i, m.get(i*1024).intValue());
+    }
+  }
+
+  @Test
+  public void testIterators() {
+    boolean[] seen = new boolean[10];
+    PrimitiveIterator.OfInt iter = m1.keyIterator();
+    while (iter.hasNext()) seen[iter.nextInt()+4] = true;
+    assertTrue(seen[0] && seen[4] && seen[6] && seen[7] && seen[9]);
+    int n = 0;
+    for (String s : m1) if (m1.contains(s)) n++;
+    assertEquals(5, n);
+    assertFalse(emptyMap.iterator().hasNext());
+  }
+
+  @Test
+  public void testIsEqual() {
+    IntHashMap<String> m = new IntHashMap<>();
+    PrimitiveIterator.OfInt iter = m1.keyIterator();
+    while (iter.hasNext()) {
+      int key = iter.nextInt();
+      m.insert(key, m1.get(key));
+    }
+    assertTrue(m.isEqual(m1));
+    assertTrue(m1.isEqual(m));
+    assertFalse(m1.isEqual(emptyMap));
+    m.insert(0, "nothing");
+    assertFalse(m1.isEqual(m));
+  }
+}
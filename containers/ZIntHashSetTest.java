@@ -0,0 +1,93 @@
+package containers;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ZIntHashSetTest {
+  private IntHashSet emptySet;
+  private IntHashSet s1;
+  private IntHashSet s2;
+
+  @Before
+  public void setUp() throws Exception {
+    emptySet = new IntHashSet();
+    s1 = new IntHashSet();
+    s2 = new IntHashSet();
+    for (int i = 0; i <= 12; i++) s1.insert(i);
+    s2.insert(2);
+    s2.insert(3);
+    s2.insert(5);
+    s2.insert(7);
+    s2.insert(11);
+    s2.insert(-13);
+  }
+
+  @Test
+  public void testConstructors() {
+    assertEquals(IntHashSet.DEFAULT_SIZE, emptySet.tableSize());
+    assertEquals(128, new IntHashSet(120).tableSize());
+  }
+
+  @Test
+  public void testCollectionMethods() {
+    assertTrue(emptySet.isEmpty());
+    assertEquals(13, s1.size());
+    assertEquals(6, s2.size());
+    assertTrue(s1.contains(0));
+    assertTrue(s1.contains(12));
+    assertFalse(s1.contains(13));
+    assertTrue(s2.contains(-13));
+    s1.insert(12);
+    assertEquals(13, s1.size());
+    s1.clear();
+    assertTrue(s1.isEmpty());
+    assertFalse(s1.contains(0));
+  }
+
+  @Test
+  public void testDelete() {
+    s1.delete(0);
+    assertFalse(s1.contains(0));
+    assertEquals(12, s1.size());
+    s1.delete(7);
+    s1.delete(7);
+    assertFalse(s1.contains(7));
+    assertTrue(s1.contains(8));
+    assertEquals(11, s1.size());
+    IntHashSet s = new IntHashSet();
+    for (int i = 0; i < 5000; i++) s.insert(i << 12);
+    for (int i = 0; i < 5000; i += 2) s.delete(i << 12);
+    assertEquals(2500, s.size());
+    for (int i = 0; i < 5000; i++) assertEquals(i % 2 == 1, s.contains(i << 12));
+  }
+
+  @Test
+  public void testIterator() {
+    boolean[] seen = new boolean[13];
+    java.util.PrimitiveIterator.OfInt iter = s1.iterator();
+    while (iter.hasNext()) seen[iter.nextInt()] = true;
+    for (boolean b : seen) assertTrue(b);
+    assertEquals("[]", emptySet.toString());
+  }
+
+  @Test
+  public void testSetOperations() {
+    IntHashSet i = s1.intersection(s2);
+    assertEquals(5, i.size());
+    assertTrue(i.isSubset(s1));
+    assertTrue(i.isSubset(s2));
+    assertFalse(s2.isSubset(s1));
+    IntHashSet u = s1.union(s2);
+    assertEquals(14, u.size());
+    assertTrue(u.contains(-13));
+    IntHashSet c = s1.complement(s2);
+    assertEquals(8, c.size());
+    assertFalse(c.contains(2));
+    assertTrue(c.contains(0));
+    assertTrue(s1.isEqual(c.union(i)));
+    assertFalse(s1.isEqual(s2));
+    assertTrue(emptySet.isSubset(s1));
+  }
+}
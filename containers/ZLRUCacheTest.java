@@ -0,0 +1,120 @@
+package containers;
+
+import static org.junit.Assert.*;
+
+import java.util.Iterator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ZLRUCacheTest {
+  private LRUCache<String,Integer> cache;
+
+  @Before
+  public void setUp() throws Exception {
+    cache = new LRUCache<>(3);
+    cache.insert("one", 1);
+    cache.insert("two", 2);
+    cache.insert("three", 3);
+  }
+
+  @Test
+  public void testConstructors() {
+    assertEquals(3, cache.capacity());
+    assertEquals(3, cache.size());
+    assertEquals(3, cache.weight());
+    try {
+      new LRUCache<String,Integer>(0);
+      fail("capacity of 0 accepted");
+    } catch (IllegalArgumentException e) { }
+  }
+
+  @Test
+  public void testEviction() {
+    assertEquals("{three:3,two:2,one:1}", cache.toString());
+    assertEquals(1, cache.get("one").intValue());
+    assertEquals("{one:1,three:3,two:2}", cache.toString());
+    cache.insert("four", 4);
+    assertEquals(3, cache.size());
+    assertFalse(cache.hasKey("two"));
+    assertEquals("{four:4,one:1,three:3}", cache.toString());
+    assertEquals(Integer.valueOf(3), cache.insert("three", 33));
+    cache.insert("five", 5);
+    assertEquals("{five:5,three:33,four:4}", cache.toString());
+    assertEquals(2, cache.evictions());
+
+    // hasKey and iteration do not change the order
+    assertTrue(cache.hasKey("four"));
+    for (Integer v : cache) assertTrue(cache.contains(v));
+    assertEquals("{five:5,three:33,four:4}", cache.toString());
+  }
+
+  @Test
+  public void testCounters() {
+    cache.get("one");
+    cache.get("two");
+    cache.get("six");
+    assertEquals(2, cache.hits());
+    assertEquals(1, cache.misses());
+    assertEquals(0, cache.evictions());
+    for (int i = 0; i < 10; i++) cache.insert("k"+i, i);
+    assertEquals(10, cache.evictions());
+  }
+
+  @Test
+  public void testDeleteAndClear() {
+    cache.delete("two");
+    cache.delete("two");
+    assertEquals(2, cache.size());
+    assertEquals("{three:3,one:1}", cache.toString());
+    cache.insert("four", 4);
+    assertEquals(0, cache.evictions());
+    cache.clear();
+    assertTrue(cache.isEmpty());
+    assertEquals(0, cache.weight());
+    assertEquals("{}", cache.toString());
+    assertEquals(null, cache.get("one"));
+  }
+
+  @Test
+  public void testWeigherAndListener() {
+    final StringBuffer evicted = new StringBuffer();
+    LRUCache<String,String> c = new LRUCache<>(10, (k, v) -> v.length(),
+                                               (k, v) -> evicted.append(k).append(' '));
+    c.insert("a", "xxxx");
+    c.insert("b", "xxxx");
+    c.insert("c", "xx");
+    assertEquals(10, c.weight());
+    c.get("a");
+    c.insert("d", "xxx");
+    assertEquals("b ", evicted.toString());
+    assertEquals(9, c.weight());
+    c.insert("e", "xxxxxxxxxxx");
+    assertEquals("b e ", evicted.toString());
+    assertEquals(3, c.size());
+    c.insert("a", "xxxxxxxx");
+    assertEquals("b e c d ", evicted.toString());
+    assertEquals(8, c.weight());
+    try {
+      new LRUCache<String,Integer>(10, (k, v) -> v, null).insert("minus", -1);
+      fail("negative weight accepted");
+    } catch (IllegalArgumentException e) { }
+  }
+
+  @Test
+  public void testMapMethods() {
+    Iterator<Map.Entry<String,Integer>> entries = cache.entryIterator();
+    assertEquals("three", entries.next().getKey());
+    assertEquals("three", cache.keyIterator().next());
+    assertEquals(3, cache.iterator().next().intValue());
+    assertEquals(22, cache.merge("two", 20, (a, b) -> a + b).intValue());
+    assertEquals("{two:22,three:3,one:1}", cache.toString());
+    assertEquals(4, cache.computeIfAbsent("four", k -> 4).intValue());
+    assertFalse(cache.hasKey("one"));
+
+    HashMap<String,Integer> m = new HashMap<>();
+    cache.forEach(m::insert);
+    assertTrue(cache.isEqual(m));
+    assertTrue(m.isEqual(cache));
+  }
+}
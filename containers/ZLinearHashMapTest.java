@@ -0,0 +1,164 @@
+package containers;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ZLinearHashMapTest {
+
+  @Test
+  public void testMapOperations() throws IOException {
+    Path file = Files.createTempFile("linear", ".lhm");
+    try (LinearHashMap<String,String> m =
+             new LinearHashMap<>(file, MappedHashIndex.STRINGS, MappedHashIndex.STRINGS)) {
+      assertTrue(m.isEmpty());
+      assertEquals(LinearHashMap.INITIAL_BUCKETS, m.buckets());
+      assertNull(m.insert("two", "2"));
+      m.insert("three", "3");
+      m.insert("four", "4");
+      assertEquals(3, m.size());
+      assertEquals("2", m.get("two"));
+      assertNull(m.get("five"));
+      assertEquals("5", m.getOrDefault("five", "5"));
+      assertTrue(m.hasKey("four"));
+      assertFalse(m.hasKey("one"));
+      assertTrue(m.contains("3"));
+      assertFalse(m.contains("1"));
+      assertEquals("2", m.insert("two", "22"));
+      assertEquals("22", m.get("two"));
+      assertEquals(3, m.size());
+      m.delete("four");
+      m.delete("four");
+      assertFalse(m.hasKey("four"));
+      assertEquals(2, m.size());
+      assertEquals("33", m.merge("three", "3", String::concat));
+      m.clear();
+      assertTrue(m.isEmpty());
+      assertNull(m.get("two"));
+      assertFalse(m.keyIterator().hasNext());
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testSplitsOneBucketAtATime() throws IOException {
+    Path file = Files.createTempFile("linear", ".lhm");
+    try (LinearHashMap<Integer,Integer> m =
+             new LinearHashMap<>(file, MappedHashIndex.INTEGERS, MappedHashIndex.INTEGERS, 256, 8)) {
+      int buckets = m.buckets();
+      for (int i = 0; i < 20000; i++) {
+        m.insert(i, -i);
+        assertTrue(m.buckets() == buckets || m.buckets() == buckets+1);
+        buckets = m.buckets();
+      }
+      assertTrue(500 < buckets);
+      assertEquals(20000, m.size());
+      for (int i = 0; i < 20000; i++) assertEquals(-i, m.get(i).intValue());
+      assertNull(m.get(20000));
+
+      boolean[] seen = new boolean[20000];
+      Iterator<Integer> keys = m.keyIterator();
+      while (keys.hasNext()) {
+        int key = keys.next();
+        assertFalse(seen[key]);
+        seen[key] = true;
+      }
+      for (boolean b : seen) assertTrue(b);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testReopen() throws IOException {
+    Path file = Files.createTempFile("linear", ".lhm");
+    try {
+      HashMap<String,String> reference = new HashMap<>();
+      try (LinearHashMap<String,String> m =
+               new LinearHashMap<>(file, MappedHashIndex.STRINGS, MappedHashIndex.STRINGS, 512, 4)) {
+        for (int i = 0; i < 5000; i++) {
+          m.insert("key"+i, "value"+i);
+          reference.insert("key"+i, "value"+i);
+        }
+        for (int i = 0; i < 5000; i += 3) {
+          m.delete("key"+i);
+          reference.delete("key"+i);
+        }
+      }
+      LinearHashMap<String,String> m =
+          new LinearHashMap<>(file, MappedHashIndex.STRINGS, MappedHashIndex.STRINGS);
+      assertEquals(512, m.pageSize());
+      assertEquals(reference.size(), m.size());
+      assertTrue(m.isEqual(reference));
+      for (int i = 0; i < 5000; i += 3) m.insert("key"+i, "again");
+      assertEquals(5000, m.size());
+      assertEquals("again", m.get("key0"));
+      m.close();
+      assertTrue(m.isClosed());
+      m.close();
+      try {
+        m.get("key1");
+        fail("used a closed map");
+      } catch (IllegalStateException e) { }
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testAgainstHashMap() throws IOException {
+    Path file = Files.createTempFile("linear", ".lhm");
+    try (LinearHashMap<Long,String> m =
+             new LinearHashMap<>(file, MappedHashIndex.LONGS, MappedHashIndex.STRINGS, 128, 3)) {
+      Random random = new Random(7);
+      HashMap<Long,String> reference = new HashMap<>();
+      for (int i = 0; i < 30000; i++) {
+        Long key = (long)random.nextInt(2000);
+        if (random.nextInt(3) == 0) {
+          m.delete(key);
+          reference.delete(key);
+        }
+        else {
+          String value = Integer.toString(i);
+          assertEquals(reference.insert(key, value), m.insert(key, value));
+        }
+      }
+      assertEquals(reference.size(), m.size());
+      assertTrue(m.isEqual(reference));
+      for (long key = 0; key < 2000; key++) m.delete(key);
+      assertTrue(m.isEmpty());
+      assertFalse(m.iterator().hasNext());
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testBadPairsAndFiles() throws IOException {
+    Path file = Files.createTempFile("linear", ".lhm");
+    try {
+      try (LinearHashMap<String,String> m =
+               new LinearHashMap<>(file, MappedHashIndex.STRINGS, MappedHashIndex.STRINGS, 64, 2)) {
+        try {
+          m.insert("a key", "a value much too long to fit in a single page of sixty-four bytes");
+          fail("inserted a pair bigger than a page");
+        } catch (IllegalArgumentException e) { }
+        assertTrue(m.isEmpty());
+      }
+      Files.write(file, "not a linear hash map".getBytes("UTF-8"));
+      try {
+        new LinearHashMap<>(file, MappedHashIndex.STRINGS, MappedHashIndex.STRINGS);
+        fail("opened a text file");
+      } catch (IOException e) { }
+    } finally {
+      Files.delete(file);
+    }
+  }
+}
@@ -0,0 +1,120 @@
+package containers;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+import org.junit.Test;
+
+public class ZMappedHashIndexTest {
+
+  @Test
+  public void testWriteAndOpen() throws IOException {
+    HashMap<String,String> m = new HashMap<>();
+    for (int i = 0; i < 10000; i++) m.insert("key"+i, "value"+i);
+    Path file = Files.createTempFile("index", ".mhix");
+    try {
+      MappedHashIndex.write(m, file, MappedHashIndex.STRINGS, MappedHashIndex.STRINGS);
+      MappedHashIndex<String,String> index =
+          MappedHashIndex.open(file, MappedHashIndex.STRINGS, MappedHashIndex.STRINGS);
+      assertEquals(10000, index.size());
+      assertEquals(16384, index.buckets());
+      for (int i = 0; i < 10000; i++) assertEquals("value"+i, index.get("key"+i));
+      assertNull(index.get("key10000"));
+      assertEquals("none", index.getOrDefault("nokey", "none"));
+      assertTrue(index.hasKey("key42"));
+      assertFalse(index.hasKey("key-1"));
+      assertTrue(index.contains("value9999"));
+      assertFalse(index.contains("value10000"));
+      assertTrue(index.isEqual(m));
+
+      int n = 0;
+      Iterator<Map.Entry<String,String>> iter = index.entryIterator();
+      while (iter.hasNext()) {
+        Map.Entry<String,String> entry = iter.next();
+        assertEquals(m.get(entry.getKey()), entry.getValue());
+        n++;
+      }
+      assertEquals(10000, n);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testNumbersAndEmptyMaps() throws IOException {
+    Path file = Files.createTempFile("index", ".mhix");
+    try {
+      TreeMap<Long,Integer> m = new TreeMap<>();
+      for (long k = -500; k < 500; k++) m.insert(k * 1_000_000_007L, (int)k);
+      MappedHashIndex.write(m, file, MappedHashIndex.LONGS, MappedHashIndex.INTEGERS);
+      MappedHashIndex<Long,Integer> index =
+          MappedHashIndex.open(file, MappedHashIndex.LONGS, MappedHashIndex.INTEGERS);
+      assertEquals(1000, index.size());
+      for (long k = -500; k < 500; k++)
+        assertEquals((int)k, index.get(k * 1_000_000_007L).intValue());
+      assertNull(index.get(3L));
+
+      MappedHashIndex.write(new HashMap<Long,Integer>(), file,
+                            MappedHashIndex.LONGS, MappedHashIndex.INTEGERS);
+      index = MappedHashIndex.open(file, MappedHashIndex.LONGS, MappedHashIndex.INTEGERS);
+      assertTrue(index.isEmpty());
+      assertNull(index.get(0L));
+      assertFalse(index.iterator().hasNext());
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testReadOnly() throws IOException {
+    Path file = Files.createTempFile("index", ".mhix");
+    try {
+      HashMap<String,String> m = new HashMap<>();
+      m.insert("a", "b");
+      MappedHashIndex.write(m, file, MappedHashIndex.STRINGS, MappedHashIndex.STRINGS);
+      MappedHashIndex<String,String> index =
+          MappedHashIndex.open(file, MappedHashIndex.STRINGS, MappedHashIndex.STRINGS);
+      try {
+        index.insert("c", "d");
+        fail("insert into an index");
+      } catch (UnsupportedOperationException e) { }
+      try {
+        index.merge("a", "x", String::concat);
+        fail("merge into an index");
+      } catch (UnsupportedOperationException e) { }
+      assertEquals("b", index.get("a"));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testBadFiles() throws IOException {
+    Path file = Files.createTempFile("index", ".mhix");
+    try {
+      Files.write(file, "not an index at all".getBytes("UTF-8"));
+      try {
+        MappedHashIndex.open(file, MappedHashIndex.STRINGS, MappedHashIndex.STRINGS);
+        fail("opened a text file");
+      } catch (IOException e) { }
+
+      HashMap<String,String> m = new HashMap<>();
+      for (int i = 0; i < 10; i++) m.insert("k"+i, "v"+i);
+      MappedHashIndex.write(m, file, MappedHashIndex.STRINGS, MappedHashIndex.STRINGS);
+      byte[] bytes = Files.readAllBytes(file);
+      byte[] truncated = new byte[bytes.length-3];
+      System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+      Files.write(file, truncated);
+      try {
+        MappedHashIndex.open(file, MappedHashIndex.STRINGS, MappedHashIndex.STRINGS);
+        fail("opened a truncated index");
+      } catch (IOException e) { }
+    } finally {
+      Files.delete(file);
+    }
+  }
+}
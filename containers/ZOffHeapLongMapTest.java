@@ -0,0 +1,134 @@
+package containers;
+
+import static org.junit.Assert.*;
+
+import java.util.PrimitiveIterator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ZOffHeapLongMapTest {
+  private OffHeapLongMap emptyMap;
+  private OffHeapLongMap m1;
+
+  @Before
+  public void setUp() throws Exception {
+    emptyMap = new OffHeapLongMap();
+    m1 = new OffHeapLongMap();
+    m1.insert(0, 100);
+    m1.insert(2, 200);
+    m1.insert(3, 300);
+    m1.insert(-4, -400);
+    m1.insert(5, 500);
+    m1.insert(1L << 40, 1);
+    m1.delete(1L << 40);
+  }
+
+  @Test
+  public void testConstructors() {
+    assertEquals(OffHeapLongMap.DEFAULT_SIZE, emptyMap.tableSize());
+    try (OffHeapLongMap m = new OffHeapLongMap(0)) {
+      assertEquals(OffHeapLongMap.DEFAULT_SIZE, m.tableSize());
+    }
+    try (OffHeapLongMap m = new OffHeapLongMap(300)) {
+      assertEquals(512, m.tableSize());
+    }
+    assertTrue(emptyMap.isEmpty());
+  }
+
+  @Test
+  public void testInsertAndGet() {
+    assertEquals(5, m1.size());
+    assertEquals(100, m1.get(0).longValue());
+    assertEquals(200, m1.get(2).longValue());
+    assertEquals(-400, m1.get(-4).longValue());
+    assertEquals(null, m1.get(7));
+    assertEquals(-1, m1.getOrDefault(7, -1));
+    assertEquals(null, emptyMap.get(0));
+    m1.insert(2, 222);
+    assertEquals(222, m1.getOrDefault(2, -1));
+    assertEquals(5, m1.size());
+    assertTrue(m1.hasKey(0));
+    assertFalse(m1.hasKey(1));
+    assertFalse(emptyMap.hasKey(0));
+  }
+
+  @Test
+  public void testDeleteAndClear() {
+    m1.delete(0);
+    assertFalse(m1.hasKey(0));
+    assertEquals(4, m1.size());
+    m1.delete(0);
+    assertEquals(4, m1.size());
+    m1.delete(3);
+    assertEquals(null, m1.get(3));
+    assertEquals(500, m1.get(5).longValue());
+    assertEquals(3, m1.size());
+    m1.clear();
+    assertTrue(m1.isEmpty());
+    assertEquals(null, m1.get(2));
+  }
+
+  @Test
+  public void testGrowthAcrossPages() {
+    // enough pairs that the table spans several pages
+    int n = OffHeapLongMap.PAGE_SLOTS;
+    try (OffHeapLongMap m = new OffHeapLongMap()) {
+      for (int i = 0; i < n; i++) m.insert(i*1024L, i);
+      for (int i = 1; i < 100; i++) m.insert(((long)i) << 32, -i);
+      for (int i = 1; i < 100; i++) assertEquals(-i, m.getOrDefault(((long)i) << 32, 0));
+      for (int i = 1; i < 100; i++) m.delete(((long)i) << 32);
+      assertEquals(n, m.longSize());
+      assertTrue(OffHeapLongMap.PAGE_SLOTS < m.tableSize());
+      for (int i = 0; i < n; i += 3) m.delete(i*1024L);
+      for (int i = 0; i < n; i++) {
+        if (i % 3 == 0) assertFalse(m.hasKey(i*1024L));
+        else            assertEquals(i, m.getOrDefault(i*1024L, -1));
+      }
+    }
+  }
+
+  @Test
+  public void testKeyIterator() {
+    long sum = 0;
+    int keys = 0;
+    PrimitiveIterator.OfLong iter = m1.keyIterator();
+    while (iter.hasNext()) { sum += iter.nextLong(); keys++; }
+    assertEquals(5, keys);
+    assertEquals(0+2+3-4+5, sum);
+    assertFalse(emptyMap.keyIterator().hasNext());
+  }
+
+  @Test
+  public void testEqualityAndToString() {
+    OffHeapLongMap m2 = new OffHeapLongMap(1000);
+    for (long k : new long[] {5, -4, 3, 2, 0}) m2.insert(k, 100*k);
+    m2.insert(0, 100);
+    assertTrue(m1.isEqual(m2));
+    assertTrue(m2.isEqual(m1));
+    m2.insert(3, 3);
+    assertFalse(m1.isEqual(m2));
+    assertFalse(m1.isEqual(emptyMap));
+    assertEquals("{}", emptyMap.toString());
+    assertTrue(m1.toString().startsWith("{0:100,"));
+    m2.close();
+  }
+
+  @Test
+  public void testClose() {
+    assertFalse(m1.isClosed());
+    m1.close();
+    assertTrue(m1.isClosed());
+    assertTrue(m1.isEmpty());
+    assertEquals("{closed}", m1.toString());
+    try {
+      m1.get(2);
+      fail("get after close");
+    } catch (IllegalStateException e) { }
+    try {
+      m1.insert(2, 2);
+      fail("insert after close");
+    } catch (IllegalStateException e) { }
+    m1.close();
+  }
+}
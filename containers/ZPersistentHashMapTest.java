@@ -0,0 +1,176 @@
+package containers;
+
+import static org.junit.Assert.*;
+
+import java.util.Iterator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ZPersistentHashMapTest {
+  private PersistentHashMap<String,Integer> emptyMap;
+  private PersistentHashMap<String,Integer> m1;
+
+  @Before
+  public void setUp() throws Exception {
+    emptyMap = new PersistentHashMap<>();
+    m1 = emptyMap.with("one", 1).with("two", 2).with("three", 3).with("four", 4).with("five", 5);
+  }
+
+  @Test
+  public void testWithAndGet() {
+    assertTrue(emptyMap.isEmpty());
+    assertEquals(5, m1.size());
+    assertEquals(1, m1.get("one").intValue());
+    assertEquals(5, m1.get("five").intValue());
+    assertEquals(null, m1.get("six"));
+    assertEquals(-1, m1.getOrDefault("six", -1).intValue());
+    assertTrue(m1.hasKey("two"));
+    assertFalse(emptyMap.hasKey("two"));
+
+    // old versions are unchanged
+    PersistentHashMap<String,Integer> m2 = m1.with("one", 11).with("six", 6);
+    assertEquals(6, m2.size());
+    assertEquals(11, m2.get("one").intValue());
+    assertEquals(1, m1.get("one").intValue());
+    assertEquals(5, m1.size());
+    assertEquals(null, m1.get("six"));
+    Integer one = m1.get("one");
+    assertSame(m1, m1.with("one", one));
+  }
+
+  @Test
+  public void testWithout() {
+    PersistentHashMap<String,Integer> m2 = m1.without("one").without("three");
+    assertEquals(3, m2.size());
+    assertEquals(null, m2.get("one"));
+    assertEquals(2, m2.get("two").intValue());
+    assertEquals(5, m1.size());
+    assertEquals(3, m1.get("three").intValue());
+    assertSame(m2, m2.without("one"));
+    PersistentHashMap<String,Integer> m3 = m2.without("two").without("four").without("five");
+    assertTrue(m3.isEmpty());
+    assertFalse(m3.keyIterator().hasNext());
+  }
+
+  @Test
+  public void testManyVersions() {
+    PersistentHashMap<Integer,Integer> m = new PersistentHashMap<>();
+    ArrayList<PersistentHashMap<Integer,Integer>> versions = new ArrayList<>(100);
+    for (int i = 0; i < 10000; i++) {
+      if (i % 100 == 0) versions.addLast(m);
+      m = m.with(i, i);
+    }
+    assertEquals(10000, m.size());
+    for (int i = 0; i < 10000; i++) assertEquals(i, m.get(i).intValue());
+    for (int v = 0; v < 100; v++) {
+      assertEquals(100*v, versions.get(v).size());
+      assertEquals(null, versions.get(v).get(100*v));
+      if (0 < v) assertEquals(100*v-1, versions.get(v).get(100*v-1).intValue());
+    }
+    for (int i = 0; i < 10000; i += 2) m = m.without(i);
+    assertEquals(5000, m.size());
+    for (int i = 0; i < 10000; i++)
+      assertEquals(i % 2 == 0 ? null : Integer.valueOf(i), m.get(i));
+    assertEquals(10000, versions.get(99).size() + 100);
+  }
+
+  /*
+   * Keys that all have the same hash code.
+   */
+  private static class CollidingKey implements Comparable<CollidingKey> {
+    private int id;
+    public CollidingKey(int i) { id = i; }
+    @Override
+    public int hashCode() { return id % 3; }
+    @Override
+    public int compareTo(CollidingKey other) { return Integer.compare(id, other.id); }
+  }
+
+  @Test
+  public void testCollisions() {
+    PersistentHashMap<CollidingKey,Integer> m = new PersistentHashMap<>();
+    for (int i = 0; i < 30; i++) m = m.with(new CollidingKey(i), i);
+    assertEquals(30, m.size());
+    for (int i = 0; i < 30; i++) assertEquals(i, m.get(new CollidingKey(i)).intValue());
+    assertEquals(null, m.get(new CollidingKey(30)));
+    PersistentHashMap<CollidingKey,Integer> m2 = m;
+    for (int i = 0; i < 30; i += 2) m2 = m2.without(new CollidingKey(i));
+    assertEquals(15, m2.size());
+    for (int i = 0; i < 30; i++) {
+      assertEquals(i, m.get(new CollidingKey(i)).intValue());
+      assertEquals(i % 2 == 0 ? null : Integer.valueOf(i), m2.get(new CollidingKey(i)));
+    }
+    for (int i = 1; i < 30; i += 2) m2 = m2.without(new CollidingKey(i));
+    assertTrue(m2.isEmpty());
+  }
+
+  @Test
+  public void testBuilder() {
+    PersistentHashMap.Builder<Integer,Integer> b = new PersistentHashMap.Builder<>();
+    for (int i = 0; i < 1000; i++) assertEquals(null, b.insert(i, i));
+    assertEquals(Integer.valueOf(5), b.insert(5, 55));
+    b.delete(6);
+    b.delete(6);
+    assertEquals(999, b.size());
+    PersistentHashMap<Integer,Integer> m = b.build();
+    assertEquals(999, m.size());
+    assertEquals(55, m.get(5).intValue());
+    assertEquals(null, m.get(6));
+
+    // changes to the builder after build() do not affect the map
+    for (int i = 0; i < 1000; i++) b.insert(i, -i);
+    for (int i = 0; i < 500; i++) b.delete(i);
+    assertEquals(500, b.size());
+    assertEquals(-999, b.get(999).intValue());
+    assertEquals(999, m.size());
+    for (int i = 7; i < 1000; i++) assertEquals(i, m.get(i).intValue());
+
+    // a builder made from a map leaves the map alone
+    PersistentHashMap.Builder<Integer,Integer> b2 = m.toBuilder();
+    b2.insert(5, 5);
+    b2.delete(7);
+    assertEquals(55, m.get(5).intValue());
+    assertEquals(7, m.get(7).intValue());
+    PersistentHashMap<Integer,Integer> m2 = b2.build();
+    assertEquals(998, m2.size());
+    assertEquals(5, m2.get(5).intValue());
+  }
+
+  @Test
+  public void testIteratorsAndEquality() {
+    boolean[] seen = new boolean[5];
+    for (Integer v : m1) seen[v-1] = true;
+    for (boolean b : seen) assertTrue(b);
+    assertTrue(m1.contains(3));
+    assertFalse(m1.contains(6));
+
+    seen = new boolean[5];
+    Iterator<Map.Entry<String,Integer>> entries = m1.entryIterator();
+    while (entries.hasNext()) {
+      Map.Entry<String,Integer> entry = entries.next();
+      assertEquals(m1.get(entry.getKey()), entry.getValue());
+      seen[entry.getValue()-1] = true;
+    }
+    for (boolean b : seen) assertTrue(b);
+
+    final int[] sum = {0};
+    m1.forEach((k, v) -> sum[0] += v);
+    assertEquals(15, sum[0]);
+
+    HashMap<String,Integer> h = new HashMap<>();
+    Iterator<String> keys = m1.keyIterator();
+    while (keys.hasNext()) {
+      String k = keys.next();
+      h.insert(k, m1.get(k));
+    }
+    assertTrue(m1.isEqual(h));
+    assertTrue(h.isEqual(m1));
+    assertFalse(m1.isEqual(m1.without("one")));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testImmutable() {
+    m1.insert("six", 6);
+  }
+}
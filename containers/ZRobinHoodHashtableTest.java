@@ -0,0 +1,187 @@
+package containers;
+
+import static org.junit.Assert.*;
+
+import java.util.Iterator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ZRobinHoodHashtableTest
+{
+  private RobinHoodHashtable<String,Integer> t;
+
+  @Before
+  public void setUp() throws Exception {
+    t = new RobinHoodHashtable<>(5);
+    t.insert("one", 1);
+    t.insert("two", 2);
+    t.insert("three", 3);
+    t.insert("four", 4);
+    t.insert("five", 5);
+    t.insert("six", 666);
+    t.insert("seven", 7);
+    t.insert("eight", 8);
+    t.insert("nine", 9);
+    t.insert("ten", 10);
+    t.insert("six", 6);
+    t.insert("eleven", 11);
+    t.insert("twelve", 12);
+    t.insert("thirteen", 13);
+    t.insert("fourteen", 14);
+    t.insert("fifteen", 15);
+  }
+
+  @Test
+  public void testConstructors() {
+    RobinHoodHashtable<String,Integer> r = new RobinHoodHashtable<>();
+    assertEquals(RobinHoodHashtable.DEFAULT_SIZE, r.tableSize());
+    r = new RobinHoodHashtable<>(0);
+    assertEquals(RobinHoodHashtable.DEFAULT_SIZE, r.tableSize());
+    r = new RobinHoodHashtable<>(100);
+    assertEquals(128, r.tableSize());
+    assertEquals(0, r.size());
+  }
+
+  @Test
+  public void testInsertAndGetAndClear() {
+    assertEquals(15, t.size());
+    assertEquals(1, t.get("one").intValue());
+    assertEquals(6, t.get("six").intValue());
+    assertEquals(15, t.get("fifteen").intValue());
+    assertEquals(4, t.get("four").intValue());
+    assertEquals(11, t.get("eleven").intValue());
+    assertEquals(null, t.get("red"));
+    assertTrue(15 < t.tableSize());
+
+    t.clear();
+    assertEquals(0,  t.size());
+    assertEquals(null, t.get("one"));
+    assertEquals(null, t.get("six"));
+    assertEquals(null, t.get("fifteen"));
+  }
+
+  @Test
+  public void testDelete() {
+    assertTrue(t.delete("six"));
+    assertEquals(null, t.get("six"));
+    assertEquals(14, t.size());
+    assertFalse(t.delete("six"));
+    assertEquals(14, t.size());
+    t.delete("fifteen");
+    t.delete("five");
+    t.delete("one");
+    t.delete("two");
+    t.delete("three");
+    t.delete("four");
+    t.delete("seven");
+    assertEquals(7, t.size());
+    assertEquals(null, t.get("five"));
+    assertEquals(8, t.get("eight").intValue());
+    assertEquals(9, t.get("nine").intValue());
+    assertEquals(10, t.get("ten").intValue());
+    assertEquals(11, t.get("eleven").intValue());
+    assertEquals(12, t.get("twelve").intValue());
+    assertEquals(13, t.get("thirteen").intValue());
+    assertEquals(14, t.get("fourteen").intValue());
+  }
+
+  @Test
+  public void testCollidingKeys() {
+    // Integer keys that are multiples of the table size all share a home slot
+    RobinHoodHashtable<Integer,Integer> r = new RobinHoodHashtable<>(1024);
+    for (int i = 0; i < 500; i++) r.insert(i*1024, i);
+    for (int i = 0; i < 500; i++) r.insert(i*1024+1, -i);
+    assertEquals(1000, r.size());
+    for (int i = 0; i < 500; i += 2) r.delete(i*1024);
+    assertEquals(750, r.size());
+    for (int i = 0; i < 500; i++) {
+      assertEquals(i % 2 == 0 ? null : Integer.valueOf(i), r.get(i*1024));
+      assertEquals(-i, r.get(i*1024+1).intValue());
+    }
+  }
+
+  @Test
+  public void testIteratorsAndVisit() {
+    boolean[] seen = new boolean[15];
+    for (Integer v : t) seen[v-1] = true;
+    for (boolean b : seen) assertTrue(b);
+
+    seen = new boolean[15];
+    Iterator<String> iter = t.keyIterator();
+    while (iter.hasNext()) seen[t.get(iter.next())-1] = true;
+    for (boolean b : seen) assertTrue(b);
+
+    final boolean[] visited = new boolean[15];
+    t.visit(new Visitor<Integer>() {
+      public void visit(Integer v) { visited[v-1] = true; }
+    });
+    for (boolean b : visited) assertTrue(b);
+  }
+
+  @Test
+  public void testCopy() {
+    RobinHoodHashtable<String,Integer> c = t.copy();
+    assertEquals(t.tableSize(), c.tableSize());
+    assertEquals(t.size(), c.size());
+    c.delete("one");
+    assertEquals(1, t.get("one").intValue());
+    assertEquals(null, c.get("one"));
+    assertEquals(14, c.size());
+  }
+
+  @Test
+  public void testUpdateOperations() {
+    assertEquals(Integer.valueOf(1), t.insert("one", 11));
+    assertEquals(null, t.insert("sixteen", 16));
+    assertEquals(Integer.valueOf(11), t.putIfAbsent("one", 1));
+    assertEquals(null, t.putIfAbsent("seventeen", 17));
+    assertEquals(17, t.size());
+    assertEquals(-1, t.getOrDefault("zero", -1).intValue());
+    assertEquals(17, t.getOrDefault("seventeen", -1).intValue());
+    assertEquals(12, t.compute("one", (k, v) -> v+1).intValue());
+    assertEquals(null, t.compute("two", (k, v) -> null));
+    assertEquals(null, t.get("two"));
+    assertEquals(null, t.compute("zero", (k, v) -> null));
+    assertEquals(0, t.compute("zero", (k, v) -> 0).intValue());
+    assertEquals(17, t.size());
+
+    RobinHoodHashtable<Integer,Integer> counts = new RobinHoodHashtable<>(5);
+    for (int i = 0; i < 1000; i++) counts.compute(i % 100, (k, v) -> v == null ? 1 : v+1);
+    assertEquals(100, counts.size());
+    for (int i = 0; i < 100; i++) assertEquals(10, counts.get(i).intValue());
+  }
+
+  @Test
+  public void testEntries() {
+    boolean[] seen = new boolean[15];
+    Iterator<Map.Entry<String,Integer>> iter = t.entryIterator();
+    while (iter.hasNext()) {
+      Map.Entry<String,Integer> entry = iter.next();
+      assertEquals(t.get(entry.getKey()), entry.getValue());
+      seen[entry.getValue()-1] = true;
+    }
+    for (boolean b : seen) assertTrue(b);
+
+    final boolean[] visited = new boolean[15];
+    t.forEach((k, v) -> { if (t.get(k) == v) visited[v-1] = true; });
+    for (boolean b : visited) assertTrue(b);
+  }
+
+  @Test
+  public void testReplacingDoesNotExpand() {
+    RobinHoodHashtable<Integer,Integer> r = new RobinHoodHashtable<>(16);
+    for (int i = 0; i < 13; i++) r.insert(i, i);
+    assertEquals(16, r.tableSize());
+    for (int i = 0; i < 13; i++) {
+      assertEquals(i, r.insert(i, -i).intValue());
+      r.putIfAbsent(i, i);
+      r.compute(i, (k, v) -> v - 1);
+    }
+    assertEquals(16, r.tableSize());
+    r.insert(13, 13);
+    assertEquals(32, r.tableSize());
+    for (int i = 0; i < 13; i++) assertEquals(-i-1, r.get(i).intValue());
+    assertEquals(13, r.get(13).intValue());
+  }
+}
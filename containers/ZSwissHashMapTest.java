@@ -0,0 +1,9 @@
+package containers;
+
+/*
+ * Run the HashMap tests on maps using the SWISS scheme.
+ */
+public class ZSwissHashMapTest extends ZHashMapTest {
+  @Override
+  protected HashMap<String,Integer> makeMap() { return new HashMap<>(0, HashScheme.SWISS); }
+}
@@ -0,0 +1,164 @@
+package containers;
+
+import static org.junit.Assert.*;
+
+import java.util.Iterator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ZSwissHashtableTest
+{
+  private SwissHashtable<String,Integer> t;
+
+  @Before
+  public void setUp() throws Exception {
+    t = new SwissHashtable<>(5);
+    t.insert("one", 1);
+    t.insert("two", 2);
+    t.insert("three", 3);
+    t.insert("four", 4);
+    t.insert("five", 5);
+    t.insert("six", 666);
+    t.insert("seven", 7);
+    t.insert("eight", 8);
+    t.insert("nine", 9);
+    t.insert("ten", 10);
+    t.insert("six", 6);
+    t.insert("eleven", 11);
+    t.insert("twelve", 12);
+    t.insert("thirteen", 13);
+    t.insert("fourteen", 14);
+    t.insert("fifteen", 15);
+  }
+
+  @Test
+  public void testConstructors() {
+    SwissHashtable<String,Integer> s = new SwissHashtable<>();
+    assertEquals(SwissHashtable.DEFAULT_SIZE, s.tableSize());
+    s = new SwissHashtable<>(0);
+    assertEquals(SwissHashtable.DEFAULT_SIZE, s.tableSize());
+    s = new SwissHashtable<>(100);
+    assertEquals(128, s.tableSize());
+    assertEquals(0, s.size());
+    try {
+      new SwissHashtable<String,Integer>(100, 0);
+      fail("load factor of 0 accepted");
+    } catch (IllegalArgumentException e) { }
+  }
+
+  @Test
+  public void testInsertAndGetAndClear() {
+    assertEquals(15, t.size());
+    assertEquals(1, t.get("one").intValue());
+    assertEquals(6, t.get("six").intValue());
+    assertEquals(15, t.get("fifteen").intValue());
+    assertEquals(null, t.get("red"));
+    assertTrue(15 < t.tableSize());
+
+    t.clear();
+    assertEquals(0,  t.size());
+    assertEquals(null, t.get("one"));
+    assertEquals(null, t.get("fifteen"));
+    t.insert("one", 1);
+    assertEquals(1, t.get("one").intValue());
+  }
+
+  @Test
+  public void testDeleteAndReuse() {
+    SwissHashtable<Integer,Integer> s = new SwissHashtable<>(64);
+    for (int round = 0; round < 100; round++) {
+      for (int i = 0; i < 20; i++) s.insert(round*20+i, i);
+      for (int i = 0; i < 20; i++) s.delete(round*20+i);
+      assertEquals(0, s.size());
+    }
+    // deleted slots are cleared out in place rather than growing the table
+    assertEquals(64, s.tableSize());
+    for (int i = 0; i < 50; i++) s.insert(i, i);
+    for (int i = 0; i < 50; i += 2) assertTrue(s.delete(i));
+    assertFalse(s.delete(0));
+    for (int i = 0; i < 50; i++) assertEquals(i % 2 == 0 ? null : Integer.valueOf(i), s.get(i));
+  }
+
+  private static class CountingKey implements Comparable<CountingKey> {
+    static int compareCalls = 0;
+    private int id;
+    public CountingKey(int i) { id = i; }
+    @Override
+    public int hashCode() { return id; }
+    @Override
+    public int compareTo(CountingKey other) { compareCalls++; return Integer.compare(id, other.id); }
+  }
+
+  @Test
+  public void testFewComparisons() {
+    SwissHashtable<CountingKey,Integer> s = new SwissHashtable<>();
+    for (int i = 0; i < 10000; i++) s.insert(new CountingKey(i), i);
+
+    // a miss compares keys only when seven hash bits match by chance
+    CountingKey.compareCalls = 0;
+    for (int i = 10000; i < 20000; i++) assertEquals(null, s.get(new CountingKey(i)));
+    assertTrue(CountingKey.compareCalls < 1000);
+
+    // a hit usually compares only the key found
+    CountingKey.compareCalls = 0;
+    for (int i = 0; i < 10000; i++) assertEquals(i, s.get(new CountingKey(i)).intValue());
+    assertTrue(CountingKey.compareCalls < 11000);
+  }
+
+  @Test
+  public void testIteratorsAndVisit() {
+    t.delete("seven");
+    boolean[] seen = new boolean[15];
+    for (Integer v : t) seen[v-1] = true;
+    seen[6] = true;
+    for (boolean b : seen) assertTrue(b);
+
+    seen = new boolean[15];
+    Iterator<Map.Entry<String,Integer>> entries = t.entryIterator();
+    while (entries.hasNext()) {
+      Map.Entry<String,Integer> entry = entries.next();
+      assertEquals(t.get(entry.getKey()), entry.getValue());
+      seen[entry.getValue()-1] = true;
+    }
+    assertFalse(seen[6]);
+    seen[6] = true;
+    for (boolean b : seen) assertTrue(b);
+
+    final boolean[] visited = new boolean[15];
+    t.visit(new Visitor<Integer>() {
+      public void visit(Integer v) { visited[v-1] = true; }
+    });
+    assertFalse(visited[6]);
+    visited[6] = true;
+    for (boolean b : visited) assertTrue(b);
+  }
+
+  @Test
+  public void testCopy() {
+    SwissHashtable<String,Integer> c = t.copy();
+    assertEquals(t.tableSize(), c.tableSize());
+    assertEquals(t.size(), c.size());
+    c.delete("one");
+    assertEquals(1, t.get("one").intValue());
+    assertEquals(null, c.get("one"));
+    assertEquals(14, c.size());
+  }
+
+  @Test
+  public void testReplacingDoesNotRebuild() {
+    SwissHashtable<Integer,Integer> s = new SwissHashtable<>(16);
+    for (int i = 0; i < 14; i++) s.insert(i, i);
+    assertEquals(16, s.tableSize());
+    for (int i = 0; i < 14; i++) {
+      assertEquals(i, s.insert(i, -i).intValue());
+      s.putIfAbsent(i, i);
+      s.compute(i, (k, v) -> v - 1);
+    }
+    assertEquals(16, s.tableSize());
+    s.insert(14, 14);
+    assertEquals(32, s.tableSize());
+    for (int i = 0; i < 14; i++) assertEquals(-i-1, s.get(i).intValue());
+    assertEquals(14, s.get(14).intValue());
+  }
+}
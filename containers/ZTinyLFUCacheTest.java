@@ -0,0 +1,171 @@
+package containers;
+
+import static org.junit.Assert.*;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ZTinyLFUCacheTest {
+  private TinyLFUCache<String,Integer> cache;
+  private long time;  // the time given to caches that expire pairs
+
+  @Before
+  public void setUp() throws Exception {
+    cache = new TinyLFUCache<>(100);
+    time = 1000;
+  }
+
+  @Test
+  public void testConstructors() {
+    assertEquals(100, cache.capacity());
+    assertTrue(cache.isEmpty());
+    try {
+      new TinyLFUCache<String,Integer>(0);
+      fail("capacity of 0 accepted");
+    } catch (IllegalArgumentException e) { }
+    try {
+      new TinyLFUCache<String,Integer>(10, -1, false, () -> time);
+      fail("negative expiry time accepted");
+    } catch (IllegalArgumentException e) { }
+  }
+
+  @Test
+  public void testMapOperations() {
+    for (int i = 0; i < 50; i++) assertNull(cache.insert("k"+i, i));
+    assertEquals(50, cache.size());
+    assertEquals(7, cache.get("k7").intValue());
+    assertEquals(Integer.valueOf(7), cache.insert("k7", 77));
+    assertEquals(77, cache.get("k7").intValue());
+    assertTrue(cache.hasKey("k49"));
+    cache.delete("k49");
+    assertFalse(cache.hasKey("k49"));
+    assertNull(cache.get("k49"));
+    assertEquals(49, cache.size());
+
+    int n = 0;
+    Iterator<String> keys = cache.keyIterator();
+    while (keys.hasNext()) assertTrue(cache.hasKey(keys.next()));
+    for (Integer v : cache) {
+      assertTrue(cache.contains(v));
+      n++;
+    }
+    assertEquals(49, n);
+
+    HashMap<String,Integer> m = new HashMap<>();
+    for (int i = 0; i < 49; i++) m.insert("k"+i, cache.get("k"+i));
+    assertTrue(cache.isEqual(m));
+    cache.clear();
+    assertTrue(cache.isEmpty());
+    assertFalse(cache.keyIterator().hasNext());
+  }
+
+  @Test
+  public void testCapacity() {
+    for (int i = 0; i < 1000; i++) {
+      cache.insert("k"+i, i);
+      assertTrue(cache.size() <= 100);
+    }
+    assertEquals(100, cache.size());
+    assertEquals(900, cache.evictions());
+
+    TinyLFUCache<String,Integer> tiny = new TinyLFUCache<>(1);
+    tiny.insert("a", 1);
+    tiny.insert("b", 2);
+    assertEquals(1, tiny.size());
+    assertEquals(2, tiny.get("b").intValue());
+  }
+
+  @Test
+  public void testCounters() {
+    cache.insert("one", 1);
+    cache.get("one");
+    cache.get("two");
+    cache.get("one");
+    assertEquals(2, cache.hits());
+    assertEquals(1, cache.misses());
+    assertEquals(2.0/3, cache.hitRate(), 1e-9);
+    assertEquals(0, new TinyLFUCache<String,Integer>(5).hitRate(), 0);
+  }
+
+  @Test
+  public void testFrequentKeysSurviveScan() {
+    for (int round = 0; round < 5; round++)
+      for (int i = 0; i < 50; i++) {
+        if (cache.get("hot"+i) == null) cache.insert("hot"+i, i);
+      }
+    for (int i = 0; i < 1000; i++) cache.insert("scan"+i, i);
+    int kept = 0;
+    for (int i = 0; i < 50; i++) if (cache.hasKey("hot"+i)) kept++;
+    assertEquals(50, kept);
+  }
+
+  @Test
+  public void testTraces() {
+    Random random = new Random(7);
+    Long[] trace = CacheBenchmark.scan(100000, 20000, 0.9, 800, 4000, random);
+    double lru = CacheBenchmark.replay(new LRUCache<Long,Long>(200), trace);
+    double lfu = CacheBenchmark.replay(new TinyLFUCache<Long,Long>(200), trace);
+    assertTrue("scan: LRU "+lru+", W-TinyLFU "+lfu, lru < lfu);
+
+    trace = CacheBenchmark.loop(100000, 300);
+    lru = CacheBenchmark.replay(new LRUCache<Long,Long>(200), trace);
+    lfu = CacheBenchmark.replay(new TinyLFUCache<Long,Long>(200), trace);
+    assertEquals(0, lru, 0);
+    assertTrue("loop: W-TinyLFU "+lfu, 0.3 < lfu);
+  }
+
+  @Test
+  public void testExpireAfterWrite() {
+    TinyLFUCache<String,Integer> c = new TinyLFUCache<>(100, 1000, false, () -> time);
+    c.insert("a", 1);
+    time += 500;
+    c.insert("b", 2);
+    time += 400;
+    assertEquals(1, c.get("a").intValue());  // reading does not extend a written pair's life
+    time += 200;
+    assertNull(c.get("a"));
+    assertFalse(c.hasKey("a"));
+    assertEquals(2, c.get("b").intValue());
+    c.insert("b", 22);                       // writing does
+    time += 900;
+    assertEquals(22, c.get("b").intValue());
+    time += 200;
+    assertFalse(c.hasKey("b"));
+    assertTrue(c.isEmpty());
+  }
+
+  @Test
+  public void testExpireAfterAccess() {
+    TinyLFUCache<String,Integer> c = new TinyLFUCache<>(100, 1000, true, () -> time);
+    c.insert("a", 1);
+    c.insert("b", 2);
+    for (int i = 0; i < 5; i++) {
+      time += 600;
+      assertEquals(1, c.get("a").intValue());
+    }
+    assertFalse(c.hasKey("b"));
+    assertEquals(1, c.size());
+    time += 1100;                            // expired pairs go within a tick
+    assertEquals(0, c.size());
+  }
+
+  @Test
+  public void testWheelSweepsExpiredPairs() {
+    TinyLFUCache<String,Integer> c = new TinyLFUCache<>(1000, 64*16, false, () -> time);
+    for (int i = 0; i < 500; i++) {
+      c.insert("k"+i, i);
+      time += 3;
+    }
+    // pairs written at least 64*16 ago have gone without being looked up
+    int alive = c.size();
+    assertTrue(alive <= 64*16/3 + 1 + 16/3);
+    assertTrue(64*16/3 - 16/3 <= alive);
+    time += 100000;
+    assertEquals(0, c.size());
+    c.insert("x", 1);
+    assertEquals(1, c.get("x").intValue());
+  }
+}
@@ -3,6 +3,7 @@ package containers;
 import static org.junit.Assert.*;
 
 import java.util.Iterator;
+import java.util.stream.Collectors;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -139,4 +140,144 @@ public class ZTreeMapTest {
     assertTrue(emptyMap.isEqual(emptyMap));
   }
 
+  @Test
+  public void testUpdateOperations() {
+    assertEquals(Integer.valueOf(2), m1.insert("two", 22));
+    assertEquals(null, m1.insert("seven", 7));
+    assertEquals(Integer.valueOf(22), m1.putIfAbsent("two", 2));
+    assertEquals(null, m1.putIfAbsent("eight", 8));
+    assertEquals(7, m1.size());
+    assertEquals(22, m1.getOrDefault("two", 0).intValue());
+    assertEquals(0, m1.getOrDefault("nine", 0).intValue());
+
+    assertEquals(23, m1.compute("two", (k, v) -> v+1).intValue());
+    assertEquals(null, m1.compute("seven", (k, v) -> null));
+    assertFalse(m1.hasKey("seven"));
+    assertEquals(4, m1.compute("four", (k, v) -> v == null ? 0 : v).intValue());
+    assertEquals(9, m1.compute("nine", (k, v) -> v == null ? 9 : v).intValue());
+    assertEquals(null, m1.compute("ten", (k, v) -> null));
+    assertFalse(m1.hasKey("ten"));
+
+    assertEquals(9, m1.computeIfAbsent("nine", k -> 99).intValue());
+    assertEquals(4, m1.computeIfAbsent("zero", k -> k.length()).intValue());
+    assertEquals(null, m1.computeIfAbsent("ten", k -> null));
+    assertFalse(m1.hasKey("ten"));
+    assertEquals(null, m1.computeIfPresent("ten", (k, v) -> 10));
+    assertFalse(m1.hasKey("ten"));
+    assertEquals(90, m1.computeIfPresent("nine", (k, v) -> v*10).intValue());
+    assertEquals(null, m1.computeIfPresent("nine", (k, v) -> null));
+    assertFalse(m1.hasKey("nine"));
+    assertEquals(7, m1.size());
+
+    String[] words = { "a", "b", "a", "c", "b", "a" };
+    for (String w : words) emptyMap.merge(w, 1, Integer::sum);
+    assertEquals(3, emptyMap.size());
+    assertEquals(3, emptyMap.get("a").intValue());
+    assertEquals(2, emptyMap.get("b").intValue());
+    assertEquals(1, emptyMap.get("c").intValue());
+    assertEquals(null, emptyMap.merge("c", 1, (a, b) -> null));
+    assertFalse(emptyMap.hasKey("c"));
+    assertEquals(2, emptyMap.size());
+  }
+
+  @Test
+  public void testThrowingRemapping() {
+    try {
+      m1.compute("two", (k, v) -> { throw new IllegalStateException(); });
+      fail("exception swallowed");
+    } catch (IllegalStateException e) { }
+    assertEquals(2, m1.get("two").intValue());
+    try {
+      m1.compute("seven", (k, v) -> { throw new IllegalStateException(); });
+      fail("exception swallowed");
+    } catch (IllegalStateException e) { }
+    assertFalse(m1.hasKey("seven"));
+    try {
+      m1.computeIfAbsent("seven", k -> { throw new IllegalStateException(); });
+      fail("exception swallowed");
+    } catch (IllegalStateException e) { }
+    assertFalse(m1.hasKey("seven"));
+    assertEquals(5, m1.size());
+  }
+
+  @Test
+  public void testNullValuesAddNothing() {
+    HashMap<String,Integer> hashMap = new HashMap<>();
+    assertNull(hashMap.merge("x", null, Integer::sum));
+    assertNull(emptyMap.merge("x", null, Integer::sum));
+    assertEquals(hashMap.size(), emptyMap.size());
+    assertEquals(hashMap.hasKey("x"), emptyMap.hasKey("x"));
+    assertNull(hashMap.compute("x", (k, v) -> null));
+    assertNull(emptyMap.compute("x", (k, v) -> null));
+    assertNull(emptyMap.computeIfAbsent("x", k -> null));
+    assertEquals(hashMap.size(), emptyMap.size());
+    assertFalse(emptyMap.hasKey("x"));
+  }
+
+  @Test
+  public void testComputeSeesNoPlaceholder() {
+    m1.compute("seven", (k, v) -> {
+      assertNull(v);
+      assertEquals(5, m1.size());
+      assertFalse(m1.hasKey("seven"));
+      return 7;
+    });
+    assertEquals(7, m1.get("seven").intValue());
+    m1.computeIfAbsent("eight", k -> {
+      assertEquals(6, m1.size());
+      assertFalse(m1.hasKey("eight"));
+      return 8;
+    });
+    assertEquals(8, m1.get("eight").intValue());
+    assertEquals(7, m1.size());
+  }
+
+  @Test
+  public void testEntryIteratorAndForEach() {
+    Iterator<Map.Entry<String,Integer>> iter = emptyMap.entryIterator();
+    assertFalse(iter.hasNext());
+
+    boolean[] seen = new boolean[5];
+    iter = m1.entryIterator();
+    while (iter.hasNext()) {
+      Map.Entry<String,Integer> entry = iter.next();
+      assertEquals(m1.get(entry.getKey()), entry.getValue());
+      seen[entry.getValue()-2] = true;
+    }
+    for (boolean b : seen) assertTrue(b);
+
+    final boolean[] pairs = new boolean[5];
+    m1.forEach((k, v) -> { if (m1.get(k) == v) pairs[v-2] = true; });
+    for (boolean b : pairs) assertTrue(b);
+  }
+
+  @Test
+  public void testEntriesInKeyOrder() {
+    StringBuffer keys = new StringBuffer();
+    m1.forEach((k, v) -> keys.append(k).append(v));
+    assertEquals("five5four4six6three3two2", keys.toString());
+
+    TreeMap<String,Integer> m2 = new TreeMap<>();
+    m2.insert("six",  6);
+    m2.insert("five", 5);
+    m2.insert("four", 4);
+    m2.insert("three",3);
+    m2.insert("two",  2);
+    assertTrue(m1.isEqual(m2));
+    m2.insert("two", 22);
+    assertFalse(m1.isEqual(m2));
+    m2.delete("two");
+    m2.insert("one", 2);
+    assertFalse(m1.isEqual(m2));
+  }
+
+  @Test
+  public void testStream() {
+    TreeMap<String,Integer> m = new TreeMap<>();
+    for (int i = 0; i < 1000; i++) m.insert(String.format("k%04d", 999-i), i);
+    java.util.List<Integer> collected = m.parallelStream().collect(Collectors.toList());
+    assertEquals(1000, collected.size());
+    for (int i = 0; i < 1000; i++) assertEquals(999-i, collected.get(i).intValue());
+    assertEquals(499500, m.parallelStream().mapToLong(Integer::longValue).sum());
+  }
 }
@@ -2,6 +2,9 @@ package containers;
 
 import static org.junit.Assert.*;
 
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -163,4 +166,36 @@ public class ZTreeSetTest {
     assertEquals("[1,3,5,7,9,11]", s1.complement(s3).toString());
     assertEquals("[3,5,7,11]", s2.complement(s3).toString());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testSpliterator() {
+    TreeSet<Integer> set = new TreeSet<>();
+    for (int i = 0; i < 5000; i++) set.insert((i * 7919) % 5000);
+    Spliterator<Integer> s = set.spliterator();
+    assertTrue(s.hasCharacteristics(Spliterator.SIZED | Spliterator.SORTED | Spliterator.DISTINCT));
+    assertNull(s.getComparator());
+    assertEquals(5000, s.estimateSize());
+    Spliterator<Integer> prefix = s.trySplit();
+    assertFalse(s.hasCharacteristics(Spliterator.SIZED));
+    int[] last = {-1};
+    prefix.forEachRemaining(x -> assertEquals(++last[0], x.intValue()));
+    s.forEachRemaining(x -> assertEquals(++last[0], x.intValue()));
+    assertEquals(4999, last[0]);
+    assertEquals(5000, countBySplitting(set.spliterator()));
+
+    java.util.List<Integer> collected = set.parallelStream().collect(Collectors.toList());
+    for (int i = 0; i < 5000; i++) assertEquals(i, collected.get(i).intValue());
+    assertEquals(0, emptySet.parallelStream().count());
+  }
+
+  /**
+   * Split a spliterator as far as it goes and count the elements in all the pieces.
+   */
+  private static long countBySplitting(Spliterator<?> spliterator) {
+    Spliterator<?> prefix = spliterator.trySplit();
+    long n = (prefix == null) ? 0 : countBySplitting(prefix);
+    long[] rest = {0};
+    spliterator.forEachRemaining(x -> rest[0]++);
+    return n + rest[0];
+  }
+}
@@ -3,6 +3,7 @@ package containers;
 import static org.junit.Assert.*;
 
 import java.util.Iterator;
+import java.util.Spliterator;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -353,4 +354,34 @@ public class ZTwoThreeTreeTest
     public ToStringer() { toStringerResult = ""; }
     public void visit(Integer value) { toStringerResult += value; }
   }
+
+  @Test
+  public void testSpliterator() {
+    TwoThreeTree<Integer> tree = new TwoThreeTree<>();
+    for (int i = 0; i < 3000; i++) tree.insert((i * 1237) % 3000);
+    assertEquals(3000, tree.spliterator().estimateSize());
+    assertEquals(3000, countBySplitting(tree.spliterator()));
+
+    // the pieces of a split tree are in order and together hold every value once
+    java.util.List<Spliterator<Integer>> pieces = new java.util.ArrayList<>();
+    Spliterator<Integer> s = tree.spliterator();
+    for (Spliterator<Integer> p = s.trySplit(); p != null; p = s.trySplit()) pieces.add(p);
+    pieces.add(s);
+    int[] last = {-1};
+    for (Spliterator<Integer> p : pieces) p.forEachRemaining(x -> assertEquals(++last[0], x.intValue()));
+    assertEquals(2999, last[0]);
+    assertFalse(emptyTree.spliterator().tryAdvance(x -> fail("value in empty tree")));
+    assertEquals(1, countBySplitting(singletonTree.spliterator()));
+  }
+
+  /**
+   * Split a spliterator as far as it goes and count the elements in all the pieces.
+   */
+  private static long countBySplitting(Spliterator<?> spliterator) {
+    Spliterator<?> prefix = spliterator.trySplit();
+    long n = (prefix == null) ? 0 : countBySplitting(prefix);
+    long[] rest = {0};
+    spliterator.forEachRemaining(x -> rest[0]++);
+    return n + rest[0];
+  }
 }